@@ -0,0 +1,79 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.benchmark;
+
+import java.io.File;
+
+/**
+ * Base class of the benchmarks executed by {@link OBenchmarkRunner}. A benchmark measures the throughput of the {@link #cycle()}
+ * method: {@link #init()} and {@link #deinit()} are called once around all the warmup and measurement iterations and are never
+ * measured.
+ * 
+ * @author Luca Garulli
+ * 
+ */
+public abstract class OBenchmark {
+	private final String	name;
+
+	protected OBenchmark(final String iName) {
+		name = iName;
+	}
+
+	/**
+	 * Prepares the benchmark. Throwing an exception skips the benchmark, for example when a remote server is not reachable.
+	 */
+	public void init() throws Exception {
+	}
+
+	/**
+	 * Executes one operation.
+	 */
+	public abstract void cycle() throws Exception;
+
+	public void deinit() throws Exception {
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns an empty working directory for the benchmark under the path set in the "orient.benchmark.path" system property.
+	 */
+	protected String getWorkPath() {
+		final File dir = new File(OBenchmarkRunner.WORK_PATH, name);
+		deleteDirectory(dir);
+		dir.mkdirs();
+		return dir.getAbsolutePath();
+	}
+
+	protected static void deleteDirectory(final File iDirectory) {
+		final File[] files = iDirectory.listFiles();
+		if (files != null)
+			for (File f : files)
+				if (f.isDirectory())
+					deleteDirectory(f);
+				else
+					f.delete();
+
+		iDirectory.delete();
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
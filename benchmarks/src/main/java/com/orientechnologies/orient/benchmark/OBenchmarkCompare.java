@@ -0,0 +1,104 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compares two result files written by {@link OBenchmarkRunner}. A benchmark is reported as a regression when its throughput is
+ * lower than the baseline by more than the threshold and the confidence intervals of the two measurements don't overlap. Exits with
+ * status 1 if any regression is found.
+ * <p>
+ * Usage: OBenchmarkCompare &lt;baseline-file&gt; &lt;current-file&gt; [&lt;threshold-percent&gt;, default 5]
+ * </p>
+ * 
+ * @author Luca Garulli
+ * 
+ */
+public class OBenchmarkCompare {
+	public static void main(final String[] iArgs) throws IOException {
+		if (iArgs.length < 2) {
+			System.err.println("Usage: OBenchmarkCompare <baseline-file> <current-file> [<threshold-percent>]");
+			System.exit(2);
+		}
+
+		final double threshold = iArgs.length > 2 ? Double.parseDouble(iArgs[2]) : 5;
+
+		final int regressions = compare(load(new File(iArgs[0])), load(new File(iArgs[1])), threshold);
+		if (regressions > 0) {
+			System.out.println("Found " + regressions + " regression(s) over the threshold of " + threshold + "%");
+			System.exit(1);
+		}
+
+		System.out.println("No regressions over the threshold of " + threshold + "%");
+	}
+
+	public static Map<String, OBenchmarkResult> load(final File iFile) throws IOException {
+		final Map<String, OBenchmarkResult> results = new LinkedHashMap<String, OBenchmarkResult>();
+
+		final BufferedReader in = new BufferedReader(new FileReader(iFile));
+		try {
+			String line;
+			while ((line = in.readLine()) != null) {
+				line = line.trim();
+				if (line.length() == 0 || line.startsWith("#") || line.equals(OBenchmarkResult.CSV_HEADER))
+					continue;
+
+				final OBenchmarkResult r = OBenchmarkResult.fromCSV(line);
+				results.put(r.getName(), r);
+			}
+		} finally {
+			in.close();
+		}
+		return results;
+	}
+
+	/**
+	 * Prints the comparison and returns the number of regressions found.
+	 */
+	public static int compare(final Map<String, OBenchmarkResult> iBaseline, final Map<String, OBenchmarkResult> iCurrent,
+			final double iThreshold) {
+		int regressions = 0;
+
+		for (OBenchmarkResult current : iCurrent.values()) {
+			final OBenchmarkResult base = iBaseline.get(current.getName());
+			if (base == null) {
+				System.out.println(String.format("%-40s %14.1f %s (new)", current.getName(), current.getMean(), OBenchmarkResult.UNIT));
+				continue;
+			}
+
+			final double delta = (current.getMean() - base.getMean()) * 100 / base.getMean();
+
+			String status = "";
+			if (Math.abs(delta) > iThreshold)
+				if (current.getMean() + current.getError() < base.getMean() - base.getError()) {
+					status = "REGRESSION";
+					regressions++;
+				} else if (current.getMean() - current.getError() > base.getMean() + base.getError())
+					status = "improvement";
+
+			System.out.println(String.format("%-40s %14.1f -> %14.1f %s %+7.1f%% %s", current.getName(), base.getMean(),
+					current.getMean(), OBenchmarkResult.UNIT, delta, status));
+		}
+
+		return regressions;
+	}
+}
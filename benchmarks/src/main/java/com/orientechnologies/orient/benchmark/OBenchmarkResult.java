@@ -0,0 +1,132 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.benchmark;
+
+import java.util.Locale;
+
+/**
+ * Throughput statistics of a benchmark, in operations per second. The error is the half width of the 99% confidence interval of
+ * the mean, computed with the normal approximation.
+ * 
+ * @author Luca Garulli
+ * 
+ */
+public class OBenchmarkResult {
+	public static final String	CSV_HEADER	= "benchmark,iterations,mean,error,stddev,min,max,unit";
+	public static final String	UNIT				= "ops/s";
+
+	private static final double	Z_99				= 2.576;
+
+	private final String				name;
+	private final int						iterations;
+	private final double				mean;
+	private final double				error;
+	private final double				stddev;
+	private final double				min;
+	private final double				max;
+
+	public OBenchmarkResult(final String iName, final double[] iSamples) {
+		name = iName;
+		iterations = iSamples.length;
+
+		double sum = 0;
+		double minValue = Double.MAX_VALUE;
+		double maxValue = 0;
+		for (double s : iSamples) {
+			sum += s;
+			minValue = Math.min(minValue, s);
+			maxValue = Math.max(maxValue, s);
+		}
+		mean = sum / iterations;
+		min = minValue;
+		max = maxValue;
+
+		double squares = 0;
+		for (double s : iSamples)
+			squares += (s - mean) * (s - mean);
+		stddev = iterations > 1 ? Math.sqrt(squares / (iterations - 1)) : 0;
+		error = Z_99 * stddev / Math.sqrt(iterations);
+	}
+
+	protected OBenchmarkResult(final String iName, final int iIterations, final double iMean, final double iError,
+			final double iStdDev, final double iMin, final double iMax) {
+		name = iName;
+		iterations = iIterations;
+		mean = iMean;
+		error = iError;
+		stddev = iStdDev;
+		min = iMin;
+		max = iMax;
+	}
+
+	/**
+	 * Parses a line written by {@link #toCSV()}.
+	 */
+	public static OBenchmarkResult fromCSV(final String iLine) {
+		final String[] parts = iLine.split(",");
+		if (parts.length < 7)
+			throw new IllegalArgumentException("Invalid benchmark result: " + iLine);
+
+		return new OBenchmarkResult(parts[0], Integer.parseInt(parts[1]), Double.parseDouble(parts[2]), Double.parseDouble(parts[3]),
+				Double.parseDouble(parts[4]), Double.parseDouble(parts[5]), Double.parseDouble(parts[6]));
+	}
+
+	public String toCSV() {
+		final StringBuilder buffer = new StringBuilder();
+		buffer.append(name);
+		buffer.append(',');
+		buffer.append(iterations);
+		buffer.append(',');
+		buffer.append(String.format(Locale.ENGLISH, "%.3f,%.3f,%.3f,%.3f,%.3f", mean, error, stddev, min, max));
+		buffer.append(',');
+		buffer.append(UNIT);
+		return buffer.toString();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getIterations() {
+		return iterations;
+	}
+
+	public double getMean() {
+		return mean;
+	}
+
+	public double getError() {
+		return error;
+	}
+
+	public double getStdDev() {
+		return stddev;
+	}
+
+	public double getMin() {
+		return min;
+	}
+
+	public double getMax() {
+		return max;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(Locale.ENGLISH, "%-40s %14.1f +- %10.1f %s (min %.1f, max %.1f, stddev %.1f)", name, mean, error, UNIT,
+				min, max, stddev);
+	}
+}
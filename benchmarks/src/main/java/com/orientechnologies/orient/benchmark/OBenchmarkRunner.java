@@ -0,0 +1,194 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.benchmark;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import com.orientechnologies.orient.benchmark.remote.ORemoteBenchmark;
+import com.orientechnologies.orient.benchmark.serialization.ORecordSerializerBenchmark;
+import com.orientechnologies.orient.benchmark.sql.OSQLFilterBenchmark;
+import com.orientechnologies.orient.benchmark.storage.OFileBenchmark;
+import com.orientechnologies.orient.benchmark.storage.OStorageLocalBenchmark;
+import com.orientechnologies.orient.benchmark.tree.OTreeMapBenchmark;
+import com.orientechnologies.orient.core.OConstants;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerJSON;
+import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerSchemaAware2CSV;
+
+/**
+ * Executes the benchmarks and writes the results in CSV format to compare different builds with {@link OBenchmarkCompare}. Each
+ * benchmark runs a set of warmup iterations, whose results are discarded, followed by the measured iterations. Every iteration
+ * calls the benchmark's cycle for a fixed time and counts the operations done. Settings, as system properties:
+ * <ul>
+ * <li>orient.benchmark.warmups: warmup iterations, default 5</li>
+ * <li>orient.benchmark.iterations: measured iterations, default 10</li>
+ * <li>orient.benchmark.time: duration of each iteration in ms, default 1000</li>
+ * <li>orient.benchmark.filter: regular expression to select the benchmarks to execute by name, default all</li>
+ * <li>orient.benchmark.path: working directory of the databases and files created, default the temporary directory</li>
+ * </ul>
+ * Usage: OBenchmarkRunner [&lt;output-file&gt;]
+ * 
+ * @author Luca Garulli
+ * 
+ */
+public class OBenchmarkRunner {
+	public static final String				WORK_PATH		= System.getProperty("orient.benchmark.path", System.getProperty("java.io.tmpdir")
+																									+ "/orient-benchmark");
+
+	protected final int								warmups			= Integer.getInteger("orient.benchmark.warmups", 5);
+	protected final int								iterations	= Integer.getInteger("orient.benchmark.iterations", 10);
+	protected final long							time				= Integer.getInteger("orient.benchmark.time", 1000) * 1000000l;
+	protected final String						filter			= System.getProperty("orient.benchmark.filter");
+	protected final List<OBenchmark>	benchmarks	= new ArrayList<OBenchmark>();
+
+	public static void main(final String[] iArgs) throws IOException {
+		final OBenchmarkRunner runner = new OBenchmarkRunner();
+		runner.addDefaultBenchmarks();
+
+		final List<OBenchmarkResult> results = runner.run();
+		runner.writeResults(results, new File(iArgs.length > 0 ? iArgs[0] : "benchmark-results.csv"));
+
+		Orient.instance().shutdown();
+	}
+
+	public void addDefaultBenchmarks() {
+		add(new OFileBenchmark(OFileBenchmark.TYPE.MMAP, false));
+		add(new OFileBenchmark(OFileBenchmark.TYPE.MMAP, true));
+		add(new OFileBenchmark(OFileBenchmark.TYPE.CLASSIC, false));
+		add(new OFileBenchmark(OFileBenchmark.TYPE.CLASSIC, true));
+		add(new OFileBenchmark(OFileBenchmark.TYPE.PAGED, false));
+		add(new OFileBenchmark(OFileBenchmark.TYPE.PAGED, true));
+
+		for (OStorageLocalBenchmark.OPERATION op : OStorageLocalBenchmark.OPERATION.values())
+			add(new OStorageLocalBenchmark(op));
+
+		add(new ORecordSerializerBenchmark("csv", ORecordSerializerSchemaAware2CSV.INSTANCE, true));
+		add(new ORecordSerializerBenchmark("csv", ORecordSerializerSchemaAware2CSV.INSTANCE, false));
+		add(new ORecordSerializerBenchmark("json", ORecordSerializerJSON.INSTANCE, true));
+		add(new ORecordSerializerBenchmark("json", ORecordSerializerJSON.INSTANCE, false));
+
+		add(new OTreeMapBenchmark(true));
+		add(new OTreeMapBenchmark(false));
+
+		add(new OSQLFilterBenchmark());
+
+		for (ORemoteBenchmark.OPERATION op : ORemoteBenchmark.OPERATION.values())
+			add(new ORemoteBenchmark(op));
+	}
+
+	public OBenchmarkRunner add(final OBenchmark iBenchmark) {
+		if (filter == null || iBenchmark.getName().matches(filter))
+			benchmarks.add(iBenchmark);
+		return this;
+	}
+
+	public List<OBenchmarkResult> run() {
+		final List<OBenchmarkResult> results = new ArrayList<OBenchmarkResult>();
+
+		for (OBenchmark b : benchmarks) {
+			final OBenchmarkResult result = run(b);
+			if (result != null) {
+				results.add(result);
+				System.out.println(result);
+			}
+		}
+
+		return results;
+	}
+
+	/**
+	 * Executes a benchmark. Returns null if the benchmark was skipped or failed.
+	 */
+	public OBenchmarkResult run(final OBenchmark iBenchmark) {
+		try {
+			iBenchmark.init();
+		} catch (Throwable t) {
+			System.err.println("Skipped benchmark '" + iBenchmark + "': " + t);
+			return null;
+		}
+
+		try {
+			// CALIBRATE THE NUMBER OF CYCLES BETWEEN TWO READS OF THE CLOCK ON ~1MS DURING THE WARMUP
+			long batch = 1;
+			for (int i = 0; i < warmups; ++i)
+				batch = Math.max(1, (long) (iterate(iBenchmark, batch) / 1000));
+
+			final double[] samples = new double[iterations];
+			for (int i = 0; i < iterations; ++i) {
+				Runtime.getRuntime().gc();
+				samples[i] = iterate(iBenchmark, batch);
+			}
+
+			return new OBenchmarkResult(iBenchmark.getName(), samples);
+
+		} catch (Throwable t) {
+			System.err.println("Error on executing benchmark '" + iBenchmark + "'");
+			t.printStackTrace();
+			return null;
+
+		} finally {
+			try {
+				iBenchmark.deinit();
+			} catch (Throwable t) {
+				System.err.println("Error on deinit of benchmark '" + iBenchmark + "': " + t);
+			}
+		}
+	}
+
+	/**
+	 * Calls the cycle of the benchmark for the configured time and returns the throughput in operations per second.
+	 */
+	protected double iterate(final OBenchmark iBenchmark, final long iBatch) throws Exception {
+		long operations = 0;
+		long elapsed;
+
+		final long start = System.nanoTime();
+		do {
+			for (long i = 0; i < iBatch; ++i)
+				iBenchmark.cycle();
+
+			operations += iBatch;
+			elapsed = System.nanoTime() - start;
+		} while (elapsed < time);
+
+		return operations * 1000000000d / elapsed;
+	}
+
+	public void writeResults(final List<OBenchmarkResult> iResults, final File iFile) throws IOException {
+		if (iFile.getAbsoluteFile().getParentFile() != null)
+			iFile.getAbsoluteFile().getParentFile().mkdirs();
+
+		final PrintWriter out = new PrintWriter(new FileWriter(iFile));
+		try {
+			out.println("# Orient Database v" + OConstants.ORIENT_VERSION + ", " + new Date() + ", Java " + System.getProperty("java.version")
+					+ " (" + System.getProperty("java.vm.name") + "), " + System.getProperty("os.name") + " " + System.getProperty("os.arch")
+					+ ", warmups=" + warmups + ", iterations=" + iterations + ", time=" + time / 1000000 + "ms");
+			out.println(OBenchmarkResult.CSV_HEADER);
+			for (OBenchmarkResult r : iResults)
+				out.println(r.toCSV());
+		} finally {
+			out.close();
+		}
+
+		System.out.println("Results written to " + iFile.getAbsolutePath());
+	}
+}
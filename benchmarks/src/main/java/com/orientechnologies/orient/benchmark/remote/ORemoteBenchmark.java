@@ -0,0 +1,100 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.benchmark.remote;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.orientechnologies.orient.benchmark.OBenchmark;
+import com.orientechnologies.orient.client.remote.OEngineRemote;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.record.impl.ORecordBytes;
+import com.orientechnologies.orient.core.storage.OStorage;
+
+/**
+ * Round trips of the binary protocol against a running server, by default on the loopback interface. The records are read and
+ * created through the remote storage, bypassing the client cache. Settings, as system properties:
+ * <ul>
+ * <li>orient.benchmark.remote: database URL, default "remote:localhost/demo"</li>
+ * <li>orient.benchmark.remote.user and orient.benchmark.remote.password, default "admin"</li>
+ * </ul>
+ * The benchmark is skipped if the server is not reachable. The records created are deleted at the end.
+ * 
+ * @author Luca Garulli
+ * 
+ */
+public class ORemoteBenchmark extends OBenchmark {
+	public enum OPERATION {
+		READ, CREATE
+	}
+
+	private static final int		RECORDS			= 1000;
+	private static final int		RECORD_SIZE	= 256;
+
+	private final OPERATION			operation;
+	private final Random				random			= new Random(0);
+	private final byte[]				content			= new byte[RECORD_SIZE];
+	private final List<Long>		created			= new ArrayList<Long>();
+	private ODatabaseDocumentTx	database;
+	private OStorage						storage;
+	private int									clusterId;
+
+	public ORemoteBenchmark(final OPERATION iOperation) {
+		super("remote.binary." + iOperation.toString().toLowerCase());
+		operation = iOperation;
+	}
+
+	@Override
+	public void init() throws Exception {
+		Orient.instance().registerEngine(new OEngineRemote());
+
+		database = new ODatabaseDocumentTx(System.getProperty("orient.benchmark.remote", "remote:localhost/demo")).open(
+				System.getProperty("orient.benchmark.remote.user", "admin"), System.getProperty("orient.benchmark.remote.password", "admin"));
+		storage = database.getStorage();
+		clusterId = storage.getClusterIdByName(OStorage.CLUSTER_DEFAULT_NAME);
+
+		random.nextBytes(content);
+		if (operation == OPERATION.READ)
+			for (int i = 0; i < RECORDS; ++i)
+				created.add(storage.createRecord(clusterId, content, ORecordBytes.RECORD_TYPE));
+	}
+
+	@Override
+	public void cycle() throws Exception {
+		switch (operation) {
+		case READ:
+			storage.readRecord(null, -1, clusterId, created.get(random.nextInt(RECORDS)), null);
+			break;
+
+		case CREATE:
+			created.add(storage.createRecord(clusterId, content, ORecordBytes.RECORD_TYPE));
+			break;
+		}
+	}
+
+	@Override
+	public void deinit() throws Exception {
+		if (database == null)
+			return;
+
+		for (Long position : created)
+			storage.deleteRecord(-1, clusterId, position, -1);
+
+		database.close();
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.benchmark.serialization;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import com.orientechnologies.orient.benchmark.OBenchmark;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializer;
+
+/**
+ * Marshalling or unmarshalling of a document with the most common field types, using a record serializer (CSV or JSON) against an
+ * in-memory database.
+ * 
+ * @author Luca Garulli
+ * 
+ */
+public class ORecordSerializerBenchmark extends OBenchmark {
+	private final ORecordSerializer	serializer;
+	private final boolean						marshall;
+	private ODatabaseDocumentTx			database;
+	private ODocument								document;
+	private byte[]									stream;
+
+	public ORecordSerializerBenchmark(final String iFormat, final ORecordSerializer iSerializer, final boolean iMarshall) {
+		super("serializer." + iFormat + (iMarshall ? ".toStream" : ".fromStream"));
+		serializer = iSerializer;
+		marshall = iMarshall;
+	}
+
+	@Override
+	public void init() throws Exception {
+		database = new ODatabaseDocumentTx("memory:" + getName()).create();
+		database.getMetadata().getSchema().createClass("Account");
+		database.getMetadata().getSchema().save();
+
+		final ODocument address = new ODocument(database);
+		address.field("street", "Piazza di Spagna, 1");
+		address.field("city", "Rome");
+		address.field("zip", 186);
+
+		final List<String> tags = new ArrayList<String>();
+		tags.add("customer");
+		tags.add("gold");
+		tags.add("europe");
+
+		document = new ODocument(database, "Account");
+		document.field("id", 1234567);
+		document.field("name", "Luca");
+		document.field("surname", "Garulli");
+		document.field("birthDate", new Date());
+		document.field("salary", 3000.5f);
+		document.field("active", true);
+		document.field("tags", tags);
+		document.field("address", address);
+
+		stream = serializer.toStream(database, document);
+	}
+
+	@Override
+	public void cycle() throws Exception {
+		if (marshall)
+			serializer.toStream(database, document);
+		else
+			serializer.fromStream(database, stream, new ODocument(database));
+	}
+
+	@Override
+	public void deinit() throws Exception {
+		if (database != null)
+			database.close();
+	}
+}
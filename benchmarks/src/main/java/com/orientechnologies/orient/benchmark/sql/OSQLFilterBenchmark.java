@@ -0,0 +1,73 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.benchmark.sql;
+
+import java.util.Date;
+
+import com.orientechnologies.orient.benchmark.OBenchmark;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.filter.OSQLFilter;
+
+/**
+ * Evaluates a SQL filter against documents built in memory, without any I/O.
+ * 
+ * @author Luca Garulli
+ * 
+ */
+public class OSQLFilterBenchmark extends OBenchmark {
+	private static final int		RECORDS	= 1000;
+	private ODatabaseDocumentTx	database;
+	private OSQLFilter					filter;
+	private ODocument[]					records;
+	private int									current;
+
+	public OSQLFilterBenchmark() {
+		super("sql.filter.evaluate");
+	}
+
+	@Override
+	public void init() throws Exception {
+		database = new ODatabaseDocumentTx("memory:" + getName()).create();
+		database.getMetadata().getSchema().createClass("Account");
+		database.getMetadata().getSchema().save();
+
+		filter = new OSQLFilter(database,
+				"Account where id > 100 and salary < 3900.5 and name like 'Lu%' and surname matches 'Gar.*' and birthDate is not null");
+
+		records = new ODocument[RECORDS];
+		for (int i = 0; i < RECORDS; ++i) {
+			records[i] = database.newInstance("Account");
+			records[i].field("id", i);
+			records[i].field("name", i % 2 == 0 ? "Luca" : "Jay");
+			records[i].field("surname", "Garulli");
+			records[i].field("birthDate", new Date());
+			records[i].field("salary", 3000f + i);
+		}
+	}
+
+	@Override
+	public void cycle() throws Exception {
+		filter.evaluate(database, records[current]);
+		current = (current + 1) % RECORDS;
+	}
+
+	@Override
+	public void deinit() throws Exception {
+		if (database != null)
+			database.close();
+	}
+}
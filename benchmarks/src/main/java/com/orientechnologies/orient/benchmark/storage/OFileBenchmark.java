@@ -0,0 +1,85 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.benchmark.storage;
+
+import java.util.Random;
+
+import com.orientechnologies.orient.benchmark.OBenchmark;
+import com.orientechnologies.orient.core.storage.fs.OFile;
+import com.orientechnologies.orient.core.storage.fs.OFileClassic;
+import com.orientechnologies.orient.core.storage.fs.OFileMMap;
+import com.orientechnologies.orient.core.storage.fs.OFilePaged;
+
+/**
+ * Random reads or writes of fixed size blocks against a pre-allocated file, using the memory mapped, the classic or the paged
+ * implementation.
+ * 
+ * @author Luca Garulli
+ * 
+ */
+public class OFileBenchmark extends OBenchmark {
+	public enum TYPE {
+		MMAP, CLASSIC, PAGED
+	}
+
+	private static final int	FILE_SIZE		= 16 * 1024 * 1024;
+	private static final int	BLOCK_SIZE	= 512;
+
+	private final TYPE				type;
+	private final boolean			write;
+	private final Random			random			= new Random(0);
+	private final byte[]			buffer			= new byte[BLOCK_SIZE];
+	private OFile							file;
+
+	public OFileBenchmark(final TYPE iType, final boolean iWrite) {
+		super("file." + iType.toString().toLowerCase() + (iWrite ? ".write" : ".read"));
+		type = iType;
+		write = iWrite;
+	}
+
+	@Override
+	public void init() throws Exception {
+		final String path = getWorkPath() + "/benchmark.ocl";
+		if (type == TYPE.MMAP)
+			file = new OFileMMap(path, "rw");
+		else if (type == TYPE.PAGED)
+			file = new OFilePaged(path, "rw");
+		else
+			file = new OFileClassic(path, "rw");
+		file.setMaxSize(FILE_SIZE * 2);
+		file.create(FILE_SIZE * 2);
+		file.allocateSpace(FILE_SIZE);
+
+		random.nextBytes(buffer);
+		for (int offset = 0; offset < FILE_SIZE; offset += BLOCK_SIZE)
+			file.write(offset, buffer);
+	}
+
+	@Override
+	public void cycle() throws Exception {
+		final int offset = random.nextInt(FILE_SIZE / BLOCK_SIZE) * BLOCK_SIZE;
+		if (write)
+			file.write(offset, buffer);
+		else
+			file.read(offset, buffer, BLOCK_SIZE);
+	}
+
+	@Override
+	public void deinit() throws Exception {
+		if (file != null)
+			file.delete();
+	}
+}
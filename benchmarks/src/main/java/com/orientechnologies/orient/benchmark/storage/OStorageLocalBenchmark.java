@@ -0,0 +1,89 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.benchmark.storage;
+
+import java.util.Random;
+
+import com.orientechnologies.orient.benchmark.OBenchmark;
+import com.orientechnologies.orient.core.record.impl.ORecordBytes;
+import com.orientechnologies.orient.core.storage.OStorage;
+import com.orientechnologies.orient.core.storage.impl.local.OStorageLocal;
+
+/**
+ * CRUD operations of raw records against a local storage, measuring the physical cluster (OClusterLocal) and the data segment
+ * (ODataLocal) without the database layer on top.
+ * 
+ * @author Luca Garulli
+ * 
+ */
+public class OStorageLocalBenchmark extends OBenchmark {
+	public enum OPERATION {
+		CREATE, READ, UPDATE, CREATE_DELETE
+	}
+
+	private static final int	RECORDS			= 100000;
+	private static final int	RECORD_SIZE	= 256;
+
+	private final OPERATION		operation;
+	private final Random			random			= new Random(0);
+	private final byte[]			content			= new byte[RECORD_SIZE];
+	private OStorageLocal			storage;
+	private int								clusterId;
+
+	public OStorageLocalBenchmark(final OPERATION iOperation) {
+		super("storage.local." + iOperation.toString().toLowerCase().replace('_', '-'));
+		operation = iOperation;
+	}
+
+	@Override
+	public void init() throws Exception {
+		storage = new OStorageLocal("benchmark", getWorkPath() + "/benchmark", "rw");
+		storage.create();
+		clusterId = storage.getClusterIdByName(OStorage.CLUSTER_DEFAULT_NAME);
+
+		random.nextBytes(content);
+		if (operation == OPERATION.READ || operation == OPERATION.UPDATE)
+			for (int i = 0; i < RECORDS; ++i)
+				storage.createRecord(clusterId, content, ORecordBytes.RECORD_TYPE);
+	}
+
+	@Override
+	public void cycle() throws Exception {
+		switch (operation) {
+		case CREATE:
+			storage.createRecord(clusterId, content, ORecordBytes.RECORD_TYPE);
+			break;
+
+		case READ:
+			storage.readRecord(null, -1, clusterId, random.nextInt(RECORDS), null);
+			break;
+
+		case UPDATE:
+			storage.updateRecord(-1, clusterId, random.nextInt(RECORDS), content, -1, ORecordBytes.RECORD_TYPE);
+			break;
+
+		case CREATE_DELETE:
+			storage.deleteRecord(-1, clusterId, storage.createRecord(clusterId, content, ORecordBytes.RECORD_TYPE), -1);
+			break;
+		}
+	}
+
+	@Override
+	public void deinit() throws Exception {
+		if (storage != null)
+			storage.close();
+	}
+}
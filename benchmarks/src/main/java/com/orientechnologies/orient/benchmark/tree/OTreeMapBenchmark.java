@@ -0,0 +1,79 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.benchmark.tree;
+
+import java.util.Random;
+
+import com.orientechnologies.orient.benchmark.OBenchmark;
+import com.orientechnologies.orient.core.db.record.ODatabaseBinary;
+import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerString;
+import com.orientechnologies.orient.core.storage.OStorage;
+import com.orientechnologies.orient.core.type.tree.OTreeMapDatabase;
+import com.orientechnologies.orient.core.type.tree.OTreeMapDatabaseLazySave;
+
+/**
+ * Puts or gets random keys of a persistent tree stored in a local database. Every put commits the changed nodes, as the dictionary
+ * does.
+ * 
+ * @author Luca Garulli
+ * 
+ */
+public class OTreeMapBenchmark extends OBenchmark {
+	private static final int									KEYS		= 100000;
+
+	private final boolean											put;
+	private final Random											random	= new Random(0);
+	private ODatabaseBinary										database;
+	private OTreeMapDatabase<String, String>	tree;
+
+	public OTreeMapBenchmark(final boolean iPut) {
+		super("tree.persistent" + (iPut ? ".put" : ".get"));
+		put = iPut;
+	}
+
+	@Override
+	public void init() throws Exception {
+		database = new ODatabaseBinary("local:" + getWorkPath() + "/benchmark").create();
+
+		if (put)
+			tree = new OTreeMapDatabase<String, String>(database, OStorage.CLUSTER_INDEX_NAME, OStreamSerializerString.INSTANCE,
+					OStreamSerializerString.INSTANCE);
+		else {
+			// LOAD THE KEYS COMMITTING ONLY AT THE END
+			final OTreeMapDatabaseLazySave<String, String> lazyTree = new OTreeMapDatabaseLazySave<String, String>(database,
+					OStorage.CLUSTER_INDEX_NAME, OStreamSerializerString.INSTANCE, OStreamSerializerString.INSTANCE);
+			for (int i = 0; i < KEYS; ++i)
+				lazyTree.put(String.valueOf(i), "value-" + i);
+			lazyTree.lazySave();
+			tree = lazyTree;
+		}
+	}
+
+	@Override
+	public void cycle() throws Exception {
+		final String key = String.valueOf(random.nextInt(KEYS));
+		if (put)
+			tree.put(key, "value-" + key);
+		else
+			tree.get(key);
+	}
+
+	@Override
+	public void deinit() throws Exception {
+		if (database != null)
+			database.close();
+	}
+}
@@ -247,6 +247,47 @@ public class OStorageRemote extends OStorageAbstract {
 		return null;
 	}
 
+	/**
+	 * Reads a page of records in one network round trip.
+	 */
+	@Override
+	public ORawBuffer[] readRecords(final int iRequesterId, final int iClusterId, final long iFromPosition, final int iCount) {
+		checkConnection();
+
+		if (OStorageRemoteThreadLocal.INSTANCE.get())
+			// PENDING NETWORK OPERATION, CAN'T EXECUTE IT NOW
+			return null;
+
+		do {
+			boolean locked = acquireExclusiveLock();
+
+			try {
+				network.writeByte(OChannelBinaryProtocol.RECORD_LOAD_RANGE);
+				network.writeShort((short) iClusterId);
+				network.writeLong(iFromPosition);
+				network.writeInt(iCount);
+				network.flush();
+
+				readStatus();
+
+				final ORawBuffer[] buffers = new ORawBuffer[network.readInt()];
+				for (int i = 0; i < buffers.length; ++i)
+					if (network.readByte() == 1)
+						buffers[i] = new ORawBuffer(network.readBytes(), network.readInt(), network.readByte());
+
+				return buffers;
+
+			} catch (Exception e) {
+				if (handleException("Error on read records: " + iClusterId + ":" + iFromPosition, e))
+					break;
+
+			} finally {
+				releaseExclusiveLock(locked);
+			}
+		} while (true);
+		return null;
+	}
+
 	public int updateRecord(final int iRequesterId, final int iClusterId, final long iPosition, final byte[] iContent,
 			final int iVersion, final byte iRecordType) {
 		checkConnection();
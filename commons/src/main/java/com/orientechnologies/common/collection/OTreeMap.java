@@ -832,8 +832,7 @@ public abstract class OTreeMap<K, V> extends AbstractMap<K, V> implements ONavig
 	 */
 	@Override
 	public Collection<V> values() {
-		Collection<V> vs = values();
-		return (vs != null) ? vs : null;
+		return new Values();
 	}
 
 	/**
@@ -15,45 +15,96 @@
  */
 package com.orientechnologies.common.concur.resource;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.orientechnologies.common.concur.lock.OLockException;
+import com.orientechnologies.common.profiler.OProfiler;
+import com.orientechnologies.common.profiler.OProfilerCounter;
+import com.orientechnologies.common.profiler.OProfilerHistogram;
 
+/**
+ * Elastic pool of resources. Resources are created on demand up to the maximum and the idle ones are reused in LIFO order, so the
+ * least used ones age and can be evicted by {@link #evictIdle(long)} keeping at least the minimum.
+ * 
+ * @author Luca Garulli
+ * 
+ */
 public class OResourcePool<K, V> {
-	private final Semaphore							sem;
-	private final Queue<V>							resources	= new ConcurrentLinkedQueue<V>();
-	private OResourcePoolListener<K, V>	listener;
+	private static final OProfilerHistogram	CHRONO_WAIT				= OProfiler.getInstance().registerChrono("ResourcePool.wait");
+	private static final OProfilerCounter		COUNTER_CREATED		= OProfiler.getInstance().registerCounter("ResourcePool.created");
+	private static final OProfilerCounter		COUNTER_EVICTED		= OProfiler.getInstance().registerCounter("ResourcePool.evicted");
+	private static final OProfilerCounter		COUNTER_TIMEOUT		= OProfiler.getInstance().registerCounter("ResourcePool.timeout");
+
+	private final Semaphore									sem;
+	private final int												minResources;
+	private final int												maxResources;
+	private final LinkedList<OIdleResource<V>>	resources					= new LinkedList<OIdleResource<V>>();
+	private final AtomicInteger							created						= new AtomicInteger();
+	private OResourcePoolListener<K, V>			listener;
+
+	private static class OIdleResource<V> {
+		private final V			resource;
+		private final long	releasedOn;
+
+		private OIdleResource(final V iResource) {
+			resource = iResource;
+			releasedOn = System.currentTimeMillis();
+		}
+	}
 
 	public OResourcePool(final int iMaxResources, final OResourcePoolListener<K, V> iListener) {
+		this(0, iMaxResources, iListener);
+	}
+
+	public OResourcePool(final int iMinResources, final int iMaxResources, final OResourcePoolListener<K, V> iListener) {
+		if (iMaxResources < 1 || iMinResources > iMaxResources)
+			throw new IllegalArgumentException("Invalid pool size: min=" + iMinResources + ", max=" + iMaxResources);
+
 		listener = iListener;
+		minResources = iMinResources;
+		maxResources = iMaxResources;
 		sem = new Semaphore(iMaxResources, true);
 	}
 
 	public V getResource(K iKey, final long iMaxWaitMillis, String... iAdditionalArgs) throws OLockException {
+		final long timer = OProfiler.getInstance().startChrono();
 
 		// First, get permission to take or create a resource
 		try {
-			if (!sem.tryAcquire(iMaxWaitMillis, TimeUnit.MILLISECONDS))
+			if (!sem.tryAcquire(iMaxWaitMillis, TimeUnit.MILLISECONDS)) {
+				COUNTER_TIMEOUT.increment();
 				throw new OLockException("Can't acquire lock on requested resource: " + iKey);
+			}
 		} catch (InterruptedException e) {
 			throw new OLockException("Can't acquire lock on requested resource: " + iKey, e);
+		} finally {
+			CHRONO_WAIT.stop(timer);
 		}
 
 		// Then, actually take one if available...
-		V res = resources.poll();
-		if (res != null) {
-			listener.reuseResource(iKey, res);
-			return res;
+		final OIdleResource<V> idle;
+		synchronized (resources) {
+			idle = resources.isEmpty() ? null : resources.removeLast();
+		}
+
+		if (idle != null) {
+			listener.reuseResource(iKey, idle.resource);
+			return idle.resource;
 		}
 
 		// ...or create one if none available
 		try {
-			res = listener.createNewResource(iKey, iAdditionalArgs);
+			final V res = listener.createNewResource(iKey, iAdditionalArgs);
+			created.incrementAndGet();
+			COUNTER_CREATED.increment();
 			return res;
 		} catch (Exception e) {
 			// Don't hog the permit if we failed to create a resource!
@@ -63,12 +114,72 @@ public class OResourcePool<K, V> {
 	}
 
 	public void returnResource(final V res) {
-		resources.add(res);
+		synchronized (resources) {
+			resources.addLast(new OIdleResource<V>(res));
+		}
 		sem.release();
 	}
 
+	/**
+	 * Removes the resources not used since iMaxIdleMillis, keeping at least the minimum configured. The caller is in charge to
+	 * close them.
+	 * 
+	 * @return The evicted resources
+	 */
+	public List<V> evictIdle(final long iMaxIdleMillis) {
+		final long limit = System.currentTimeMillis() - iMaxIdleMillis;
+		final List<V> evicted = new ArrayList<V>();
+
+		synchronized (resources) {
+			// THE OLDEST ARE AT THE HEAD
+			for (Iterator<OIdleResource<V>> it = resources.iterator(); it.hasNext() && created.get() > minResources;) {
+				final OIdleResource<V> idle = it.next();
+				if (idle.releasedOn > limit)
+					break;
+
+				it.remove();
+				created.decrementAndGet();
+				evicted.add(idle.resource);
+			}
+		}
+
+		COUNTER_EVICTED.add(evicted.size());
+		return evicted;
+	}
+
 	public Collection<V> getResources() {
-		return Collections.unmodifiableCollection(resources);
+		final List<V> result = new ArrayList<V>();
+		synchronized (resources) {
+			for (OIdleResource<V> idle : resources)
+				result.add(idle.resource);
+		}
+		return Collections.unmodifiableCollection(result);
+	}
+
+	public int getMinResources() {
+		return minResources;
+	}
+
+	public int getMaxResources() {
+		return maxResources;
+	}
+
+	/**
+	 * Returns the resources created and not evicted, both in use and idle.
+	 */
+	public int getCreatedInstances() {
+		return created.get();
+	}
+
+	/**
+	 * Returns the resources that can be acquired without waiting.
+	 */
+	public int getAvailableResources() {
+		return sem.availablePermits();
+	}
+
+	public int getResourcesInUse() {
+		return maxResources - sem.availablePermits();
 	}
 
 	public void close() {
@@ -17,10 +17,12 @@
 package com.orientechnologies.common.profiler;
 
 import java.util.Date;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Profiling utility class. Handles chronos (times) and statistics. By default it's used as Singleton but you can create any
@@ -28,50 +30,104 @@ import java.util.Set;
  * 
  * To start the recording use call startRecording(). By default record is turned off to avoid a run-time execution cost.
  * 
+ * Statistics and chronos are lock-free: statistics are striped counters and chronos measure the time in nanoseconds collecting
+ * them in histograms to compute the percentiles. Hot paths can bind the handles once by {@link #registerCounter(String)} and
+ * {@link #registerChrono(String)} to avoid the lookup by name.
+ * 
  * @author Luca Garulli
  * @copyrights Orient Technologies.com
  */
 public class OProfiler implements OProfilerMBean {
-	private long											recording	= -1;
-	private HashMap<String, Long>			statistics;
-	private HashMap<String, OChrono>	chronos;
-	private Date											lastReset;
+	// NANO TIMES ARE RELATIVE TO THIS BASE TO BE ALWAYS POSITIVE: -1 MEANS NOT RECORDING
+	protected static final long																NANO_BASE	= System.nanoTime();
+
+	private volatile long																			recording	= -1;
+	private final ConcurrentMap<String, OProfilerCounter>		statistics;
+	private final ConcurrentMap<String, OProfilerHistogram>	chronos;
+	private volatile Date																			lastReset;
 
-	protected static final OProfiler	instance	= new OProfiler();
+	protected static final OProfiler													instance	= new OProfiler();
 
 	// INNER CLASSES:
-	public class OChrono {
+	/**
+	 * Snapshot of a chrono. All the times are in milliseconds.
+	 */
+	public static class OChrono {
 		public String	name						= null;
 		public long		items						= 0;
-		public long		lastElapsed			= 0;
-		public long		minElapsed			= 999999999;
-		public long		maxElapsed			= 0;
-		public long		averageElapsed	= 0;
-		public long		totalElapsed		= 0;
+		public double	lastElapsed			= 0;
+		public double	minElapsed			= 0;
+		public double	maxElapsed			= 0;
+		public double	averageElapsed	= 0;
+		public double	totalElapsed		= 0;
+		public double	percentile50		= 0;
+		public double	percentile99		= 0;
+		public double	percentile999		= 0;
+
+		protected OChrono(final OProfilerHistogram iHistogram) {
+			name = iHistogram.getName();
+			items = iHistogram.getItems();
+			lastElapsed = toMillis(iHistogram.getLast());
+			minElapsed = toMillis(iHistogram.getMin());
+			maxElapsed = toMillis(iHistogram.getMax());
+			averageElapsed = toMillis(iHistogram.getAverage());
+			totalElapsed = toMillis(iHistogram.getTotal());
+			percentile50 = toMillis(iHistogram.getPercentile(50));
+			percentile99 = toMillis(iHistogram.getPercentile(99));
+			percentile999 = toMillis(iHistogram.getPercentile(99.9));
+		}
 
 		@Override
 		public String toString() {
 			return "Chrono [averageElapsed=" + averageElapsed + ", items=" + items + ", lastElapsed=" + lastElapsed + ", maxElapsed="
-					+ maxElapsed + ", minElapsed=" + minElapsed + ", name=" + name + ", totalElapsed=" + totalElapsed + "]";
+					+ maxElapsed + ", minElapsed=" + minElapsed + ", name=" + name + ", totalElapsed=" + totalElapsed + ", p50="
+					+ percentile50 + ", p99=" + percentile99 + ", p999=" + percentile999 + "]";
+		}
+
+		private static double toMillis(final long iNanos) {
+			return iNanos / 1000000d;
 		}
 	}
 
 	public OProfiler() {
-		init();
+		statistics = new ConcurrentHashMap<String, OProfilerCounter>();
+		chronos = new ConcurrentHashMap<String, OProfilerHistogram>();
+		lastReset = new Date();
 	}
 
 	public OProfiler(String iRecording) {
+		this();
+
 		if (iRecording.equalsIgnoreCase("true"))
 			startRecording();
-
-		init();
 	}
 
-	private void init() {
-		statistics = new HashMap<String, Long>();
-		chronos = new HashMap<String, OChrono>();
+	/**
+	 * Returns the handle of the statistic, creating it if not exists. The handle remains valid after a {@link #reset()}.
+	 */
+	public OProfilerCounter registerCounter(final String iStatName) {
+		OProfilerCounter counter = statistics.get(iStatName);
+		if (counter == null) {
+			counter = new OProfilerCounter(this, iStatName);
+			final OProfilerCounter prev = statistics.putIfAbsent(iStatName, counter);
+			if (prev != null)
+				counter = prev;
+		}
+		return counter;
+	}
 
-		lastReset = new Date();
+	/**
+	 * Returns the handle of the chrono, creating it if not exists. The handle remains valid after a {@link #reset()}.
+	 */
+	public OProfilerHistogram registerChrono(final String iChronoName) {
+		OProfilerHistogram chrono = chronos.get(iChronoName);
+		if (chrono == null) {
+			chrono = new OProfilerHistogram(this, iChronoName);
+			final OProfilerHistogram prev = chronos.putIfAbsent(iChronoName, chrono);
+			if (prev != null)
+				chrono = prev;
+		}
+		return chrono;
 	}
 
 	// ----------------------------------------------------------------------------
@@ -80,7 +136,7 @@ public class OProfiler implements OProfilerMBean {
 	 * 
 	 * @see com.orientechnologies.common.profiler.ProfileMBean#updateStatistic(java.lang.String, long)
 	 */
-	public synchronized void updateStatistic(final String iStatName, final long iPlus) {
+	public void updateStatistic(final String iStatName, final long iPlus) {
 		// CHECK IF STATISTICS ARE ACTIVED
 		if (recording < 0)
 			return;
@@ -88,13 +144,7 @@ public class OProfiler implements OProfilerMBean {
 		if (iStatName == null)
 			return;
 
-		Long stat = statistics.get(iStatName);
-
-		long oldValue = stat == null ? 0 : stat.longValue();
-
-		stat = new Long(oldValue + iPlus);
-
-		statistics.put(iStatName, stat);
+		registerCounter(iStatName).add(iPlus);
 	}
 
 	// ----------------------------------------------------------------------------
@@ -103,7 +153,7 @@ public class OProfiler implements OProfilerMBean {
 	 * 
 	 * @see com.orientechnologies.common.profiler.ProfileMBean#getStatistic(java.lang.String)
 	 */
-	public synchronized long getStatistic(final String iStatName) {
+	public long getStatistic(final String iStatName) {
 		// CHECK IF STATISTICS ARE ACTIVED
 		if (recording < 0)
 			return -1;
@@ -111,12 +161,12 @@ public class OProfiler implements OProfilerMBean {
 		if (iStatName == null)
 			return -1;
 
-		Long stat = statistics.get(iStatName);
+		final OProfilerCounter stat = statistics.get(iStatName);
 
 		if (stat == null)
 			return -1;
 
-		return stat.longValue();
+		return stat.get();
 	}
 
 	/*
@@ -124,7 +174,7 @@ public class OProfiler implements OProfilerMBean {
 	 * 
 	 * @see com.orientechnologies.common.profiler.ProfileMBean#dump()
 	 */
-	public synchronized String dump() {
+	public String dump() {
 		return "\n" + dumpStatistics() + "\n\n" + dumpChronos();
 	}
 
@@ -134,13 +184,14 @@ public class OProfiler implements OProfilerMBean {
 	 * 
 	 * @see com.orientechnologies.common.profiler.ProfileMBean#reset()
 	 */
-	public synchronized void reset() {
+	public void reset() {
 		lastReset = new Date();
 
-		if (statistics != null)
-			statistics.clear();
-		if (chronos != null)
-			chronos.clear();
+		// RESET THE VALUES WITHOUT REMOVING THE ENTRIES: THE HANDLES COULD BE BOUND BY THE CALLERS
+		for (OProfilerCounter c : statistics.values())
+			c.reset();
+		for (OProfilerHistogram c : chronos.values())
+			c.reset();
 	}
 
 	// ----------------------------------------------------------------------------
@@ -149,12 +200,12 @@ public class OProfiler implements OProfilerMBean {
 	 * 
 	 * @see com.orientechnologies.common.profiler.ProfileMBean#startChrono()
 	 */
-	public synchronized long startChrono() {
+	public long startChrono() {
 		// CHECK IF CHRONOS ARE ACTIVED
 		if (recording < 0)
 			return -1;
 
-		return System.currentTimeMillis();
+		return System.nanoTime() - NANO_BASE;
 	}
 
 	// ----------------------------------------------------------------------------
@@ -163,34 +214,12 @@ public class OProfiler implements OProfilerMBean {
 	 * 
 	 * @see com.orientechnologies.common.profiler.ProfileMBean#stopChrono(java.lang.String, long)
 	 */
-	public synchronized long stopChrono(final String iName, final long iStartTime) {
+	public long stopChrono(final String iName, final long iStartTime) {
 		// CHECK IF CHRONOS ARE ACTIVED
-		if (recording < 0)
+		if (recording < 0 || iStartTime < 0)
 			return -1;
 
-		long now = System.currentTimeMillis();
-
-		OChrono c = chronos.get(iName);
-
-		if (c == null) {
-			// CREATE NEW CHRONO
-			c = new OChrono();
-			chronos.put(iName, c);
-		}
-
-		c.name = iName;
-		c.items++;
-		c.lastElapsed = now - iStartTime;
-		c.totalElapsed += c.lastElapsed;
-		c.averageElapsed = c.totalElapsed / c.items;
-
-		if (c.lastElapsed < c.minElapsed)
-			c.minElapsed = c.lastElapsed;
-
-		if (c.lastElapsed > c.maxElapsed)
-			c.maxElapsed = c.lastElapsed;
-
-		return c.lastElapsed;
+		return registerChrono(iName).stop(iStartTime);
 	}
 
 	/*
@@ -198,25 +227,20 @@ public class OProfiler implements OProfilerMBean {
 	 * 
 	 * @see com.orientechnologies.common.profiler.ProfileMBean#dumpStatistics()
 	 */
-	public synchronized String dumpStatistics() {
+	public String dumpStatistics() {
 		// CHECK IF STATISTICS ARE ACTIVED
 		if (recording < 0)
 			return "Statistics: <no recording>";
 
-		Long stat;
-		String statName;
-		StringBuilder buffer = new StringBuilder();
+		final StringBuilder buffer = new StringBuilder();
 
 		buffer.append("DUMPING STATISTICS (last reset on: " + lastReset.toString() + ")...");
 
 		buffer.append(String.format("\n%45s +-------------------------------------------------------------------+", ""));
 		buffer.append(String.format("\n%45s | Value                                                             |", "Name"));
 		buffer.append(String.format("\n%45s +-------------------------------------------------------------------+", ""));
-		for (Iterator<String> it = statistics.keySet().iterator(); it.hasNext();) {
-			statName = it.next();
-			stat = statistics.get(statName);
-			buffer.append(String.format("\n%45s | %d", statName, stat));
-		}
+		for (Entry<String, Long> entry : getStatistics())
+			buffer.append(String.format("\n%45s | %d", entry.getKey(), entry.getValue()));
 
 		return buffer.toString();
 	}
@@ -226,27 +250,30 @@ public class OProfiler implements OProfilerMBean {
 	 * 
 	 * @see com.orientechnologies.common.profiler.ProfileMBean#dumpChronos()
 	 */
-	public synchronized String dumpChronos() {
+	public String dumpChronos() {
 		// CHECK IF CHRONOS ARE ACTIVED
 		if (recording < 0)
 			return "Chronos: <no recording>";
 
-		StringBuilder buffer = new StringBuilder();
+		final StringBuilder buffer = new StringBuilder();
 
 		buffer.append("DUMPING CHRONOS (last reset on: " + lastReset.toString() + "). Times in ms...");
 
 		OChrono c;
-		String chronoName;
-
-		buffer.append(String.format("\n%45s +-------------------------------------------------------------------+", ""));
-		buffer.append(String.format("\n%45s | %10s %10s %10s %10s %10s %10s |", "Name", "last", "total", "min", "max", "average",
-				"items"));
-		buffer.append(String.format("\n%45s +-------------------------------------------------------------------+", ""));
-		for (Iterator<String> it = chronos.keySet().iterator(); it.hasNext();) {
-			chronoName = it.next();
-			c = chronos.get(chronoName);
-			buffer.append(String.format("\n%45s | %10d %10d %10d %10d %10d %10d", chronoName, c.lastElapsed, c.totalElapsed,
-					c.minElapsed, c.maxElapsed, c.averageElapsed, c.items));
+		final StringBuilder separator = new StringBuilder(String.format("\n%45s +", ""));
+		for (int i = 0; i < 100; ++i)
+			separator.append('-');
+		separator.append('+');
+
+		buffer.append(separator);
+		buffer.append(String.format("\n%45s | %10s %10s %10s %10s %10s %10s %10s %10s %10s |", "Name", "last", "total", "min", "max",
+				"average", "p50", "p99", "p999", "items"));
+		buffer.append(separator);
+		for (Entry<String, OChrono> entry : getChronos()) {
+			c = entry.getValue();
+			buffer.append(String.format("\n%45s | %10.3f %10.3f %10.3f %10.3f %10.3f %10.3f %10.3f %10.3f %10d", entry.getKey(),
+					c.lastElapsed, c.totalElapsed, c.minElapsed, c.maxElapsed, c.averageElapsed, c.percentile50, c.percentile99,
+					c.percentile999, c.items));
 		}
 		return buffer.toString();
 	}
@@ -257,9 +284,10 @@ public class OProfiler implements OProfilerMBean {
 	 * @see com.orientechnologies.common.profiler.ProfileMBean#getStatistics()
 	 */
 	public String[] getStatisticsAsString() {
-		String[] output = new String[statistics.size()];
+		final Set<Entry<String, Long>> stats = getStatistics();
+		final String[] output = new String[stats.size()];
 		int i = 0;
-		for (Entry<String, Long> entry : statistics.entrySet()) {
+		for (Entry<String, Long> entry : stats) {
 			output[i++] = entry.getKey() + ": " + entry.getValue().toString();
 		}
 		return output;
@@ -271,9 +299,10 @@ public class OProfiler implements OProfilerMBean {
 	 * @see com.orientechnologies.common.profiler.ProfileMBean#getChronos()
 	 */
 	public String[] getChronosAsString() {
-		String[] output = new String[chronos.size()];
+		final Set<Entry<String, OChrono>> snapshot = getChronos();
+		final String[] output = new String[snapshot.size()];
 		int i = 0;
-		for (Entry<String, OChrono> entry : chronos.entrySet()) {
+		for (Entry<String, OChrono> entry : snapshot) {
 			output[i++] = entry.getKey() + ": " + entry.getValue().toString();
 		}
 
@@ -312,15 +341,33 @@ public class OProfiler implements OProfilerMBean {
 		return instance;
 	}
 
+	/**
+	 * Returns a snapshot of the statistics sorted by name. Statistics never updated since the last reset are not returned.
+	 */
 	public Set<Entry<String, Long>> getStatistics() {
-		return statistics.entrySet();
+		final Map<String, Long> snapshot = new TreeMap<String, Long>();
+		long value;
+		for (OProfilerCounter c : statistics.values()) {
+			value = c.get();
+			if (value != 0)
+				snapshot.put(c.getName(), value);
+		}
+		return snapshot.entrySet();
 	}
 
+	/**
+	 * Returns a snapshot of the chronos sorted by name. Chronos never stopped since the last reset are not returned.
+	 */
 	public Set<Entry<String, OChrono>> getChronos() {
-		return chronos.entrySet();
+		final Map<String, OChrono> snapshot = new TreeMap<String, OChrono>();
+		for (OProfilerHistogram c : chronos.values())
+			if (c.getItems() > 0)
+				snapshot.put(c.getName(), new OChrono(c));
+		return snapshot.entrySet();
 	}
 
 	public OChrono getChrono(final String iChronoName) {
-		return chronos.get(iChronoName);
+		final OProfilerHistogram c = chronos.get(iChronoName);
+		return c != null ? new OChrono(c) : null;
 	}
 }
@@ -0,0 +1,83 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.common.profiler;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Statistic counter handle. Updates are spread across multiple cells selected by the current thread to avoid the contention of a
+ * single shared value, while reads sum all the cells. Bind it once by {@link OProfiler#registerCounter(String)} and use it in hot
+ * paths to avoid the lookup by name on each update.
+ * 
+ * @author Luca Garulli
+ * 
+ */
+public class OProfilerCounter {
+	// EACH CELL TAKES A CACHE LINE TO AVOID FALSE SHARING BETWEEN CPUS
+	private static final int			PADDING	= 8;
+	private static final int			STRIPES;
+
+	static {
+		int stripes = 1;
+		while (stripes < Runtime.getRuntime().availableProcessors() * 2 && stripes < 64)
+			stripes <<= 1;
+		STRIPES = stripes;
+	}
+
+	private final OProfiler				owner;
+	private final String					name;
+	private final AtomicLongArray	cells		= new AtomicLongArray(STRIPES * PADDING);
+
+	protected OProfilerCounter(final OProfiler iOwner, final String iName) {
+		owner = iOwner;
+		name = iName;
+	}
+
+	/**
+	 * Adds the value to the counter. Does nothing if the profiler is not recording.
+	 */
+	public void add(final long iPlus) {
+		if (!owner.isRecording())
+			return;
+
+		cells.getAndAdd(((int) Thread.currentThread().getId() & (STRIPES - 1)) * PADDING, iPlus);
+	}
+
+	public void increment() {
+		add(1);
+	}
+
+	public long get() {
+		long total = 0;
+		for (int i = 0; i < STRIPES; ++i)
+			total += cells.get(i * PADDING);
+		return total;
+	}
+
+	public void reset() {
+		for (int i = 0; i < STRIPES; ++i)
+			cells.set(i * PADDING, 0);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public String toString() {
+		return name + ": " + get();
+	}
+}
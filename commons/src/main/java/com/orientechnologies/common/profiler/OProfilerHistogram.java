@@ -0,0 +1,163 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.common.profiler;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Chrono handle that records the elapsed times in nanoseconds in a histogram with logarithmic buckets, like HDR histograms. Each
+ * power of two is split in 32 linear sub-buckets, so the percentiles are computed with a relative error under 3% using a fixed
+ * amount of memory. Recording is lock-free. Bind it once by {@link OProfiler#registerChrono(String)} and use it in hot paths to
+ * avoid the lookup by name on each update.
+ * 
+ * @author Luca Garulli
+ * 
+ */
+public class OProfilerHistogram {
+	private static final int			SUB_BUCKET_BITS	= 5;
+	private static final int			SUB_BUCKETS			= 1 << SUB_BUCKET_BITS;
+	private static final int			BUCKETS					= (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final OProfiler				owner;
+	private final String					name;
+	private final AtomicLongArray	buckets					= new AtomicLongArray(BUCKETS);
+	private final AtomicLong			items						= new AtomicLong();
+	private final AtomicLong			total						= new AtomicLong();
+	private final AtomicLong			min							= new AtomicLong(Long.MAX_VALUE);
+	private final AtomicLong			max							= new AtomicLong();
+	private volatile long					last;
+
+	protected OProfilerHistogram(final OProfiler iOwner, final String iName) {
+		owner = iOwner;
+		name = iName;
+	}
+
+	/**
+	 * Stops the chrono started by {@link OProfiler#startChrono()} and records the elapsed time.
+	 * 
+	 * @return The elapsed time in milliseconds, or -1 if the profiler is not recording
+	 */
+	public long stop(final long iStartTime) {
+		if (iStartTime < 0 || !owner.isRecording())
+			return -1;
+
+		final long elapsed = System.nanoTime() - OProfiler.NANO_BASE - iStartTime;
+		record(elapsed);
+		return elapsed / 1000000;
+	}
+
+	/**
+	 * Records an elapsed time in nanoseconds.
+	 */
+	public void record(long iNanos) {
+		if (iNanos < 0)
+			iNanos = 0;
+
+		buckets.incrementAndGet(getBucket(iNanos));
+		items.incrementAndGet();
+		total.addAndGet(iNanos);
+		last = iNanos;
+
+		long current;
+		while (iNanos < (current = min.get()) && !min.compareAndSet(current, iNanos))
+			;
+		while (iNanos > (current = max.get()) && !max.compareAndSet(current, iNanos))
+			;
+	}
+
+	/**
+	 * Returns the value under which the iPercentile percent of the recorded times fall.
+	 * 
+	 * @param iPercentile
+	 *          Percentile between 0 and 100, such as 99.9
+	 * @return The time in nanoseconds
+	 */
+	public long getPercentile(final double iPercentile) {
+		final long count = items.get();
+		if (count == 0)
+			return 0;
+
+		final long threshold = Math.max(1, (long) Math.ceil(count * iPercentile / 100d));
+
+		long cumulated = 0;
+		for (int i = 0; i < BUCKETS; ++i) {
+			cumulated += buckets.get(i);
+			if (cumulated >= threshold)
+				return Math.min(getBucketValue(i), max.get());
+		}
+		return max.get();
+	}
+
+	public long getItems() {
+		return items.get();
+	}
+
+	public long getTotal() {
+		return total.get();
+	}
+
+	public long getMin() {
+		return items.get() == 0 ? 0 : min.get();
+	}
+
+	public long getMax() {
+		return max.get();
+	}
+
+	public long getLast() {
+		return last;
+	}
+
+	public long getAverage() {
+		final long count = items.get();
+		return count == 0 ? 0 : total.get() / count;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void reset() {
+		for (int i = 0; i < BUCKETS; ++i)
+			buckets.set(i, 0);
+		items.set(0);
+		total.set(0);
+		min.set(Long.MAX_VALUE);
+		max.set(0);
+		last = 0;
+	}
+
+	private static int getBucket(final long iValue) {
+		if (iValue < SUB_BUCKETS)
+			return (int) iValue;
+
+		final int shift = 63 - Long.numberOfLeadingZeros(iValue) - SUB_BUCKET_BITS;
+		return (shift + 1) * SUB_BUCKETS + (int) ((iValue >>> shift) & (SUB_BUCKETS - 1));
+	}
+
+	/**
+	 * Returns the middle value of the bucket.
+	 */
+	private static long getBucketValue(final int iBucket) {
+		if (iBucket < SUB_BUCKETS)
+			return iBucket;
+
+		final int shift = iBucket / SUB_BUCKETS - 1;
+		final long lowest = (long) (SUB_BUCKETS + iBucket % SUB_BUCKETS) << shift;
+		return lowest + ((1L << shift) >>> 1);
+	}
+}
@@ -27,6 +27,7 @@ import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.orient.core.engine.OEngine;
 import com.orientechnologies.orient.core.engine.local.OEngineLocal;
 import com.orientechnologies.orient.core.engine.memory.OEngineMemory;
+import com.orientechnologies.orient.core.engine.memory.OEngineMemoryOffHeap;
 import com.orientechnologies.orient.core.exception.OConfigurationException;
 import com.orientechnologies.orient.core.storage.OStorage;
 import com.orientechnologies.orient.core.storage.impl.local.OStorageLocal;
@@ -45,6 +46,7 @@ public class Orient extends OSharedResource {
 		// REGISTER THE EMBEDDED ENGINE
 		registerEngine(new OEngineLocal());
 		registerEngine(new OEngineMemory());
+		registerEngine(new OEngineMemoryOffHeap());
 		registerEngine("com.orientechnologies.orient.client.remote.OEngineRemote");
 
 		active = true;
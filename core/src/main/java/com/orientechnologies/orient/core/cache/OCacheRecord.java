@@ -20,6 +20,7 @@ import java.util.List;
 
 import com.orientechnologies.common.concur.resource.OSharedResourceAdaptive;
 import com.orientechnologies.common.profiler.OProfiler;
+import com.orientechnologies.common.profiler.OProfilerCounter;
 import com.orientechnologies.orient.core.storage.ORawBuffer;
 
 /**
@@ -31,6 +32,8 @@ import com.orientechnologies.orient.core.storage.ORawBuffer;
  */
 @SuppressWarnings("serial")
 public class OCacheRecord extends OSharedResourceAdaptive {
+	private static final OProfilerCounter			COUNTER_REUSED	= OProfiler.getInstance().registerCounter("Cache.reused");
+
 	private final int													maxSize;
 	private LinkedHashMap<String, ORawBuffer>	cache;
 
@@ -96,7 +99,7 @@ public class OCacheRecord extends OSharedResourceAdaptive {
 			ORawBuffer buffer = cache.remove(iRecord);
 
 			if (buffer != null)
-				OProfiler.getInstance().updateStatistic("Cache.reused", +1);
+				COUNTER_REUSED.increment();
 
 			return buffer;
 		} finally {
@@ -139,6 +142,48 @@ public class OCacheRecord extends OSharedResourceAdaptive {
 		}
 	}
 
+	/**
+	 * Update multiple records in the cache in one shot saving the cost of locking for each record. The records already in cache get
+	 * the new content, the others are added only if the corresponding iAdd flag is true. A null content removes the record.
+	 * 
+	 * @param iRecords
+	 *          List of Strings
+	 * @param iContents
+	 *          New contents, in the same order of iRecords
+	 * @param iAdd
+	 *          Flags to add the records not in cache, in the same order of iRecords
+	 */
+	public void updateRecords(final List<String> iRecords, final List<ORawBuffer> iContents, final boolean[] iAdd) {
+		if (maxSize == 0)
+			return;
+
+		final boolean locked = acquireExclusiveLock();
+
+		try {
+			ORawBuffer content;
+			ORawBuffer cachedBuffer;
+			for (int i = 0; i < iRecords.size(); ++i) {
+				content = iContents.get(i);
+
+				if (content == null)
+					cache.remove(iRecords.get(i));
+				else {
+					cachedBuffer = cache.get(iRecords.get(i));
+					if (cachedBuffer != null) {
+						// UPDATE THE CACHED BUFFER IN PLACE
+						cachedBuffer.buffer = content.buffer;
+						cachedBuffer.version = content.version;
+						cachedBuffer.recordType = content.recordType;
+					} else if (iAdd[i])
+						cache.put(iRecords.get(i), content);
+				}
+			}
+
+		} finally {
+			releaseExclusiveLock(locked);
+		}
+	}
+
 	public void clear() {
 		if (maxSize == 0)
 			return;
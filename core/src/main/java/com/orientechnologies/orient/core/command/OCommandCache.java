@@ -0,0 +1,184 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.command;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.orientechnologies.common.profiler.OProfiler;
+import com.orientechnologies.common.profiler.OProfilerCounter;
+
+/**
+ * Bounded and concurrent cache of parsed commands. The key is the normalized text of the command, the value is the immutable
+ * result of the parsing that can be shared between threads. Lookups are lock-free: when the cache is full the least recently used
+ * entries are evicted. The cache must be invalidated every time the database schema changes.
+ * 
+ * @author Luca Garulli
+ * 
+ */
+public class OCommandCache {
+	public static final int																DEFAULT_SIZE	= Integer.getInteger("orient.command.cache.size", 500);
+
+	private static final OProfilerCounter												COUNTER_HIT		= OProfiler.getInstance().registerCounter("Command.cache.hit");
+	private static final OProfilerCounter												COUNTER_MISS	= OProfiler.getInstance().registerCounter("Command.cache.miss");
+
+	private final int																			maxSize;
+	private final ConcurrentHashMap<String, OCommandCacheEntry>	entries;
+	private final AtomicLong															clock					= new AtomicLong();
+
+	private static class OCommandCacheEntry {
+		protected final Object	value;
+		protected volatile long	lastUsed;
+
+		protected OCommandCacheEntry(final Object iValue, final long iLastUsed) {
+			value = iValue;
+			lastUsed = iLastUsed;
+		}
+	}
+
+	public OCommandCache() {
+		this(DEFAULT_SIZE);
+	}
+
+	/**
+	 * Create the cache of iMaxSize size.
+	 * 
+	 * @param iMaxSize
+	 *          Maximum number of parsed commands to keep. 0 disables the cache
+	 */
+	public OCommandCache(final int iMaxSize) {
+		maxSize = iMaxSize;
+		entries = new ConcurrentHashMap<String, OCommandCacheEntry>(iMaxSize > 0 ? iMaxSize : 1);
+	}
+
+	/**
+	 * Returns the parsed command if any, otherwise null.
+	 * 
+	 * @param iText
+	 *          Command text already normalized by {@link #normalize(String)}
+	 */
+	public Object get(final String iText) {
+		if (maxSize == 0)
+			return null;
+
+		final OCommandCacheEntry entry = entries.get(iText);
+		if (entry == null) {
+			COUNTER_MISS.increment();
+			return null;
+		}
+
+		entry.lastUsed = clock.incrementAndGet();
+		COUNTER_HIT.increment();
+		return entry.value;
+	}
+
+	/**
+	 * Stores a parsed command. The value must be immutable since it will be shared by all the threads executing the same command.
+	 */
+	public void put(final String iText, final Object iParsed) {
+		if (maxSize == 0)
+			return;
+
+		entries.put(iText, new OCommandCacheEntry(iParsed, clock.incrementAndGet()));
+
+		if (entries.size() > maxSize)
+			evict();
+	}
+
+	/**
+	 * Removes all the parsed commands. Called when the schema changes since the parsed commands could be bound to the previous one.
+	 */
+	public void invalidate() {
+		if (!entries.isEmpty())
+			entries.clear();
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Removes spaces at the borders and collapses the sequences of blank characters outside quoted strings into one space.
+	 */
+	public static String normalize(final String iText) {
+		final String text = iText.trim();
+
+		StringBuilder buffer = null;
+		char stringBeginChar = ' ';
+		boolean previousBlank = false;
+		char c;
+
+		for (int i = 0; i < text.length(); ++i) {
+			c = text.charAt(i);
+
+			if (stringBeginChar != ' ') {
+				// INSIDE A STRING: COPY AS IS
+				if (c == stringBeginChar && text.charAt(i - 1) != '\\')
+					stringBeginChar = ' ';
+			} else if (c == '\'' || c == '"')
+				stringBeginChar = c;
+			else if (Character.isWhitespace(c)) {
+				if (previousBlank || c != ' ') {
+					// FOUND A SEQUENCE OR A NON-SPACE BLANK: CREATE THE NORMALIZED COPY
+					if (buffer == null)
+						buffer = new StringBuilder(text.substring(0, i));
+					if (!previousBlank)
+						buffer.append(' ');
+				} else if (buffer != null)
+					buffer.append(c);
+
+				previousBlank = true;
+				continue;
+			}
+
+			previousBlank = false;
+			if (buffer != null)
+				buffer.append(c);
+		}
+
+		return buffer != null ? buffer.toString() : text;
+	}
+
+	/**
+	 * Evicts the least recently used entries until the size goes under the 90% of the maximum size.
+	 */
+	private synchronized void evict() {
+		final int toRemove = entries.size() - maxSize * 9 / 10;
+		if (toRemove <= 0)
+			return;
+
+		final long[] ages = new long[entries.size()];
+		int i = 0;
+		for (OCommandCacheEntry e : entries.values()) {
+			if (i >= ages.length)
+				break;
+			ages[i++] = e.lastUsed;
+		}
+
+		Arrays.sort(ages, 0, i);
+		final long threshold = ages[Math.min(toRemove, i) - 1];
+
+		for (Iterator<OCommandCacheEntry> it = entries.values().iterator(); it.hasNext();)
+			if (it.next().lastUsed <= threshold)
+				it.remove();
+	}
+}
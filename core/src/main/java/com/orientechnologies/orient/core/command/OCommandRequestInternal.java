@@ -33,4 +33,6 @@ public interface OCommandRequestInternal extends OCommandRequest, OSerializableS
 	public OCommandResultListener getResultListener();
 
 	public void setResultListener(OCommandResultListener iListener);
+
+	public Object[] getParameters();
 }
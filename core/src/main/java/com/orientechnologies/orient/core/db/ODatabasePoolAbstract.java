@@ -15,21 +15,36 @@
  */
 package com.orientechnologies.orient.core.db;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.orientechnologies.common.concur.lock.OLockException;
 import com.orientechnologies.common.concur.resource.OResourcePool;
 import com.orientechnologies.common.concur.resource.OResourcePoolListener;
 import com.orientechnologies.common.log.OLogManager;
 
+/**
+ * Pools the database instances per database name. Each pool grows on demand up to the maximum size and the instances idle for
+ * more than the idle timeout are closed, keeping at least the minimum size.
+ * 
+ * @author Luca Garulli
+ * 
+ */
 public abstract class ODatabasePoolAbstract<DB extends ODatabase> implements OResourcePoolListener<String, DB> {
 
 	private static final int															DEF_WAIT_TIMEOUT	= 5000;
-	private final Map<String, OResourcePool<String, DB>>	pools							= new HashMap<String, OResourcePool<String, DB>>();
+	private static final int															DEF_IDLE_TIMEOUT	= Integer.getInteger("orient.db.pool.idleTimeout", 300000);
+	private static final Timer														evictionTimer			= new Timer("OrientDB Pool Evictor", true);
+
+	private final Map<String, OResourcePool<String, DB>>	pools							= new ConcurrentHashMap<String, OResourcePool<String, DB>>();
+	private int																						minSize;
 	private int																						maxSize;
 	private int																						timeout						= DEF_WAIT_TIMEOUT;
+	private int																						idleTimeout;
+	private TimerTask																			evictionTask;
 	protected Object																			owner;
 
 	public ODatabasePoolAbstract(final Object iOwner, final int iMinSize, final int iMaxSize) {
@@ -37,20 +52,37 @@ public abstract class ODatabasePoolAbstract<DB extends ODatabase> implements ORe
 	}
 
 	public ODatabasePoolAbstract(final Object iOwner, final int iMinSize, final int iMaxSize, final int iTimeout) {
+		this(iOwner, iMinSize, iMaxSize, iTimeout, DEF_IDLE_TIMEOUT);
+	}
+
+	public ODatabasePoolAbstract(final Object iOwner, final int iMinSize, final int iMaxSize, final int iTimeout,
+			final int iIdleTimeout) {
+		minSize = iMinSize;
 		maxSize = iMaxSize;
 		timeout = iTimeout;
+		idleTimeout = iIdleTimeout;
 		owner = iOwner;
+
+		if (idleTimeout > 0) {
+			evictionTask = new TimerTask() {
+				@Override
+				public void run() {
+					evictIdle();
+				}
+			};
+			evictionTimer.schedule(evictionTask, idleTimeout, idleTimeout);
+		}
 	}
 
 	public DB acquire(final String iURL, final String iUserName, final String iUserPassword) throws OLockException {
-		final int separatorPos = iURL.lastIndexOf('/');
-		final String name = separatorPos > -1 ? iURL.substring(separatorPos + 1) : iURL;
+		final String name = getPoolName(iURL, iUserName);
 
 		OResourcePool<String, DB> pool = pools.get(name);
 		if (pool == null) {
 			synchronized (pools) {
+				pool = pools.get(name);
 				if (pool == null) {
-					pool = new OResourcePool<String, DB>(maxSize, this);
+					pool = new OResourcePool<String, DB>(minSize, maxSize, this);
 					pools.put(name, pool);
 				}
 			}
@@ -60,7 +92,7 @@ public abstract class ODatabasePoolAbstract<DB extends ODatabase> implements ORe
 	}
 
 	public void release(final DB iDatabase) {
-		final OResourcePool<String, DB> pool = pools.get(iDatabase.getName());
+		final OResourcePool<String, DB> pool = pools.get(getPoolName(iDatabase));
 		if (pool == null)
 			throw new OLockException("Can't release a database URL not acquired before. URL: " + iDatabase.getName());
 
@@ -75,21 +107,69 @@ public abstract class ODatabasePoolAbstract<DB extends ODatabase> implements ORe
 		return pools;
 	}
 
+	public int getMinSize() {
+		return minSize;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public int getIdleTimeout() {
+		return idleTimeout;
+	}
+
+	/**
+	 * Closes the databases not used since the idle timeout.
+	 */
+	public void evictIdle() {
+		for (Entry<String, OResourcePool<String, DB>> pool : pools.entrySet())
+			for (DB db : pool.getValue().evictIdle(idleTimeout)) {
+				OLogManager.instance().debug(this, "Closing idle pooled database '%s'...", db.getName());
+				closeResource(db);
+			}
+	}
+
 	/**
 	 * Closes all the databases.
 	 */
 	public void close() {
+		if (evictionTask != null)
+			evictionTask.cancel();
+
 		for (Entry<String, OResourcePool<String, DB>> pool : pools.entrySet()) {
 			for (DB db : pool.getValue().getResources()) {
 				pool.getValue().close();
-				try {
-					OLogManager.instance().debug(this, "Closing pooled database '%s'...", db.getName());
-					((ODatabasePooled) db).forceClose();
-					OLogManager.instance().debug(this, "OK", db.getName());
-				} catch (Exception e) {
-					OLogManager.instance().debug(this, "Error: %d", e.toString());
-				}
+				OLogManager.instance().debug(this, "Closing pooled database '%s'...", db.getName());
+				closeResource(db);
 			}
 		}
 	}
+
+	/**
+	 * Returns the name of the pool for the database URL. By default there is one pool per database name.
+	 */
+	protected String getPoolName(final String iURL, final String iUserName) {
+		final int separatorPos = iURL.lastIndexOf('/');
+		return separatorPos > -1 ? iURL.substring(separatorPos + 1) : iURL;
+	}
+
+	/**
+	 * Returns the name of the pool the database instance belongs to.
+	 */
+	protected String getPoolName(final DB iDatabase) {
+		return iDatabase.getName();
+	}
+
+	protected void closeResource(final DB iDatabase) {
+		try {
+			if (iDatabase instanceof ODatabasePooled)
+				((ODatabasePooled) iDatabase).forceClose();
+			else
+				iDatabase.close();
+			OLogManager.instance().debug(this, "OK", iDatabase.getName());
+		} catch (Exception e) {
+			OLogManager.instance().debug(this, "Error: %d", e.toString());
+		}
+	}
 }
@@ -152,6 +152,10 @@ public class ODatabaseGraphTx extends ODatabasePojoAbstract<ODocument, OGraphEle
 
 			underlying.getMetadata().getSchema().save();
 		}
+
+		if (underlying.getClusterIdByName(OGraphVertex.EDGES_CLUSTER_NAME) == -1)
+			// CLUSTER USED BY SUPER NODES TO STORE THE EDGE TREES
+			underlying.addPhysicalCluster(OGraphVertex.EDGES_CLUSTER_NAME);
 	}
 
 	@Override
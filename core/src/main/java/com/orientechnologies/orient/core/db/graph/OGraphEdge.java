@@ -16,7 +16,6 @@
 package com.orientechnologies.orient.core.db.graph;
 
 import java.lang.ref.SoftReference;
-import java.util.List;
 
 import com.orientechnologies.orient.core.annotation.OAfterDeserialization;
 import com.orientechnologies.orient.core.id.ORID;
@@ -93,53 +92,31 @@ public class OGraphEdge extends OGraphElement {
 	}
 
 	public static void delete(final ODatabaseGraphTx iDatabase, final ODocument iEdge) {
-		final ODocument sourceVertex = (ODocument) iEdge.field(OUT);
-		final ODocument targetVertex = (ODocument) iEdge.field(IN);
-
-		List<OGraphEdge> edges;
+		ODocument sourceVertex = (ODocument) iEdge.field(OUT);
+		ODocument targetVertex = (ODocument) iEdge.field(IN);
 
 		if (iDatabase.existsUserObjectByRecord(sourceVertex)) {
 			// WORK ALSO WITH IN MEMORY OBJECTS
-
 			final OGraphVertex vertex = (OGraphVertex) iDatabase.getUserObjectByRecord(sourceVertex, null);
-			// REMOVE THE EDGE OBJECT
-			edges = vertex.getOutEdges();
-			if (edges != null) {
-				for (OGraphEdge e : edges)
-					if (e.getDocument().equals(iEdge)) {
-						edges.remove(e);
-						break;
-					}
-			}
+			vertex.removeCachedEdge(iEdge, true);
+			sourceVertex = vertex.getDocument();
 		}
 
 		if (iDatabase.existsUserObjectByRecord(targetVertex)) {
 			// WORK ALSO WITH IN MEMORY OBJECTS
-
 			final OGraphVertex vertex = (OGraphVertex) iDatabase.getUserObjectByRecord(targetVertex, null);
-			// REMOVE THE EDGE OBJECT FROM THE TARGET VERTEX
-			edges = vertex.getInEdges();
-			if (edges != null) {
-				for (OGraphEdge e : edges)
-					if (e.getDocument().equals(iEdge)) {
-						edges.remove(e);
-						break;
-					}
-			}
+			vertex.removeCachedEdge(iEdge, false);
+			targetVertex = vertex.getDocument();
 		}
 
-		// REMOVE THE EDGE DOCUMENT
-		List<ODocument> docs = sourceVertex.field(OGraphVertex.FIELD_OUT_EDGES);
-		if (docs != null)
-			docs.remove(iEdge);
+		// REMOVE THE EDGE DOCUMENT FROM THE SOURCE VERTEX (LIST OR TREE)
+		OGraphVertex.removeEdge(iDatabase, sourceVertex, iEdge, true);
 
 		sourceVertex.setDirty();
 		sourceVertex.save();
 
-		// REMOVE THE EDGE DOCUMENT FROM THE TARGET VERTEX
-		docs = targetVertex.field(OGraphVertex.FIELD_IN_EDGES);
-		if (docs != null)
-			docs.remove(iEdge);
+		// REMOVE THE EDGE DOCUMENT FROM THE TARGET VERTEX (LIST OR TREE)
+		OGraphVertex.removeEdge(iDatabase, targetVertex, iEdge, false);
 
 		targetVertex.setDirty();
 		targetVertex.save();
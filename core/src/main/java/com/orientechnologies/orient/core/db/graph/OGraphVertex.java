@@ -15,31 +15,52 @@
  */
 package com.orientechnologies.orient.core.db.graph;
 
+import java.io.IOException;
 import java.lang.ref.SoftReference;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import com.orientechnologies.orient.core.annotation.OAfterDeserialization;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
 import com.orientechnologies.orient.core.exception.OGraphException;
+import com.orientechnologies.orient.core.id.ORecordId;
 import com.orientechnologies.orient.core.iterator.OGraphVertexOutIterator;
+import com.orientechnologies.orient.core.query.OQueryTraverse;
 import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerRID;
+import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerString;
 import com.orientechnologies.orient.core.type.ODocumentWrapper;
+import com.orientechnologies.orient.core.type.tree.OTreeMapDatabase;
 
 /**
  * GraphDB Vertex class. It represent the vertex (or node) in the graph. The Vertex can have custom properties. You can read/write
  * them using respectively get/set methods. The Vertex can be connected to other Vertexes using edges. The Vertex keeps the edges
- * separated: "inEdges" for the incoming edges and "outEdges" for the outgoing edges.
+ * separated: "inEdges" for the incoming edges and "outEdges" for the outgoing edges.<br/>
+ * When the edges of one direction exceed {@link #SUPER_NODE_THRESHOLD} the list is moved in a persistent tree stored in separate
+ * records, whose RID is kept in the "inEdgesTree" or "outEdgesTree" field. The tree maps the edge RID to the opposite vertex RID,
+ * so adding and removing an edge costs O(log n) and the vertex record remains small. New edges are always added to the list and
+ * are moved in the tree when the vertex is saved, so link() never writes to the database.
  * 
  * @see OGraphEdge
  */
 public class OGraphVertex extends OGraphElement implements Cloneable {
-	public static final String							CLASS_NAME			= "OGraphVertex";
-	public static final String							FIELD_IN_EDGES	= "inEdges";
-	public static final String							FIELD_OUT_EDGES	= "outEdges";
-
-	private SoftReference<List<OGraphEdge>>	inEdges;
-	private SoftReference<List<OGraphEdge>>	outEdges;
+	public static final String												CLASS_NAME						= "OGraphVertex";
+	public static final String												FIELD_IN_EDGES				= "inEdges";
+	public static final String												FIELD_OUT_EDGES				= "outEdges";
+	public static final String												FIELD_IN_EDGES_TREE		= "inEdgesTree";
+	public static final String												FIELD_OUT_EDGES_TREE	= "outEdgesTree";
+	public static final String												EDGES_CLUSTER_NAME		= "OGraphEdgeTree";
+	public static final int														SUPER_NODE_THRESHOLD	= Integer.getInteger("orient.graph.superNodeThreshold", 1000);
+
+	private SoftReference<List<OGraphEdge>>						inEdges;
+	private SoftReference<List<OGraphEdge>>						outEdges;
+	private OTreeMapDatabase<String, ORecordId>	inEdgesTree;
+	private OTreeMapDatabase<String, ORecordId>	outEdgesTree;
 
 	public OGraphVertex(final ODatabaseGraphTx iDatabase) {
 		super(iDatabase, new ODocument((ODatabaseRecord<?>) iDatabase.getUnderlying(), CLASS_NAME));
@@ -60,11 +81,44 @@ public class OGraphVertex extends OGraphElement implements Cloneable {
 		super.save();
 		if (database != null)
 			database.registerPojo(this, document);
+
+		// NOW THE NEW EDGES HAVE A RID: MOVE THEM IN THE TREES IF NEEDED
+		final boolean outMoved = moveEdgesToTree(true);
+		final boolean inMoved = moveEdgesToTree(false);
+		if (outMoved || inMoved)
+			super.save();
+
 		return (RET) this;
 	}
 
+	/**
+	 * Returns the vertexes reachable from the current one following the outgoing edges, in breadth-first order. Each vertex is
+	 * returned only once, even if the graph contains cycles.
+	 * 
+	 * @param iStartLevel
+	 *          Minimum distance of the vertexes to return. 0 includes the current vertex
+	 * @param iEndLevel
+	 *          Maximum distance of the vertexes to return, -1 means no limit
+	 */
 	public List<OGraphVertex> traverse(final int iStartLevel, final int iEndLevel) {
-		return null;
+		final List<OGraphVertex> resultset = new ArrayList<OGraphVertex>();
+
+		new OQueryTraverse((ODatabaseRecord<?>) database.getUnderlying(), iStartLevel, iEndLevel,
+				OQueryTraverse.STRATEGY.BREADTH_FIRST) {
+			@Override
+			protected boolean visit(final ODocument iDocument, final int iLevel) {
+				resultset.add((OGraphVertex) OGraphVertex.this.database.getUserObjectByRecord(iDocument, null));
+				return false;
+			}
+
+			@Override
+			protected void collectLinks(final ODocument iDocument, final Collection<Object> ioLinks) {
+				for (Iterator<Object> it = vertexIterator(OGraphVertex.this.database, iDocument, true); it.hasNext();)
+					ioLinks.add(it.next());
+			}
+		}.execute(document, 0);
+
+		return resultset;
 	}
 
 	@Override
@@ -77,6 +131,7 @@ public class OGraphVertex extends OGraphElement implements Cloneable {
 		super.fromStream(iDocument);
 		document.setTrackingChanges(false);
 		inEdges = outEdges = null;
+		inEdgesTree = outEdgesTree = null;
 	}
 
 	/**
@@ -86,19 +141,20 @@ public class OGraphVertex extends OGraphElement implements Cloneable {
 	 *          Target vertex where to create the connection
 	 * @return The new edge created
 	 */
-	@SuppressWarnings("unchecked")
 	public OGraphEdge link(final OGraphVertex iTargetVertex) {
 		if (iTargetVertex == null)
 			throw new IllegalArgumentException("Missed the target vertex");
 
 		// CREATE THE EDGE BETWEEN ME AND THE TARGET
 		final OGraphEdge edge = new OGraphEdge(database, this, iTargetVertex);
-		getOutEdges().add(edge);
-		((List<ODocument>) document.field(FIELD_OUT_EDGES)).add(edge.getDocument());
+		addEdge(edge.getDocument(), true);
+		if (outEdges != null && outEdges.get() != null)
+			outEdges.get().add(edge);
 
 		// INSERT INTO THE INGOING EDGES OF TARGET
-		iTargetVertex.getInEdges().add(edge);
-		((List<ODocument>) iTargetVertex.getDocument().field(FIELD_IN_EDGES)).add(edge.getDocument());
+		iTargetVertex.addEdge(edge.getDocument(), false);
+		if (iTargetVertex.inEdges != null && iTargetVertex.inEdges.get() != null)
+			iTargetVertex.inEdges.get().add(edge);
 
 		return edge;
 	}
@@ -128,20 +184,39 @@ public class OGraphVertex extends OGraphElement implements Cloneable {
 		return new OGraphVertexOutIterator(this);
 	}
 
+	/**
+	 * Returns a lazy iterator over the vertexes linked by the outgoing edges. Super nodes are browsed page by page.
+	 */
+	public Iterator<OGraphVertex> outVertexIterator() {
+		return new OGraphVertexIterator(vertexIterator(database, document, true));
+	}
+
+	/**
+	 * Returns a lazy iterator over the vertexes linked by the incoming edges. Super nodes are browsed page by page.
+	 */
+	public Iterator<OGraphVertex> inVertexIterator() {
+		return new OGraphVertexIterator(vertexIterator(database, document, false));
+	}
+
 	/**
 	 * Returns true if the vertex has at least one incoming edge, otherwise false.
 	 */
 	public boolean hasInEdges() {
-		final List<ODocument> docs = document.field(FIELD_IN_EDGES);
-		return docs != null && !docs.isEmpty();
+		return getInEdgeCount() > 0;
 	}
 
 	/**
 	 * Returns true if the vertex has at least one outgoing edge, otherwise false.
 	 */
 	public boolean hasOutEdges() {
-		final List<ODocument> docs = document.field(FIELD_OUT_EDGES);
-		return docs != null && !docs.isEmpty();
+		return getOutEdgeCount() > 0;
+	}
+
+	/**
+	 * Returns true if the edges of the requested direction are kept in a separate tree.
+	 */
+	public boolean isSuperNode(final boolean iOut) {
+		return document.field(iOut ? FIELD_OUT_EDGES_TREE : FIELD_IN_EDGES_TREE) != null;
 	}
 
 	/**
@@ -151,23 +226,11 @@ public class OGraphVertex extends OGraphElement implements Cloneable {
 		List<OGraphEdge> tempList = inEdges != null ? inEdges.get() : null;
 
 		if (tempList == null) {
-			tempList = new ArrayList<OGraphEdge>();
+			tempList = loadEdges(false);
 			inEdges = new SoftReference<List<OGraphEdge>>(tempList);
-
-			List<ODocument> docs = document.field(FIELD_IN_EDGES);
-
-			if (docs == null) {
-				docs = new ArrayList<ODocument>();
-				document.field(FIELD_IN_EDGES, docs);
-			} else {
-				// TRANSFORM ALL THE ARCS
-				for (ODocument d : docs) {
-					tempList.add((OGraphEdge) database.getUserObjectByRecord(d, null));
-				}
-			}
 		}
 
-		return inEdges.get();
+		return tempList;
 	}
 
 	/**
@@ -177,20 +240,8 @@ public class OGraphVertex extends OGraphElement implements Cloneable {
 		List<OGraphEdge> tempList = outEdges != null ? outEdges.get() : null;
 
 		if (tempList == null) {
-			tempList = new ArrayList<OGraphEdge>();
+			tempList = loadEdges(true);
 			outEdges = new SoftReference<List<OGraphEdge>>(tempList);
-
-			List<ODocument> docs = document.field(FIELD_OUT_EDGES);
-
-			if (docs == null) {
-				docs = new ArrayList<ODocument>();
-				document.field(FIELD_OUT_EDGES, docs);
-			} else {
-				// TRANSFORM ALL THE ARCS
-				for (ODocument d : docs) {
-					tempList.add((OGraphEdge) database.getUserObjectByRecord(d, null));
-				}
-			}
 		}
 
 		return tempList;
@@ -205,9 +256,8 @@ public class OGraphVertex extends OGraphElement implements Cloneable {
 	 *          Object to recycle to save memory. Used on iteration
 	 * @param iCurrentVertex
 	 */
-	public OGraphVertex getOutEdgeVertex(int iIndex, final OGraphVertex iCurrentVertex) {
-		final List<ODocument> docs = document.field(FIELD_OUT_EDGES);
-		iCurrentVertex.fromStream((ODocument) docs.get(iIndex).field(OGraphEdge.OUT));
+	public OGraphVertex getOutEdgeVertex(final int iIndex, final OGraphVertex iCurrentVertex) {
+		iCurrentVertex.fromStream(getVertexAt(iIndex, true));
 		return iCurrentVertex;
 	}
 
@@ -220,98 +270,45 @@ public class OGraphVertex extends OGraphElement implements Cloneable {
 	 *          Object to recycle to save memory. Used on iteration
 	 * @param iCurrentVertex
 	 */
-	public OGraphVertex getInEdgeVertex(int iIndex, final OGraphVertex iCurrentVertex) {
-		final List<ODocument> docs = document.field(FIELD_IN_EDGES);
-		iCurrentVertex.fromStream((ODocument) docs.get(iIndex).field(OGraphEdge.IN));
+	public OGraphVertex getInEdgeVertex(final int iIndex, final OGraphVertex iCurrentVertex) {
+		iCurrentVertex.fromStream(getVertexAt(iIndex, false));
 		return iCurrentVertex;
 	}
 
 	/**
 	 * Returns the list of Vertexes from the outgoing edges. It avoids to unmarshall edges.
 	 */
-	@SuppressWarnings("unchecked")
 	public List<OGraphVertex> browseOutEdgesVertexes() {
 		final List<OGraphVertex> resultset = new ArrayList<OGraphVertex>();
-
-		List<OGraphEdge> tempList = outEdges != null ? outEdges.get() : null;
-
-		if (tempList == null) {
-			final List<ODocument> docEdges = (List<ODocument>) document.field(FIELD_OUT_EDGES);
-
-			// TRANSFORM ALL THE EDGES
-			if (docEdges != null)
-				for (ODocument d : docEdges) {
-					resultset.add((OGraphVertex) database.getUserObjectByRecord((ODocument) d.field(OGraphEdge.OUT), null));
-				}
-		} else {
-			for (OGraphEdge edge : tempList) {
-				resultset.add(edge.getOut());
-			}
-		}
-
+		for (Iterator<OGraphVertex> it = outVertexIterator(); it.hasNext();)
+			resultset.add(it.next());
 		return resultset;
 	}
 
 	/**
 	 * Returns the list of Vertexes from the incoming edges. It avoids to unmarshall edges.
 	 */
-	@SuppressWarnings("unchecked")
 	public List<OGraphVertex> browseInEdgesVertexes() {
 		final List<OGraphVertex> resultset = new ArrayList<OGraphVertex>();
-
-		List<OGraphEdge> tempList = inEdges != null ? inEdges.get() : null;
-
-		if (tempList == null) {
-			final List<ODocument> docEdges = (List<ODocument>) document.field(FIELD_IN_EDGES);
-
-			// TRANSFORM ALL THE EDGES
-			if (docEdges != null)
-				for (ODocument d : docEdges) {
-					resultset.add((OGraphVertex) database.getUserObjectByRecord((ODocument) d.field(OGraphEdge.IN), null));
-				}
-		} else {
-			for (OGraphEdge edge : tempList) {
-				resultset.add(edge.getIn());
-			}
-		}
-
+		for (Iterator<OGraphVertex> it = inVertexIterator(); it.hasNext();)
+			resultset.add(it.next());
 		return resultset;
 	}
 
 	public int findInVertex(final OGraphVertex iVertexDocument) {
-		final List<ODocument> docs = document.field(FIELD_IN_EDGES);
-		if (docs == null || docs.size() == 0)
-			return -1;
-
-		for (int i = 0; i < docs.size(); ++i) {
-			if (docs.get(i).field(OGraphEdge.IN).equals(iVertexDocument.getDocument()))
-				return i;
-		}
-
-		return -1;
+		return findVertex(iVertexDocument, false);
 	}
 
 	public int findOutVertex(final OGraphVertex iVertexDocument) {
-		final List<ODocument> docs = document.field(FIELD_OUT_EDGES);
-		if (docs == null || docs.size() == 0)
-			return -1;
-
-		for (int i = 0; i < docs.size(); ++i) {
-			if (docs.get(i).field(OGraphEdge.OUT).equals(iVertexDocument.getDocument()))
-				return i;
-		}
-
-		return -1;
+		return findVertex(iVertexDocument, true);
 	}
 
 	public int getInEdgeCount() {
-		final List<ODocument> docs = document.field(FIELD_IN_EDGES);
-		return docs == null ? 0 : docs.size();
+		return getEdgeCount(false);
 	}
 
 	public int getOutEdgeCount() {
-		final List<ODocument> docs = document.field(FIELD_OUT_EDGES);
-		return docs == null ? 0 : docs.size();
+		return getEdgeCount(true);
 	}
 
 	@SuppressWarnings("unchecked")
@@ -336,6 +333,9 @@ public class OGraphVertex extends OGraphElement implements Cloneable {
 			while (!docs.isEmpty())
 				OGraphEdge.delete(database, docs.get(0));
 
+		deleteEdgeTree(false);
+		deleteEdgeTree(true);
+
 		database.unregisterPojo(this, document);
 
 		document.delete();
@@ -353,62 +353,310 @@ public class OGraphVertex extends OGraphElement implements Cloneable {
 		if (iTargetVertex == null)
 			throw new IllegalArgumentException("Missed the target vertex");
 
-		if (iDatabase.existsUserObjectByRecord(iSourceVertex)) {
-			// WORK ALSO WITH IN MEMORY OBJECTS
+		// SEARCH THE EDGES BETWEEN THE TWO VERTEXES
+		final List<ODocument> edges = new ArrayList<ODocument>();
+		for (Iterator<Object> it = edgeIterator(iDatabase, iSourceVertex, true); it.hasNext();) {
+			final ODocument edge = toDocument(iDatabase, it.next());
+			if (iTargetVertex.equals(edge.field(OGraphEdge.IN)))
+				edges.add(edge);
+		}
+
+		if (edges.isEmpty())
+			throw new OGraphException("Edge not found between the ougoing edges");
+
+		for (ODocument edge : edges)
+			OGraphEdge.delete(iDatabase, edge);
+	}
 
-			final OGraphVertex vertex = (OGraphVertex) iDatabase.getUserObjectByRecord(iSourceVertex, null);
-			// REMOVE THE EDGE OBJECT
-			if (vertex.outEdges != null && vertex.outEdges.get() != null) {
-				for (OGraphEdge e : vertex.outEdges.get())
-					if (e.getIn().getDocument().equals(iTargetVertex)) {
-						vertex.outEdges.get().remove(e);
-					}
+	/**
+	 * Removes the edge from the edges of the vertex.
+	 * 
+	 * @param iOut
+	 *          true to remove from the outgoing edges, false from the incoming ones
+	 */
+	@SuppressWarnings("unchecked")
+	protected static void removeEdge(final ODatabaseGraphTx iDatabase, final ODocument iVertex, final ODocument iEdge,
+			final boolean iOut) {
+		final List<ODocument> docs = (List<ODocument>) iVertex.field(iOut ? FIELD_OUT_EDGES : FIELD_IN_EDGES);
+		if (docs != null && docs.remove(iEdge))
+			return;
+
+		final OTreeMapDatabase<String, ORecordId> tree = getEdgeTree(iDatabase, iVertex, iOut);
+		if (tree != null)
+			tree.remove(iEdge.getIdentity().toString());
+	}
+
+	/**
+	 * Removes the edge object from the in-memory edges, if they are loaded. Edges are never loaded only for this purpose.
+	 */
+	protected void removeCachedEdge(final ODocument iEdge, final boolean iOut) {
+		final SoftReference<List<OGraphEdge>> ref = iOut ? outEdges : inEdges;
+		final List<OGraphEdge> edges = ref != null ? ref.get() : null;
+		if (edges == null)
+			return;
+
+		for (Iterator<OGraphEdge> it = edges.iterator(); it.hasNext();)
+			if (iEdge.equals(it.next().getDocument())) {
+				it.remove();
+				break;
 			}
+	}
+
+	/**
+	 * Adds the edge to the edges list of the current vertex, also for super nodes. The list is moved in the tree on save.
+	 */
+	@SuppressWarnings("unchecked")
+	protected void addEdge(final ODocument iEdge, final boolean iOut) {
+		final String fieldName = iOut ? FIELD_OUT_EDGES : FIELD_IN_EDGES;
+
+		List<ODocument> docs = (List<ODocument>) document.field(fieldName);
+		if (docs == null) {
+			docs = new ArrayList<ODocument>();
+			document.field(fieldName, docs);
 		}
+		docs.add(iEdge);
+	}
 
-		if (iDatabase.existsUserObjectByRecord(iTargetVertex)) {
-			// WORK ALSO WITH IN MEMORY OBJECTS
+	/**
+	 * Returns the tree of the edges if the vertex is a super node, otherwise null.
+	 */
+	protected OTreeMapDatabase<String, ORecordId> getEdgeTree(final boolean iOut) {
+		OTreeMapDatabase<String, ORecordId> tree = iOut ? outEdgesTree : inEdgesTree;
+		if (tree == null) {
+			tree = loadEdgeTree(database, document, iOut);
+			if (iOut)
+				outEdgesTree = tree;
+			else
+				inEdgesTree = tree;
+		}
+		return tree;
+	}
 
-			final OGraphVertex vertex = (OGraphVertex) iDatabase.getUserObjectByRecord(iTargetVertex, null);
-			// REMOVE THE EDGE OBJECT FROM THE TARGET VERTEX
-			if (vertex.inEdges != null && vertex.inEdges.get() != null) {
-				for (OGraphEdge e : vertex.inEdges.get())
-					if (e.getOut().getDocument().equals(iSourceVertex)) {
-						vertex.inEdges.get().remove(e);
-					}
-			}
+	/**
+	 * Moves the edges of the list in the tree if the vertex is already a super node or if the list exceeds
+	 * {@link #SUPER_NODE_THRESHOLD}. Called after the vertex has been saved, so all the edges have a RID.
+	 * 
+	 * @return true if the vertex document has been changed
+	 */
+	@SuppressWarnings("unchecked")
+	private boolean moveEdgesToTree(final boolean iOut) {
+		final String fieldName = iOut ? FIELD_OUT_EDGES : FIELD_IN_EDGES;
+
+		final List<ODocument> docs = (List<ODocument>) document.field(fieldName);
+		if (docs == null || docs.isEmpty())
+			return false;
+
+		OTreeMapDatabase<String, ORecordId> tree = getEdgeTree(iOut);
+		if (tree == null) {
+			if (docs.size() <= SUPER_NODE_THRESHOLD)
+				return false;
+
+			// TOO MANY EDGES: CREATE THE TREE
+			tree = new OTreeMapDatabase<String, ORecordId>(getRawDatabase(database), EDGES_CLUSTER_NAME,
+					OStreamSerializerString.INSTANCE, OStreamSerializerRID.INSTANCE);
+			if (iOut)
+				outEdgesTree = tree;
+			else
+				inEdgesTree = tree;
 		}
 
-		// REMOVE THE EDGE DOCUMENT
-		ODocument edge = null;
-		List<ODocument> docs = iSourceVertex.field(FIELD_OUT_EDGES);
-		if (docs != null) {
-			for (ODocument d : docs)
-				if (d.field(OGraphEdge.IN).equals(iTargetVertex)) {
-					docs.remove(d);
-					edge = d;
-				}
+		final Map<String, ORecordId> entries = new HashMap<String, ORecordId>();
+		for (ODocument edge : docs) {
+			if (!edge.getIdentity().isValid())
+				edge.save();
+			entries.put(edge.getIdentity().toString(),
+					(ORecordId) ((ODocument) edge.field(iOut ? OGraphEdge.IN : OGraphEdge.OUT)).getIdentity());
 		}
+		tree.putAll(entries);
 
-		if (edge == null)
-			throw new OGraphException("Edge not found between the ougoing edges");
+		try {
+			tree.save();
+		} catch (IOException e) {
+			throw new OGraphException("Error on saving the edges of vertex " + document.getIdentity(), e);
+		}
+
+		document.removeField(fieldName);
+		document.field(iOut ? FIELD_OUT_EDGES_TREE : FIELD_IN_EDGES_TREE, tree.getRecord().getIdentity().toString());
+		document.setDirty();
+		return true;
+	}
+
+	private void deleteEdgeTree(final boolean iOut) {
+		final OTreeMapDatabase<String, ORecordId> tree = getEdgeTree(iOut);
+		if (tree == null)
+			return;
+
+		for (String edgeId : new ArrayList<String>(tree.keySet()))
+			OGraphEdge.delete(database, toDocument(database, new ORecordId(edgeId)));
+
+		tree.clear();
+		tree.getRecord().delete();
+
+		if (iOut)
+			outEdgesTree = null;
+		else
+			inEdgesTree = null;
+	}
+
+	private List<OGraphEdge> loadEdges(final boolean iOut) {
+		final List<OGraphEdge> result = new ArrayList<OGraphEdge>();
+
+		if (getEdgeTree(iOut) == null && document.field(iOut ? FIELD_OUT_EDGES : FIELD_IN_EDGES) == null)
+			document.field(iOut ? FIELD_OUT_EDGES : FIELD_IN_EDGES, new ArrayList<ODocument>());
+
+		// TRANSFORM ALL THE ARCS
+		for (Iterator<Object> it = edgeIterator(database, document, iOut); it.hasNext();)
+			result.add((OGraphEdge) database.getUserObjectByRecord(toDocument(database, it.next()), null));
+
+		return result;
+	}
+
+	@SuppressWarnings("unchecked")
+	private int getEdgeCount(final boolean iOut) {
+		final OTreeMapDatabase<String, ORecordId> tree = getEdgeTree(iOut);
+		final List<ODocument> docs = (List<ODocument>) document.field(iOut ? FIELD_OUT_EDGES : FIELD_IN_EDGES);
+		return (tree != null ? tree.size() : 0) + (docs != null ? docs.size() : 0);
+	}
+
+	private ODocument getVertexAt(final int iIndex, final boolean iOut) {
+		final Iterator<Object> it = vertexIterator(database, document, iOut);
+		for (int i = 0; i < iIndex; ++i)
+			it.next();
+		return toDocument(database, it.next());
+	}
+
+	private int findVertex(final OGraphVertex iVertex, final boolean iOut) {
+		final Object rid = iVertex.getDocument().getIdentity();
+
+		int i = 0;
+		for (Iterator<Object> it = vertexIterator(database, document, iOut); it.hasNext(); ++i) {
+			final Object v = it.next();
+			if (v.equals(iVertex.getDocument()) || v.equals(rid))
+				return i;
+		}
+		return -1;
+	}
 
-		iSourceVertex.setDirty();
-		iSourceVertex.save();
+	/**
+	 * Returns the tree of the edges of the vertex document, using the one of the vertex object if it's in memory.
+	 */
+	private static OTreeMapDatabase<String, ORecordId> getEdgeTree(final ODatabaseGraphTx iDatabase, final ODocument iVertex,
+			final boolean iOut) {
+		if (iDatabase.existsUserObjectByRecord(iVertex))
+			return ((OGraphVertex) iDatabase.getUserObjectByRecord(iVertex, null)).getEdgeTree(iOut);
+		return loadEdgeTree(iDatabase, iVertex, iOut);
+	}
+
+	private static OTreeMapDatabase<String, ORecordId> loadEdgeTree(final ODatabaseGraphTx iDatabase, final ODocument iVertex,
+			final boolean iOut) {
+		final String treeId = iVertex.field(iOut ? FIELD_OUT_EDGES_TREE : FIELD_IN_EDGES_TREE);
+		if (treeId == null)
+			return null;
+
+		final OTreeMapDatabase<String, ORecordId> tree = new OTreeMapDatabase<String, ORecordId>(
+				getRawDatabase(iDatabase), new ORecordId(treeId));
+		try {
+			tree.load();
+		} catch (IOException e) {
+			throw new OGraphException("Error on loading the edges of vertex " + iVertex.getIdentity(), e);
+		}
+		return tree;
+	}
+
+	/**
+	 * Browses the edges of the vertex. Items are edge RIDs for the edges in the tree, then edge documents for the ones in the list.
+	 */
+	@SuppressWarnings("unchecked")
+	private static Iterator<Object> edgeIterator(final ODatabaseGraphTx iDatabase, final ODocument iVertex, final boolean iOut) {
+		final List<ODocument> docs = (List<ODocument>) iVertex.field(iOut ? FIELD_OUT_EDGES : FIELD_IN_EDGES);
+		final Iterator<Object> listEdges = docs == null ? Collections.emptyList().iterator() : new ArrayList<Object>(docs)
+				.iterator();
+
+		final OTreeMapDatabase<String, ORecordId> tree = getEdgeTree(iDatabase, iVertex, iOut);
+		if (tree == null)
+			return listEdges;
+
+		final Iterator<String> keys = tree.keySet().iterator();
+		return new Iterator<Object>() {
+			public boolean hasNext() {
+				return keys.hasNext() || listEdges.hasNext();
+			}
+
+			public Object next() {
+				return keys.hasNext() ? new ORecordId(keys.next()) : listEdges.next();
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException("remove");
+			}
+		};
+	}
+
+	/**
+	 * Browses the vertexes on the other side of the edges. Items are vertex RIDs for the edges in the tree, so those edges are never
+	 * loaded, then vertex documents for the edges in the list.
+	 */
+	@SuppressWarnings("unchecked")
+	private static Iterator<Object> vertexIterator(final ODatabaseGraphTx iDatabase, final ODocument iVertex, final boolean iOut) {
+		final OTreeMapDatabase<String, ORecordId> tree = getEdgeTree(iDatabase, iVertex, iOut);
+		final Iterator<ORecordId> treeVertexes = tree != null ? tree.values().iterator() : null;
+
+		final List<ODocument> docs = (List<ODocument>) iVertex.field(iOut ? FIELD_OUT_EDGES : FIELD_IN_EDGES);
+		if (docs == null && treeVertexes == null)
+			return Collections.emptyList().iterator();
+
+		final Iterator<ODocument> edges = docs == null ? Collections.<ODocument> emptyList().iterator() : new ArrayList<ODocument>(
+				docs).iterator();
+		return new Iterator<Object>() {
+			public boolean hasNext() {
+				return (treeVertexes != null && treeVertexes.hasNext()) || edges.hasNext();
+			}
+
+			public Object next() {
+				if (treeVertexes != null && treeVertexes.hasNext())
+					return treeVertexes.next();
+				return edges.next().field(iOut ? OGraphEdge.IN : OGraphEdge.OUT);
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException("remove");
+			}
+		};
+	}
 
-		docs = iTargetVertex.field(FIELD_IN_EDGES);
+	/**
+	 * Returns the database of raw records used by the edge trees.
+	 */
+	private static ODatabaseRecord<?> getRawDatabase(final ODatabaseGraphTx iDatabase) {
+		return (ODatabaseRecord<?>) ((ODatabaseRecord<?>) iDatabase.getUnderlying()).getUnderlying();
+	}
 
-		// REMOVE THE EDGE DOCUMENT FROM THE TARGET VERTEX
-		if (docs != null) {
-			for (ODocument d : docs)
-				if (d.field(OGraphEdge.IN).equals(iTargetVertex)) {
-					docs.remove(d);
-				}
+	private static ODocument toDocument(final ODatabaseGraphTx iDatabase, final Object iValue) {
+		if (iValue instanceof ODocument)
+			return (ODocument) iValue;
+		return (ODocument) new ODocument((ODatabaseRecord<?>) iDatabase.getUnderlying(), (ORecordId) iValue).load();
+	}
+
+	/**
+	 * Wraps the vertex documents or RIDs in vertex objects.
+	 */
+	private class OGraphVertexIterator implements Iterator<OGraphVertex> {
+		private final Iterator<Object>	underlying;
+
+		private OGraphVertexIterator(final Iterator<Object> iUnderlying) {
+			underlying = iUnderlying;
 		}
 
-		iTargetVertex.setDirty();
-		iTargetVertex.save();
+		public boolean hasNext() {
+			return underlying.hasNext();
+		}
+
+		public OGraphVertex next() {
+			return (OGraphVertex) database.getUserObjectByRecord(toDocument(database, underlying.next()), null);
+		}
 
-		edge.delete();
+		public void remove() {
+			throw new UnsupportedOperationException("remove");
+		}
 	}
 }
@@ -15,6 +15,7 @@
  */
 package com.orientechnologies.orient.core.db.raw;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -144,6 +145,77 @@ public class ODatabaseRaw implements ODatabase {
 		}
 	}
 
+	/**
+	 * Reads a range of consecutive records of a cluster in one storage call. The records read are pushed in cache like the single
+	 * reads.
+	 * 
+	 * @see OStorage#readRecords(int, int, long, int)
+	 */
+	public ORawBuffer[] read(final int iClusterId, final long iFromPosition, final int iCount) {
+		try {
+			final ORawBuffer[] result = storage.readRecords(id, iClusterId, iFromPosition, iCount);
+
+			if (useCache && result != null)
+				// ADD THE RECORDS TO THE LOCAL CACHE
+				for (int i = 0; i < result.length; ++i)
+					if (result[i] != null)
+						getCache().pushRecord(ORecordId.generateString(iClusterId, iFromPosition + i), result[i]);
+
+			return result;
+
+		} catch (Throwable t) {
+			throw new ODatabaseException("Error on retrieving records from #" + iFromPosition + " in cluster '"
+					+ storage.getPhysicalClusterNameById(iClusterId) + "'", t);
+		}
+	}
+
+	/**
+	 * Reads a set of records. The records found in cache are returned from it, all the others are read with one storage call.
+	 * 
+	 * @see OStorage#readRecords(int, ORID[])
+	 */
+	public ORawBuffer[] read(final ORID[] iRecordIds) {
+		try {
+			final ORawBuffer[] result = new ORawBuffer[iRecordIds.length];
+
+			// SEARCH THEM IN CACHE FIRST
+			final String[] recIds = new String[iRecordIds.length];
+			int missed = 0;
+			for (int i = 0; i < iRecordIds.length; ++i) {
+				recIds[i] = iRecordIds[i].toString();
+				if (useCache)
+					result[i] = getCache().popRecord(recIds[i]);
+				if (result[i] == null)
+					missed++;
+			}
+
+			if (missed > 0) {
+				final ORID[] toRead = new ORID[missed];
+				final int[] toReadIndex = new int[missed];
+				for (int i = 0, m = 0; i < result.length; ++i)
+					if (result[i] == null) {
+						toRead[m] = iRecordIds[i];
+						toReadIndex[m++] = i;
+					}
+
+				final ORawBuffer[] read = storage.readRecords(id, toRead);
+				for (int i = 0; i < read.length; ++i)
+					result[toReadIndex[i]] = read[i];
+			}
+
+			if (useCache)
+				// ADD THE RECORDS TO THE LOCAL CACHE
+				for (int i = 0; i < result.length; ++i)
+					if (result[i] != null)
+						getCache().pushRecord(recIds[i], result[i]);
+
+			return result;
+
+		} catch (Throwable t) {
+			throw new ODatabaseException("Error on retrieving records " + Arrays.toString(iRecordIds), t);
+		}
+	}
+
 	public long save(final int iClusterId, long iPosition, final byte[] iContent, final int iVersion, final byte iRecordType) {
 		try {
 			if (iPosition == ORID.CLUSTER_POS_INVALID) {
@@ -15,6 +15,7 @@
  */
 package com.orientechnologies.orient.core.db.record;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
@@ -71,6 +72,7 @@ public abstract class ODatabaseRecordAbstract<REC extends ORecordInternal<?>> ex
 	private String										recordFormat;
 	private Set<ORecordHook>					hooks							= new HashSet<ORecordHook>();
 	private boolean										retainRecords			= true;
+	private static Object							authenticationKey;
 
 	public ODatabaseRecordAbstract(final String iURL, final Class<? extends REC> iRecordClass) {
 		super(new ODatabaseRaw(iURL));
@@ -94,6 +96,42 @@ public abstract class ODatabaseRecordAbstract<REC extends ORecordInternal<?>> ex
 
 	@Override
 	public <DB extends ODatabase> DB open(final String iUserName, final String iUserPassword) {
+		open(iUserName, iUserPassword, true);
+		return (DB) this;
+	}
+
+	/**
+	 * Reserves the key to open databases without the password by {@link #openAuthenticated(String, Object)}. The key is given only
+	 * once: the server reserves it at startup and keeps it private.
+	 * 
+	 * @throws OSecurityAccessException
+	 *           if the key was already reserved
+	 */
+	public static synchronized Object reserveAuthenticationKey() {
+		if (authenticationKey != null)
+			throw new OSecurityAccessException("The authentication key was already reserved");
+		authenticationKey = new Object();
+		return authenticationKey;
+	}
+
+	/**
+	 * Opens the database for a user already authenticated by the caller, as the server does for the requests of an HTTP session.
+	 * The password is not checked, but the user must exist and be active.
+	 * 
+	 * @param iAuthenticationKey
+	 *          The key returned by {@link #reserveAuthenticationKey()}
+	 */
+	public <DB extends ODatabase> DB openAuthenticated(final String iUserName, final Object iAuthenticationKey) {
+		synchronized (ODatabaseRecordAbstract.class) {
+			if (iAuthenticationKey == null || iAuthenticationKey != authenticationKey)
+				throw new OSecurityAccessException(getName(), "Authentication key not valid to open the database as user: " + iUserName);
+		}
+
+		open(iUserName, null, false);
+		return (DB) this;
+	}
+
+	private void open(final String iUserName, final String iUserPassword, final boolean iCheckPassword) {
 		try {
 			super.open(iUserName, iUserPassword);
 
@@ -109,7 +147,7 @@ public abstract class ODatabaseRecordAbstract<REC extends ORecordInternal<?>> ex
 			if (user.getAccountStatus() != STATUSES.ACTIVE)
 				throw new OSecurityAccessException(this.getName(), "User '" + iUserName + "' is not active");
 
-			if (getStorage() instanceof OStorageLocal) {
+			if (iCheckPassword && getStorage() instanceof OStorageLocal) {
 				if (!user.checkPassword(iUserPassword)) {
 					// WAIT A BIT TO AVOID BRUTE FORCE
 					Thread.sleep(200);
@@ -122,7 +160,6 @@ public abstract class ODatabaseRecordAbstract<REC extends ORecordInternal<?>> ex
 			close();
 			throw new ODatabaseException("Can't open database", e);
 		}
-		return (DB) this;
 	}
 
 	@Override
@@ -195,7 +232,7 @@ public abstract class ODatabaseRecordAbstract<REC extends ORecordInternal<?>> ex
 	public ORecordIteratorCluster<REC> browseCluster(String iClusterName) {
 		final int clusterId = getClusterIdByName(iClusterName);
 
-		checkSecurity(ODatabaseSecurityResources.CLUSTER, ORole.PERMISSION_READ, iClusterName, clusterId);
+		checkClusterSecurity(ORole.PERMISSION_READ, clusterId);
 
 		return new ORecordIteratorCluster<REC>(this, this, clusterId);
 	}
@@ -237,26 +274,21 @@ public abstract class ODatabaseRecordAbstract<REC extends ORecordInternal<?>> ex
 
 	@Override
 	public long countClusterElements(final int[] iClusterIds) {
-		String name;
-		for (int i = 0; i < iClusterIds.length; ++i) {
-			name = getClusterNameById(iClusterIds[i]);
-			checkSecurity(ODatabaseSecurityResources.CLUSTER, ORole.PERMISSION_READ, name, iClusterIds[i]);
-		}
+		for (int i = 0; i < iClusterIds.length; ++i)
+			checkClusterSecurity(ORole.PERMISSION_READ, iClusterIds[i]);
 
 		return super.countClusterElements(iClusterIds);
 	}
 
 	@Override
 	public long countClusterElements(final int iClusterId) {
-		final String name = getClusterNameById(iClusterId);
-		checkSecurity(ODatabaseSecurityResources.CLUSTER, ORole.PERMISSION_READ, name, iClusterId);
-		return super.countClusterElements(name);
+		checkClusterSecurity(ORole.PERMISSION_READ, iClusterId);
+		return super.countClusterElements(getClusterNameById(iClusterId));
 	}
 
 	@Override
 	public long countClusterElements(final String iClusterName) {
-		final int clusterId = getClusterIdByName(iClusterName);
-		checkSecurity(ODatabaseSecurityResources.CLUSTER, ORole.PERMISSION_READ, iClusterName, clusterId);
+		checkClusterSecurity(ORole.PERMISSION_READ, getClusterIdByName(iClusterName));
 		return super.countClusterElements(iClusterName);
 	}
 
@@ -271,6 +303,10 @@ public abstract class ODatabaseRecordAbstract<REC extends ORecordInternal<?>> ex
 	}
 
 	public <DB extends ODatabaseRecord<?>> DB checkSecurity(final String iResource, final int iOperation) {
+		if (user != null && !OLogManager.instance().isDebugEnabled() && user.isResourceAllowed(iResource, iOperation))
+			// ALLOWED BY THE COMPILED PERMISSIONS
+			return (DB) this;
+
 		OLogManager.instance()
 				.debug(this, "[checkSecurity] Check permissions for resource '%s', operation '%s'", iResource, iOperation);
 		if (user != null) {
@@ -343,35 +379,81 @@ public abstract class ODatabaseRecordAbstract<REC extends ORecordInternal<?>> ex
 		return (DB) this;
 	}
 
+	/**
+	 * Checks the permission against a cluster on the record hot path. The permissions compiled by the user are checked first with an
+	 * array lookup: only if they deny the operation the complete check is executed to raise the detailed exception.
+	 */
+	protected void checkClusterSecurity(final int iOperation, final int iClusterId) {
+		if (user != null && !user.isClusterAllowed(this, iClusterId, iOperation))
+			checkSecurity(ODatabaseSecurityResources.CLUSTER, iOperation, getClusterNameById(iClusterId), iClusterId);
+	}
+
 	public REC executeReadRecord(final int iClusterId, final long iPosition, REC iRecord, final String iFetchPlan) {
 		checkOpeness();
 
 		try {
-			checkSecurity(ODatabaseSecurityResources.CLUSTER, ORole.PERMISSION_READ, getClusterNameById(iClusterId), iClusterId);
+			checkClusterSecurity(ORole.PERMISSION_READ, iClusterId);
 
 			callbackHooks(TYPE.BEFORE_READ, iRecord);
 
-			final ORawBuffer recordBuffer = underlying.read(iClusterId, iPosition, iFetchPlan);
-			if (recordBuffer == null)
-				return null;
+			return fillRecord(iClusterId, iPosition, iRecord, underlying.read(iClusterId, iPosition, iFetchPlan));
+
+		} catch (ODatabaseException e) {
+			// RE-THROW THE EXCEPTION
+			throw e;
+
+		} catch (Exception e) {
+			// WRAP IT AS ODATABASE EXCEPTION
+			OLogManager.instance().exception("Error on retrieving record #%d in cluster '%s'", e, ODatabaseException.class, iPosition,
+					getStorage().getPhysicalClusterNameById(iClusterId));
+		}
+		return null;
+	}
+
+	/**
+	 * Reads a range of consecutive records of a cluster in one storage call. The security is checked once for the entire range. The
+	 * raw records returned must be passed to {@link #executeReadRecord(int, long, ORecordInternal, ORawBuffer)} to get the records.
+	 * 
+	 * @return The raw records, one per position with null for the deleted ones, or null if the storage can't read the range now
+	 */
+	public ORawBuffer[] executeReadRecords(final int iClusterId, final long iFromPosition, final int iCount) {
+		checkOpeness();
+		checkClusterSecurity(ORole.PERMISSION_READ, iClusterId);
+		return underlying.read(iClusterId, iFromPosition, iCount);
+	}
 
-			if (iRecord.getRecordType() != recordBuffer.recordType)
-				// NO SAME RECORD TYPE: CAN'T REUSE OLD ONE BUT CREATE A NEW ONE FOR IT
-				iRecord = (REC) ORecordFactory.newInstance(recordBuffer.recordType);
+	/**
+	 * Loads a set of records with one storage call, calling the hooks as for the single reads. The records not found are left
+	 * untouched.
+	 */
+	public void executeReadRecords(final List<? extends REC> iRecords) {
+		checkOpeness();
 
-			iRecord.unsetDirty();
+		final ORID[] rids = new ORID[iRecords.size()];
+		for (int i = 0; i < rids.length; ++i) {
+			rids[i] = iRecords.get(i).getIdentity();
+			if (i == 0 || rids[i].getClusterId() != rids[i - 1].getClusterId())
+				checkClusterSecurity(ORole.PERMISSION_READ, rids[i].getClusterId());
+		}
 
-			ODatabaseRecord<?> currDb = iRecord.getDatabase();
-			if (currDb == null)
-				currDb = (ODatabaseRecord<?>) databaseOwner;
+		final ORawBuffer[] buffers = underlying.read(rids);
 
-			iRecord.fill(currDb, iClusterId, iPosition, recordBuffer.version);
-			iRecord.fromStream(recordBuffer.buffer);
-			iRecord.setStatus(STATUS.LOADED);
+		for (int i = 0; i < rids.length; ++i)
+			executeReadRecord(rids[i].getClusterId(), rids[i].getClusterPosition(), iRecords.get(i), buffers[i]);
+	}
 
-			callbackHooks(TYPE.AFTER_READ, iRecord);
+	/**
+	 * Loads the record from a raw record previously read by {@link #executeReadRecords(int, long, int)}, calling the hooks as for the
+	 * single reads.
+	 */
+	public REC executeReadRecord(final int iClusterId, final long iPosition, REC iRecord, final ORawBuffer iRecordBuffer) {
+		checkOpeness();
+
+		try {
+			callbackHooks(TYPE.BEFORE_READ, iRecord);
+
+			return fillRecord(iClusterId, iPosition, iRecord, iRecordBuffer);
 
-			return iRecord;
 		} catch (ODatabaseException e) {
 			// RE-THROW THE EXCEPTION
 			throw e;
@@ -384,6 +466,30 @@ public abstract class ODatabaseRecordAbstract<REC extends ORecordInternal<?>> ex
 		return null;
 	}
 
+	private REC fillRecord(final int iClusterId, final long iPosition, REC iRecord, final ORawBuffer iRecordBuffer)
+			throws IOException {
+		if (iRecordBuffer == null)
+			return null;
+
+		if (iRecord.getRecordType() != iRecordBuffer.recordType)
+			// NO SAME RECORD TYPE: CAN'T REUSE OLD ONE BUT CREATE A NEW ONE FOR IT
+			iRecord = (REC) ORecordFactory.newInstance(iRecordBuffer.recordType);
+
+		iRecord.unsetDirty();
+
+		ODatabaseRecord<?> currDb = iRecord.getDatabase();
+		if (currDb == null)
+			currDb = (ODatabaseRecord<?>) databaseOwner;
+
+		iRecord.fill(currDb, iClusterId, iPosition, iRecordBuffer.version);
+		iRecord.fromStream(iRecordBuffer.buffer);
+		iRecord.setStatus(STATUS.LOADED);
+
+		callbackHooks(TYPE.AFTER_READ, iRecord);
+
+		return iRecord;
+	}
+
 	public void executeSaveRecord(final REC iRecord, final String iClusterName, final int iVersion, final byte iRecordType) {
 		checkOpeness();
 
@@ -411,11 +517,11 @@ public abstract class ODatabaseRecordAbstract<REC extends ORecordInternal<?>> ex
 			if (stream.length > 0) {
 				if (isNew) {
 					// CHECK ACCESS ON CLUSTER
-					checkSecurity(ODatabaseSecurityResources.CLUSTER, ORole.PERMISSION_CREATE, iClusterName, clusterId);
+					checkClusterSecurity(ORole.PERMISSION_CREATE, clusterId);
 					callbackHooks(TYPE.BEFORE_CREATE, iRecord);
 				} else {
 					// CHECK ACCESS ON CLUSTER
-					checkSecurity(ODatabaseSecurityResources.CLUSTER, ORole.PERMISSION_UPDATE, iClusterName, clusterId);
+					checkClusterSecurity(ORole.PERMISSION_UPDATE, clusterId);
 					callbackHooks(TYPE.BEFORE_UPDATE, iRecord);
 				}
 
@@ -467,7 +573,7 @@ public abstract class ODatabaseRecordAbstract<REC extends ORecordInternal<?>> ex
 					"Can't delete record because it has no identity. Probably was created from scratch or contains projections of fields rather than a full record");
 
 		final int clusterId = iRecord.getIdentity().getClusterId();
-		checkSecurity(ODatabaseSecurityResources.CLUSTER, ORole.PERMISSION_DELETE, getClusterNameById(clusterId), clusterId);
+		checkClusterSecurity(ORole.PERMISSION_DELETE, clusterId);
 
 		try {
 			callbackHooks(TYPE.BEFORE_DELETE, iRecord);
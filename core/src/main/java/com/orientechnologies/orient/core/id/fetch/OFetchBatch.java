@@ -0,0 +1,114 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.id.fetch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.orientechnologies.orient.core.record.ORecord.STATUS;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+/**
+ * Fetches the records linked by a set of root records level by level instead of recursively. The records of each level not loaded
+ * yet are passed all together to {@link #load(List)} before browsing their links, so the implementation can read them with one
+ * storage call. Roots are added with {@link #add(ODocument)}, then {@link #fetch()} fetches all their links.
+ * 
+ * @author Luca Garulli
+ * 
+ * @see OFetchHelper
+ */
+public abstract class OFetchBatch {
+	private final Map<String, Integer>	fetchPlan;
+	private final int										maxFetch;
+	private final OFetchListener				listener;
+	private List<OFetchLink>						level	= new ArrayList<OFetchLink>();
+
+	private static class OFetchLink {
+		private final ODocument	record;
+		private final Object		userObject;
+		private final String		fieldName;
+		private final int				currentLevel;
+
+		private OFetchLink(final ODocument iRecord, final Object iUserObject, final String iFieldName, final int iCurrentLevel) {
+			record = iRecord;
+			userObject = iUserObject;
+			fieldName = iFieldName;
+			currentLevel = iCurrentLevel;
+		}
+	}
+
+	public OFetchBatch(final Map<String, Integer> iFetchPlan, final int iMaxFetch, final OFetchListener iListener) {
+		fetchPlan = iFetchPlan;
+		maxFetch = iMaxFetch;
+		listener = iListener;
+	}
+
+	/**
+	 * Adds a root record. Its links are browsed immediately, so the caller can reuse the record once returned.
+	 */
+	public void add(final ODocument iRootRecord) {
+		OFetchHelper.fetch(iRootRecord, iRootRecord, fetchPlan, null, 0, maxFetch, listener, this);
+	}
+
+	/**
+	 * Returns the number of linked records waiting to be fetched.
+	 */
+	public int size() {
+		return level.size();
+	}
+
+	/**
+	 * Fetches all the records linked by the roots added until now, level by level.
+	 */
+	public void fetch() {
+		List<OFetchLink> current;
+		final List<ODocument> toLoad = new ArrayList<ODocument>();
+
+		while (!level.isEmpty()) {
+			current = level;
+			level = new ArrayList<OFetchLink>();
+
+			// LOAD ALL THE RECORDS OF THE LEVEL TOGETHER
+			toLoad.clear();
+			for (OFetchLink link : current)
+				if (link.record.getInternalStatus() == STATUS.NOT_LOADED)
+					toLoad.add(link.record);
+
+			if (!toLoad.isEmpty())
+				load(toLoad);
+
+			for (OFetchLink link : current) {
+				if (maxFetch > -1 && listener.size() >= maxFetch) {
+					// MAX FETCH SIZE REACHED: STOP TO FETCH AT ALL
+					level.clear();
+					return;
+				}
+
+				OFetchHelper.fetch(link.record, link.userObject, fetchPlan, link.fieldName, link.currentLevel, maxFetch, listener, this);
+			}
+		}
+	}
+
+	/**
+	 * Loads the records of a level. Records not found can be left not loaded.
+	 */
+	protected abstract void load(List<ODocument> iRecords);
+
+	void addLink(final ODocument iRecord, final Object iUserObject, final String iFieldName, final int iCurrentLevel) {
+		level.add(new OFetchLink(iRecord, iUserObject, iFieldName, iCurrentLevel));
+	}
+}
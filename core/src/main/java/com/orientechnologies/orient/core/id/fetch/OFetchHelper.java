@@ -53,9 +53,19 @@ public class OFetchHelper {
 		return fetchPlan;
 	}
 
-	@SuppressWarnings("unchecked")
 	public static void fetch(final ODocument iRootRecord, final Object iUserObject, final Map<String, Integer> iFetchPlan,
 			final String iCurrentField, final int iCurrentLevel, final int iMaxFetch, final OFetchListener iListener) {
+		fetch(iRootRecord, iUserObject, iFetchPlan, iCurrentField, iCurrentLevel, iMaxFetch, iListener, null);
+	}
+
+	/**
+	 * Browses the links of the record. If iNextLevel is not null the linked records are added to it to be fetched with the next
+	 * level, otherwise they are fetched recursively.
+	 */
+	@SuppressWarnings("unchecked")
+	static void fetch(final ODocument iRootRecord, final Object iUserObject, final Map<String, Integer> iFetchPlan,
+			final String iCurrentField, final int iCurrentLevel, final int iMaxFetch, final OFetchListener iListener,
+			final OFetchBatch iNextLevel) {
 
 		if (iMaxFetch > -1 && iListener.size() >= iMaxFetch)
 			// MAX FETCH SIZE REACHED: STOP TO FETCH AT ALL
@@ -101,17 +111,24 @@ public class OFetchHelper {
 				if (fieldValue instanceof ODocument) {
 					final ODocument linked = (ODocument) fieldValue;
 					userObject = iListener.fetchLinked(iRootRecord, iUserObject, fieldName, linked);
-					if (userObject != null)
-						// GO RECURSIVELY
-						fetch(linked, userObject, iFetchPlan, fieldName, currentLevel, iMaxFetch, iListener);
+					if (userObject != null) {
+						if (iNextLevel != null)
+							iNextLevel.addLink(linked, userObject, fieldName, currentLevel);
+						else
+							// GO RECURSIVELY
+							fetch(linked, userObject, iFetchPlan, fieldName, currentLevel, iMaxFetch, iListener);
+					}
 
 				} else if (fieldValue instanceof Collection<?>) {
 					final Collection<ODocument> linked = (Collection<ODocument>) fieldValue;
 					userObject = iListener.fetchLinked(iRootRecord, iUserObject, fieldName, linked);
 					if (userObject != null)
 						for (ODocument d : (Collection<ODocument>) userObject) {
-							// GO RECURSIVELY
-							fetch(d, d, iFetchPlan, fieldName, currentLevel, iMaxFetch, iListener);
+							if (iNextLevel != null)
+								iNextLevel.addLink(d, d, fieldName, currentLevel);
+							else
+								// GO RECURSIVELY
+								fetch(d, d, iFetchPlan, fieldName, currentLevel, iMaxFetch, iListener);
 						}
 				}
 
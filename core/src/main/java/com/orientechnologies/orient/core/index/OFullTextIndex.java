@@ -123,7 +123,10 @@ public class OFullTextIndex extends OPropertyIndex {
 		}
 
 		try {
-			map.save();
+			synchronized (map) {
+				map.setDatabase(database);
+				map.save();
+			}
 		} catch (IOException e) {
 			throw new OIndexException("Can't save index for property '" + owner.getName() + "'");
 		}
@@ -140,7 +143,9 @@ public class OFullTextIndex extends OPropertyIndex {
 	}
 
 	/**
-	 * Split the value in single words and index each one. Save of the index is responsability of the caller.
+	 * Split the value in single words and index each one. Save of the index is responsability of the caller. As for the other
+	 * indexes the tree is shared by the database instances, so the words are indexed holding its lock and the references are copied
+	 * before the change.
 	 * 
 	 * @param iKey
 	 *          Value to index
@@ -182,17 +187,23 @@ public class OFullTextIndex extends OPropertyIndex {
 			if (stopWords.contains(word))
 				continue;
 
-			// SEARCH FOR THE WORD
-			refs = map.get(word);
-			if (refs == null)
-				// WORD NOT EXISTS: CREATE THE KEYWORD CONTAINER THE FIRST TIME THE WORD IS FOUND
-				refs = new ArrayList<ORecordId>();
+			synchronized (map) {
+				map.setDatabase(database);
+
+				// SEARCH FOR THE WORD
+				refs = map.get(word);
+				if (refs == null)
+					// WORD NOT EXISTS: CREATE THE KEYWORD CONTAINER THE FIRST TIME THE WORD IS FOUND
+					refs = new ArrayList<ORecordId>();
+				else
+					refs = new ArrayList<ORecordId>(refs);
 
-			// ADD THE CURRENT DOCUMENT AS REF FOR THAT WORD
-			refs.add(iOwnerRecord);
+				// ADD THE CURRENT DOCUMENT AS REF FOR THAT WORD
+				refs.add(iOwnerRecord);
 
-			// SAVE THE INDEX ENTRY
-			map.put(word, refs);
+				// SAVE THE INDEX ENTRY
+				map.put(word, refs);
+			}
 		}
 	}
 
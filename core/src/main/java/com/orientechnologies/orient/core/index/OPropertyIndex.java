@@ -16,10 +16,14 @@
 package com.orientechnologies.orient.core.index;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
 
 import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
 import com.orientechnologies.orient.core.id.ORID;
@@ -33,14 +37,18 @@ import com.orientechnologies.orient.core.serialization.serializer.stream.OStream
 import com.orientechnologies.orient.core.type.tree.OTreeMapDatabaseLazySave;
 
 /**
- * Handles indexing when records change.
+ * Handles indexing when records change. The tree of an existent index is shared by all the database instances opened against the
+ * same storage, so concurrent instances (such as the pooled ones of the server) see the same entries. Every access to the tree is
+ * serialized on it and binds the tree to the database instance of the caller.
  * 
  * @author Luca Garulli
  * 
  */
 public abstract class OPropertyIndex implements Iterable<Entry<String, List<ORecordId>>> {
+	protected ODatabaseRecord<?>																database;
 	protected OProperty																					owner;
 	protected OTreeMapDatabaseLazySave<String, List<ORecordId>>	map;
+	protected boolean																						shared;
 
 	/**
 	 * Constructor called when a new index is created.
@@ -53,6 +61,7 @@ public abstract class OPropertyIndex implements Iterable<Entry<String, List<ORec
 	 *          Cluster name where to place the TreeMap
 	 */
 	public OPropertyIndex(final ODatabaseRecord<?> iDatabase, final OProperty iProperty, final String iClusterIndexName) {
+		database = iDatabase;
 		owner = iProperty;
 		map = new OTreeMapDatabaseLazySave<String, List<ORecordId>>(iDatabase, iClusterIndexName, OStreamSerializerString.INSTANCE,
 				OStreamSerializerListRID.INSTANCE);
@@ -69,6 +78,7 @@ public abstract class OPropertyIndex implements Iterable<Entry<String, List<ORec
 	 *          Record Id of the persistent TreeMap
 	 */
 	public OPropertyIndex(final ODatabaseRecord<?> iDatabase, final OProperty iProperty, final ORID iRecordId) {
+		database = iDatabase;
 		owner = iProperty;
 		init(iDatabase, iRecordId);
 	}
@@ -82,6 +92,7 @@ public abstract class OPropertyIndex implements Iterable<Entry<String, List<ORec
 	 *          Owner property
 	 */
 	public OPropertyIndex(final ODatabaseRecord<?> iDatabase, final OProperty iProperty) {
+		database = iDatabase;
 		owner = iProperty;
 	}
 
@@ -91,7 +102,11 @@ public abstract class OPropertyIndex implements Iterable<Entry<String, List<ORec
 
 	@SuppressWarnings("unchecked")
 	public List<ORecordId> get(Object iKey) {
-		final List<ORecordId> values = map.get(iKey);
+		final List<ORecordId> values;
+		synchronized (map) {
+			map.setDatabase(database);
+			values = map.get(iKey);
+		}
 
 		if (values == null)
 			return Collections.EMPTY_LIST;
@@ -112,7 +127,7 @@ public abstract class OPropertyIndex implements Iterable<Entry<String, List<ORec
 
 		final int[] clusterIds = owner.getOwnerClass().getClusterIds();
 		for (int clusterId : clusterIds)
-			for (Object record : map.getDatabase().browseCluster(map.getDatabase().getClusterNameById(clusterId))) {
+			for (Object record : database.browseCluster(database.getClusterNameById(clusterId))) {
 				if (record instanceof ODocument) {
 					doc = (ODocument) record;
 					fieldValue = doc.field(owner.getName());
@@ -126,35 +141,125 @@ public abstract class OPropertyIndex implements Iterable<Entry<String, List<ORec
 	}
 
 	public void remove(final Object key) {
-		map.remove(key);
+		synchronized (map) {
+			map.setDatabase(database);
+			map.remove(key);
+		}
 	}
 
 	public void load() throws IOException {
-		map.load();
+		synchronized (map) {
+			map.setDatabase(database);
+			map.load();
+		}
 	}
 
 	public void clear() {
-		map.clear();
+		synchronized (map) {
+			map.setDatabase(database);
+			map.clear();
+		}
 	}
 
 	public void lazySave() {
-		map.lazySave();
+		synchronized (map) {
+			map.setDatabase(database);
+			map.lazySave();
+		}
+
+		if (!shared && map.getRecord().getIdentity().isValid()) {
+			// NEW INDEX: SHARE IT NOW THAT IT HAS A RID
+			final OTreeMapDatabaseLazySave<String, List<ORecordId>> tree = map;
+			map = database.getStorage().getResource(getResourceName(map.getRecord().getIdentity()),
+					new Callable<OTreeMapDatabaseLazySave<String, List<ORecordId>>>() {
+						public OTreeMapDatabaseLazySave<String, List<ORecordId>> call() throws Exception {
+							return tree;
+						}
+					});
+			shared = true;
+		}
 	}
 
 	public ORecordBytes getRecord() {
 		return map.getRecord();
 	}
 
+	/**
+	 * Iterates over a copy of the entries taken at the call, so the tree can be changed concurrently by other database instances.
+	 */
 	public Iterator<Entry<String, List<ORecordId>>> iterator() {
-		return map.entrySet().iterator();
+		final Map<String, List<ORecordId>> entries = new LinkedHashMap<String, List<ORecordId>>();
+		synchronized (map) {
+			map.setDatabase(database);
+			for (Entry<String, List<ORecordId>> entry : map.entrySet())
+				entries.put(entry.getKey(), entry.getValue());
+		}
+		return entries.entrySet().iterator();
+	}
+
+	/**
+	 * Deletes the index from the database and stops sharing its tree among the database instances.
+	 */
+	public void delete() {
+		final ORID rid = map.getRecord().getIdentity().copy();
+
+		synchronized (map) {
+			map.setDatabase(database);
+			map.clear();
+			map.getRecord().delete();
+		}
+
+		if (shared)
+			database.getStorage().removeResource(getResourceName(rid));
 	}
 
 	protected void init(final ODatabaseRecord<?> iDatabase, final ORID iRecordId) {
-		map = new OTreeMapDatabaseLazySave<String, List<ORecordId>>(iDatabase, iRecordId);
-		try {
-			map.load();
-		} catch (IOException e) {
-			throw new OIndexException("Can't activate index on property");
+		database = iDatabase;
+		map = iDatabase.getStorage().getResource(getResourceName(iRecordId),
+				new Callable<OTreeMapDatabaseLazySave<String, List<ORecordId>>>() {
+					public OTreeMapDatabaseLazySave<String, List<ORecordId>> call() throws Exception {
+						final OTreeMapDatabaseLazySave<String, List<ORecordId>> tree = new OTreeMapDatabaseLazySave<String, List<ORecordId>>(
+								iDatabase, iRecordId);
+						try {
+							tree.load();
+						} catch (IOException e) {
+							throw new OIndexException("Can't activate index on property", e);
+						}
+						return tree;
+					}
+				});
+		shared = true;
+	}
+
+	protected static String getResourceName(final ORID iRecordId) {
+		return "index." + iRecordId;
+	}
+
+	/**
+	 * Updates the entry of the key. The values are copied before the change since the list can be read concurrently by other
+	 * database instances.
+	 */
+	protected void put(final Object iKey, final ORecordId iSingleValue, final boolean iUnique) {
+		synchronized (map) {
+			map.setDatabase(database);
+
+			final List<ORecordId> stored = map.get(iKey);
+			final List<ORecordId> values = stored != null ? new ArrayList<ORecordId>(stored) : new ArrayList<ORecordId>();
+
+			if (iUnique) {
+				if (values.size() > 0)
+					throw new OIndexException("Found duplicated key '" + iKey + "' on unique index defined in property: " + owner);
+				values.add(iSingleValue);
+			} else {
+				final int pos = values.indexOf(iSingleValue);
+				if (pos > -1)
+					// REPLACE IT
+					values.set(pos, iSingleValue);
+				else
+					values.add(iSingleValue);
+			}
+
+			map.put(iKey.toString(), values);
 		}
 	}
 }
@@ -15,9 +15,6 @@
  */
 package com.orientechnologies.orient.core.index;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
 import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.id.ORecordId;
@@ -53,18 +50,7 @@ public class OPropertyIndexNotUnique extends OPropertyIndex {
 	}
 
 	public void put(final Object iKey, final ORecordId iSingleValue) {
-		List<ORecordId> values = map.get(iKey);
-		if (values == null)
-			values = new ArrayList<ORecordId>();
-
-		int pos = values.indexOf(iSingleValue);
-		if (pos > -1)
-			// REPLACE IT
-			values.set(pos, iSingleValue);
-		else
-			values.add(iSingleValue);
-
-		map.put(iKey.toString(), values);
+		put(iKey, iSingleValue, false);
 	}
 
 	@Override
@@ -15,9 +15,6 @@
  */
 package com.orientechnologies.orient.core.index;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
 import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.id.ORecordId;
@@ -52,17 +49,7 @@ public class OPropertyIndexUnique extends OPropertyIndex {
 	}
 
 	public void put(final Object iKey, final ORecordId iSingleValue) {
-		List<ORecordId> values = map.get(iKey);
-		if (values == null)
-			values = new ArrayList<ORecordId>();
-
-		// UNIQUE
-		if (values.size() > 0)
-			throw new OIndexException("Found duplicated key '" + iKey + "' on unique index defined in property: " + owner);
-
-		values.add(iSingleValue);
-
-		map.put(iKey.toString(), values);
+		put(iKey, iSingleValue, true);
 	}
 
 	@Override
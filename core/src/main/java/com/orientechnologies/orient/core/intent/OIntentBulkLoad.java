@@ -0,0 +1,100 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.intent;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import com.orientechnologies.orient.core.db.ODatabaseComplex;
+import com.orientechnologies.orient.core.db.raw.ODatabaseRaw;
+import com.orientechnologies.orient.core.hook.ODocumentHookAbstract;
+import com.orientechnologies.orient.core.hook.ORecordHook;
+import com.orientechnologies.orient.core.index.OPropertyIndexManager;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OProperty;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.storage.impl.local.OStorageLocal;
+
+/**
+ * Intent to load huge amounts of new records. Against a local storage the records are appended in large sequential batches
+ * reserving the cluster positions in blocks, while the index maintenance is deferred to a full rebuild of the touched indexes at
+ * the end. Unique constraints are therefore checked only when the intent ends.
+ * 
+ * @author Luca Garulli
+ * 
+ */
+public class OIntentBulkLoad extends OIntentMassiveInsert {
+	private OStorageLocal						storage;
+	private ODatabaseComplex<?>			ownerDb;
+	private ORecordHook							indexManager;
+	private final Set<OClass>				classes	= new HashSet<OClass>();
+	private final ORecordHook				tracker	= new ODocumentHookAbstract() {
+																						@Override
+																						public void onRecordAfterCreate(final ODocument iDocument) {
+																							if (iDocument.getSchemaClass() != null)
+																								classes.add(iDocument.getSchemaClass());
+																						}
+																					};
+
+	@Override
+	public void begin(final ODatabaseRaw iDatabase, final Object... iArgs) {
+		super.begin(iDatabase, iArgs);
+
+		if (iDatabase.getStorage() instanceof OStorageLocal) {
+			storage = (OStorageLocal) iDatabase.getStorage();
+			storage.beginBulkLoad();
+		}
+
+		ownerDb = iDatabase.getDatabaseOwner();
+		if (ownerDb != null) {
+			// REPLACE THE INDEX MANAGER WITH A TRACKER OF THE CLASSES TO REINDEX
+			for (ORecordHook hook : ownerDb.getHooks())
+				if (hook instanceof OPropertyIndexManager) {
+					indexManager = hook;
+					break;
+				}
+
+			if (indexManager != null) {
+				ownerDb.unregisterHook(indexManager);
+				ownerDb.registerHook(tracker);
+			}
+		}
+	}
+
+	@Override
+	public void end(final ODatabaseRaw iDatabase) {
+		try {
+			if (storage != null)
+				storage.endBulkLoad();
+
+			if (indexManager != null) {
+				ownerDb.unregisterHook(tracker);
+				ownerDb.registerHook(indexManager);
+
+				// BUILD THE INDEXES OF THE LOADED CLASSES IN ONE PASS EACH
+				for (OClass cls : classes)
+					for (OProperty prop : cls.properties())
+						if (prop.getIndex() != null)
+							prop.getIndex().rebuild();
+			}
+		} finally {
+			classes.clear();
+			indexManager = null;
+			storage = null;
+			super.end(iDatabase);
+		}
+	}
+}
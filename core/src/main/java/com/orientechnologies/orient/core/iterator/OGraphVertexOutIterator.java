@@ -15,18 +15,21 @@
  */
 package com.orientechnologies.orient.core.iterator;
 
-import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.Stack;
 
 import com.orientechnologies.orient.core.db.graph.OGraphVertex;
 
+/**
+ * Browses in depth all the vertexes reachable following the outgoing edges. The out vertexes of each level are fetched lazily, so
+ * moving to the next sibling costs O(1) also for super nodes.
+ */
 public class OGraphVertexOutIterator implements Iterator<OGraphVertex>, Iterable<OGraphVertex> {
-	private OGraphVertex				current;
-	private Stack<OGraphVertex>	stack							= new Stack<OGraphVertex>();
-	private int									count							= 0;
-	private int									currentDeepLevel	= 0;
-	private int									maxDeepLevel			= 0;
+	private OGraphVertex											current;
+	private Stack<Iterator<OGraphVertex>>	stack							= new Stack<Iterator<OGraphVertex>>();
+	private int																count							= 0;
+	private int																currentDeepLevel	= 0;
+	private int																maxDeepLevel			= 0;
 
 	public OGraphVertexOutIterator(final OGraphVertex iRoot) {
 		current = iRoot;
@@ -40,38 +43,30 @@ public class OGraphVertexOutIterator implements Iterator<OGraphVertex>, Iterable
 		final OGraphVertex result = current;
 
 		if (current != null) {
-			if (current.hasOutEdges()) {
+			final Iterator<OGraphVertex> children = current.hasOutEdges() ? current.outVertexIterator() : null;
+
+			if (children != null && children.hasNext()) {
 				// GO IN DEEP
-				stack.push(current.clone());
+				stack.push(children);
 
 				// SET THE FIRST LINK AS CURRENT
-				current = current.getOutEdgeVertex(0, current);
+				current = children.next();
 				currentDeepLevel++;
 
 				if (currentDeepLevel > maxDeepLevel)
 					maxDeepLevel = currentDeepLevel;
 			} else {
 				// GO BACK RECURSIVELY UNTIL FIND A GOOD VERTEX
-				int prevPosition;
-				OGraphVertex previous;
+				current = null;
 
 				while (!stack.isEmpty()) {
-					previous = stack.peek();
-					prevPosition = previous.findOutVertex(current);
-
-					currentDeepLevel--;
-
-					if (prevPosition == -1)
-						// VERTEX REMOVED CONCURRENTLY
-						throw new ConcurrentModificationException("Vertex " + previous + " has been removed while iterating");
-
-					if (prevPosition < previous.getOutEdgeCount() - 1) {
-						current = previous.getOutEdgeVertex(prevPosition + 1, current);
+					if (stack.peek().hasNext()) {
+						current = stack.peek().next();
 						break;
 					}
 
-					current = previous;
 					stack.pop();
+					currentDeepLevel--;
 				}
 			}
 		}
@@ -20,6 +20,7 @@ import java.util.Iterator;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecordAbstract;
 import com.orientechnologies.orient.core.record.ORecordInternal;
+import com.orientechnologies.orient.core.storage.ORawBuffer;
 
 /**
  * Iterator class to browse forward and backward the records of a cluster.
@@ -30,6 +31,8 @@ import com.orientechnologies.orient.core.record.ORecordInternal;
  *          Record Type
  */
 public abstract class ORecordIterator<REC extends ORecordInternal<?>> implements Iterator<REC>, Iterable<REC> {
+	public static final int												DEF_READ_AHEAD	= Integer.getInteger("orient.iterator.readAhead", 0);
+
 	protected final ODatabaseRecord<REC>					database;
 	protected final ODatabaseRecordAbstract<REC>	lowLevelDatabase;
 
@@ -39,6 +42,10 @@ public abstract class ORecordIterator<REC extends ORecordInternal<?>> implements
 	protected long																currentClusterPosition;
 	protected String															fetchPlan;
 	private REC																		reusedRecord		= null;	// DEFAULT = NOT REUSE IT
+	protected int																	readAhead				= DEF_READ_AHEAD;
+	private ORawBuffer[]													readAheadBuffers;
+	private int																		readAheadClusterId;
+	private long																	readAheadFrom;
 
 	public ORecordIterator(final ODatabaseRecord<REC> iDatabase, final ODatabaseRecordAbstract<REC> iLowLevelDatabase) {
 		database = iDatabase;
@@ -106,6 +113,68 @@ public abstract class ORecordIterator<REC extends ORecordInternal<?>> implements
 		return record;
 	}
 
+	/**
+	 * Return the number of records read in one storage call while browsing forward. 0 means read-ahead disabled.
+	 * 
+	 * @see #setReadAhead(int)
+	 */
+	public int getReadAhead() {
+		return readAhead;
+	}
+
+	/**
+	 * Tell to the iterator to read the records in ranges of iReadAhead positions while browsing forward. Each range is read with one
+	 * storage call (one network round trip against remote databases) and then the records are returned from memory. Pay attention
+	 * that the records read in advance could be changed in the meanwhile by other operations. The read-ahead is not used when a fetch
+	 * plan is set. The default value can be set with the "orient.iterator.readAhead" system property, otherwise is 0 (disabled).
+	 * 
+	 * @param iReadAhead
+	 *          Number of records to read in advance. 0 or 1 disable it
+	 * @see #getReadAhead()
+	 */
+	public ORecordIterator<REC> setReadAhead(final int iReadAhead) {
+		readAhead = iReadAhead;
+		readAheadBuffers = null;
+		return this;
+	}
+
+	/**
+	 * Load the record at the requested position. If the read-ahead is enabled and the iterator is moving forward outside the range
+	 * already read, the next range is read in one call.
+	 */
+	protected REC loadRecord(final int iClusterId, final long iPosition, final REC iRecord, final int iMovement) {
+		if (readAhead > 1 && fetchPlan == null) {
+			if (readAheadBuffers == null || iClusterId != readAheadClusterId || iPosition < readAheadFrom
+					|| iPosition >= readAheadFrom + readAheadBuffers.length) {
+				readAheadBuffers = null;
+
+				if (iMovement > 0) {
+					final long last = getLastPosition(iClusterId);
+					if (iPosition < last) {
+						// READ THE NEXT RANGE
+						readAheadBuffers = lowLevelDatabase.executeReadRecords(iClusterId, iPosition,
+								(int) Math.min(readAhead, last - iPosition + 1));
+						readAheadClusterId = iClusterId;
+						readAheadFrom = iPosition;
+					}
+				}
+			}
+
+			if (readAheadBuffers != null && iPosition - readAheadFrom < readAheadBuffers.length)
+				return lowLevelDatabase.executeReadRecord(iClusterId, iPosition, iRecord,
+						readAheadBuffers[(int) (iPosition - readAheadFrom)]);
+		}
+
+		return lowLevelDatabase.executeReadRecord(iClusterId, iPosition, iRecord, fetchPlan);
+	}
+
+	/**
+	 * Return the last position of the cluster to browse. Used to limit the range to read in advance.
+	 */
+	protected long getLastPosition(final int iClusterId) {
+		return database.getStorage().getClusterLastEntryPosition(iClusterId);
+	}
+
 	/**
 	 * Return the iterator to be used in Java5+ constructs<br/>
 	 * <br/>
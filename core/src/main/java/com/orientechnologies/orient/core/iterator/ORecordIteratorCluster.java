@@ -192,6 +192,11 @@ public class ORecordIteratorCluster<REC extends ORecordInternal<?>> extends ORec
 		return this;
 	}
 
+	@Override
+	protected long getLastPosition(final int iClusterId) {
+		return getRangeTo() - 1;
+	}
+
 	/**
 	 * Read the current record and increment the counter if the record was found.
 	 * 
@@ -205,7 +210,7 @@ public class ORecordIteratorCluster<REC extends ORecordInternal<?>> extends ORec
 
 		currentClusterPosition += iMovement;
 
-		iRecord = lowLevelDatabase.executeReadRecord(currentClusterId, currentClusterPosition, iRecord, fetchPlan);
+		iRecord = loadRecord(currentClusterId, currentClusterPosition, iRecord, iMovement);
 		if (iRecord != null)
 			browsedRecords++;
 
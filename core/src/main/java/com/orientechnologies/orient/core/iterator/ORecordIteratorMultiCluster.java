@@ -191,7 +191,7 @@ public class ORecordIteratorMultiCluster<REC extends ORecordInternal<?>> extends
 
 		currentClusterPosition += iMovement;
 
-		iRecord = loadRecord(iRecord);
+		iRecord = loadRecord(iRecord, iMovement);
 
 		if (iRecord != null) {
 			browsedRecords++;
@@ -201,7 +201,7 @@ public class ORecordIteratorMultiCluster<REC extends ORecordInternal<?>> extends
 		return null;
 	}
 
-	protected REC loadRecord(final REC iRecord) {
-		return lowLevelDatabase.executeReadRecord(clusterIds[currentClusterIdx], currentClusterPosition, iRecord, fetchPlan);
+	protected REC loadRecord(final REC iRecord, final int iMovement) {
+		return loadRecord(clusterIds[currentClusterIdx], currentClusterPosition, iRecord, iMovement);
 	}
 }
@@ -290,8 +290,7 @@ public class OProperty extends ODocumentWrapperNoClass {
 	 */
 	public void removeIndex() {
 		if (index != null) {
-			index.clear();
-			index.getRecord().delete();
+			index.delete();
 			index = null;
 			setDirty();
 		}
@@ -70,7 +70,7 @@ public class OSchema extends ODocumentWrapperNoClass {
 
 		OClass cls = new OClass(this, classes.size(), iClassName, iClusterIds, iDefaultClusterId);
 		classes.put(key, cls);
-		document.setDirty();
+		setDirty();
 
 		return cls;
 	}
@@ -82,7 +82,7 @@ public class OSchema extends ODocumentWrapperNoClass {
 			throw new OSchemaException("Class " + iClassName + " was not found in current database");
 
 		classes.remove(key);
-		document.setDirty();
+		setDirty();
 	}
 
 	public boolean existsClass(final String iClassName) {
@@ -181,6 +181,10 @@ public class OSchema extends ODocumentWrapperNoClass {
 
 	public OSchema setDirty() {
 		document.setDirty();
+
+		// THE PARSED COMMANDS COULD BE BOUND TO THE PREVIOUS SCHEMA
+		if (document.getDatabase() != null)
+			document.getDatabase().getStorage().getCommandCache().invalidate();
 		return this;
 	}
 }
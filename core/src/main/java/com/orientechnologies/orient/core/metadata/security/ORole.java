@@ -20,6 +20,7 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.orientechnologies.orient.core.annotation.OAfterDeserialization;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
@@ -46,22 +47,25 @@ public class ORole extends ODocumentWrapper {
 	// CRUD OPERATIONS
 	public final static int			PERMISSION_NONE					= 0;
 	public final static int			PERMISSION_CREATE				= 1;
-	public final static int			PERMISSION_READ					= 2;
-	public final static int			PERMISSION_UPDATE				= 4;
-	public final static int			PERMISSION_DELETE				= 8;
-	public final static int			PERMISSION_ALL					= PERMISSION_CREATE + PERMISSION_READ + PERMISSION_UPDATE + PERMISSION_DELETE;
+	public final static int							PERMISSION_READ					= 2;
+	public final static int							PERMISSION_UPDATE				= 4;
+	public final static int							PERMISSION_DELETE				= 8;
+	public final static int							PERMISSION_ALL					= PERMISSION_CREATE + PERMISSION_READ + PERMISSION_UPDATE + PERMISSION_DELETE;
 
-	public final static String	PERMISSION_CREATE_TEXT	= "Create";
-	public final static String	PERMISSION_READ_TEXT		= "Read";
-	public final static String	PERMISSION_UPDATE_TEXT	= "Update";
-	public final static String	PERMISSION_DELETE_TEXT	= "Delete";
+	public final static String					PERMISSION_CREATE_TEXT	= "Create";
+	public final static String					PERMISSION_READ_TEXT		= "Read";
+	public final static String					PERMISSION_UPDATE_TEXT	= "Update";
+	public final static String					PERMISSION_DELETE_TEXT	= "Delete";
 
-	protected final static byte	STREAM_DENY							= 0;
-	protected final static byte	STREAM_ALLOW						= 1;
+	protected final static byte					STREAM_DENY							= 0;
+	protected final static byte					STREAM_ALLOW						= 1;
 
-	protected ALLOW_MODES				mode										= ALLOW_MODES.DENY_ALL_BUT;
-	protected ORole							parentRole;
-	protected Map<String, Byte>	rules										= new LinkedHashMap<String, Byte>();
+	// INCREMENTED AT EVERY CHANGE OF RULES, MODE OR PARENT OF ANY ROLE: USERS RECOMPILE THEIR PERMISSIONS WHEN IT MOVES
+	private final static AtomicInteger	rulesVersion						= new AtomicInteger();
+
+	protected ALLOW_MODES								mode										= ALLOW_MODES.DENY_ALL_BUT;
+	protected ORole											parentRole;
+	protected Map<String, Byte>					rules										= new LinkedHashMap<String, Byte>();
 
 	/**
 	 * Constructor used in unmarshalling.
@@ -129,6 +133,7 @@ public class ORole extends ODocumentWrapper {
 	public void addRule(final String iResource, final int iOperation) {
 		rules.put(iResource, (byte) iOperation);
 		document.field("rules", rules);
+		rulesVersion.incrementAndGet();
 	}
 
 	/**
@@ -147,6 +152,7 @@ public class ORole extends ODocumentWrapper {
 
 		rules.put(iResource, currentValue);
 		document.field("rules", rules);
+		rulesVersion.incrementAndGet();
 	}
 
 	/**
@@ -173,6 +179,7 @@ public class ORole extends ODocumentWrapper {
 
 		rules.put(iResource, currentValue);
 		document.field("rules", rules);
+		rulesVersion.incrementAndGet();
 	}
 
 	public String getName() {
@@ -186,6 +193,7 @@ public class ORole extends ODocumentWrapper {
 	public ORole setMode(final ALLOW_MODES iMode) {
 		this.mode = iMode;
 		document.field("mode", mode == ALLOW_MODES.ALLOW_ALL_BUT ? STREAM_ALLOW : STREAM_DENY);
+		rulesVersion.incrementAndGet();
 		return this;
 	}
 
@@ -196,6 +204,7 @@ public class ORole extends ODocumentWrapper {
 	public ORole setParentRole(final ORole iParent) {
 		this.parentRole = iParent;
 		document.field("inheritedRole", parentRole != null ? parentRole.getName() : null);
+		rulesVersion.incrementAndGet();
 		return this;
 	}
 
@@ -208,6 +217,21 @@ public class ORole extends ODocumentWrapper {
 		return Collections.unmodifiableMap(rules);
 	}
 
+	/**
+	 * Returns the version of the rules of all the roles. It changes every time a rule, the mode or the parent of any role is changed,
+	 * so the permissions compiled by {@link OUser} can be discarded.
+	 */
+	public static int getRulesVersion() {
+		return rulesVersion.get();
+	}
+
+	/**
+	 * Moves the version of the rules when a user or a role record is changed without this API, such as by a SQL command.
+	 */
+	static void incrementRulesVersion() {
+		rulesVersion.incrementAndGet();
+	}
+
 	@Override
 	public String toString() {
 		return getName();
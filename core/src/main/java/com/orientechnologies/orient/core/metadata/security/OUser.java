@@ -15,7 +15,9 @@
  */
 package com.orientechnologies.orient.core.metadata.security;
 
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import com.orientechnologies.orient.core.annotation.OAfterDeserialization;
@@ -39,8 +41,16 @@ public class OUser extends ODocumentWrapper {
 		SUSPENDED, ACTIVE
 	}
 
+	// FLAG OF COMPILED PERMISSIONS: DISTINGUISHES A CLUSTER WITH NO PERMISSION FROM A CLUSTER NOT COMPILED YET
+	private final static int			COMPILED							= 0x100;
+
 	// AVOID THE INVOCATION OF SETTER
-	protected Set<ORole>	roles	= new HashSet<ORole>();
+	protected Set<ORole>					roles									= new HashSet<ORole>();
+
+	// PERMISSIONS COMPILED FROM THE ROLES: BITMASK OF THE ALLOWED CRUD OPERATIONS PER CLUSTER ID AND PER RESOURCE
+	private int[]									clusterPermissions		= new int[0];
+	private Map<String, Integer>	resourcePermissions		= new HashMap<String, Integer>();
+	private int										permissionsVersion		= -1;
 
 	/**
 	 * Constructor used in unmarshalling.
@@ -117,6 +127,77 @@ public class OUser extends ODocumentWrapper {
 		return null;
 	}
 
+	/**
+	 * Checks if the user can execute the operation against a cluster using the permissions compiled per cluster id: the rules of the
+	 * roles are evaluated only the first time the cluster is accessed, then the check costs an array lookup. The evaluation is the
+	 * same of {@link ODatabaseRecord#checkSecurity(String, int, Object...)} against the generic cluster resource, the cluster name
+	 * and the cluster id.
+	 * 
+	 * @param iDatabase
+	 *          Database used to resolve the cluster name
+	 * @param iClusterId
+	 *          Cluster id
+	 * @param iOperation
+	 *          Requested operation
+	 * @return true if the operation is allowed, false if it's denied or it's not a single CRUD operation. In this case the caller
+	 *         should execute the complete check
+	 */
+	public boolean isClusterAllowed(final ODatabaseRecord<?> iDatabase, final int iClusterId, final int iOperation) {
+		if (iClusterId < 0 || !isSingleOperation(iOperation))
+			return false;
+
+		checkPermissionsVersion();
+
+		if (iClusterId >= clusterPermissions.length) {
+			final int[] newPermissions = new int[Math.max(iClusterId + 1, clusterPermissions.length * 2)];
+			System.arraycopy(clusterPermissions, 0, newPermissions, 0, clusterPermissions.length);
+			clusterPermissions = newPermissions;
+		}
+
+		int permissions = clusterPermissions[iClusterId];
+		if (permissions == 0) {
+			// FIRST ACCESS: COMPILE IT
+			permissions = COMPILED;
+			for (int op = ORole.PERMISSION_CREATE; op <= ORole.PERMISSION_DELETE; op <<= 1)
+				if (isAllowed(ODatabaseSecurityResources.CLUSTER, op, iDatabase.getClusterNameById(iClusterId), iClusterId))
+					permissions |= op;
+			clusterPermissions[iClusterId] = permissions;
+		}
+
+		return (permissions & iOperation) != 0;
+	}
+
+	/**
+	 * Checks if the user can execute the operation against a resource using the permissions compiled per resource.
+	 * 
+	 * @param iResource
+	 *          Requested resource
+	 * @param iOperation
+	 *          Requested operation
+	 * @return true if the operation is allowed, false if it's denied or it's not a single CRUD operation. In this case the caller
+	 *         should execute the complete check
+	 * @see #allow(String, int)
+	 */
+	public boolean isResourceAllowed(final String iResource, final int iOperation) {
+		if (!isSingleOperation(iOperation))
+			return false;
+
+		checkPermissionsVersion();
+
+		Integer permissions = resourcePermissions.get(iResource);
+		if (permissions == null) {
+			// FIRST ACCESS: COMPILE IT
+			int p = COMPILED;
+			for (int op = ORole.PERMISSION_CREATE; op <= ORole.PERMISSION_DELETE; op <<= 1)
+				if (checkIfAllowed(iResource, op) != null)
+					p |= op;
+			permissions = p;
+			resourcePermissions.put(iResource, permissions);
+		}
+
+		return (permissions.intValue() & iOperation) != 0;
+	}
+
 	/**
 	 * Checks if a rule was defined for the user.
 	 * 
@@ -132,6 +213,38 @@ public class OUser extends ODocumentWrapper {
 		return false;
 	}
 
+	/**
+	 * Evaluates the rules against a generic resource and its specific targets with no exceptions.
+	 */
+	private boolean isAllowed(final String iResourceGeneric, final int iOperation, final Object... iResourcesSpecific) {
+		if (checkIfAllowed(iResourceGeneric + "." + ODatabaseSecurityResources.ALL, iOperation) == null)
+			return false;
+
+		String key;
+		for (Object target : iResourcesSpecific)
+			if (target != null) {
+				key = iResourceGeneric + "." + target.toString();
+				if (isRuleDefined(key) && checkIfAllowed(key, iOperation) == null)
+					return false;
+			}
+
+		return true;
+	}
+
+	private void checkPermissionsVersion() {
+		final int version = ORole.getRulesVersion();
+		if (version != permissionsVersion) {
+			// RULES CHANGED: DISCARD THE COMPILED PERMISSIONS
+			clusterPermissions = new int[0];
+			resourcePermissions.clear();
+			permissionsVersion = version;
+		}
+	}
+
+	private static boolean isSingleOperation(final int iOperation) {
+		return iOperation > ORole.PERMISSION_NONE && iOperation <= ORole.PERMISSION_DELETE && (iOperation & (iOperation - 1)) == 0;
+	}
+
 	public boolean checkPassword(final String iPassword) {
 		return OSecurityManager.instance().check(iPassword, (String) document.field("password"));
 	}
@@ -179,6 +292,7 @@ public class OUser extends ODocumentWrapper {
 		if (iRole != null)
 			roles.add(iRole);
 		document.field("roles", roles, OType.LINKSET);
+		permissionsVersion = -1;
 		return this;
 	}
 
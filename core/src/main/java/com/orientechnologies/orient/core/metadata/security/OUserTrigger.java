@@ -19,7 +19,8 @@ import com.orientechnologies.orient.core.hook.ODocumentHookAbstract;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 
 /**
- * Encrypt the password using the SHA-256 algorithm.
+ * Encrypt the password using the SHA-256 algorithm. Any change of users and roles moves the version of the rules, so the
+ * permissions and the users already checked are evaluated again.
  * 
  * @author Luca Garulli
  */
@@ -35,4 +36,19 @@ public class OUserTrigger extends ODocumentHookAbstract {
 				iRecord.field("password", OUser.encryptPassword(password));
 		}
 	}
+
+	@Override
+	public void onRecordAfterUpdate(final ODocument iRecord) {
+		checkSecurityChange(iRecord);
+	}
+
+	@Override
+	public void onRecordAfterDelete(final ODocument iRecord) {
+		checkSecurityChange(iRecord);
+	}
+
+	private void checkSecurityChange(final ODocument iRecord) {
+		if ("OUser".equals(iRecord.getClassName()) || "ORole".equals(iRecord.getClassName()))
+			ORole.incrementRulesVersion();
+	}
 }
@@ -15,43 +15,57 @@
  */
 package com.orientechnologies.orient.core.query;
 
+import java.util.regex.Pattern;
+
 public class OQueryHelper {
 	protected static final String	WILDCARD_ANYCHAR	= "?";
 	protected static final String	WILDCARD_ANY			= "%";
 
-	public static boolean like(String currentValue, String iValue) {
+	public static boolean like(final String currentValue, final String iValue) {
 		if (currentValue == null || currentValue.length() == 0)
 			// EMPTY FIELD
 			return false;
 
-		int anyPos = iValue.indexOf(WILDCARD_ANY);
-		int charAnyPos = iValue.indexOf(WILDCARD_ANYCHAR);
-
-		if (anyPos == -1 && charAnyPos == -1)
+		if (iValue.indexOf(WILDCARD_ANY) == -1 && iValue.indexOf(WILDCARD_ANYCHAR) == -1)
 			// NO WILDCARDS: DO EQUALS
 			return currentValue.equals(iValue);
 
-		String value = currentValue.toString();
-		if (value == null || value.length() == 0)
-			// NOTHING TO MATCH
+		return compileLike(iValue).matcher(currentValue).matches();
+	}
+
+	/**
+	 * Matches a value against a LIKE expression previously compiled with {@link #compileLike(String)}.
+	 */
+	public static boolean like(final String currentValue, final Pattern iPattern) {
+		if (currentValue == null || currentValue.length() == 0)
+			// EMPTY FIELD
 			return false;
 
-		if (iValue.startsWith(WILDCARD_ANY) && iValue.endsWith(WILDCARD_ANY)) {
-			// %XXXXX%
-			iValue = iValue.substring(WILDCARD_ANY.length(), iValue.length() - WILDCARD_ANY.length());
-			return currentValue.indexOf(iValue) > -1;
+		return iPattern.matcher(currentValue).matches();
+	}
 
-		} else if (iValue.startsWith(WILDCARD_ANY)) {
-			// %XXXXX
-			iValue = iValue.substring(WILDCARD_ANY.length());
-			return value.endsWith(iValue);
+	/**
+	 * Translates a LIKE expression into a regular expression: '%' matches any sequence of characters and '?' any single character.
+	 * All the other characters are matched literally.
+	 */
+	public static Pattern compileLike(final String iValue) {
+		final StringBuilder regexp = new StringBuilder();
 
-		} else if (iValue.endsWith(WILDCARD_ANY)) {
-			// XXXXX%
-			iValue = iValue.substring(0, iValue.length() - WILDCARD_ANY.length());
-			return value.startsWith(iValue);
+		int begin = 0;
+		char c;
+		for (int i = 0; i < iValue.length(); ++i) {
+			c = iValue.charAt(i);
+			if (c == WILDCARD_ANY.charAt(0) || c == WILDCARD_ANYCHAR.charAt(0)) {
+				if (i > begin)
+					regexp.append(Pattern.quote(iValue.substring(begin, i)));
+				regexp.append(c == WILDCARD_ANY.charAt(0) ? ".*" : ".");
+				begin = i + 1;
+			}
 		}
 
-		return false;
+		if (begin < iValue.length())
+			regexp.append(Pattern.quote(iValue.substring(begin)));
+
+		return Pattern.compile(regexp.toString(), Pattern.DOTALL);
 	}
 }
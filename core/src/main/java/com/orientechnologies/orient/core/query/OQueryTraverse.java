@@ -0,0 +1,362 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.query;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.orientechnologies.common.profiler.OProfiler;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.exception.ORecordNotFoundException;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.ORecord.STATUS;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+/**
+ * Traversal engine of linked documents. Each document is visited only once, even when the graph contains cycles: the visited
+ * records are tracked by a bitmap of positions per cluster. The traversal can be breadth-first or depth-first and is limited by
+ * the minimum and maximum deep level. In breadth-first mode the records of each level not loaded yet are fetched in one pass
+ * sorted by physical position. Documents already loaded are reused as they are.<br/>
+ * Override {@link #visit(ODocument, int)} to process the documents and {@link #collectLinks(ODocument, Collection)} to change the
+ * links to follow (by default all the fields). Each instance can execute one traversal and collects its statistics.
+ * 
+ * @author Luca Garulli
+ * 
+ */
+public class OQueryTraverse {
+	public enum STRATEGY {
+		DEPTH_FIRST, BREADTH_FIRST
+	}
+
+	protected final ODatabaseRecord<?>				database;
+	protected final int												startDeepLevel;
+	protected final int												endDeepLevel;
+	protected final STRATEGY									strategy;
+
+	private final Map<Integer, BitSet>				visitedPositions	= new HashMap<Integer, BitSet>();
+	private Set<ORID>													visitedRids;
+	private IdentityHashMap<ODocument, Boolean>	visitedNew;
+
+	private long															visited;
+	private long															loaded;
+	private int																maxLevel;
+	private long															elapsed;
+
+	private static final Comparator<ODocument>	POSITION_COMPARATOR	= new Comparator<ODocument>() {
+																																	public int compare(final ODocument o1, final ODocument o2) {
+																																		final ORID r1 = o1.getIdentity();
+																																		final ORID r2 = o2.getIdentity();
+																																		if (r1.getClusterId() != r2.getClusterId())
+																																			return r1.getClusterId() < r2.getClusterId() ? -1 : 1;
+																																		if (r1.getClusterPosition() != r2.getClusterPosition())
+																																			return r1.getClusterPosition() < r2.getClusterPosition() ? -1 : 1;
+																																		return 0;
+																																	}
+																																};
+
+	/**
+	 * Creates a new traversal.
+	 * 
+	 * @param iDatabase
+	 *          Database used to load the linked records
+	 * @param iStartDeepLevel
+	 *          Minimum level of the documents to visit. Documents at lower levels are crossed but not visited
+	 * @param iEndDeepLevel
+	 *          Maximum level to reach, -1 means no limit
+	 * @param iStrategy
+	 *          Traversal order
+	 */
+	public OQueryTraverse(final ODatabaseRecord<?> iDatabase, final int iStartDeepLevel, final int iEndDeepLevel,
+			final STRATEGY iStrategy) {
+		database = iDatabase;
+		startDeepLevel = iStartDeepLevel;
+		endDeepLevel = iEndDeepLevel;
+		strategy = iStrategy;
+	}
+
+	/**
+	 * Traverses all the documents reachable from the target.
+	 * 
+	 * @param iTarget
+	 *          Where to start from: a document, a RID, a collection, a map, an array or a multi value of them
+	 * @param iTargetLevel
+	 *          Deep level of the target documents
+	 * @return The document where the traversal has been stopped by {@link #visit(ODocument, int)}, otherwise null
+	 */
+	public ODocument execute(final Object iTarget, final int iTargetLevel) {
+		final long timer = OProfiler.getInstance().startChrono();
+		try {
+			final List<Object> targets = new ArrayList<Object>();
+			addLinks(iTarget, targets);
+
+			if (strategy == STRATEGY.BREADTH_FIRST)
+				return breadthFirst(targets, iTargetLevel);
+			else
+				return depthFirst(targets, iTargetLevel);
+
+		} finally {
+			elapsed = OProfiler.getInstance().stopChrono("Query.traverse", timer);
+			OProfiler.getInstance().updateStatistic("Query.traverse.visited", visited);
+			OProfiler.getInstance().updateStatistic("Query.traverse.loaded", loaded);
+		}
+	}
+
+	/**
+	 * Excludes a document from the traversal, usually the one the traversal starts from.
+	 */
+	public OQueryTraverse exclude(final ODocument iDocument) {
+		markVisited(iDocument);
+		return this;
+	}
+
+	/**
+	 * Called once for each document reached between the start and end deep levels.
+	 * 
+	 * @return true to stop the traversal, otherwise false
+	 */
+	protected boolean visit(final ODocument iDocument, final int iLevel) {
+		return false;
+	}
+
+	/**
+	 * Collects the links to follow from a document. By default all the field values are taken: documents, RIDs and collections, maps
+	 * and arrays of them. Other values are ignored.
+	 */
+	protected void collectLinks(final ODocument iDocument, final Collection<Object> ioLinks) {
+		for (Object o : iDocument.fieldValues())
+			ioLinks.add(o);
+	}
+
+	/**
+	 * Returns the number of documents visited.
+	 */
+	public long getVisited() {
+		return visited;
+	}
+
+	/**
+	 * Returns the number of documents loaded from the database.
+	 */
+	public long getLoaded() {
+		return loaded;
+	}
+
+	/**
+	 * Returns the deepest level reached.
+	 */
+	public int getMaxLevel() {
+		return maxLevel;
+	}
+
+	/**
+	 * Returns the elapsed time of the traversal in milliseconds.
+	 */
+	public long getElapsed() {
+		return elapsed;
+	}
+
+	private ODocument breadthFirst(List<Object> iTargets, final int iTargetLevel) {
+		final List<ODocument> toLoad = new ArrayList<ODocument>();
+		final List<Object> links = new ArrayList<Object>();
+
+		List<ODocument> current = new ArrayList<ODocument>();
+		List<Object> next = iTargets;
+
+		for (int level = iTargetLevel; !next.isEmpty() && (endDeepLevel == -1 || level <= endDeepLevel); ++level) {
+			// PREPARE THE LEVEL SKIPPING THE DOCUMENTS ALREADY VISITED
+			current.clear();
+			toLoad.clear();
+			for (Object o : next) {
+				final ODocument doc = toDocument(o);
+				if (doc != null && markVisited(doc)) {
+					current.add(doc);
+					if (doc.getInternalStatus() == STATUS.NOT_LOADED)
+						toLoad.add(doc);
+				}
+			}
+
+			// PREFETCH THE WHOLE LEVEL IN PHYSICAL ORDER
+			if (toLoad.size() > 1)
+				Collections.sort(toLoad, POSITION_COMPARATOR);
+			for (ODocument doc : toLoad)
+				load(doc);
+
+			next = new ArrayList<Object>();
+			for (ODocument doc : current) {
+				if (doc.getInternalStatus() == STATUS.NOT_LOADED)
+					// NOT FOUND
+					continue;
+
+				if (level >= startDeepLevel) {
+					visited++;
+					if (visit(doc, level))
+						return doc;
+				}
+
+				if (endDeepLevel == -1 || level < endDeepLevel) {
+					links.clear();
+					collectLinks(doc, links);
+					for (Object l : links)
+						addLinks(l, next);
+				}
+			}
+
+			if (level > maxLevel)
+				maxLevel = level;
+		}
+
+		return null;
+	}
+
+	private ODocument depthFirst(final List<Object> iTargets, final int iTargetLevel) {
+		final List<Object> links = new ArrayList<Object>();
+
+		// STACK OF TARGETS AND THEIR LEVELS
+		final List<Object> stack = new ArrayList<Object>();
+		final List<Integer> levels = new ArrayList<Integer>();
+
+		for (int i = iTargets.size() - 1; i > -1; --i) {
+			stack.add(iTargets.get(i));
+			levels.add(iTargetLevel);
+		}
+
+		while (!stack.isEmpty()) {
+			final ODocument doc = toDocument(stack.remove(stack.size() - 1));
+			final int level = levels.remove(levels.size() - 1);
+
+			if (doc == null || !markVisited(doc))
+				continue;
+
+			if (doc.getInternalStatus() == STATUS.NOT_LOADED && !load(doc))
+				continue;
+
+			if (level > maxLevel)
+				maxLevel = level;
+
+			if (level >= startDeepLevel) {
+				visited++;
+				if (visit(doc, level))
+					return doc;
+			}
+
+			if (endDeepLevel == -1 || level < endDeepLevel) {
+				links.clear();
+				collectLinks(doc, links);
+
+				final int size = stack.size();
+				for (Object l : links)
+					addLinks(l, stack);
+
+				// PUSH IN REVERSE ORDER TO VISIT THE LINKS IN THE ORIGINAL ONE
+				Collections.reverse(stack.subList(size, stack.size()));
+				for (int i = size; i < stack.size(); ++i)
+					levels.add(level + 1);
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Flattens the value in the list of links to follow.
+	 */
+	private void addLinks(final Object iValue, final List<Object> ioLinks) {
+		if (iValue == null)
+			return;
+
+		if (iValue instanceof ODocument || iValue instanceof ORID)
+			ioLinks.add(iValue);
+		else if (iValue instanceof OQueryRuntimeValueMulti) {
+			for (Object o : ((OQueryRuntimeValueMulti) iValue).values)
+				addLinks(o, ioLinks);
+		} else if (iValue instanceof Collection<?>) {
+			for (Object o : (Collection<?>) iValue)
+				addLinks(o, ioLinks);
+		} else if (iValue instanceof Map<?, ?>) {
+			for (Object o : ((Map<?, ?>) iValue).values())
+				addLinks(o, ioLinks);
+		} else if (iValue instanceof Object[]) {
+			for (Object o : (Object[]) iValue)
+				addLinks(o, ioLinks);
+		}
+	}
+
+	private ODocument toDocument(final Object iValue) {
+		if (iValue instanceof ODocument)
+			return (ODocument) iValue;
+
+		final ORID rid = (ORID) iValue;
+		if (!rid.isValid())
+			return null;
+
+		return new ODocument(database, rid);
+	}
+
+	/**
+	 * Marks the document as visited.
+	 * 
+	 * @return true if the document was not visited yet, otherwise false
+	 */
+	private boolean markVisited(final ODocument iDocument) {
+		final ORID rid = iDocument.getIdentity();
+
+		if (!rid.isValid()) {
+			// NEW RECORD: USE THE INSTANCE
+			if (visitedNew == null)
+				visitedNew = new IdentityHashMap<ODocument, Boolean>();
+			return visitedNew.put(iDocument, Boolean.TRUE) == null;
+		}
+
+		final long position = rid.getClusterPosition();
+		if (position > Integer.MAX_VALUE) {
+			if (visitedRids == null)
+				visitedRids = new HashSet<ORID>();
+			return visitedRids.add(rid);
+		}
+
+		BitSet bitmap = visitedPositions.get(rid.getClusterId());
+		if (bitmap == null) {
+			bitmap = new BitSet();
+			visitedPositions.put(rid.getClusterId(), bitmap);
+		}
+
+		if (bitmap.get((int) position))
+			return false;
+
+		bitmap.set((int) position);
+		return true;
+	}
+
+	private boolean load(final ODocument iDocument) {
+		try {
+			iDocument.load();
+			loaded++;
+			return true;
+		} catch (ORecordNotFoundException e) {
+			// BROKEN LINK: IGNORE IT
+			return false;
+		}
+	}
+}
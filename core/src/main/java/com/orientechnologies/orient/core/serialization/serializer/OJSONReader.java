@@ -158,6 +158,10 @@ public class OJSONReader {
 		return c;
 	}
 
+	public boolean hasNext() throws IOException {
+		return in.ready();
+	}
+
 	public String getValue() {
 		return value;
 	}
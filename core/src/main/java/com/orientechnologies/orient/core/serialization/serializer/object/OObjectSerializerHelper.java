@@ -27,6 +27,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.orientechnologies.common.profiler.OProfiler;
 import com.orientechnologies.orient.core.annotation.OAfterDeserialization;
@@ -53,97 +54,54 @@ import com.orientechnologies.orient.core.record.impl.ODocument;
 
 @SuppressWarnings("unchecked")
 /**
- * Helper class to manage POJO by using the reflection. 
+ * Helper class to manage POJO by using the reflection. Getters, setters and callbacks are resolved once per class and kept in
+ * a concurrent map keyed by class.
  */
 public class OObjectSerializerHelper {
-	private static final Class<?>[]							callbackAnnotationClasses	= new Class[] { OBeforeDeserialization.class,
+	private static final Class<?>[]																	callbackAnnotationClasses	= new Class[] { OBeforeDeserialization.class,
 			OAfterDeserialization.class, OBeforeSerialization.class, OAfterSerialization.class };
-	private static final Class<?>[]							NO_ARGS										= new Class<?>[] {};
+	private static final Class<?>[]																	NO_ARGS										= new Class<?>[] {};
 
-	private static HashMap<String, List<Field>>	classes										= new HashMap<String, List<Field>>();
-	private static HashMap<String, Method>			callbacks									= new HashMap<String, Method>();
-	private static HashMap<String, Object>			getters										= new HashMap<String, Object>();
-	private static HashMap<String, Object>			setters										= new HashMap<String, Object>();
-	private static HashMap<String, String>			boundDocumentFields				= new HashMap<String, String>();
+	private static final ConcurrentHashMap<Class<?>, OClassBinding>	classes										= new ConcurrentHashMap<Class<?>, OClassBinding>();
 
 	public static boolean hasField(final Object iPojo, final String iProperty) {
-		final Class<?> c = iPojo.getClass();
-		final String className = c.getName();
-
-		if (!classes.containsKey(className))
-			registerClass(c);
-
-		return getters.get(className + "." + iProperty) != null;
+		return getClassBinding(iPojo.getClass()).getProperty(iProperty) != null;
 	}
 
 	public static String getDocumentBoundField(final Class<?> iClass) {
-		if (!classes.containsKey(iClass.getName()))
-			registerClass(iClass);
-
-		return boundDocumentFields.get(iClass.getName());
+		return getClassBinding(iClass).boundDocumentField;
 	}
 
 	public static Class<?> getFieldType(final Object iPojo, final String iProperty) {
-		final Class<?> c = iPojo.getClass();
-		final String className = c.getName();
-
-		if (!classes.containsKey(className))
-			registerClass(c);
-
-		try {
-			Object o = getters.get(className + "." + iProperty);
-
-			if (o == null)
-				return null;
-			else if (o instanceof Field)
-				return ((Field) o).getType();
-			else
-				return ((Method) o).getReturnType();
-		} catch (Exception e) {
-			throw new OSchemaException("Can't get the value of the property: " + iProperty, e);
-		}
+		final OPropertyAccessor p = getClassBinding(iPojo.getClass()).getProperty(iProperty);
+		return p != null ? p.type : null;
 	}
 
 	public static Object getFieldValue(final Object iPojo, final String iProperty) {
-		final Class<?> c = iPojo.getClass();
-		final String className = c.getName();
+		final OPropertyAccessor p = getClassBinding(iPojo.getClass()).getProperty(iProperty);
+		return p != null ? getFieldValue(iPojo, p) : null;
+	}
 
-		if (!classes.containsKey(className))
-			registerClass(c);
+	public static void setFieldValue(final Object iPojo, final String iProperty, final Object iValue) {
+		final OPropertyAccessor p = getClassBinding(iPojo.getClass()).getProperty(iProperty);
+		if (p != null)
+			setFieldValue(iPojo, p, iValue);
+	}
 
+	private static Object getFieldValue(final Object iPojo, final OPropertyAccessor iProperty) {
 		try {
-			Object o = getters.get(className + "." + iProperty);
-
-			if (o instanceof Method)
-				return ((Method) o).invoke(iPojo);
-			else if (o instanceof Field)
-				return ((Field) o).get(iPojo);
-			return null;
+			return iProperty.get(iPojo);
 		} catch (Exception e) {
-			throw new OSchemaException("Can't get the value of the property: " + iProperty, e);
+			throw new OSchemaException("Can't get the value of the property: " + iProperty.name, e);
 		}
 	}
 
-	public static void setFieldValue(final Object iPojo, final String iProperty, Object iValue) {
-		final Class<?> c = iPojo.getClass();
-		final String className = c.getName();
-
-		if (!classes.containsKey(className))
-			registerClass(c);
-
+	private static void setFieldValue(final Object iPojo, final OPropertyAccessor iProperty, final Object iValue) {
 		try {
-			Object o = setters.get(className + "." + iProperty);
-
-			if (o instanceof Method) {
-				((Method) o).invoke(iPojo, OType.convert(iValue, ((Method) o).getParameterTypes()[0]));
-			} else if (o instanceof Field) {
-				((Field) o).set(iPojo, OType.convert(iValue, ((Field) o).getType()));
-			}
-
+			iProperty.set(iPojo, iValue);
 		} catch (Exception e) {
-
-			throw new OSchemaException("Can't set the value '" + iValue + "' to the property '" + iProperty + "' for the pojo: " + iPojo,
-					e);
+			throw new OSchemaException("Can't set the value '" + iValue + "' to the property '" + iProperty.name + "' for the pojo: "
+					+ iPojo, e);
 		}
 	}
 
@@ -151,11 +109,7 @@ public class OObjectSerializerHelper {
 			final OUserObject2RecordHandler iObj2RecHandler, final String iFetchPlan) {
 		final long timer = OProfiler.getInstance().startChrono();
 
-		final Class<?> c = iPojo.getClass();
-
-		List<Field> properties = classes.get(c.getName());
-		if (properties == null)
-			properties = registerClass(c);
+		final OClassBinding binding = getClassBinding(iPojo.getClass());
 
 		String fieldName;
 		Object fieldValue;
@@ -167,8 +121,8 @@ public class OObjectSerializerHelper {
 		invokeCallback(iPojo, iRecord, OBeforeDeserialization.class);
 
 		// BIND BASIC FIELDS, LINKS WILL BE BOUND BY THE FETCH API
-		for (Field p : properties) {
-			fieldName = p.getName();
+		for (OPropertyAccessor p : binding.properties) {
+			fieldName = p.name;
 
 			if (iRecord.containsField(fieldName)) {
 				// BIND ONLY THE SPECIFIED FIELDS
@@ -178,7 +132,7 @@ public class OObjectSerializerHelper {
 						|| !(fieldValue instanceof ODocument)
 						|| (fieldValue instanceof Collection<?> && (((Collection<?>) fieldValue).size() == 0 || !(((Collection<?>) fieldValue)
 								.iterator().next() instanceof ODocument))))
-					setFieldValue(iPojo, fieldName, fieldValue);
+					setFieldValue(iPojo, p, fieldValue);
 			}
 		}
 
@@ -264,11 +218,7 @@ public class OObjectSerializerHelper {
 
 		OProperty schemaProperty;
 
-		Class<?> c = iPojo.getClass();
-
-		List<Field> properties = classes.get(c.getName());
-		if (properties == null)
-			properties = registerClass(c);
+		final OClassBinding binding = getClassBinding(iPojo.getClass());
 
 		String fieldName;
 		Object fieldValue;
@@ -276,9 +226,9 @@ public class OObjectSerializerHelper {
 		// CALL BEFORE MARSHALLING
 		invokeCallback(iPojo, iRecord, OBeforeSerialization.class);
 
-		for (Field p : properties) {
-			fieldName = p.getName();
-			fieldValue = getFieldValue(iPojo, fieldName);
+		for (OPropertyAccessor p : binding.properties) {
+			fieldName = p.name;
+			fieldValue = getFieldValue(iPojo, p);
 
 			schemaProperty = schemaClass != null ? schemaClass.getProperty(fieldName) : null;
 
@@ -396,17 +346,137 @@ public class OObjectSerializerHelper {
 		return result;
 	}
 
-	private static List<Field> registerClass(final Class<?> iClass) {
-		synchronized (classes) {
-			if (classes.containsKey(iClass.getName()))
-				return classes.get(iClass.getName());
+	private static OClassBinding getClassBinding(final Class<?> iClass) {
+		OClassBinding binding = classes.get(iClass);
+		if (binding == null) {
+			// BINDING IS IMMUTABLE ONCE BUILT: IN CASE OF RACE KEEP THE FIRST ONE REGISTERED
+			binding = new OClassBinding(iClass);
+			final OClassBinding prev = classes.putIfAbsent(iClass, binding);
+			if (prev != null)
+				binding = prev;
+		}
+		return binding;
+	}
+
+	public static void invokeCallback(final Object iPojo, final ODocument iDocument, final Class<?> iAnnotation) {
+		final Method m = getClassBinding(iPojo.getClass()).getCallback(iAnnotation);
+
+		if (m != null)
+
+			try {
+				if (m.getParameterTypes().length > 0)
+					m.invoke(iPojo, iDocument);
+				else
+					m.invoke(iPojo);
+			} catch (Exception e) {
+				throw new OConfigurationException("Error on executing user callback '" + m.getName() + "' annotated with '"
+						+ iAnnotation.getSimpleName() + "'", e);
+			}
+	}
 
-			List<Field> properties = new ArrayList<Field>();
-			classes.put(iClass.getName(), properties);
+	/**
+	 * Accessor of a single POJO property. Getter and setter are resolved once at registration time to the bean method, if any, or to
+	 * the field made accessible.
+	 */
+	private static class OPropertyAccessor {
+		private final String		name;
+		private final Method		getterMethod;
+		private final Field			getterField;
+		private final Method		setterMethod;
+		private final Field			setterField;
+		private final Class<?>	type;
+		private final Class<?>	setterType;
+		private final Class<?>	setterBoxedType;
+
+		private OPropertyAccessor(final Class<?> iClass, final Field iField, final boolean iAutoBinding) {
+			name = iField.getName();
+
+			Method m = null;
+			if (iAutoBinding)
+				// TRY TO GET THE VALUE BY THE GETTER (IF ANY)
+				try {
+					m = iClass.getMethod("get" + Character.toUpperCase(name.charAt(0)) + name.substring(1), NO_ARGS);
+				} catch (Exception e) {
+				}
+			getterMethod = m;
+
+			m = null;
+			if (iAutoBinding)
+				// TRY TO SET THE VALUE BY THE SETTER (IF ANY)
+				try {
+					m = iClass.getMethod("set" + Character.toUpperCase(name.charAt(0)) + name.substring(1), iField.getType());
+				} catch (Exception e) {
+				}
+			setterMethod = m;
+
+			if (getterMethod == null || setterMethod == null) {
+				// ACCESS DIRECTLY TO THE PROPERTY
+				if (!iField.isAccessible())
+					iField.setAccessible(true);
+			}
+			getterField = getterMethod == null ? iField : null;
+			setterField = setterMethod == null ? iField : null;
+
+			type = getterMethod != null ? getterMethod.getReturnType() : iField.getType();
+			setterType = setterMethod != null ? setterMethod.getParameterTypes()[0] : iField.getType();
+			setterBoxedType = box(setterType);
+		}
+
+		private Object get(final Object iPojo) throws Exception {
+			if (getterMethod != null)
+				return getterMethod.invoke(iPojo);
+			return getterField.get(iPojo);
+		}
+
+		private void set(final Object iPojo, Object iValue) throws Exception {
+			if (iValue != null && iValue.getClass() != setterBoxedType)
+				// CONVERT ONLY WHEN THE STORED TYPE DIFFERS FROM THE DECLARED ONE
+				iValue = OType.convert(iValue, setterType);
+
+			if (setterMethod != null)
+				setterMethod.invoke(iPojo, iValue);
+			else
+				setterField.set(iPojo, iValue);
+		}
+
+		private static Class<?> box(final Class<?> iType) {
+			if (!iType.isPrimitive())
+				return iType;
+			if (iType == Integer.TYPE)
+				return Integer.class;
+			if (iType == Long.TYPE)
+				return Long.class;
+			if (iType == Boolean.TYPE)
+				return Boolean.class;
+			if (iType == Float.TYPE)
+				return Float.class;
+			if (iType == Double.TYPE)
+				return Double.class;
+			if (iType == Short.TYPE)
+				return Short.class;
+			if (iType == Byte.TYPE)
+				return Byte.class;
+			if (iType == Character.TYPE)
+				return Character.class;
+			return iType;
+		}
+	}
+
+	/**
+	 * Binding of a POJO class built once at registration time: property accessors in declaration order, the field bound to the
+	 * document instance and the callback methods.
+	 */
+	private static class OClassBinding {
+		private final OPropertyAccessor[]							properties;
+		private final Map<String, OPropertyAccessor>	propertiesByName	= new HashMap<String, OPropertyAccessor>();
+		private final Method[]												callbacks					= new Method[callbackAnnotationClasses.length];
+		private String																boundDocumentField;
+
+		private OClassBinding(final Class<?> iClass) {
+			final List<OPropertyAccessor> props = new ArrayList<OPropertyAccessor>();
 
-			String fieldName;
 			int fieldModifier;
-			boolean autoBinding;
+			OPropertyAccessor accessor;
 
 			for (Class<?> currentClass = iClass; currentClass != Object.class;) {
 				for (Field f : currentClass.getDeclaredFields()) {
@@ -414,42 +484,16 @@ public class OObjectSerializerHelper {
 					if (Modifier.isStatic(fieldModifier) || Modifier.isNative(fieldModifier) || Modifier.isTransient(fieldModifier))
 						continue;
 
-					properties.add(f);
-
-					fieldName = f.getName();
-
-					autoBinding = f.getAnnotation(ORawBinding.class) == null;
-
 					if (f.getAnnotation(ODocumentInstance.class) != null)
 						// BOUND DOCUMENT ON IT
-						boundDocumentFields.put(iClass.getName(), fieldName);
-
-					if (autoBinding)
-						// TRY TO GET THE VALUE BY THE GETTER (IF ANY)
-						try {
-							String getterName = "get" + Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
-							Method m = currentClass.getMethod(getterName, NO_ARGS);
-							getters.put(iClass.getName() + "." + fieldName, m);
-						} catch (Exception e) {
-							registerFieldGetter(iClass, fieldName, f);
-						}
-					else
-						registerFieldGetter(iClass, fieldName, f);
-
-					if (autoBinding)
-						// TRY TO GET THE VALUE BY THE SETTER (IF ANY)
-						try {
-							String getterName = "set" + Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
-							Method m = currentClass.getMethod(getterName, f.getType());
-							setters.put(iClass.getName() + "." + fieldName, m);
-						} catch (Exception e) {
-							registerFieldSetter(iClass, fieldName, f);
-						}
-					else
-						registerFieldSetter(iClass, fieldName, f);
+						boundDocumentField = f.getName();
+
+					accessor = new OPropertyAccessor(currentClass, f, f.getAnnotation(ORawBinding.class) == null);
+					props.add(accessor);
+					propertiesByName.put(accessor.name, accessor);
 				}
 
-				registerCallbacks(iClass, currentClass);
+				registerCallbacks(currentClass);
 
 				currentClass = currentClass.getSuperclass();
 
@@ -457,51 +501,31 @@ public class OObjectSerializerHelper {
 					// POJO EXTENDS ODOCUMENT: SPECIAL CASE: AVOID TO CONSIDER ODOCUMENT FIELDS
 					currentClass = Object.class;
 			}
-			return properties;
-		}
-	}
 
-	@SuppressWarnings("rawtypes")
-	private static void registerCallbacks(final Class<?> iRootClass, final Class<?> iCurrentClass) {
-		// FIND KEY METHODS
-		for (Method m : iCurrentClass.getDeclaredMethods()) {
-			// SEARCH FOR CALLBACK ANNOTATIONS
-			for (Class annotationClass : callbackAnnotationClasses) {
-				if (m.getAnnotation(annotationClass) != null)
-					callbacks.put(iRootClass.getSimpleName() + "." + annotationClass.getSimpleName(), m);
-			}
+			properties = props.toArray(new OPropertyAccessor[props.size()]);
 		}
-	}
 
-	public static void invokeCallback(final Object iPojo, final ODocument iDocument, final Class<?> iAnnotation) {
-		final Method m = callbacks.get(iPojo.getClass().getSimpleName() + "." + iAnnotation.getSimpleName());
+		private OPropertyAccessor getProperty(final String iName) {
+			return propertiesByName.get(iName);
+		}
 
-		if (m != null)
+		private Method getCallback(final Class<?> iAnnotation) {
+			for (int i = 0; i < callbackAnnotationClasses.length; ++i)
+				if (callbackAnnotationClasses[i] == iAnnotation)
+					return callbacks[i];
+			return null;
+		}
 
-			try {
-				if (m.getParameterTypes().length > 0)
-					m.invoke(iPojo, iDocument);
-				else
-					m.invoke(iPojo);
-			} catch (Exception e) {
-				throw new OConfigurationException("Error on executing user callback '" + m.getName() + "' annotated with '"
-						+ iAnnotation.getSimpleName() + "'", e);
+		@SuppressWarnings("rawtypes")
+		private void registerCallbacks(final Class<?> iCurrentClass) {
+			// FIND KEY METHODS
+			for (Method m : iCurrentClass.getDeclaredMethods()) {
+				// SEARCH FOR CALLBACK ANNOTATIONS
+				for (int i = 0; i < callbackAnnotationClasses.length; ++i) {
+					if (m.getAnnotation((Class) callbackAnnotationClasses[i]) != null)
+						callbacks[i] = m;
+				}
 			}
-	}
-
-	private static void registerFieldSetter(final Class<?> iClass, String fieldName, Field f) {
-		// TRY TO GET THE VALUE BY ACCESSING DIRECTLY TO THE PROPERTY
-		if (!f.isAccessible())
-			f.setAccessible(true);
-
-		setters.put(iClass.getName() + "." + fieldName, f);
-	}
-
-	private static void registerFieldGetter(final Class<?> iClass, String fieldName, Field f) {
-		// TRY TO GET THE VALUE BY ACCESSING DIRECTLY TO THE PROPERTY
-		if (!f.isAccessible())
-			f.setAccessible(true);
-
-		getters.put(iClass.getName() + "." + fieldName, f);
+		}
 	}
 }
@@ -21,6 +21,7 @@ import java.util.List;
 import com.orientechnologies.common.parser.OStringParser;
 import com.orientechnologies.common.profiler.OProfiler;
 import com.orientechnologies.common.util.OPair;
+import com.orientechnologies.orient.core.command.OCommandCache;
 import com.orientechnologies.orient.core.command.OCommandRequestText;
 import com.orientechnologies.orient.core.exception.OCommandExecutionException;
 import com.orientechnologies.orient.core.exception.OQueryParsingException;
@@ -61,23 +62,55 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 	public static final String											KEYWORD_ORDER_BY	= "ORDER BY";
 
 	private OSQLAsynchQuery<ORecordSchemaAware<?>>	request;
+	private OSQLFilter															parsedFilter;
 	private OSQLFilter															compiledFilter;
 	private List<String>														projections				= new ArrayList<String>();
 	private List<OPair<String, String>>							orderedFields;
 	private List<ODocument>													tempResult;
 	private int																			resultCount;
 
+	// INNER CLASSES:
 	/**
-	 * Compile the filter conditions only the first time.
+	 * Immutable result of the parsing shared between all the executions of the same statement through the command cache.
+	 */
+	private static class OParsedSelect {
+		protected final OSQLFilter										filter;
+		protected final List<String>									projections;
+		protected final List<OPair<String, String>>	orderedFields;
+
+		protected OParsedSelect(final OSQLFilter iFilter, final List<String> iProjections,
+				final List<OPair<String, String>> iOrderedFields) {
+			filter = iFilter;
+			projections = iProjections;
+			orderedFields = iOrderedFields;
+		}
+	}
+
+	/**
+	 * Compile the filter conditions only the first time. Parsed statements are kept in the command cache of the storage, so the
+	 * same text is parsed only once.
 	 */
 	@SuppressWarnings("unchecked")
 	public OCommandExecutorSQLSelect parse(final OCommandRequestText iRequest) {
 		iRequest.getDatabase().checkSecurity(ODatabaseSecurityResources.COMMAND, ORole.PERMISSION_READ);
 
-		init(iRequest.getDatabase(), iRequest.getText());
-
 		request = (OSQLAsynchQuery<ORecordSchemaAware<?>>) iRequest;
 
+		final OCommandCache cache = iRequest.getDatabase().getStorage().getCommandCache();
+		final String key = OCommandCache.normalize(iRequest.getText());
+
+		final OParsedSelect parsed = (OParsedSelect) cache.get(key);
+		if (parsed != null) {
+			database = iRequest.getDatabase();
+			text = key;
+			parsedFilter = parsed.filter;
+			projections = parsed.projections;
+			orderedFields = parsed.orderedFields;
+			return this;
+		}
+
+		init(iRequest.getDatabase(), key);
+
 		int pos = extractProjections();
 		// TODO: IF NO PROJECTION WHAT???
 		if (pos == -1)
@@ -89,14 +122,24 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 			endPosition = text.length();
 		}
 
-		compiledFilter = new OSQLFilter(iRequest.getDatabase(), text.substring(pos, endPosition));
-		currentPos = compiledFilter.currentPos + pos;
+		parsedFilter = new OSQLFilter(iRequest.getDatabase(), text.substring(pos, endPosition));
+		currentPos = parsedFilter.currentPos + pos;
 
 		extractOrderBy();
+
+		cache.put(key, new OParsedSelect(parsedFilter, projections, orderedFields));
 		return this;
 	}
 
+	/**
+	 * Executes the parsed query binding the parameters, if any, to the passed arguments.
+	 */
 	public Object execute(final Object... iArgs) {
+		if (parsedFilter == null)
+			throw new OCommandExecutionException("Can't execute the command because it hasn't been parsed yet");
+
+		compiledFilter = parsedFilter.bind(iArgs);
+
 		// TODO: SUPPORTS MULTIPLE CLASSES LIKE A SQL JOIN
 		final int[] clusterIds;
 
@@ -347,7 +390,6 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 				// CALL THE LISTENER
 				request.getResultListener().result(doc);
 
-			orderedFields.clear();
 			tempResult.clear();
 		}
 	}
@@ -116,9 +116,9 @@ public class OCommandExecutorSQLUpdate extends OCommandExecutorSQLAbstract imple
 		String whereCondition = word.toString();
 
 		if (whereCondition.equals(OCommandExecutorSQLAbstract.KEYWORD_WHERE))
-			query = new OSQLAsynchQuery<ODocument>("select from " + className + " where " + text.substring(pos), this);
+			query = database.command(new OSQLAsynchQuery<ODocument>("select from " + className + " where " + text.substring(pos), this));
 		else
-			query = new OSQLAsynchQuery<ODocument>("select from " + className, this);
+			query = database.command(new OSQLAsynchQuery<ODocument>("select from " + className, this));
 
 		return this;
 	}
@@ -127,7 +127,7 @@ public class OCommandExecutorSQLUpdate extends OCommandExecutorSQLAbstract imple
 		if (className == null)
 			throw new OCommandExecutionException("Can't execute the command because it hasn't been parsed yet");
 
-		database.query(query);
+		query.execute(iArgs);
 		return recordCount;
 	}
 
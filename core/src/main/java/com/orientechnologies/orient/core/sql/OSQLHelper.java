@@ -39,6 +39,7 @@ import com.orientechnologies.orient.core.sql.operator.OQueryOperatorIs;
 import com.orientechnologies.orient.core.sql.operator.OQueryOperatorLike;
 import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMajor;
 import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMajorEquals;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMatches;
 import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMinor;
 import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMinorEquals;
 import com.orientechnologies.orient.core.sql.operator.OQueryOperatorNot;
@@ -63,7 +64,7 @@ public class OSQLHelper {
 			new OQueryOperatorMinor(), new OQueryOperatorMajorEquals(), new OQueryOperatorContainsAll(), new OQueryOperatorMajor(),
 			new OQueryOperatorLike(), new OQueryOperatorIs(), new OQueryOperatorIn(), new OQueryOperatorContainsKey(),
 			new OQueryOperatorContainsValue(), new OQueryOperatorContainsText(), new OQueryOperatorContains(),
-			new OQueryOperatorContainsText(), new OQueryOperatorTraverse() };
+			new OQueryOperatorMatches(), new OQueryOperatorTraverse() };
 
 	public static int nextWord(final String iText, final String iTextUpperCase, int ioCurrentPosition, final StringBuilder ioWord,
 			final boolean iForceUpperCase) {
@@ -96,6 +97,7 @@ public class OSQLHelper {
 	public static void registerOperator(final OQueryOperator iOperator) {
 		OQueryOperator[] ops = new OQueryOperator[RECORD_OPERATORS.length + 1];
 		System.arraycopy(RECORD_OPERATORS, 0, ops, 0, RECORD_OPERATORS.length);
+		ops[RECORD_OPERATORS.length] = iOperator;
 		RECORD_OPERATORS = ops;
 	}
 
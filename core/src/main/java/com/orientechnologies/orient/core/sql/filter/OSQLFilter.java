@@ -26,6 +26,7 @@ import com.orientechnologies.common.parser.OStringParser;
 import com.orientechnologies.orient.core.command.OCommandToParse;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
 import com.orientechnologies.orient.core.exception.OQueryParsingException;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.metadata.schema.OProperty;
 import com.orientechnologies.orient.core.record.ORecordSchemaAware;
 import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
@@ -47,6 +48,7 @@ public class OSQLFilter extends OCommandToParse {
 	protected Set<OProperty>			properties	= new HashSet<OProperty>();
 	protected OSQLFilterCondition	rootCondition;
 	protected List<String>				recordTransformed;
+	protected int									parameters;
 	private int										braces;
 
 	public OSQLFilter(final ODatabaseRecord<?> iDatabase, final String iText) {
@@ -58,6 +60,7 @@ public class OSQLFilter extends OCommandToParse {
 			if (extractTargets()) {
 				// IF WHERE EXISTS EXTRACT CONDITIONS
 				rootCondition = extractConditions(null);
+				bindToSchema();
 			}
 		} catch (OQueryParsingException e) {
 			if (e.getText() == null)
@@ -70,6 +73,39 @@ public class OSQLFilter extends OCommandToParse {
 		}
 	}
 
+	/**
+	 * Creates a copy of a parsed filter binding its parameters.
+	 */
+	protected OSQLFilter(final OSQLFilter iSource, final Object[] iArgs) {
+		database = iSource.database;
+		text = iSource.text;
+		textUpperCase = iSource.textUpperCase;
+		currentPos = iSource.currentPos;
+		targetRecords = iSource.targetRecords;
+		targetClusters = iSource.targetClusters;
+		targetClasses = iSource.targetClasses;
+		properties = iSource.properties;
+		recordTransformed = iSource.recordTransformed;
+		rootCondition = iSource.rootCondition != null ? iSource.rootCondition.bind(iArgs) : null;
+	}
+
+	/**
+	 * Returns a filter with the parameters replaced by the passed values. The parsed filter is not modified, so it can be shared
+	 * between multiple executions. If the filter has no parameters it's returned as is.
+	 * 
+	 * @param iArgs
+	 *          Values of positional parameters in order, or a Map with the values of named parameters
+	 */
+	public OSQLFilter bind(final Object[] iArgs) {
+		if (parameters == 0)
+			return this;
+		return new OSQLFilter(this, iArgs);
+	}
+
+	public boolean hasParameters() {
+		return parameters > 0;
+	}
+
 	public boolean evaluate(final ODatabaseRecord<?> iDatabase, final ORecordSchemaAware<?> iRecord) {
 		if (rootCondition == null)
 			return true;
@@ -142,6 +178,18 @@ public class OSQLFilter extends OCommandToParse {
 		return nextPosition < text.length();
 	}
 
+	/**
+	 * Converts the constants of the conditions to the types of the properties of the target class, if any, once at parse time.
+	 */
+	private void bindToSchema() {
+		if (rootCondition == null || database == null || targetClasses == null || targetClasses.size() != 1)
+			return;
+
+		final OClass cls = database.getMetadata().getSchema().getClass(targetClasses.keySet().iterator().next());
+		if (cls != null)
+			rootCondition.bindToSchema(cls);
+	}
+
 	private OSQLFilterCondition extractConditions(final OSQLFilterCondition iParentCondition) {
 		OSQLFilterCondition currentCondition = extractCondition();
 
@@ -245,6 +293,14 @@ public class OSQLFilter extends OCommandToParse {
 				throw new OQueryParsingException("Missed column number", text, currentPos);
 			result = new OSQLFilterItemColumn(this, parameters.get(0));
 
+		} else if (OSQLFilterItemParameter.isParameter(words[1])) {
+			// PARAMETER BOUND AT EXECUTION TIME
+			if (words[1].equals(OSQLFilterItemParameter.POSITIONAL))
+				result = new OSQLFilterItemParameter(parameters);
+			else
+				result = new OSQLFilterItemParameter(words[1].substring(1));
+			parameters++;
+
 		} else if (words[0].startsWith("@")) {
 			// RECORD ATTRIB
 			result = new OSQLFilterItemRecordAttrib(this, words[0]);
@@ -16,14 +16,20 @@
 package com.orientechnologies.orient.core.sql.filter;
 
 import com.orientechnologies.orient.core.exception.ORecordNotFoundException;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OProperty;
+import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.query.OQueryRuntimeValueMulti;
 import com.orientechnologies.orient.core.record.ORecord.STATUS;
 import com.orientechnologies.orient.core.record.ORecordSchemaAware;
 import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
 import com.orientechnologies.orient.core.sql.operator.OQueryOperator;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorAnd;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorOr;
 
 /**
- * Run-time query condition evaluator.
+ * Run-time query condition evaluator. Constant operands are prepared once at parse time: the operator can pre-compile them (regular
+ * expressions, LIKE patterns) and they are converted only once to the type of the other operand.
  * 
  * @author Luca Garulli
  * 
@@ -33,6 +39,9 @@ public class OSQLFilterCondition {
 	protected Object						left;
 	protected OQueryOperator		operator;
 	protected Object						right;
+	protected Object						rightCompiled;
+	private volatile Object[]		leftConverted;
+	private volatile Object[]		rightConverted;
 
 	public OSQLFilterCondition(final Object iLeft, final OQueryOperator iOperator) {
 		this.left = iLeft;
@@ -43,50 +52,153 @@ public class OSQLFilterCondition {
 		this.left = iLeft;
 		this.operator = iOperator;
 		this.right = iRight;
+		compileRight();
 	}
 
 	public Object evaluate(final ORecordSchemaAware<?> iRecord) {
 		Object l = evaluate(iRecord, left);
-		Object r = evaluate(iRecord, right);
 
-		Object[] convertedValues = checkForConversion(l, r);
-		if (convertedValues != null) {
-			l = convertedValues[0];
-			r = convertedValues[1];
+		// SHORT-CIRCUIT LOGICAL OPERATORS WITHOUT EVALUATING THE RIGHT BRANCH
+		if (operator instanceof OQueryOperatorAnd) {
+			if (l == null || Boolean.FALSE.equals(l))
+				return Boolean.FALSE;
+		} else if (operator instanceof OQueryOperatorOr) {
+			if (Boolean.TRUE.equals(l))
+				return Boolean.TRUE;
 		}
 
-		return operator.evaluateRecord(iRecord, this, l, r);
-	}
-
-	private Object[] checkForConversion(final Object l, final Object r) {
-		Object[] result = null;
+		Object r = evaluate(iRecord, right);
 
 		// INTEGERS
 		if (r instanceof Integer && !(l instanceof Integer)) {
-			if (l instanceof String && ((String) l).indexOf(".") > -1)
-				result = new Object[] { new Float((String) l).intValue(), r };
-			else if (!(l instanceof OQueryRuntimeValueMulti))
-				result = new Object[] { getInteger(l), r };
+			if (!(l instanceof OQueryRuntimeValueMulti))
+				l = convert(l, Integer.class);
 		} else if (l instanceof Integer && !(r instanceof Integer)) {
-			if (r instanceof String && ((String) r).indexOf(".") > -1)
-				result = new Object[] { l, new Float((String) r).intValue() };
-			else if (!(r instanceof OQueryRuntimeValueMulti))
-				result = new Object[] { l, getInteger(r) };
+			if (!(r instanceof OQueryRuntimeValueMulti))
+				r = convert(r, Integer.class);
 		}
 
 		// FLOATS
 		else if (r instanceof Float && !(l instanceof Float))
-			result = new Object[] { getFloat(l), r };
+			l = convert(l, Float.class);
 		else if (l instanceof Float && !(r instanceof Float))
-			result = new Object[] { l, getFloat(r) };
+			r = convert(r, Float.class);
+
+		return operator.evaluateRecord(iRecord, this, l, r);
+	}
+
+	/**
+	 * Returns the pre-compiled form of the right operand if the passed value is the constant right operand of this condition,
+	 * otherwise null.
+	 * 
+	 * @see OQueryOperator#compile(Object)
+	 */
+	public Object getCompiled(final Object iValue) {
+		return iValue != null && iValue == right ? rightCompiled : null;
+	}
+
+	/**
+	 * Returns the condition with the parameters replaced by the passed values. Branches without parameters are shared, not copied.
+	 */
+	protected OSQLFilterCondition bind(final Object[] iArgs) {
+		final Object l = bind(left, iArgs);
+		final Object r = bind(right, iArgs);
+
+		if (l == left && r == right)
+			return this;
+
+		return new OSQLFilterCondition(l, operator, r);
+	}
+
+	private static Object bind(final Object iValue, final Object[] iArgs) {
+		if (iValue instanceof OSQLFilterCondition)
+			return ((OSQLFilterCondition) iValue).bind(iArgs);
+		if (iValue instanceof OSQLFilterItemParameter)
+			return ((OSQLFilterItemParameter) iValue).bind(iArgs);
+		return iValue;
+	}
+
+	/**
+	 * Converts the numeric constants compared against fields to the type declared in the schema, so they are not converted again for
+	 * each record.
+	 */
+	protected void bindToSchema(final OClass iClass) {
+		if (left instanceof OSQLFilterCondition)
+			((OSQLFilterCondition) left).bindToSchema(iClass);
+		if (right instanceof OSQLFilterCondition)
+			((OSQLFilterCondition) right).bindToSchema(iClass);
 
-		return result;
+		if (left instanceof OSQLFilterItemField && right instanceof Number) {
+			right = convertToPropertyType(iClass, (OSQLFilterItemField) left, (Number) right);
+			compileRight();
+		} else if (right instanceof OSQLFilterItemField && left instanceof Number)
+			left = convertToPropertyType(iClass, (OSQLFilterItemField) right, (Number) left);
+	}
+
+	private Object convertToPropertyType(final OClass iClass, final OSQLFilterItemField iField, final Number iValue) {
+		if (iField.hasChainOperators())
+			return iValue;
+
+		final OProperty prop = iClass.getProperty(iField.getName());
+		if (prop == null || prop.getType() == null)
+			return iValue;
+
+		final Object converted;
+		switch (prop.getType()) {
+		case BYTE:
+		case SHORT:
+		case INTEGER:
+		case LONG:
+			converted = OType.convert(iValue, prop.getType().getJavaTypes()[0]);
+			// CONVERT ONLY WITHOUT LOSS OF PRECISION, OTHERWISE LEAVE THE CONVERSION TO THE RUN-TIME
+			if (converted == null || ((Number) converted).doubleValue() != iValue.doubleValue())
+				return iValue;
+			return converted;
+
+		case FLOAT:
+		case DOUBLE:
+			converted = OType.convert(iValue, prop.getType().getJavaTypes()[0]);
+			return converted != null ? converted : iValue;
+
+		default:
+			return iValue;
+		}
+	}
+
+	private void compileRight() {
+		rightCompiled = right instanceof OSQLFilterItem || right instanceof OSQLFilterCondition ? null : operator.compile(right);
+	}
+
+	/**
+	 * Converts the value to Integer or Float. Constant operands are converted only the first time.
+	 */
+	private Object convert(final Object iValue, final Class<?> iType) {
+		final boolean isLeft = iValue != null && iValue == left;
+		final boolean isRight = iValue != null && iValue == right;
+
+		if (isLeft || isRight) {
+			final Object[] cached = isLeft ? leftConverted : rightConverted;
+			if (cached != null && cached[0] == iType)
+				return cached[1];
+		}
+
+		final Object converted = iType == Integer.class ? getInteger(iValue) : getFloat(iValue);
+
+		if (isLeft)
+			leftConverted = new Object[] { iType, converted };
+		else if (isRight)
+			rightConverted = new Object[] { iType, converted };
+
+		return converted;
 	}
 
 	protected Integer getInteger(Object iValue) {
 		if (iValue == null)
 			return null;
 
+		if (iValue instanceof Number)
+			return ((Number) iValue).intValue();
+
 		String stringValue = iValue.toString();
 
 		if (NULL_VALUE.equals(stringValue))
@@ -102,6 +214,9 @@ public class OSQLFilterCondition {
 		if (iValue == null)
 			return null;
 
+		if (iValue instanceof Number)
+			return ((Number) iValue).floatValue();
+
 		String stringValue = iValue.toString();
 
 		if (NULL_VALUE.equals(stringValue))
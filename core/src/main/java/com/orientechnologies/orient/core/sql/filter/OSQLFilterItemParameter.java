@@ -0,0 +1,78 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.sql.filter;
+
+import java.util.Map;
+
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.record.ORecordInternal;
+
+/**
+ * Represent a parameter of the query bound at execution time. Positional parameters are written as '?' and take the values in
+ * order, while named parameters are written as ':&lt;name&gt;' and take the values from a Map passed as unique argument.
+ * 
+ * @author Luca Garulli
+ * 
+ */
+public class OSQLFilterItemParameter implements OSQLFilterItem {
+	public static final String	POSITIONAL	= "?";
+	public static final char		NAMED_PREFIX	= ':';
+
+	private final String				name;
+	private final int						position;
+
+	public OSQLFilterItemParameter(final int iPosition) {
+		name = null;
+		position = iPosition;
+	}
+
+	public OSQLFilterItemParameter(final String iName) {
+		name = iName;
+		position = -1;
+	}
+
+	public static boolean isParameter(final String iWord) {
+		return iWord.equals(POSITIONAL) || iWord.length() > 1 && iWord.charAt(0) == NAMED_PREFIX;
+	}
+
+	public Object getValue(final ORecordInternal<?> iRecord) {
+		throw new OCommandExecutionException("Parameter " + this + " has not been bound");
+	}
+
+	/**
+	 * Returns the value of the parameter between the arguments passed on execution.
+	 */
+	public Object bind(final Object[] iArgs) {
+		if (name != null) {
+			if (iArgs == null || iArgs.length != 1 || !(iArgs[0] instanceof Map<?, ?>))
+				throw new OCommandExecutionException("Named parameter " + this + " needs a Map of parameters as argument");
+
+			final Map<?, ?> values = (Map<?, ?>) iArgs[0];
+			if (!values.containsKey(name))
+				throw new OCommandExecutionException("Missed value for the parameter " + this);
+			return values.get(name);
+		}
+
+		if (iArgs == null || position >= iArgs.length)
+			throw new OCommandExecutionException("Missed value for the parameter #" + (position + 1));
+		return iArgs[position];
+	}
+
+	@Override
+	public String toString() {
+		return name != null ? NAMED_PREFIX + name : POSITIONAL;
+	}
+}
@@ -55,6 +55,18 @@ public abstract class OQueryOperator {
 		return this;
 	}
 
+	/**
+	 * Compiles a constant right operand once at parse time. The compiled form is available at evaluation time by calling
+	 * {@link OSQLFilterCondition#getCompiled(Object)}. Default implementation has nothing to compile and returns null.
+	 * 
+	 * @param iRight
+	 *          Constant right operand
+	 * @return The compiled operand or null if not supported
+	 */
+	public Object compile(final Object iRight) {
+		return null;
+	}
+
 	public String getSyntax() {
 		return "<left> " + keyword + " <right>";
 	}
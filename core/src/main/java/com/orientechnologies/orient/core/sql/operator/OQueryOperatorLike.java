@@ -15,6 +15,8 @@
  */
 package com.orientechnologies.orient.core.sql.operator;
 
+import java.util.regex.Pattern;
+
 import com.orientechnologies.orient.core.query.OQueryHelper;
 import com.orientechnologies.orient.core.record.ORecordInternal;
 import com.orientechnologies.orient.core.sql.filter.OSQLFilterCondition;
@@ -31,9 +33,21 @@ public class OQueryOperatorLike extends OQueryOperatorEqualityNotNulls {
 		super("LIKE", 5, false);
 	}
 
+	/**
+	 * Translates the LIKE expression into a regular expression only once.
+	 */
+	@Override
+	public Object compile(final Object iRight) {
+		return iRight instanceof String ? OQueryHelper.compileLike((String) iRight) : null;
+	}
+
 	@Override
 	protected boolean evaluateExpression(final ORecordInternal<?> iRecord, OSQLFilterCondition iCondition, final Object iLeft,
 			final Object iRight) {
+		final Object compiled = iCondition != null ? iCondition.getCompiled(iRight) : null;
+		if (compiled != null)
+			return OQueryHelper.like(iLeft.toString(), (Pattern) compiled);
+
 		return OQueryHelper.like(iLeft.toString(), iRight.toString());
 	}
 }
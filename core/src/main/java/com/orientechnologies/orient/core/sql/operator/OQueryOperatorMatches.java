@@ -15,6 +15,8 @@
  */
 package com.orientechnologies.orient.core.sql.operator;
 
+import java.util.regex.Pattern;
+
 import com.orientechnologies.orient.core.record.ORecordInternal;
 import com.orientechnologies.orient.core.sql.filter.OSQLFilterCondition;
 
@@ -30,9 +32,21 @@ public class OQueryOperatorMatches extends OQueryOperatorEqualityNotNulls {
 		super("MATCHES", 5, false);
 	}
 
+	/**
+	 * Compiles the regular expression only once.
+	 */
+	@Override
+	public Object compile(final Object iRight) {
+		return iRight instanceof String ? Pattern.compile((String) iRight) : null;
+	}
+
 	@Override
 	protected boolean evaluateExpression(final ORecordInternal<?> iRecord, OSQLFilterCondition iCondition, final Object iLeft,
 			final Object iRight) {
+		final Object compiled = iCondition != null ? iCondition.getCompiled(iRight) : null;
+		if (compiled != null)
+			return ((Pattern) compiled).matcher(iLeft.toString()).matches();
+
 		return iLeft.toString().matches((String) iRight);
 	}
 }
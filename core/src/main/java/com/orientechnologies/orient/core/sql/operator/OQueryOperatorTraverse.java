@@ -15,18 +15,16 @@
  */
 package com.orientechnologies.orient.core.sql.operator;
 
-import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 
-import com.orientechnologies.orient.core.id.ORID;
-import com.orientechnologies.orient.core.query.OQueryRuntimeValueMulti;
+import com.orientechnologies.orient.core.query.OQueryTraverse;
 import com.orientechnologies.orient.core.record.ORecordInternal;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.sql.filter.OSQLFilterCondition;
 
 /**
- * TRAVERSE operator.
+ * TRAVERSE operator. Crosses the linked records breadth-first, from the nearest to the farthest, visiting each record only once
+ * even in presence of cycles. The deep level of the records linked by the current one is 1.
  * 
  * @author Luca Garulli
  * 
@@ -64,46 +62,19 @@ public class OQueryOperatorTraverse extends OQueryOperatorEqualityNotNulls {
 			target = iLeft;
 		}
 
-		return traverse(iRecord, condition, target, 0);
-	}
+		final OQueryTraverse traverse = new OQueryTraverse(iRecord.getDatabase(), startDeepLevel, endDeepLevel,
+				OQueryTraverse.STRATEGY.BREADTH_FIRST) {
+			@Override
+			protected boolean visit(final ODocument iDocument, final int iLevel) {
+				return (Boolean) condition.evaluate(iDocument) == Boolean.TRUE;
+			}
+		};
 
-	@SuppressWarnings("unchecked")
-	private boolean traverse(final ORecordInternal<?> iRecord, final OSQLFilterCondition iCondition, Object iTarget, final int iLevel) {
-		if (iTarget instanceof ORID)
-			// TRANSFORM THE ORID IN ODOCUMENT
-			iTarget = new ODocument(iRecord.getDatabase(), (ORID) iTarget);
+		if (iRecord instanceof ODocument)
+			traverse.exclude((ODocument) iRecord);
 
-		if (iTarget instanceof ODocument) {
-			if (iLevel >= startDeepLevel && (Boolean) iCondition.evaluate((ODocument) iTarget) == Boolean.TRUE)
-				return true;
-		} else {
-			if (iLevel >= endDeepLevel)
-				return false;
-
-			if (iTarget instanceof OQueryRuntimeValueMulti) {
-
-				OQueryRuntimeValueMulti multi = (OQueryRuntimeValueMulti) iTarget;
-				for (Object o : multi.values) {
-					if (traverse(iRecord, iCondition, o, iLevel + 1) == Boolean.TRUE)
-						return true;
-				}
-			} else if (iTarget instanceof Collection<?>) {
-
-				Collection<ODocument> collection = (Collection<ODocument>) iTarget;
-				for (ODocument o : collection) {
-					if (traverse(iRecord, iCondition, o, iLevel + 1) == Boolean.TRUE)
-						return true;
-				}
-			} else if (iTarget instanceof Map<?, ?>) {
-
-				Map<String, ODocument> map = (Map<String, ODocument>) iTarget;
-				for (ODocument o : map.values()) {
-					if (traverse(iRecord, iCondition, o, iLevel + 1) == Boolean.TRUE)
-						return true;
-				}
-			}
-		}
-		return false;
+		// THE CURRENT RECORD IS AT LEVEL 0, SO THE RECORDS IT LINKS ARE AT LEVEL 1
+		return traverse.execute(target, 1) != null;
 	}
 
 	@Override
@@ -31,7 +31,7 @@ import com.orientechnologies.orient.core.hook.ORecordHook.TYPE;
  */
 @SuppressWarnings("unchecked")
 public class OSQLSynchQuery<T extends Object> extends OSQLAsynchQuery<T> implements OCommandResultListener {
-	protected final List<T>	result	= new ArrayList<T>();
+	protected List<T>	result	= new ArrayList<T>();
 
 	public OSQLSynchQuery() {
 		resultListener = this;
@@ -55,6 +55,15 @@ public class OSQLSynchQuery<T extends Object> extends OSQLAsynchQuery<T> impleme
 		return true;
 	}
 
+	/**
+	 * Collects the results in a new list at every execution, so the query can be executed again with other parameters.
+	 */
+	@Override
+	public <RET> RET execute(final Object... iArgs) {
+		result = new ArrayList<T>();
+		return (RET) super.execute(iArgs);
+	}
+
 	@Override
 	public List<T> run(Object... iArgs) {
 		super.run(iArgs);
@@ -18,8 +18,10 @@ package com.orientechnologies.orient.core.storage;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
 import com.orientechnologies.orient.core.cache.OCacheRecord;
+import com.orientechnologies.orient.core.command.OCommandCache;
 import com.orientechnologies.orient.core.command.OCommandRequestText;
 import com.orientechnologies.orient.core.config.OStorageConfiguration;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
@@ -57,6 +59,33 @@ public interface OStorage {
 
 	public ORawBuffer readRecord(ODatabaseRecord<?> iDatabase, int iRequesterId, int iClusterId, long iPosition, String iFetchPlan);
 
+	/**
+	 * Reads a range of consecutive records of a cluster in one call. Used by the iterators to read-ahead the records to browse.
+	 * 
+	 * @param iRequesterId
+	 *          The requester of the operation
+	 * @param iClusterId
+	 *          Cluster id
+	 * @param iFromPosition
+	 *          First position to read
+	 * @param iCount
+	 *          Number of positions to read
+	 * @return The array of the raw records, one per position starting from iFromPosition, containing null for the deleted records.
+	 *         The array is shorter than iCount if the range goes beyond the last position of the cluster
+	 */
+	public ORawBuffer[] readRecords(int iRequesterId, int iClusterId, long iFromPosition, int iCount);
+
+	/**
+	 * Reads a set of records in one call. Used to load together the records linked by a fetch plan.
+	 * 
+	 * @param iRequesterId
+	 *          The requester of the operation
+	 * @param iRecordIds
+	 *          Record ids to read
+	 * @return The array of the raw records in the same order of iRecordIds, containing null for the deleted records
+	 */
+	public ORawBuffer[] readRecords(int iRequesterId, ORID[] iRecordIds);
+
 	public int updateRecord(int iRequesterId, int iClusterId, long iPosition, byte[] iContent, final int iVersion,
 			final byte iRecordType);
 
@@ -136,6 +165,28 @@ public interface OStorage {
 	 */
 	public OCacheRecord getCache();
 
+	public OCommandCache getCommandCache();
+
+	/**
+	 * Returns the resource shared by all the database instances opened against this storage, creating it by the callback the first
+	 * time.
+	 * 
+	 * @param iName
+	 *          Unique name of the resource
+	 * @param iCallback
+	 *          Creates the resource if it's not present yet
+	 */
+	public <T> T getResource(String iName, Callable<T> iCallback);
+
+	/**
+	 * Removes the resource shared by the database instances, if any.
+	 * 
+	 * @param iName
+	 *          Unique name of the resource
+	 * @return The resource removed, or null if it was not present
+	 */
+	public Object removeResource(String iName);
+
 	/**
 	 * Execute the command request and return the result back.
 	 */
@@ -15,10 +15,17 @@
  */
 package com.orientechnologies.orient.core.storage;
 
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
 import com.orientechnologies.common.concur.resource.OSharedResourceAdaptive;
 import com.orientechnologies.orient.core.cache.OCacheRecord;
+import com.orientechnologies.orient.core.command.OCommandCache;
 import com.orientechnologies.orient.core.config.OStorageConfiguration;
+import com.orientechnologies.orient.core.exception.OStorageException;
 import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
 import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
 
 public abstract class OStorageAbstract extends OSharedResourceAdaptive implements OStorage {
@@ -26,7 +33,11 @@ public abstract class OStorageAbstract extends OSharedResourceAdaptive implement
 	protected String								name;
 	protected String								url;
 	protected String								mode;
-	protected OCacheRecord					cache	= new OCacheRecord(2000);
+	protected OCacheRecord					cache					= new OCacheRecord(2000);
+	protected OCommandCache					commandCache	= new OCommandCache();
+	protected Map<String, Object>		resources			= new ConcurrentHashMap<String, Object>();
+	private String									schemaRecordId;
+	private ORecordId								schemaRid;
 
 	protected boolean								open	= false;
 
@@ -43,6 +54,28 @@ public abstract class OStorageAbstract extends OSharedResourceAdaptive implement
 		mode = iMode;
 	}
 
+	/**
+	 * Default implementation that reads the records one by one.
+	 */
+	public ORawBuffer[] readRecords(final int iRequesterId, final int iClusterId, final long iFromPosition, final int iCount) {
+		final int count = (int) Math.max(0, Math.min(iCount, getClusterLastEntryPosition(iClusterId) - iFromPosition + 1));
+
+		final ORawBuffer[] buffers = new ORawBuffer[count];
+		for (int i = 0; i < count; ++i)
+			buffers[i] = readRecord(null, iRequesterId, iClusterId, iFromPosition + i, null);
+		return buffers;
+	}
+
+	/**
+	 * Default implementation that reads the records one by one.
+	 */
+	public ORawBuffer[] readRecords(final int iRequesterId, final ORID[] iRecordIds) {
+		final ORawBuffer[] buffers = new ORawBuffer[iRecordIds.length];
+		for (int i = 0; i < iRecordIds.length; ++i)
+			buffers[i] = readRecord(null, iRequesterId, iRecordIds[i].getClusterId(), iRecordIds[i].getClusterPosition(), null);
+		return buffers;
+	}
+
 	public int updateRecord(final int iRequesterId, final ORID iRecordId, final byte[] iContent, final int iVersion,
 			final byte iRecordType) {
 		return updateRecord(iRequesterId, iRecordId.getClusterId(), iRecordId.getClusterPosition(), iContent, iVersion, iRecordType);
@@ -76,8 +109,10 @@ public abstract class OStorageAbstract extends OSharedResourceAdaptive implement
 	public int removeUser() {
 		int u = super.removeUser();
 
-		if (u == 0)
+		if (u == 0) {
 			close();
+			resources.clear();
+		}
 
 		return u;
 	}
@@ -93,4 +128,48 @@ public abstract class OStorageAbstract extends OSharedResourceAdaptive implement
 	public OCacheRecord getCache() {
 		return cache;
 	}
+
+	public OCommandCache getCommandCache() {
+		return commandCache;
+	}
+
+	@SuppressWarnings("unchecked")
+	public <T> T getResource(final String iName, final Callable<T> iCallback) {
+		T resource = (T) resources.get(iName);
+		if (resource == null)
+			synchronized (resources) {
+				resource = (T) resources.get(iName);
+				if (resource == null) {
+					try {
+						resource = iCallback.call();
+					} catch (Exception e) {
+						throw new OStorageException("Error on creation of the shared resource '" + iName + "' in storage " + name, e);
+					}
+					resources.put(iName, resource);
+				}
+			}
+		return resource;
+	}
+
+	public Object removeResource(final String iName) {
+		synchronized (resources) {
+			return resources.remove(iName);
+		}
+	}
+
+	/**
+	 * Invalidates the parsed commands when the updated record is the database schema.
+	 */
+	protected void checkForSchemaUpdate(final int iClusterId, final long iPosition) {
+		if (configuration == null || configuration.schemaRecordId == null)
+			return;
+
+		if (schemaRecordId != configuration.schemaRecordId) {
+			schemaRid = new ORecordId(configuration.schemaRecordId);
+			schemaRecordId = configuration.schemaRecordId;
+		}
+
+		if (schemaRid.getClusterId() == iClusterId && schemaRid.getClusterPosition() == iPosition)
+			commandCache.invalidate();
+	}
 }
@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
+import java.util.BitSet;
 
 import com.orientechnologies.common.concur.lock.OLockException;
 import com.orientechnologies.common.io.OFileUtils;
@@ -55,6 +56,10 @@ public abstract class OFile {
 	protected byte[]						securityCode						= new byte[32];					// PART OF HEADER (32 bytes)
 	protected String						mode;
 
+	private final BitSet				dirtyPages							= new BitSet();
+	private volatile boolean		allDirty								= true;												// CHANGES BEFORE OPENING ARE UNKNOWN
+	private volatile OFileBackup	backup;
+
 	protected static final int	HEADER_SIZE							= 1024;
 	protected static final int	DEFAULT_SIZE						= 15000000;
 	protected static final int	DEFAULT_INCREMENT_SIZE	= -50;										// NEGATIVE NUMBER MEANS AS PERCENT OF CURRENT SIZE
@@ -253,6 +258,69 @@ public abstract class OFile {
 		return filledUpTo;
 	}
 
+	/**
+	 * Starts the backup of the file to iTarget. Must be called when nobody is writing the file: the backup will contain the file as
+	 * it is now, even if it's written while the backup is in progress. If iIncremental is true, only the pages changed since the
+	 * last backup are copied, otherwise the entire file.
+	 */
+	public OFileBackup startBackup(final File iTarget, final boolean iIncremental) throws IOException {
+		synchronized (dirtyPages) {
+			if (backup != null)
+				throw new OIOException("Backup of file " + osFile.getAbsolutePath() + " already in progress");
+
+			final long length = accessFile.length();
+
+			final BitSet pages;
+			if (iIncremental && !allDirty)
+				pages = (BitSet) dirtyPages.clone();
+			else {
+				pages = new BitSet();
+				pages.set(0, (int) ((length + OFileBackup.PAGE_SIZE - 1) / OFileBackup.PAGE_SIZE));
+			}
+
+			backup = new OFileBackup(this, iTarget, length, pages);
+
+			dirtyPages.clear();
+			allDirty = false;
+
+			return backup;
+		}
+	}
+
+	void endBackup(final OFileBackup iBackup, final BitSet iPagesNotCopied) {
+		synchronized (dirtyPages) {
+			if (backup == iBackup)
+				backup = null;
+			if (iPagesNotCopied != null)
+				dirtyPages.or(iPagesNotCopied);
+		}
+	}
+
+	/**
+	 * Must be called by the implementations before to change the file. Keeps track of the changed pages for the incremental backup
+	 * and preserves the original content of the pages not yet copied by the backup in progress.
+	 * 
+	 * @param iOffset
+	 *          Physical offset in the file
+	 * @param iLength
+	 *          Bytes that will be changed
+	 */
+	protected void beforeWrite(final int iOffset, final int iLength) {
+		final OFileBackup currentBackup = backup;
+		if (currentBackup != null)
+			try {
+				currentBackup.preserve(iOffset, iLength);
+			} catch (IOException e) {
+				OLogManager.instance().error(this, "Error on backup of the range " + iOffset + "-" + (iOffset + iLength) + ". " + toString(),
+						e, OIOException.class);
+			}
+
+		if (!allDirty)
+			synchronized (dirtyPages) {
+				dirtyPages.set(iOffset / OFileBackup.PAGE_SIZE, (iOffset + iLength - 1) / OFileBackup.PAGE_SIZE + 1);
+			}
+	}
+
 	public boolean canOversize(final int iRecordSize) {
 		return maxSize - size > iRecordSize;
 	}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage.fs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.BitSet;
+
+/**
+ * Consistent copy of a file taken while the file is written. The pages to copy are fixed when the backup starts: before a page
+ * not yet copied is written, its original content is copied by the writer thread, so the target always contains the file as it
+ * was at the beginning of the backup. The file is read through a channel of its own, since the file could reopen its channel
+ * while growing.
+ * 
+ * @author Luca Garulli
+ * 
+ */
+public class OFileBackup {
+	public static final int				PAGE_SIZE				= Integer.getInteger("orient.backup.pageSize", 65536);
+	private static final int			PAGES_PER_COPY	= 16;
+
+	private final OFile						file;
+	private final File						target;
+	private final long						length;
+	private final BitSet					pages;
+	private final BitSet					pagesToCopy;
+	private final RandomAccessFile	sourceFile;
+	private final RandomAccessFile	targetFile;
+	private long									bytesCopied;
+
+	OFileBackup(final OFile iFile, final File iTarget, final long iLength, final BitSet iPages) throws IOException {
+		file = iFile;
+		target = iTarget;
+		length = iLength;
+		pages = iPages;
+		pagesToCopy = (BitSet) iPages.clone();
+		sourceFile = new RandomAccessFile(iFile.getOsFile(), "r");
+		targetFile = new RandomAccessFile(iTarget, "rw");
+	}
+
+	/**
+	 * Copies all the pages not yet copied by the writers.
+	 */
+	public void copy() throws IOException {
+		int page = 0;
+		while ((page = nextPage(page)) > -1)
+			page = copyPages(page, PAGES_PER_COPY);
+	}
+
+	/**
+	 * Terminates the backup. If the backup wasn't completed, the pages are marked as dirty again so they will be part of the next
+	 * incremental backup.
+	 */
+	public void close(final boolean iCompleted) throws IOException {
+		file.endBackup(this, iCompleted ? null : pages);
+
+		try {
+			if (iCompleted) {
+				if (targetFile.length() > length)
+					targetFile.setLength(length);
+
+				// THE COPY IS CONSISTENT, SO IT CAN BE OPENED AS A FILE CLOSED PROPERLY
+				if (length > OFile.SOFTLY_CLOSED_OFFSET) {
+					targetFile.seek(OFile.SOFTLY_CLOSED_OFFSET);
+					targetFile.write(1);
+				}
+			}
+		} finally {
+			sourceFile.close();
+			targetFile.close();
+		}
+	}
+
+	public File getTarget() {
+		return target;
+	}
+
+	public long getBytesCopied() {
+		return bytesCopied;
+	}
+
+	/**
+	 * Called by the file before a write: copies the pages of the range not yet copied.
+	 */
+	synchronized void preserve(final int iOffset, final int iLength) throws IOException {
+		final int lastPage = (iOffset + iLength - 1) / PAGE_SIZE;
+		for (int page = pagesToCopy.nextSetBit(iOffset / PAGE_SIZE); page > -1 && page <= lastPage; page = pagesToCopy
+				.nextSetBit(page + 1))
+			copyPages(page, 1);
+	}
+
+	private synchronized int nextPage(final int iFrom) {
+		return pagesToCopy.nextSetBit(iFrom);
+	}
+
+	/**
+	 * Copies up to iMaxPages contiguous pages starting from iPage. Returns the first page after the copied ones.
+	 */
+	private synchronized int copyPages(final int iPage, final int iMaxPages) throws IOException {
+		int endPage = iPage;
+		while (endPage - iPage < iMaxPages && pagesToCopy.get(endPage))
+			pagesToCopy.clear(endPage++);
+
+		final long begin = (long) iPage * PAGE_SIZE;
+		final long end = Math.min((long) endPage * PAGE_SIZE, length);
+		if (begin >= end)
+			return endPage;
+
+		final FileChannel source = sourceFile.getChannel();
+		final FileChannel destination = targetFile.getChannel();
+		destination.position(begin);
+
+		long position = begin;
+		while (position < end) {
+			final long copied = source.transferTo(position, end - position, destination);
+			if (copied <= 0) {
+				// THE SOURCE IS SHORTER THAN EXPECTED: FILL THE REST WITH ZEROES
+				destination.write(ByteBuffer.allocate((int) (end - position)), position);
+				break;
+			}
+			position += copied;
+		}
+
+		bytesCopied += end - begin;
+		return endPage;
+	}
+}
@@ -24,27 +24,37 @@ import com.orientechnologies.orient.core.OConstants;
 
 /**
  * Need to be synchronized by the external. Multiple Reader, Single Writer.<br/>
+ * Uses positional I/O on the file channel: the data area starts after the header, as for OFileMMap. The file grows in place by
+ * the increment size, and the new extent is filled on disk at growth time.<br/>
  * Header structure:<br/>
  * <br/>
  * +-----------+--------------+---------------+---------------+<br/>
  * | FILE SIZE | FILLED UP TO | SOFTLY CLOSED | SECURITY CODE |<br/>
- * | 8 bytes . | 8 bytes .... | 1 byte ...... | 32 bytes .... |<br/>
+ * | 4 bytes . | 4 bytes .... | 1 byte ...... | 32 bytes .... |<br/>
  * +-----------+--------------+---------------+---------------+<br/>
  * = 1024 bytes<br/>
  * <br/>
  */
 public class OFileClassic extends OFile {
-	protected ByteBuffer	internalWriteBuffer	= getBuffer(OConstants.SIZE_LONG);
+	private static final int											PREALLOCATION_CHUNK	= 64 * 1024;
+
+	// SMALL DIRECT BUFFERS REUSED BY EVERY FILE: A THREAD USES ONLY ONE AT A TIME
+	private static final ThreadLocal<ByteBuffer>	buffers							= new ThreadLocal<ByteBuffer>();
 
 	public OFileClassic(String iFileName, String iMode) throws IOException {
 		super(iFileName, iMode);
 	}
 
+	@Override
+	public void create(final int iStartSize) throws IOException {
+		super.create(iStartSize);
+		preallocate(size);
+	}
+
 	@Override
 	public void close() throws IOException {
-		setSoftlyClosed(true);
-		if (internalWriteBuffer != null)
-			internalWriteBuffer = null;
+		if (channel != null && channel.isOpen())
+			setSoftlyClosed(true);
 
 		super.close();
 	}
@@ -53,8 +63,8 @@ public class OFileClassic extends OFile {
 	public void read(int iOffset, byte[] iDestBuffer, int iLenght) throws IOException {
 		iOffset = checkRegions(iOffset, iLenght);
 
-		ByteBuffer buffer = ByteBuffer.wrap(iDestBuffer);
-		channel.read(buffer, iOffset);
+		final ByteBuffer buffer = ByteBuffer.wrap(iDestBuffer, 0, iLenght);
+		readFully(buffer, iOffset);
 	}
 
 	@Override
@@ -84,32 +94,36 @@ public class OFileClassic extends OFile {
 	@Override
 	public void writeInt(int iOffset, int iValue) throws IOException {
 		iOffset = checkRegions(iOffset, OConstants.SIZE_INT);
-		ByteBuffer buffer = getWriteBuffer(OConstants.SIZE_INT);
+		final ByteBuffer buffer = getBuffer();
 		buffer.putInt(iValue);
+		buffer.flip();
 		writeData(buffer, iOffset);
 	}
 
 	@Override
 	public void writeLong(int iOffset, long iValue) throws IOException {
 		iOffset = checkRegions(iOffset, OConstants.SIZE_LONG);
-		ByteBuffer buffer = getWriteBuffer(OConstants.SIZE_LONG);
+		final ByteBuffer buffer = getBuffer();
 		buffer.putLong(iValue);
+		buffer.flip();
 		writeData(buffer, iOffset);
 	}
 
 	@Override
 	public void writeShort(int iOffset, short iValue) throws IOException {
-		iOffset = checkRegions(iOffset, OConstants.SIZE_INT);
-		ByteBuffer buffer = getWriteBuffer(OConstants.SIZE_SHORT);
+		iOffset = checkRegions(iOffset, OConstants.SIZE_SHORT);
+		final ByteBuffer buffer = getBuffer();
 		buffer.putShort(iValue);
+		buffer.flip();
 		writeData(buffer, iOffset);
 	}
 
 	@Override
 	public void writeByte(int iOffset, byte iValue) throws IOException {
 		iOffset = checkRegions(iOffset, OConstants.SIZE_BYTE);
-		ByteBuffer buffer = getWriteBuffer(OConstants.SIZE_BYTE);
+		final ByteBuffer buffer = getBuffer();
 		buffer.put(iValue);
+		buffer.flip();
 		writeData(buffer, iOffset);
 	}
 
@@ -117,16 +131,18 @@ public class OFileClassic extends OFile {
 	public void write(int iOffset, byte[] iSourceBuffer) throws IOException {
 		iOffset = checkRegions(iOffset, iSourceBuffer.length);
 
-		channel.write(ByteBuffer.wrap(iSourceBuffer), iOffset);
+		writeData(ByteBuffer.wrap(iSourceBuffer), iOffset);
 	}
 
+	/**
+	 * Grows the file in place: the channel stays open and the new extent is written at once.
+	 */
 	@Override
-	public void changeSize(int iSize) {
+	public void changeSize(final int iSize) {
 		super.changeSize(iSize);
 		try {
-			channel.force(false);
-			channel.close();
-			openChannel(iSize);
+			preallocate(iSize);
+			size = iSize;
 
 		} catch (IOException e) {
 			OLogManager.instance().error(this, "Error on changing the file size to " + iSize + " bytes", e, OIOException.class);
@@ -134,25 +150,38 @@ public class OFileClassic extends OFile {
 	}
 
 	/**
-	 * Do nothing. Use OFileSecure to be assure the file is saved
-	 * 
-	 * @see OFileMMapSecure
+	 * Forces the content of the file to the disk.
 	 */
 	@Override
 	public void synch() {
+		try {
+			channel.force(false);
+		} catch (IOException e) {
+			OLogManager.instance().error(this, "Error on synch of file " + osFile.getAbsolutePath(), e, OIOException.class);
+		}
+	}
+
+	@Override
+	protected int checkRegions(final int iOffset, final int iLenght) {
+		return super.checkRegions(iOffset, iLenght) + HEADER_SIZE;
 	}
 
 	@Override
 	protected void readHeader() throws IOException {
-		size = readData(0, OConstants.SIZE_INT).getInt();
-		filledUpTo = readData(OConstants.SIZE_INT, OConstants.SIZE_INT).getInt();
+		final ByteBuffer buffer = getBuffer();
+		buffer.limit(OConstants.SIZE_INT * 2);
+		readFully(buffer, 0);
+		buffer.flip();
+		size = buffer.getInt();
+		filledUpTo = buffer.getInt();
 	}
 
 	@Override
 	protected void writeHeader() throws IOException {
-		ByteBuffer buffer = getWriteBuffer(OConstants.SIZE_INT * 2);
+		final ByteBuffer buffer = getBuffer();
 		buffer.putInt(size);
 		buffer.putInt(filledUpTo);
+		buffer.flip();
 		writeData(buffer, 0);
 	}
 
@@ -163,33 +192,71 @@ public class OFileClassic extends OFile {
 
 	@Override
 	protected void setSoftlyClosed(boolean iValue) throws IOException {
-		ByteBuffer buffer = getWriteBuffer(OConstants.SIZE_BYTE);
+		final ByteBuffer buffer = getBuffer();
 		buffer.put((byte) (iValue ? 1 : 0));
+		buffer.flip();
 		writeData(buffer, SOFTLY_CLOSED_OFFSET);
 		synch();
 	}
 
-	private ByteBuffer readData(int iOffset, int iSize) throws IOException {
-		ByteBuffer buffer = getBuffer(iSize);
-		channel.read(buffer, iOffset);
-		buffer.rewind();
-		return buffer;
+	/**
+	 * Fills the file with zeros up to the end of the data area of iSize bytes, so the space is reserved on disk and later writes
+	 * don't change the file length.
+	 */
+	private void preallocate(final int iSize) throws IOException {
+		long position = accessFile.length();
+		final long end = (long) HEADER_SIZE + iSize;
+		if (position >= end)
+			return;
+
+		final ByteBuffer zeros = ByteBuffer.allocateDirect((int) Math.min(PREALLOCATION_CHUNK, end - position));
+		while (position < end) {
+			zeros.clear();
+			if (end - position < zeros.capacity())
+				zeros.limit((int) (end - position));
+			while (zeros.hasRemaining())
+				position += channel.write(zeros, position);
+		}
+
+		// THE NEW LENGTH IS METADATA: FORCE IT NOW, THEN synch() NEEDS TO FLUSH ONLY THE CONTENT
+		channel.force(true);
 	}
 
-	private void writeData(ByteBuffer iBuffer, int iOffset) throws IOException {
-		iBuffer.rewind();
-		channel.write(iBuffer, iOffset);
+	private ByteBuffer readData(final int iOffset, final int iSize) throws IOException {
+		final ByteBuffer buffer = getBuffer();
+		buffer.limit(iSize);
+		readFully(buffer, iOffset);
+		buffer.flip();
+		return buffer;
 	}
 
-	private ByteBuffer getBuffer(int iLenght) {
-		return ByteBuffer.allocate(iLenght);
+	private void readFully(final ByteBuffer iBuffer, final int iOffset) throws IOException {
+		int position = iOffset;
+		int read;
+		while (iBuffer.hasRemaining()) {
+			read = channel.read(iBuffer, position);
+			if (read < 0)
+				throw new OIOException("End of file reached reading " + iBuffer.remaining() + " bytes at offset " + position + ". "
+						+ toString());
+			position += read;
+		}
 	}
 
-	private ByteBuffer getWriteBuffer(int iLenght) {
-		if (iLenght <= OConstants.SIZE_LONG)
-			// RECYCLE WRITE BYTE BUFFER SINCE WRITES ARE SYNCHRONIZED
-			return (ByteBuffer) internalWriteBuffer.rewind();
+	private void writeData(final ByteBuffer iBuffer, final int iOffset) throws IOException {
+		beforeWrite(iOffset, iBuffer.remaining());
 
-		return getBuffer(iLenght);
+		int position = iOffset;
+		while (iBuffer.hasRemaining())
+			position += channel.write(iBuffer, position);
+	}
+
+	private static ByteBuffer getBuffer() {
+		ByteBuffer buffer = buffers.get();
+		if (buffer == null) {
+			buffer = ByteBuffer.allocateDirect(OConstants.SIZE_LONG);
+			buffers.set(buffer);
+		} else
+			buffer.clear();
+		return buffer;
 	}
 }
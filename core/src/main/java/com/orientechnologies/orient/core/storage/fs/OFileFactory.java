@@ -20,13 +20,23 @@ import java.io.IOException;
 public class OFileFactory {
 	public static final String	MMAP		= "mmap";
 	public static final String	CLASSIC	= "classic";
+	public static final String	PAGED		= "paged";
 
 	public enum TYPE {
-		MMAP, CLASSIC,
+		MMAP, CLASSIC, PAGED,
 	}
 
 	public static OFile create(TYPE iType, String iFileName, String iOpenMode) throws IOException {
-		return create(iType.toString(), iFileName, iOpenMode);
+		switch (iType) {
+		case MMAP:
+			return create(MMAP, iFileName, iOpenMode);
+		case CLASSIC:
+			return create(CLASSIC, iFileName, iOpenMode);
+		case PAGED:
+			return create(PAGED, iFileName, iOpenMode);
+		}
+
+		throw new IllegalArgumentException("Type " + iType + " not supported");
 	}
 
 	public static OFile create(String iType, String iFileName, String iOpenMode) throws IOException {
@@ -34,6 +44,8 @@ public class OFileFactory {
 			return new OFileMMap(iFileName, iOpenMode);
 		else if (iType.equals(CLASSIC))
 			return new OFileClassic(iFileName, iOpenMode);
+		else if (iType.equals(PAGED))
+			return new OFilePaged(iFileName, iOpenMode);
 
 		throw new IllegalArgumentException("Type " + iType + " not supported");
 	}
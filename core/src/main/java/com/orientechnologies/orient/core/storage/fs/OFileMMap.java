@@ -49,8 +49,11 @@ public class OFileMMap extends OFile {
 		iOffset = checkRegions(iOffset, iLenght);
 
 		final OMMapBufferEntry entry = OMMapManager.request(this, iOffset, iLenght);
-		entry.buffer.position(iOffset - entry.beginOffset);
-		entry.buffer.get(iDestBuffer, 0, iLenght);
+		// THE BUFFER POSITION IS SHARED BETWEEN THE CONCURRENT READERS
+		synchronized (entry.buffer) {
+			entry.buffer.position(iOffset - entry.beginOffset);
+			entry.buffer.get(iDestBuffer, 0, iLenght);
+		}
 	}
 
 	@Override
@@ -84,6 +87,7 @@ public class OFileMMap extends OFile {
 	@Override
 	public void writeInt(int iOffset, final int iValue) {
 		iOffset = checkRegions(iOffset, OConstants.SIZE_INT);
+		beforeWrite(iOffset + HEADER_SIZE, OConstants.SIZE_INT);
 		final OMMapBufferEntry entry = OMMapManager.request(this, iOffset, OConstants.SIZE_INT);
 		entry.buffer.putInt(iOffset - entry.beginOffset, iValue);
 	}
@@ -91,6 +95,7 @@ public class OFileMMap extends OFile {
 	@Override
 	public void writeLong(int iOffset, final long iValue) {
 		iOffset = checkRegions(iOffset, OConstants.SIZE_LONG);
+		beforeWrite(iOffset + HEADER_SIZE, OConstants.SIZE_LONG);
 		final OMMapBufferEntry entry = OMMapManager.request(this, iOffset, OConstants.SIZE_LONG);
 		entry.buffer.putLong(iOffset - entry.beginOffset, iValue);
 	}
@@ -98,6 +103,7 @@ public class OFileMMap extends OFile {
 	@Override
 	public void writeShort(int iOffset, final short iValue) {
 		iOffset = checkRegions(iOffset, OConstants.SIZE_SHORT);
+		beforeWrite(iOffset + HEADER_SIZE, OConstants.SIZE_SHORT);
 		final OMMapBufferEntry entry = OMMapManager.request(this, iOffset, OConstants.SIZE_SHORT);
 		entry.buffer.putShort(iOffset - entry.beginOffset, iValue);
 	}
@@ -105,6 +111,7 @@ public class OFileMMap extends OFile {
 	@Override
 	public void writeByte(int iOffset, final byte iValue) {
 		iOffset = checkRegions(iOffset, OConstants.SIZE_BYTE);
+		beforeWrite(iOffset + HEADER_SIZE, OConstants.SIZE_BYTE);
 		final OMMapBufferEntry entry = OMMapManager.request(this, iOffset, OConstants.SIZE_BYTE);
 		entry.buffer.put(iOffset - entry.beginOffset, iValue);
 	}
@@ -112,11 +119,14 @@ public class OFileMMap extends OFile {
 	@Override
 	public void write(int iOffset, final byte[] iSourceBuffer) {
 		iOffset = checkRegions(iOffset, iSourceBuffer.length);
+		beforeWrite(iOffset + HEADER_SIZE, iSourceBuffer.length);
 
 		try {
 			final OMMapBufferEntry entry = OMMapManager.request(this, iOffset, OConstants.SIZE_INT + iSourceBuffer.length);
-			entry.buffer.position(iOffset - entry.beginOffset);
-			entry.buffer.put(iSourceBuffer);
+			synchronized (entry.buffer) {
+				entry.buffer.position(iOffset - entry.beginOffset);
+				entry.buffer.put(iSourceBuffer);
+			}
 		} catch (BufferOverflowException e) {
 			OLogManager.instance()
 					.error(this, "Error on write in the range " + iOffset + "-" + iOffset + iSourceBuffer.length + "." + toString(), e,
@@ -165,6 +175,7 @@ public class OFileMMap extends OFile {
 
 	@Override
 	protected void writeHeader() {
+		beforeWrite(0, OConstants.SIZE_INT * 2);
 		headerBuffer.rewind();
 		headerBuffer.putInt(size);
 		headerBuffer.putInt(filledUpTo);
@@ -206,6 +217,7 @@ public class OFileMMap extends OFile {
 		if (headerBuffer == null)
 			return;
 
+		beforeWrite(SOFTLY_CLOSED_OFFSET, OConstants.SIZE_BYTE);
 		headerBuffer.put(SOFTLY_CLOSED_OFFSET, (byte) (iValue ? 1 : 0));
 		synch();
 	}
@@ -0,0 +1,314 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage.fs;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.orientechnologies.common.io.OIOException;
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.OConstants;
+
+/**
+ * File whose data area is accessed through the application managed page cache of OPageCacheManager, instead of the OS page cache
+ * used by OFileMMap. The memory used is bounded by the cache budget. Header, growth and synch are inherited by OFileClassic: synch()
+ * writes back the changed pages before forcing the channel.<br/>
+ * Need to be synchronized by the external. Multiple Reader, Single Writer.
+ */
+public class OFilePaged extends OFileClassic {
+	private static final int						PAGE_SIZE	= OPageCacheManager.PAGE_SIZE;
+
+	// PAGES IN CACHE BY INDEX, GUARDED BY OPageCacheManager
+	final Map<Integer, OPageCacheEntry>	pages			= new HashMap<Integer, OPageCacheEntry>();
+
+	public OFilePaged(String iFileName, String iMode) throws IOException {
+		super(iFileName, iMode);
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (channel != null && channel.isOpen())
+			OPageCacheManager.release(this);
+
+		super.close();
+	}
+
+	@Override
+	public void read(final int iOffset, final byte[] iDestBuffer, final int iLenght) throws IOException {
+		readPages(checkRegions(iOffset, iLenght) - HEADER_SIZE, iDestBuffer, iLenght);
+	}
+
+	@Override
+	public int readInt(int iOffset) throws IOException {
+		iOffset = checkRegions(iOffset, OConstants.SIZE_INT) - HEADER_SIZE;
+		final int inPage = iOffset % PAGE_SIZE;
+		if (inPage + OConstants.SIZE_INT > PAGE_SIZE)
+			return readAcrossPages(iOffset, OConstants.SIZE_INT).getInt();
+
+		final OPageCacheEntry entry = OPageCacheManager.pin(this, iOffset / PAGE_SIZE);
+		try {
+			return entry.buffer.getInt(inPage);
+		} finally {
+			OPageCacheManager.unpin(entry);
+		}
+	}
+
+	@Override
+	public long readLong(int iOffset) throws IOException {
+		iOffset = checkRegions(iOffset, OConstants.SIZE_LONG) - HEADER_SIZE;
+		final int inPage = iOffset % PAGE_SIZE;
+		if (inPage + OConstants.SIZE_LONG > PAGE_SIZE)
+			return readAcrossPages(iOffset, OConstants.SIZE_LONG).getLong();
+
+		final OPageCacheEntry entry = OPageCacheManager.pin(this, iOffset / PAGE_SIZE);
+		try {
+			return entry.buffer.getLong(inPage);
+		} finally {
+			OPageCacheManager.unpin(entry);
+		}
+	}
+
+	@Override
+	public short readShort(int iOffset) throws IOException {
+		iOffset = checkRegions(iOffset, OConstants.SIZE_SHORT) - HEADER_SIZE;
+		final int inPage = iOffset % PAGE_SIZE;
+		if (inPage + OConstants.SIZE_SHORT > PAGE_SIZE)
+			return readAcrossPages(iOffset, OConstants.SIZE_SHORT).getShort();
+
+		final OPageCacheEntry entry = OPageCacheManager.pin(this, iOffset / PAGE_SIZE);
+		try {
+			return entry.buffer.getShort(inPage);
+		} finally {
+			OPageCacheManager.unpin(entry);
+		}
+	}
+
+	@Override
+	public byte readByte(int iOffset) throws IOException {
+		iOffset = checkRegions(iOffset, OConstants.SIZE_BYTE) - HEADER_SIZE;
+
+		final OPageCacheEntry entry = OPageCacheManager.pin(this, iOffset / PAGE_SIZE);
+		try {
+			return entry.buffer.get(iOffset % PAGE_SIZE);
+		} finally {
+			OPageCacheManager.unpin(entry);
+		}
+	}
+
+	@Override
+	public void writeInt(int iOffset, final int iValue) throws IOException {
+		iOffset = checkRegions(iOffset, OConstants.SIZE_INT) - HEADER_SIZE;
+		final int inPage = iOffset % PAGE_SIZE;
+		if (inPage + OConstants.SIZE_INT > PAGE_SIZE) {
+			writeAcrossPages(iOffset, ByteBuffer.allocate(OConstants.SIZE_INT).putInt(iValue).array());
+			return;
+		}
+
+		beforeWrite(iOffset + HEADER_SIZE, OConstants.SIZE_INT);
+		final OPageCacheEntry entry = OPageCacheManager.pin(this, iOffset / PAGE_SIZE);
+		try {
+			synchronized (entry) {
+				entry.buffer.putInt(inPage, iValue);
+				entry.dirty = true;
+			}
+		} finally {
+			OPageCacheManager.unpin(entry);
+		}
+	}
+
+	@Override
+	public void writeLong(int iOffset, final long iValue) throws IOException {
+		iOffset = checkRegions(iOffset, OConstants.SIZE_LONG) - HEADER_SIZE;
+		final int inPage = iOffset % PAGE_SIZE;
+		if (inPage + OConstants.SIZE_LONG > PAGE_SIZE) {
+			writeAcrossPages(iOffset, ByteBuffer.allocate(OConstants.SIZE_LONG).putLong(iValue).array());
+			return;
+		}
+
+		beforeWrite(iOffset + HEADER_SIZE, OConstants.SIZE_LONG);
+		final OPageCacheEntry entry = OPageCacheManager.pin(this, iOffset / PAGE_SIZE);
+		try {
+			synchronized (entry) {
+				entry.buffer.putLong(inPage, iValue);
+				entry.dirty = true;
+			}
+		} finally {
+			OPageCacheManager.unpin(entry);
+		}
+	}
+
+	@Override
+	public void writeShort(int iOffset, final short iValue) throws IOException {
+		iOffset = checkRegions(iOffset, OConstants.SIZE_SHORT) - HEADER_SIZE;
+		final int inPage = iOffset % PAGE_SIZE;
+		if (inPage + OConstants.SIZE_SHORT > PAGE_SIZE) {
+			writeAcrossPages(iOffset, ByteBuffer.allocate(OConstants.SIZE_SHORT).putShort(iValue).array());
+			return;
+		}
+
+		beforeWrite(iOffset + HEADER_SIZE, OConstants.SIZE_SHORT);
+		final OPageCacheEntry entry = OPageCacheManager.pin(this, iOffset / PAGE_SIZE);
+		try {
+			synchronized (entry) {
+				entry.buffer.putShort(inPage, iValue);
+				entry.dirty = true;
+			}
+		} finally {
+			OPageCacheManager.unpin(entry);
+		}
+	}
+
+	@Override
+	public void writeByte(int iOffset, final byte iValue) throws IOException {
+		iOffset = checkRegions(iOffset, OConstants.SIZE_BYTE) - HEADER_SIZE;
+
+		beforeWrite(iOffset + HEADER_SIZE, OConstants.SIZE_BYTE);
+		final OPageCacheEntry entry = OPageCacheManager.pin(this, iOffset / PAGE_SIZE);
+		try {
+			synchronized (entry) {
+				entry.buffer.put(iOffset % PAGE_SIZE, iValue);
+				entry.dirty = true;
+			}
+		} finally {
+			OPageCacheManager.unpin(entry);
+		}
+	}
+
+	@Override
+	public void write(int iOffset, final byte[] iSourceBuffer) throws IOException {
+		iOffset = checkRegions(iOffset, iSourceBuffer.length) - HEADER_SIZE;
+		writeAcrossPages(iOffset, iSourceBuffer);
+	}
+
+	/**
+	 * Writes back the changed pages, then forces the content of the file to the disk.
+	 */
+	@Override
+	public void synch() {
+		try {
+			OPageCacheManager.flush(this);
+		} catch (IOException e) {
+			OLogManager.instance().error(this, "Error on writing back the pages of file " + osFile.getAbsolutePath(), e,
+					OIOException.class);
+		}
+		super.synch();
+	}
+
+	/**
+	 * Writes back the changed pages before starting the backup, since it copies the file from the disk.
+	 */
+	@Override
+	public OFileBackup startBackup(final File iTarget, final boolean iIncremental) throws IOException {
+		OPageCacheManager.flush(this);
+		return super.startBackup(iTarget, iIncremental);
+	}
+
+	/**
+	 * Loads the page content from the disk. The part of the page beyond the end of the file is zeroed.
+	 */
+	void readPage(final OPageCacheEntry iEntry) throws IOException {
+		final ByteBuffer buffer = iEntry.buffer;
+		buffer.clear();
+
+		final long position = HEADER_SIZE + (long) iEntry.pageIndex * PAGE_SIZE;
+		final long available = accessFile.length() - position;
+		if (available > 0) {
+			if (available < PAGE_SIZE)
+				buffer.limit((int) available);
+
+			int read;
+			while (buffer.hasRemaining()) {
+				read = channel.read(buffer, position + buffer.position());
+				if (read < 0)
+					break;
+			}
+			buffer.limit(PAGE_SIZE);
+		}
+
+		while (buffer.hasRemaining())
+			buffer.put((byte) 0);
+	}
+
+	/**
+	 * Writes the page content to the disk, up to the end of the data area.
+	 */
+	void writePage(final OPageCacheEntry iEntry) throws IOException {
+		final long position = HEADER_SIZE + (long) iEntry.pageIndex * PAGE_SIZE;
+		final long length = Math.min(PAGE_SIZE, HEADER_SIZE + (long) size - position);
+		if (length <= 0)
+			return;
+
+		final ByteBuffer buffer = iEntry.buffer.duplicate();
+		buffer.position(0);
+		buffer.limit((int) length);
+		while (buffer.hasRemaining())
+			channel.write(buffer, position + buffer.position());
+	}
+
+	private void readPages(final int iOffset, final byte[] iDestBuffer, final int iLenght) {
+		OPageCacheEntry entry;
+		int inPage;
+		int chunk;
+		for (int done = 0; done < iLenght; done += chunk) {
+			inPage = (iOffset + done) % PAGE_SIZE;
+			chunk = Math.min(iLenght - done, PAGE_SIZE - inPage);
+
+			entry = OPageCacheManager.pin(this, (iOffset + done) / PAGE_SIZE);
+			try {
+				// THE BUFFER POSITION IS SHARED BETWEEN THE CONCURRENT READERS
+				synchronized (entry) {
+					entry.buffer.position(inPage);
+					entry.buffer.get(iDestBuffer, done, chunk);
+				}
+			} finally {
+				OPageCacheManager.unpin(entry);
+			}
+		}
+	}
+
+
+	private ByteBuffer readAcrossPages(final int iOffset, final int iLength) {
+		final byte[] content = new byte[iLength];
+		readPages(iOffset, content, iLength);
+		return ByteBuffer.wrap(content);
+	}
+
+	private void writeAcrossPages(final int iOffset, final byte[] iSourceBuffer) throws IOException {
+		beforeWrite(iOffset + HEADER_SIZE, iSourceBuffer.length);
+
+		OPageCacheEntry entry;
+		int inPage;
+		int chunk;
+		for (int done = 0; done < iSourceBuffer.length; done += chunk) {
+			inPage = (iOffset + done) % PAGE_SIZE;
+			chunk = Math.min(iSourceBuffer.length - done, PAGE_SIZE - inPage);
+
+			entry = OPageCacheManager.pin(this, (iOffset + done) / PAGE_SIZE);
+			try {
+				synchronized (entry) {
+					entry.buffer.position(inPage);
+					entry.buffer.put(iSourceBuffer, done, chunk);
+					entry.dirty = true;
+				}
+			} finally {
+				OPageCacheManager.unpin(entry);
+			}
+		}
+	}
+}
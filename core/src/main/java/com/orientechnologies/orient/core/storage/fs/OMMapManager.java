@@ -22,6 +22,8 @@ import java.util.LinkedList;
 import com.orientechnologies.common.io.OIOException;
 import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.common.profiler.OProfiler;
+import com.orientechnologies.common.profiler.OProfilerCounter;
+import com.orientechnologies.common.profiler.OProfilerHistogram;
 
 public class OMMapManager {
 	public static final int											DEF_BLOCK_SIZE	= 1500000;
@@ -33,6 +35,10 @@ public class OMMapManager {
 
 	private static LinkedList<OMMapBufferEntry>	buffersLRU			= new LinkedList<OMMapBufferEntry>();
 
+	private static final OProfilerCounter				COUNTER_USE			= OProfiler.getInstance().registerCounter("OMMapManager.usePage");
+	private static final OProfilerCounter				COUNTER_LOAD		= OProfiler.getInstance().registerCounter("OMMapManager.loadPage");
+	private static final OProfilerHistogram			CHRONO_LOAD			= OProfiler.getInstance().registerChrono("OMMapManager.loadPage");
+
 	public static OMMapBufferEntry request(final OFileMMap iFile, final int iBeginOffset, final int iSize) {
 		return request(iFile, iBeginOffset, iSize, false);
 	}
@@ -43,7 +49,7 @@ public class OMMapManager {
 			// SEARCH THE REQUESTED RANGE IN CACHED BUFFERS
 			for (OMMapBufferEntry e : buffersLRU) {
 				if (iFile.equals(e.file) && iBeginOffset >= e.beginOffset && iBeginOffset + iSize <= e.beginOffset + e.size) {
-					OProfiler.getInstance().updateStatistic("OMMapManager.usePage", 1);
+					COUNTER_USE.increment();
 					// FOUND: USE IT
 					return e;
 				}
@@ -109,12 +115,12 @@ public class OMMapManager {
 	}
 
 	static OMMapBufferEntry mapBuffer(final OFileMMap iFile, final int iBeginOffset, final int iSize) throws IOException {
-		OProfiler.getInstance().updateStatistic("OMMapManager.loadPage", 1);
-		long timer = OProfiler.getInstance().startChrono();
+		COUNTER_LOAD.increment();
+		final long timer = OProfiler.getInstance().startChrono();
 		try {
 			return new OMMapBufferEntry(iFile, iFile.map(iBeginOffset, iSize), iBeginOffset, iSize);
 		} finally {
-			OProfiler.getInstance().stopChrono("OMMapManager.loadPage", timer);
+			CHRONO_LOAD.stop(timer);
 		}
 	}
 
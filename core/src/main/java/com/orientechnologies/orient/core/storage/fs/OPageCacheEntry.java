@@ -0,0 +1,43 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage.fs;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Page of an OFilePaged file held in a frame of the OPageCacheManager arena. The content is accessed by synchronizing on the
+ * entry; the pin counter is incremented under the manager lock and can be decremented without it. The entry is available before
+ * its content is loaded: the threads that pin it wait until it's loaded.
+ */
+public class OPageCacheEntry {
+	OFilePaged					file;
+	int									pageIndex;
+	ByteBuffer					buffer;
+	int									frame;
+	final AtomicInteger	pin	= new AtomicInteger();
+	boolean							dirty;
+	volatile boolean		loaded;
+	IOException					loadError;
+
+	public OPageCacheEntry(final OFilePaged iFile, final int iPageIndex, final ByteBuffer iBuffer, final int iFrame) {
+		file = iFile;
+		pageIndex = iPageIndex;
+		buffer = iBuffer;
+		frame = iFrame;
+	}
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage.fs;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import com.orientechnologies.common.io.OIOException;
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.profiler.OProfiler;
+import com.orientechnologies.common.profiler.OProfilerCounter;
+import com.orientechnologies.common.profiler.OProfilerHistogram;
+
+/**
+ * Page cache shared by all the OFilePaged files. Pages of fixed size are read through the file channel into frames of a single
+ * off-heap arena, whose size is the memory budget. A page is pinned while it's accessed and only unpinned pages are evicted, in LRU
+ * order. Changed pages are written back by a background timer, on eviction and on OFilePaged.synch().<br/>
+ * Settings:<br/>
+ * - orient.file.paged.pageSize: page size in bytes (default 64Kb)<br/>
+ * - orient.file.paged.maxMemory: arena size in bytes (default 64Mb)<br/>
+ * - orient.file.paged.flushInterval: milliseconds between two background write-backs, 0 to disable (default 1000)
+ */
+public class OPageCacheManager {
+	public static final int																			PAGE_SIZE				= Integer.getInteger("orient.file.paged.pageSize", 65536);
+	public static final int																			MAX_MEMORY			= Integer.getInteger("orient.file.paged.maxMemory", 67108864);
+	public static final int																			FLUSH_INTERVAL	= Integer.getInteger("orient.file.paged.flushInterval", 1000);
+
+	private static final int																		FRAMES					= Math.max(MAX_MEMORY / PAGE_SIZE, 1);
+
+	private static ByteBuffer																		arena;
+	private static ByteBuffer[]																	frames;
+	private static int																					framesUsed;
+	private static final List<Integer>													freeFrames			= new ArrayList<Integer>();
+
+	// ACCESS ORDERED: THE FIRST ENTRY IS THE LEAST RECENTLY USED
+	private static final LinkedHashMap<OPageCacheEntry, Object>	pagesLRU				= new LinkedHashMap<OPageCacheEntry, Object>(16, 0.75f,
+																																								true);
+
+	private static final Timer																	flushTimer			= new Timer("OrientDB Page Cache Write-back", true);
+
+	private static final OProfilerCounter												COUNTER_USE			= OProfiler.getInstance().registerCounter(
+																																								"OPageCacheManager.usePage");
+	private static final OProfilerCounter												COUNTER_LOAD		= OProfiler.getInstance().registerCounter(
+																																								"OPageCacheManager.loadPage");
+	private static final OProfilerCounter												COUNTER_UNLOAD	= OProfiler.getInstance().registerCounter(
+																																								"OPageCacheManager.unloadPage");
+	private static final OProfilerHistogram											CHRONO_LOAD			= OProfiler.getInstance().registerChrono(
+																																								"OPageCacheManager.loadPage");
+	private static final OProfilerHistogram											CHRONO_FLUSH		= OProfiler.getInstance().registerChrono(
+																																								"OPageCacheManager.flushPage");
+
+	static {
+		if (PAGE_SIZE < 8 || PAGE_SIZE % 8 != 0)
+			throw new IllegalArgumentException("Invalid page size " + PAGE_SIZE + ": must be a multiple of 8 bytes");
+
+		if (FLUSH_INTERVAL > 0)
+			flushTimer.schedule(new TimerTask() {
+				@Override
+				public void run() {
+					try {
+						flush(null);
+					} catch (Exception e) {
+						OLogManager.instance().error(this, "Error on background write-back of the page cache", e);
+					}
+				}
+			}, FLUSH_INTERVAL, FLUSH_INTERVAL);
+	}
+
+	/**
+	 * Returns the requested page pinned, loading it if it's not in cache. Every call must be followed by unpin(). The page is read
+	 * from the disk outside the manager lock: the other threads that pin it meanwhile wait until it's loaded.
+	 */
+	public static OPageCacheEntry pin(final OFilePaged iFile, final int iPageIndex) {
+		OPageCacheEntry entry;
+		boolean created = false;
+		synchronized (OPageCacheManager.class) {
+			entry = iFile.pages.get(iPageIndex);
+			if (entry != null) {
+				COUNTER_USE.increment();
+				// TOUCH IT TO MOVE IT AT THE END OF THE LRU
+				pagesLRU.get(entry);
+				entry.pin.incrementAndGet();
+			} else {
+				// RESERVE THE PAGE: THE FRAME CAN'T BE EVICTED UNTIL IT'S UNPINNED
+				final int frame = allocateFrame();
+				entry = new OPageCacheEntry(iFile, iPageIndex, frames[frame], frame);
+				entry.pin.set(1);
+				iFile.pages.put(iPageIndex, entry);
+				pagesLRU.put(entry, null);
+				created = true;
+			}
+		}
+
+		if (created)
+			load(entry);
+		else if (!entry.loaded)
+			waitForLoad(entry);
+
+		return entry;
+	}
+
+	public static void unpin(final OPageCacheEntry iEntry) {
+		iEntry.pin.decrementAndGet();
+	}
+
+	/**
+	 * Writes back the changed pages of a file, or of all the files if iFile is null.
+	 */
+	public static void flush(final OFilePaged iFile) throws IOException {
+		final List<OPageCacheEntry> dirtyPages = new ArrayList<OPageCacheEntry>();
+		synchronized (OPageCacheManager.class) {
+			for (OPageCacheEntry entry : iFile != null ? iFile.pages.values() : pagesLRU.keySet())
+				if (entry.dirty)
+					dirtyPages.add(entry);
+		}
+
+		// WRITE OUTSIDE THE MANAGER LOCK: EVERY PAGE IS LOCKED WHILE WRITTEN
+		for (OPageCacheEntry entry : dirtyPages)
+			writeBack(entry);
+	}
+
+	/**
+	 * Writes back and removes from the cache all the pages of a file. Called on close.
+	 */
+	public synchronized static void release(final OFilePaged iFile) throws IOException {
+		for (OPageCacheEntry entry : iFile.pages.values()) {
+			writeBack(entry);
+			pagesLRU.remove(entry);
+			freeFrames.add(entry.frame);
+			entry.buffer = null;
+		}
+		iFile.pages.clear();
+	}
+
+	private static int allocateFrame() {
+		if (!freeFrames.isEmpty())
+			return freeFrames.remove(freeFrames.size() - 1);
+
+		if (arena == null) {
+			// RESERVE THE WHOLE BUDGET AT THE FIRST USAGE
+			arena = ByteBuffer.allocateDirect(FRAMES * PAGE_SIZE);
+			frames = new ByteBuffer[FRAMES];
+		}
+
+		if (framesUsed < FRAMES) {
+			final int frame = framesUsed++;
+			arena.limit((frame + 1) * PAGE_SIZE);
+			arena.position(frame * PAGE_SIZE);
+			frames[frame] = arena.slice();
+			return frame;
+		}
+
+		// EVICT THE LEAST RECENTLY USED PAGE NOT PINNED
+		OPageCacheEntry entry;
+		for (Iterator<OPageCacheEntry> it = pagesLRU.keySet().iterator(); it.hasNext();) {
+			entry = it.next();
+			if (entry.pin.get() == 0) {
+				try {
+					writeBack(entry);
+				} catch (IOException e) {
+					throw new OIOException("Can't write back the page " + entry.pageIndex + " of file " + entry.file, e);
+				}
+
+				it.remove();
+				entry.file.pages.remove(entry.pageIndex);
+				entry.buffer = null;
+
+				COUNTER_UNLOAD.increment();
+				return entry.frame;
+			}
+		}
+
+		throw new OIOException("Page cache exhausted: all the " + FRAMES
+				+ " pages are pinned. Increase the memory with the setting 'orient.file.paged.maxMemory'");
+	}
+
+	/**
+	 * Reads the content of a new page and wakes up the threads waiting for it. If the read fails the page is removed from the cache
+	 * and its frame is freed.
+	 */
+	private static void load(final OPageCacheEntry iEntry) {
+		COUNTER_LOAD.increment();
+		final long timer = OProfiler.getInstance().startChrono();
+
+		IOException error = null;
+		try {
+			iEntry.file.readPage(iEntry);
+		} catch (IOException e) {
+			error = e;
+		} finally {
+			CHRONO_LOAD.stop(timer);
+		}
+
+		if (error != null)
+			synchronized (OPageCacheManager.class) {
+				iEntry.file.pages.remove(iEntry.pageIndex);
+				pagesLRU.remove(iEntry);
+				freeFrames.add(iEntry.frame);
+			}
+
+		synchronized (iEntry) {
+			iEntry.loadError = error;
+			iEntry.loaded = true;
+			iEntry.notifyAll();
+		}
+
+		if (error != null)
+			throw new OIOException("Can't load the page " + iEntry.pageIndex + " of file " + iEntry.file, error);
+	}
+
+	/**
+	 * Waits until the page is loaded by the thread that put it in the cache.
+	 */
+	private static void waitForLoad(final OPageCacheEntry iEntry) {
+		boolean interrupted = false;
+		synchronized (iEntry) {
+			while (!iEntry.loaded)
+				try {
+					iEntry.wait();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+		}
+
+		if (interrupted)
+			Thread.currentThread().interrupt();
+
+		if (iEntry.loadError != null)
+			throw new OIOException("Can't load the page " + iEntry.pageIndex + " of file " + iEntry.file, iEntry.loadError);
+	}
+
+	private static void writeBack(final OPageCacheEntry iEntry) throws IOException {
+		synchronized (iEntry) {
+			if (!iEntry.dirty || iEntry.buffer == null)
+				return;
+
+			final long timer = OProfiler.getInstance().startChrono();
+			try {
+				iEntry.file.writePage(iEntry);
+				iEntry.dirty = false;
+			} finally {
+				CHRONO_FLUSH.stop(timer);
+			}
+		}
+	}
+}
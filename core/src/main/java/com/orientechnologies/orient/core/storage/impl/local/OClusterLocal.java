@@ -38,7 +38,7 @@ import com.orientechnologies.orient.core.storage.fs.OFile;
  */
 public class OClusterLocal extends OMultiFileSegment implements OCluster {
 	private static final String				DEF_EXTENSION	= ".ocl";
-	private static final int					RECORD_SIZE		= 15;
+	static final int									RECORD_SIZE		= 15;
 	private static final int					DEF_SIZE			= 1000000;
 	public static final String				TYPE					= "PHYSICAL";
 
@@ -200,6 +200,70 @@ public class OClusterLocal extends OMultiFileSegment implements OCluster {
 		}
 	}
 
+	/**
+	 * Reserves iCount contiguous positions at the end of the cluster, without reusing the holes. The positions are written as
+	 * deleted, until they are set by {@link #setPhysicalPositions(long, byte[])}.
+	 * 
+	 * @return The first position reserved
+	 * @throws IOException
+	 */
+	public long reservePositions(final int iCount) throws IOException {
+		try {
+			acquireExclusiveLock();
+
+			final int[] pos = allocateSpace(iCount * RECORD_SIZE);
+
+			// SET THE VERSION TO -1 IN ALL THE ENTRIES
+			final byte[] entries = new byte[iCount * RECORD_SIZE];
+			for (int i = RECORD_SIZE - OConstants.SIZE_INT; i < entries.length; i += RECORD_SIZE)
+				entries[i] = entries[i + 1] = entries[i + 2] = entries[i + 3] = (byte) 0xFF;
+			files[pos[0]].write(pos[1], entries);
+
+			return getAbsolutePosition(pos) / RECORD_SIZE;
+
+		} finally {
+			releaseExclusiveLock();
+		}
+	}
+
+	/**
+	 * Writes the entries of contiguous positions reserved by {@link #reservePositions(int)} at once.
+	 * 
+	 * @param iPosition
+	 *          First position to write
+	 * @param iEntries
+	 *          The entries, each one made by data segment id, data position, record type and version
+	 * @throws IOException
+	 */
+	public void setPhysicalPositions(final long iPosition, final byte[] iEntries) throws IOException {
+		try {
+			acquireExclusiveLock();
+
+			final int[] pos = getRelativePosition(iPosition * RECORD_SIZE);
+			files[pos[0]].write(pos[1], iEntries);
+
+		} finally {
+			releaseExclusiveLock();
+		}
+	}
+
+	/**
+	 * Gives back the positions reserved but not used, from iFrom included to iTo excluded, as holes.
+	 * 
+	 * @throws IOException
+	 */
+	public void releasePositions(final long iFrom, final long iTo) throws IOException {
+		try {
+			acquireExclusiveLock();
+
+			for (long position = iFrom; position < iTo; ++position)
+				holeSegment.pushPosition(position * RECORD_SIZE);
+
+		} finally {
+			releaseExclusiveLock();
+		}
+	}
+
 	public boolean removeHole(long iPosition) throws IOException {
 		return holeSegment.removeEntryWithPosition(iPosition);
 	}
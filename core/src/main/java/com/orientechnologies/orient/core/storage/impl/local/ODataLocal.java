@@ -95,6 +95,28 @@ public class ODataLocal extends OMultiFileSegment {
 		}
 	}
 
+	/**
+	 * Add in file many records at once. The buffer contains the records already in the file format, one after the other.
+	 * 
+	 * @param iRecords
+	 *          The records to write
+	 * @return The offset of the first record.
+	 * @throws IOException
+	 */
+	public long addRecords(final byte[] iRecords) throws IOException {
+		try {
+			acquireExclusiveLock();
+
+			final int[] newFilePosition = allocateSpace(iRecords.length);
+			files[newFilePosition[0]].write(newFilePosition[1], iRecords);
+
+			return getAbsolutePosition(newFilePosition);
+
+		} finally {
+			releaseExclusiveLock();
+		}
+	}
+
 	/**
 	 * Returns the record content from file.
 	 * 
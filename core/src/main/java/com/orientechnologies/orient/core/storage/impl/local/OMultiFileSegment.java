@@ -15,7 +15,11 @@
  */
 package com.orientechnologies.orient.core.storage.impl.local;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 import com.orientechnologies.common.io.OFileUtils;
 import com.orientechnologies.common.log.OLogManager;
@@ -26,9 +30,20 @@ import com.orientechnologies.orient.core.exception.OStorageException;
 import com.orientechnologies.orient.core.storage.fs.OFile;
 import com.orientechnologies.orient.core.storage.fs.OFileFactory;
 
+/**
+ * Segment made of multiple files, filled one after the other. Allocation works on the current append file and falls back to a scan
+ * of the files only when it's full. When the last file is filled over the threshold set by "orient.segment.preallocate" (percent of
+ * the file max size, default 80, 0 to disable), the next file is created and preallocated in background and deleted on close if
+ * still unused. The configuration is rewritten on synch(): files not yet registered are found and registered on open.
+ */
 public class OMultiFileSegment extends OSegment {
+	private static final int								PREALLOCATE_THRESHOLD	= Integer.getInteger("orient.segment.preallocate", 80);
+
 	protected OStorageSegmentConfiguration	config;
-	protected OFile[]												files	= new OFile[0];
+	protected OFile[]												files									= new OFile[0];
+	private int															appendFile;
+	private volatile FutureTask<OFile>			nextFile;
+	private volatile boolean								configChanged;
 	private String													fileExtension;
 	private String													type;
 	private long														maxSize;
@@ -78,6 +93,19 @@ public class OMultiFileSegment extends OSegment {
 				files[i].setMaxSize(perFileMaxSize);
 				files[i].setIncrementSize(fileIncrementSize);
 			}
+
+			// REGISTER THE FILES CREATED AFTER THE LAST CONFIGURATION UPDATE
+			for (File f = getNewFilePath(files.length); f.exists(); f = getNewFilePath(files.length)) {
+				OLogManager.instance().warn(this, "Segment file " + f.getName() + " was not registered in configuration: adding it");
+				final OFile file = OFileFactory.create(type, f.getPath(), iStorage.getMode());
+				file.setMaxSize(fileMaxSize);
+				file.setIncrementSize(fileIncrementSize);
+				appendNewFile(file);
+			}
+
+			// START FROM THE FIRST FILE: THE RECORD POSITIONS EXPECT THE FILES TO BE FILLED IN ORDER, SO THE FIRST ALLOCATION MOVES TO
+			// THE FIRST FILE WITH FREE SPACE
+			appendFile = 0;
 		}
 	}
 
@@ -100,8 +128,10 @@ public class OMultiFileSegment extends OSegment {
 	 * @throws IOException
 	 */
 	public void create(final int iStartSize) throws IOException {
-		files = new OFile[1];
-		createNewFile();
+		files = new OFile[0];
+		appendNewFile(createNewFile(0));
+		appendFile = 0;
+		configChanged = false;
 	}
 
 	public void close() throws IOException {
@@ -113,6 +143,11 @@ public class OMultiFileSegment extends OSegment {
 					file.close();
 			}
 
+			// THE FILE PREALLOCATED IN BACKGROUND IS NOT REGISTERED YET: DELETE IT, OTHERWISE THE NEXT OPEN WOULD REGISTER IT
+			final OFile spare = getPreallocatedFile();
+			if (spare != null)
+				spare.delete();
+
 		} finally {
 			releaseExclusiveLock();
 		}
@@ -127,6 +162,10 @@ public class OMultiFileSegment extends OSegment {
 					file.delete();
 			}
 
+			final OFile spare = getPreallocatedFile();
+			if (spare != null)
+				spare.delete();
+
 		} finally {
 			releaseExclusiveLock();
 		}
@@ -144,6 +183,25 @@ public class OMultiFileSegment extends OSegment {
 		} finally {
 			releaseSharedLock();
 		}
+
+		// WRITE THE NEW FILES IN CONFIGURATION OUT OF THE SEGMENT LOCK: THE UPDATE COULD WRITE IN THIS SEGMENT
+		updateConfiguration();
+	}
+
+	/**
+	 * Writes the configuration if files were added since the last update.
+	 */
+	void updateConfiguration() {
+		if (!configChanged)
+			return;
+
+		try {
+			configChanged = false;
+			config.root.update();
+		} catch (IOException e) {
+			configChanged = true;
+			OLogManager.instance().error(this, "Error on updating the configuration of segment " + name, e, OStorageException.class);
+		}
 	}
 
 	public long getFilledUpTo() {
@@ -186,14 +244,23 @@ public class OMultiFileSegment extends OSegment {
 	protected int[] allocateSpace(final int iRecordSize) throws IOException {
 		// TODO: RECYCLE THE HOLES IF ANY
 
+		// USE THE APPEND FILE IF IT HAS ENOUGH FREE SPACE
+		OFile file = files[appendFile];
+		if (file.getFreeSpace() >= iRecordSize) {
+			final int[] position = new int[] { appendFile, file.allocateSpace(iRecordSize) };
+			checkPreallocation(file);
+			return position;
+		}
+
 		// IT'S PREFEREABLE TO FIND SPACE WITHOUT ENLARGE ANY FILES: FIND THE FIRST FILE WITH FREE SPACE TO USE
-		OFile file;
 		for (int i = 0; i < files.length; ++i) {
 			file = files[i];
 
-			if (file.getFreeSpace() >= iRecordSize)
+			if (file.getFreeSpace() >= iRecordSize) {
 				// FOUND: RETURN THIS OFFSET
+				appendFile = i;
 				return new int[] { i, file.allocateSpace(iRecordSize) };
+			}
 		}
 
 		// NOT FOUND: CHECK IF CAN OVERSIZE SOME FILES
@@ -202,7 +269,10 @@ public class OMultiFileSegment extends OSegment {
 
 			if (file.canOversize(iRecordSize)) {
 				// FOUND SPACE: ENLARGE IT
-				return new int[] { i, file.allocateSpace(iRecordSize) };
+				appendFile = i;
+				final int[] position = new int[] { i, file.allocateSpace(iRecordSize) };
+				checkPreallocation(file);
+				return position;
 			}
 		}
 
@@ -212,19 +282,17 @@ public class OMultiFileSegment extends OSegment {
 			throw new OStorageException("Unable to allocate the requested space of " + iRecordSize
 					+ " bytes because the segment is full: max-Size=" + maxSize + ", currentSize=" + getFilledUpTo());
 
-		// COPY THE OLD ARRAY TO THE NEW ONE
-		OFile[] newFiles = new OFile[files.length + 1];
-		for (int i = 0; i < files.length; ++i)
-			newFiles[i] = files[i];
-		files = newFiles;
+		// USE THE FILE PREALLOCATED IN BACKGROUND, IF ANY, OTHERWISE CREATE IT NOW
+		file = getPreallocatedFile();
+		if (file == null)
+			file = createNewFile(files.length);
 
-		// CREATE THE NEW FILE AND PUT IT AS LAST OF THE ARRAY
-		file = createNewFile();
-		file.allocateSpace(iRecordSize);
+		appendNewFile(file);
+		appendFile = files.length - 1;
 
-		config.root.update();
+		file.allocateSpace(iRecordSize);
 
-		return new int[] { files.length - 1, 0 };
+		return new int[] { appendFile, 0 };
 	}
 
 	/**
@@ -261,34 +329,96 @@ public class OMultiFileSegment extends OSegment {
 		return new int[] { fileNum, fileRec };
 	}
 
-	private OFile createNewFile() throws IOException {
-		final int num = files.length - 1;
+	/**
+	 * Starts the creation of the next file in background when the last file is filled over the threshold.
+	 */
+	private void checkPreallocation(final OFile iFile) {
+		if (PREALLOCATE_THRESHOLD <= 0 || nextFile != null || appendFile < files.length - 1
+				|| iFile.getFilledUpTo() < (long) fileMaxSize * PREALLOCATE_THRESHOLD / 100)
+			return;
+
+		if (maxSize > 0 && getSize() + fileStartSize > maxSize)
+			return;
+
+		final int num = files.length;
+		final FutureTask<OFile> task = new FutureTask<OFile>(new Callable<OFile>() {
+			public OFile call() throws Exception {
+				return createNewFile(num);
+			}
+		});
+		nextFile = task;
 
-		final OFile file = OFileFactory.create(type, storage.getStoragePath() + "/" + name + "." + num + fileExtension,
-				storage.getMode());
-		file.setMaxSize((int) OFileUtils.getSizeAsNumber(config.fileMaxSize));
-		file.create(fileStartSize);
-		files[num] = file;
+		final Thread thread = new Thread(task, "OrientDB Segment Preallocator");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Returns the file created in background, waiting for it if it's not ready yet, or null if none was started.
+	 */
+	private OFile getPreallocatedFile() throws IOException {
+		final FutureTask<OFile> task = nextFile;
+		if (task == null)
+			return null;
 
-		addInfoFileConfigEntry(file);
+		nextFile = null;
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			throw new OStorageException("Interrupted while waiting for the creation of a new file of segment " + name, e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			throw new OStorageException("Error on creating a new file of segment " + name, e.getCause());
+		}
+	}
 
+	private File getNewFilePath(final int iNum) {
+		return new File(storage.getVariableParser().resolveVariables(
+				storage.getStoragePath() + "/" + name + "." + iNum + fileExtension));
+	}
+
+	private OFile createNewFile(final int iNum) throws IOException {
+		final OFile file = OFileFactory.create(type, getNewFilePath(iNum).getPath(), storage.getMode());
+		file.setMaxSize(fileMaxSize);
+		file.setIncrementSize(fileIncrementSize);
+		file.create(fileStartSize);
 		return file;
 	}
 
-	private void addInfoFileConfigEntry(final OFile file) throws IOException {
+	/**
+	 * Adds the file as last of the segment and registers it in the configuration. The configuration is written on the next synch().
+	 */
+	private void appendNewFile(final OFile iFile) {
+		final OFile[] newFiles = new OFile[files.length + 1];
+		System.arraycopy(files, 0, newFiles, 0, files.length);
+		newFiles[files.length] = iFile;
+		files = newFiles;
+
+		addInfoFileConfigEntry(iFile);
+		configChanged = true;
+	}
+
+	private void addInfoFileConfigEntry(final OFile file) {
 		OStorageFileConfiguration[] newConfigFiles = new OStorageFileConfiguration[config.infoFiles.length + 1];
 		for (int i = 0; i < config.infoFiles.length; ++i)
 			newConfigFiles[i] = config.infoFiles[i];
-		config.infoFiles = newConfigFiles;
 
 		// CREATE A NEW ENTRY FOR THE NEW FILE
 		String fileNameToStore = storage.getVariableParser().convertPathToRelative(OFileUtils.getPath(file.getOsFile().getPath()));
 
-		config.infoFiles[config.infoFiles.length - 1] = new OStorageFileConfiguration(config, fileNameToStore, config.fileType,
+		newConfigFiles[newConfigFiles.length - 1] = new OStorageFileConfiguration(config, fileNameToStore, config.fileType,
 				config.fileMaxSize, config.fileIncrementSize);
+
+		// PUBLISH THE ARRAY ONLY WHEN COMPLETE
+		config.infoFiles = newConfigFiles;
 	}
 
 	public OStorageSegmentConfiguration getConfig() {
 		return config;
 	}
+
+	OFile[] getFiles() {
+		return files;
+	}
 }
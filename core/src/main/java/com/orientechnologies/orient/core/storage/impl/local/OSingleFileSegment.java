@@ -100,4 +100,8 @@ public class OSingleFileSegment extends OSharedResourceAdaptiveLinked {
 	public OStorageFileConfiguration getConfig() {
 		return config;
 	}
+
+	OFile getFile() {
+		return file;
+	}
 }
@@ -16,17 +16,27 @@
 package com.orientechnologies.orient.core.storage.impl.local;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
+import java.util.UUID;
 
 import com.orientechnologies.common.io.OFileUtils;
 import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.common.parser.OSystemVariableResolver;
 import com.orientechnologies.common.profiler.OProfiler;
+import com.orientechnologies.common.profiler.OProfilerHistogram;
 import com.orientechnologies.common.util.OArrays;
 import com.orientechnologies.orient.core.command.OCommandExecutor;
 import com.orientechnologies.orient.core.command.OCommandManager;
@@ -56,10 +66,18 @@ import com.orientechnologies.orient.core.storage.ORawBuffer;
 import com.orientechnologies.orient.core.storage.ORecordBrowsingListener;
 import com.orientechnologies.orient.core.storage.OStorage;
 import com.orientechnologies.orient.core.storage.OStorageAbstract;
+import com.orientechnologies.orient.core.storage.fs.OFile;
+import com.orientechnologies.orient.core.storage.fs.OFileBackup;
 import com.orientechnologies.orient.core.tx.OTransaction;
 
 public class OStorageLocal extends OStorageAbstract {
 	public static final String[]					TYPES							= { OClusterLocal.TYPE, OClusterLogical.TYPE };
+	public static final String						BACKUP_INFO				= "backup.properties";
+
+	private static final OProfilerHistogram	CHRONO_CREATE			= OProfiler.getInstance().registerChrono("OStorageLocal.createRecord");
+	private static final OProfilerHistogram	CHRONO_READ				= OProfiler.getInstance().registerChrono("OStorageLocal.readRecord");
+	private static final OProfilerHistogram	CHRONO_UPDATE			= OProfiler.getInstance().registerChrono("OStorageLocal.updateRecord");
+	private static final OProfilerHistogram	CHRONO_DELETE			= OProfiler.getInstance().registerChrono("OStorageLocal.deleteRecord");
 
 	// private final OLockManager<String, String> lockManager = new OLockManager<String, String>();
 	protected final Map<String, OCluster>	clusterMap				= new LinkedHashMap<String, OCluster>();
@@ -71,6 +89,14 @@ public class OStorageLocal extends OStorageAbstract {
 	private OStorageVariableParser				variableParser;
 	private int														defaultClusterId	= -1;
 
+	// THE CHANGED PAGES ARE TRACKED IN MEMORY: AN INCREMENTAL BACKUP IS POSSIBLE ONLY ON THE LAST BACKUP OF THE SAME INSTANCE
+	private final Object									backupLock				= new Object();
+	private final String									backupId					= UUID.randomUUID().toString();
+	private int														backupSequence		= 0;
+
+	private OStorageLocalBulkLoader				bulkLoader;
+	private int														bulkLoadUsers			= 0;
+
 	public OStorageLocal(final String iName, final String iFilePath, final String iMode) throws IOException {
 		super(iName, iFilePath, iMode);
 
@@ -230,6 +256,19 @@ public class OStorageLocal extends OStorageAbstract {
 			return;
 
 		try {
+			if (bulkLoader != null) {
+				bulkLoader.close();
+				bulkLoader = null;
+				bulkLoadUsers = 0;
+			}
+
+			// REGISTER IN CONFIGURATION THE SEGMENT FILES CREATED SINCE THE LAST SYNCH
+			for (OCluster cluster : clusters)
+				if (cluster instanceof OMultiFileSegment)
+					((OMultiFileSegment) cluster).updateConfiguration();
+			for (ODataLocal data : dataSegments)
+				data.updateConfiguration();
+
 			for (OCluster cluster : clusters)
 				if (cluster != null)
 					cluster.close();
@@ -397,8 +436,11 @@ public class OStorageLocal extends OStorageAbstract {
 					throw new OConfigurationException("Cluster id " + iClusterIds[i] + "was not found");
 
 				c = clusters[iClusterIds[i]];
-				if (c != null)
+				if (c != null) {
 					tot += c.getEntries();
+					if (bulkLoader != null)
+						tot -= bulkLoader.getReservedPositions(c.getId());
+				}
 			}
 
 			return tot;
@@ -452,6 +494,9 @@ public class OStorageLocal extends OStorageAbstract {
 		final boolean locked = acquireSharedLock();
 
 		try {
+			if (bulkLoader != null)
+				return clusters[iClusterId].getEntries() - bulkLoader.getReservedPositions(iClusterId);
+
 			return clusters[iClusterId].getEntries();
 
 		} catch (IOException e) {
@@ -477,10 +522,129 @@ public class OStorageLocal extends OStorageAbstract {
 		return readRecord(iRequesterId, getClusterById(iClusterId), iPosition, true);
 	}
 
+	/**
+	 * Reads a range of records acquiring the storage and the cluster locks only once. The physical positions are read first, then the
+	 * records are read from the data segments sorted by offset to keep the I/O sequential.
+	 */
+	@Override
+	public ORawBuffer[] readRecords(final int iRequesterId, final int iClusterId, final long iFromPosition, final int iCount) {
+		if (iFromPosition < 0)
+			throw new IllegalArgumentException("Can't read the records because the position #" + iFromPosition + " is invalid");
+
+		checkOpeness();
+
+		final long timer = OProfiler.getInstance().startChrono();
+
+		final boolean locked = acquireSharedLock();
+
+		final OCluster cluster = getClusterById(iClusterId);
+		try {
+			// FLUSH BEFORE LOCKING THE CLUSTER: THE FLUSH ACQUIRES THE CLUSTER LOCK IN EXCLUSIVE MODE
+			if (bulkLoader != null)
+				bulkLoader.flush();
+
+			cluster.lock();
+			try {
+				final int count = (int) Math.max(0, Math.min(iCount, cluster.getLastEntryPosition() - iFromPosition + 1));
+
+				final OPhysicalPosition[] ppos = new OPhysicalPosition[count];
+				for (int i = 0; i < count; ++i)
+					ppos[i] = cluster.getPhysicalPosition(iFromPosition + i, new OPhysicalPosition());
+
+				return readRecords(ppos);
+
+			} finally {
+				cluster.unlock();
+			}
+
+		} catch (IOException e) {
+
+			OLogManager.instance().error(this, "Error on reading records from #" + iFromPosition + " in cluster: " + cluster, e,
+					OStorageException.class);
+			return null;
+
+		} finally {
+			releaseSharedLock(locked);
+
+			OProfiler.getInstance().stopChrono("OStorageLocal.readRecords", timer);
+		}
+	}
+
+	/**
+	 * Reads a set of records acquiring the storage lock only once. The records are read from the data segments sorted by offset to
+	 * keep the I/O sequential.
+	 */
+	@Override
+	public ORawBuffer[] readRecords(final int iRequesterId, final ORID[] iRecordIds) {
+		checkOpeness();
+
+		final long timer = OProfiler.getInstance().startChrono();
+
+		final boolean locked = acquireSharedLock();
+
+		try {
+			if (bulkLoader != null)
+				bulkLoader.flush();
+
+			final OPhysicalPosition[] ppos = new OPhysicalPosition[iRecordIds.length];
+			for (int i = 0; i < iRecordIds.length; ++i)
+				ppos[i] = getClusterById(iRecordIds[i].getClusterId()).getPhysicalPosition(iRecordIds[i].getClusterPosition(),
+						new OPhysicalPosition());
+
+			return readRecords(ppos);
+
+		} catch (IOException e) {
+
+			OLogManager.instance().error(this, "Error on reading records " + Arrays.toString(iRecordIds), e, OStorageException.class);
+			return null;
+
+		} finally {
+			releaseSharedLock(locked);
+
+			OProfiler.getInstance().stopChrono("OStorageLocal.readRecords", timer);
+		}
+	}
+
+	/**
+	 * Reads the records pointed by the physical positions, sorting them by data segment and offset. Deleted records are returned as
+	 * null.
+	 */
+	private ORawBuffer[] readRecords(final OPhysicalPosition[] iPositions) throws IOException {
+		final ORawBuffer[] buffers = new ORawBuffer[iPositions.length];
+
+		// SKIP THE DELETED RECORDS
+		final Integer[] order = new Integer[iPositions.length];
+		int found = 0;
+		for (int i = 0; i < iPositions.length; ++i)
+			if (iPositions[i] != null && checkForRecordValidity(iPositions[i]))
+				order[found++] = i;
+
+		// SORT BY DATA SEGMENT AND OFFSET
+		Arrays.sort(order, 0, found, new Comparator<Integer>() {
+			public int compare(final Integer o1, final Integer o2) {
+				final OPhysicalPosition p1 = iPositions[o1.intValue()];
+				final OPhysicalPosition p2 = iPositions[o2.intValue()];
+				if (p1.dataSegment != p2.dataSegment)
+					return p1.dataSegment < p2.dataSegment ? -1 : 1;
+				return p1.dataPosition < p2.dataPosition ? -1 : p1.dataPosition == p2.dataPosition ? 0 : 1;
+			}
+		});
+
+		OPhysicalPosition p;
+		for (int i = 0; i < found; ++i) {
+			p = iPositions[order[i].intValue()];
+			buffers[order[i].intValue()] = new ORawBuffer(getDataSegment(p.dataSegment).getRecord(p.dataPosition), p.version, p.type);
+		}
+
+		return buffers;
+	}
+
 	public int updateRecord(final int iRequesterId, final int iClusterId, final long iPosition, final byte[] iContent,
 			final int iVersion, final byte iRecordType) {
 		checkOpeness();
-		return updateRecord(iRequesterId, getClusterById(iClusterId), iPosition, iContent, iVersion, iRecordType);
+		final int version = updateRecord(iRequesterId, getClusterById(iClusterId), iPosition, iContent, iVersion, iRecordType);
+		checkForSchemaUpdate(iClusterId, iPosition);
+		return version;
 	}
 
 	public boolean deleteRecord(final int iRequesterId, final int iClusterId, final long iPosition, final int iVersion) {
@@ -672,12 +836,18 @@ public class OStorageLocal extends OStorageAbstract {
 		final boolean locked = acquireExclusiveLock();
 
 		try {
+			if (bulkLoader != null)
+				bulkLoader.flush();
+
 			for (OCluster cluster : clusters)
 				cluster.synch();
 
 			for (ODataLocal data : dataSegments)
 				data.synch();
 
+		} catch (IOException e) {
+			OLogManager.instance().error(this, "Error on synch of storage '" + name + "'", e, OStorageException.class);
+
 		} finally {
 			releaseExclusiveLock(locked);
 
@@ -685,6 +855,134 @@ public class OStorageLocal extends OStorageAbstract {
 		}
 	}
 
+	/**
+	 * Enters the bulk load mode. The records created in the physical clusters are appended in batches, without reusing the holes:
+	 * the cluster positions are reserved in blocks and the content of many records is written with one write. Calls can be nested:
+	 * the bulk load ends with the last call to {@link #endBulkLoad()}.
+	 */
+	public void beginBulkLoad() {
+		checkOpeness();
+
+		final boolean locked = acquireExclusiveLock();
+
+		try {
+			if (bulkLoadUsers++ == 0)
+				bulkLoader = new OStorageLocalBulkLoader(this);
+
+		} finally {
+			releaseExclusiveLock(locked);
+		}
+	}
+
+	/**
+	 * Exits the bulk load mode writing all the records still in memory, and synchronizes the storage once.
+	 */
+	public void endBulkLoad() {
+		checkOpeness();
+
+		final boolean locked = acquireExclusiveLock();
+
+		try {
+			if (bulkLoadUsers == 0 || --bulkLoadUsers > 0)
+				return;
+
+			bulkLoader.close();
+			bulkLoader = null;
+
+			synch();
+
+		} catch (IOException e) {
+			OLogManager.instance().error(this, "Error on ending the bulk load on storage '" + name + "'", e, OStorageException.class);
+
+		} finally {
+			releaseExclusiveLock(locked);
+		}
+	}
+
+	public boolean isBulkLoad() {
+		return bulkLoader != null;
+	}
+
+	/**
+	 * Copies all the files of the storage to a directory while the storage is in use. Writes are blocked only to synch the storage
+	 * and to mark the beginning of the backup: the copy contains the storage as it was in that moment. The directory can be opened
+	 * as a local storage with the same name.
+	 * 
+	 * @param iDirectory
+	 *          Target directory, created if not exists
+	 * @param iIncremental
+	 *          If true and the directory contains the last backup of the storage, only the file pages changed since that backup are
+	 *          copied. Otherwise all the files are copied
+	 * @return The bytes copied
+	 */
+	public long backup(final String iDirectory, final boolean iIncremental) {
+		checkOpeness();
+
+		final long timer = OProfiler.getInstance().startChrono();
+		final long time = System.currentTimeMillis();
+
+		final File directory = new File(iDirectory);
+		final File info = new File(directory, BACKUP_INFO);
+
+		synchronized (backupLock) {
+			final List<OFileBackup> backups = new ArrayList<OFileBackup>();
+			boolean completed = false;
+
+			try {
+				directory.mkdirs();
+
+				final boolean incremental = iIncremental && isLastBackup(info);
+
+				// THE DIRECTORY DOESN'T CONTAIN A VALID BACKUP UNTIL THE COPY IS COMPLETED
+				info.delete();
+
+				final boolean locked = acquireExclusiveLock();
+				try {
+					synch();
+
+					for (OFile file : getFiles())
+						backups.add(file.startBackup(new File(directory, file.getOsFile().getName()), incremental));
+
+				} finally {
+					releaseExclusiveLock(locked);
+				}
+
+				long copied = 0;
+				for (OFileBackup backup : backups) {
+					backup.copy();
+					copied += backup.getBytesCopied();
+				}
+
+				completed = true;
+
+				OLogManager.instance().info(this, "%s backup of storage '%s' to %s completed: %s copied in %dms",
+						incremental ? "Incremental" : "Full", name, directory, OFileUtils.getSizeAsString(copied),
+						System.currentTimeMillis() - time);
+
+				return copied;
+
+			} catch (IOException e) {
+				OLogManager.instance().error(this, "Error on backup of storage '" + name + "' to: " + iDirectory, e, OStorageException.class);
+				return -1;
+
+			} finally {
+				try {
+					for (OFileBackup backup : backups)
+						backup.close(completed);
+
+					if (completed)
+						writeBackupInfo(info);
+
+				} catch (IOException e) {
+					OLogManager.instance().error(this, "Error on closing the backup of storage '" + name + "' to: " + iDirectory, e,
+							OStorageException.class);
+				}
+
+				OProfiler.getInstance().stopChrono("OStorageLocal.backup", timer);
+			}
+		}
+	}
+
 	public String getPhysicalClusterNameById(final int iClusterId) {
 		checkOpeness();
 
@@ -843,6 +1141,10 @@ public class OStorageLocal extends OStorageAbstract {
 
 		try {
 			final int dataSegment = getDataSegmentForRecord(iClusterSegment, iContent);
+
+			if (bulkLoader != null && iClusterSegment instanceof OClusterLocal)
+				return bulkLoader.createRecord((OClusterLocal) iClusterSegment, dataSegment, iContent, iRecordType);
+
 			ODataLocal data = getDataSegment(dataSegment);
 
 			final long clusterPosition = iClusterSegment.addPhysicalPosition(-1, -1, iRecordType);
@@ -861,7 +1163,7 @@ public class OStorageLocal extends OStorageAbstract {
 		} finally {
 			releaseSharedLock(locked);
 
-			OProfiler.getInstance().stopChrono("OStorageLocal.createRecord", timer);
+			CHRONO_CREATE.stop(timer);
 		}
 	}
 
@@ -879,6 +1181,9 @@ public class OStorageLocal extends OStorageAbstract {
 		try {
 			// lockManager.acquireLock(iRequesterId, recId, LOCK.SHARED, timeout);
 
+			if (bulkLoader != null)
+				bulkLoader.flush();
+
 			final OPhysicalPosition ppos = iClusterSegment.getPhysicalPosition(iPosition, new OPhysicalPosition());
 			if (ppos == null || !checkForRecordValidity(ppos))
 				// DELETED
@@ -895,7 +1200,7 @@ public class OStorageLocal extends OStorageAbstract {
 		} finally {
 			releaseSharedLock(locked);
 
-			OProfiler.getInstance().stopChrono("OStorageLocal.readRecord", timer);
+			CHRONO_READ.stop(timer);
 		}
 	}
 
@@ -910,6 +1215,9 @@ public class OStorageLocal extends OStorageAbstract {
 		try {
 			// lockManager.acquireLock(iRequesterId, recId, LOCK.EXCLUSIVE, timeout);
 
+			if (bulkLoader != null)
+				bulkLoader.flush();
+
 			final OPhysicalPosition ppos = iClusterSegment.getPhysicalPosition(iPosition, new OPhysicalPosition());
 			if (!checkForRecordValidity(ppos))
 				// DELETED
@@ -943,7 +1251,7 @@ public class OStorageLocal extends OStorageAbstract {
 		} finally {
 			releaseSharedLock(locked);
 
-			OProfiler.getInstance().stopChrono("OStorageLocal.updateRecord", timer);
+			CHRONO_UPDATE.stop(timer);
 		}
 
 		return -1;
@@ -957,6 +1265,9 @@ public class OStorageLocal extends OStorageAbstract {
 		final boolean locked = acquireSharedLock();
 
 		try {
+			if (bulkLoader != null)
+				bulkLoader.flush();
+
 			final OPhysicalPosition ppos = iClusterSegment.getPhysicalPosition(iPosition, new OPhysicalPosition());
 
 			if (!checkForRecordValidity(ppos))
@@ -983,7 +1294,7 @@ public class OStorageLocal extends OStorageAbstract {
 		} finally {
 			releaseSharedLock(locked);
 
-			OProfiler.getInstance().stopChrono("OStorageLocal.deleteRecord", timer);
+			CHRONO_DELETE.stop(timer);
 		}
 
 		return false;
@@ -1014,7 +1325,7 @@ public class OStorageLocal extends OStorageAbstract {
 		final OCommandExecutor executor = OCommandManager.instance().getExecutor(iCommand);
 		executor.parse(iCommand);
 		try {
-			return executor.execute();
+			return executor.execute(iCommand.getParameters());
 		} catch (OCommandExecutionException e) {
 			// PASS THROUGHT
 			throw e;
@@ -1059,6 +1370,58 @@ public class OStorageLocal extends OStorageAbstract {
 		return dataSegments;
 	}
 
+	/**
+	 * Returns all the files of the storage: clusters, data segments with their hole files and the transaction log.
+	 */
+	private List<OFile> getFiles() {
+		final List<OFile> files = new ArrayList<OFile>();
+
+		for (OCluster cluster : clusters)
+			if (cluster instanceof OClusterLocal) {
+				files.addAll(Arrays.asList(((OClusterLocal) cluster).getFiles()));
+				files.add(((OClusterLocal) cluster).holeSegment.getFile());
+			}
+
+		for (ODataLocal data : dataSegments) {
+			files.addAll(Arrays.asList(data.getFiles()));
+			files.add(data.holeSegment.getFile());
+		}
+
+		files.add(txManager.getTxSegment().getFile());
+		return files;
+	}
+
+	private boolean isLastBackup(final File iInfo) throws IOException {
+		if (!iInfo.exists())
+			return false;
+
+		final Properties info = new Properties();
+		final InputStream in = new FileInputStream(iInfo);
+		try {
+			info.load(in);
+		} finally {
+			in.close();
+		}
+
+		return backupId.equals(info.getProperty("id")) && String.valueOf(backupSequence).equals(info.getProperty("sequence"));
+	}
+
+	private void writeBackupInfo(final File iInfo) throws IOException {
+		++backupSequence;
+
+		final Properties info = new Properties();
+		info.setProperty("storage", name);
+		info.setProperty("id", backupId);
+		info.setProperty("sequence", String.valueOf(backupSequence));
+
+		final OutputStream out = new FileOutputStream(iInfo);
+		try {
+			info.store(out, "OrientDB backup");
+		} finally {
+			out.close();
+		}
+	}
+
 	public OStorageLocalTxExecuter getTxManager() {
 		return txManager;
 	}
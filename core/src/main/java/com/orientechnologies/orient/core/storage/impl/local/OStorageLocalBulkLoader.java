@@ -0,0 +1,164 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage.impl.local;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.orientechnologies.orient.core.OConstants;
+
+/**
+ * Creates the records of the physical clusters in batches while the storage is in bulk load mode. The cluster positions are
+ * reserved in blocks, and the records are buffered in memory. Then the content of all the records is written in the data segment
+ * with one write, and the entries in the cluster with another one. The records are not visible until the batch is flushed, so the
+ * storage flushes all the batches before any other access to the records.
+ * 
+ * @author Luca Garulli
+ * 
+ */
+public class OStorageLocalBulkLoader {
+	private static final int								POSITIONS_BLOCK	= Integer.getInteger("orient.bulkLoad.positionsBlock", 4096);
+	private static final int								BATCH_SIZE			= Integer.getInteger("orient.bulkLoad.batchSize", 1024 * 1024);
+
+	private final OStorageLocal							storage;
+	private final Map<Integer, OClusterBatch>	batches					= new HashMap<Integer, OClusterBatch>();
+
+	public OStorageLocalBulkLoader(final OStorageLocal iStorage) {
+		storage = iStorage;
+	}
+
+	public synchronized long createRecord(final OClusterLocal iCluster, final int iDataSegmentId, final byte[] iContent,
+			final byte iRecordType) throws IOException {
+		OClusterBatch batch = batches.get(iCluster.getId());
+		if (batch == null) {
+			batch = new OClusterBatch(iCluster, iDataSegmentId);
+			batches.put(iCluster.getId(), batch);
+		} else if (batch.dataSegmentId != iDataSegmentId) {
+			batch.flush();
+			batch.dataSegmentId = iDataSegmentId;
+		}
+
+		return batch.add(iContent, iRecordType);
+	}
+
+	/**
+	 * Writes all the records buffered.
+	 */
+	public synchronized void flush() throws IOException {
+		for (OClusterBatch batch : batches.values())
+			batch.flush();
+	}
+
+	/**
+	 * Returns the positions reserved, but not used yet, by the cluster.
+	 */
+	public synchronized long getReservedPositions(final int iClusterId) {
+		final OClusterBatch batch = batches.get(iClusterId);
+		return batch != null ? batch.reservedEnd - batch.nextPosition : 0;
+	}
+
+	/**
+	 * Writes all the records buffered and gives back the positions reserved but not used.
+	 */
+	public synchronized void close() throws IOException {
+		for (OClusterBatch batch : batches.values()) {
+			batch.flush();
+			batch.cluster.releasePositions(batch.nextPosition, batch.reservedEnd);
+		}
+		batches.clear();
+	}
+
+	private class OClusterBatch {
+		private final OClusterLocal					cluster;
+		private int													dataSegmentId;
+
+		private long												reservedEnd;
+		private long												nextPosition;
+		private long												firstPosition;
+
+		private final ByteArrayOutputStream	data						= new ByteArrayOutputStream(BATCH_SIZE);
+		private final DataOutputStream			dataStream			= new DataOutputStream(data);
+		private final ByteArrayOutputStream	entries					= new ByteArrayOutputStream();
+		private final DataOutputStream			entriesStream		= new DataOutputStream(entries);
+
+		private OClusterBatch(final OClusterLocal iCluster, final int iDataSegmentId) {
+			cluster = iCluster;
+			dataSegmentId = iDataSegmentId;
+		}
+
+		private long add(final byte[] iContent, final byte iRecordType) throws IOException {
+			if (nextPosition == reservedEnd) {
+				// THE ENTRIES OF THE BATCH MUST BE CONTIGUOUS
+				flush();
+				cluster.releasePositions(nextPosition, reservedEnd);
+				nextPosition = firstPosition = cluster.reservePositions(POSITIONS_BLOCK);
+				reservedEnd = nextPosition + POSITIONS_BLOCK;
+			}
+
+			final long position = nextPosition++;
+
+			// CLUSTER ENTRY, WITH THE OFFSET IN THE BATCH UNTIL THE DATA IS WRITTEN
+			entriesStream.writeShort(dataSegmentId);
+			entriesStream.writeLong(data.size());
+			entriesStream.writeByte(iRecordType);
+			entriesStream.writeInt(0);
+
+			// DATA SEGMENT RECORD
+			dataStream.writeInt(iContent.length);
+			dataStream.writeShort(cluster.getId());
+			dataStream.writeLong(position);
+			dataStream.write(iContent);
+
+			if (data.size() >= BATCH_SIZE)
+				flush();
+
+			return position;
+		}
+
+		private void flush() throws IOException {
+			if (nextPosition == firstPosition)
+				return;
+
+			final long dataOffset = storage.getDataSegment(dataSegmentId).addRecords(data.toByteArray());
+
+			// MOVE THE OFFSETS OF THE RECORDS TO THE ABSOLUTE POSITION IN THE DATA SEGMENT
+			final byte[] buffer = entries.toByteArray();
+			for (int i = 0; i < buffer.length; i += OClusterLocal.RECORD_SIZE)
+				writeLong(buffer, i + OConstants.SIZE_SHORT, readLong(buffer, i + OConstants.SIZE_SHORT) + dataOffset);
+
+			cluster.setPhysicalPositions(firstPosition, buffer);
+
+			firstPosition = nextPosition;
+			data.reset();
+			entries.reset();
+		}
+	}
+
+	private static long readLong(final byte[] iBuffer, final int iOffset) {
+		long value = 0;
+		for (int i = 0; i < OConstants.SIZE_LONG; ++i)
+			value = value << 8 | (iBuffer[iOffset + i] & 0xFF);
+		return value;
+	}
+
+	private static void writeLong(final byte[] iBuffer, final int iOffset, final long iValue) {
+		for (int i = 0; i < OConstants.SIZE_LONG; ++i)
+			iBuffer[iOffset + i] = (byte) (iValue >>> (56 - i * 8));
+	}
+}
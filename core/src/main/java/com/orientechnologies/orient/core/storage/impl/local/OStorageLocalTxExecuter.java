@@ -15,10 +15,20 @@
  */
 package com.orientechnologies.orient.core.storage.impl.local;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.orient.core.config.OStorageTxConfiguration;
+import com.orientechnologies.orient.core.exception.OConcurrentModificationException;
 import com.orientechnologies.orient.core.exception.OTransactionException;
 import com.orientechnologies.orient.core.id.ORecordId;
 import com.orientechnologies.orient.core.record.ORecord;
@@ -28,9 +38,38 @@ import com.orientechnologies.orient.core.storage.ORawBuffer;
 import com.orientechnologies.orient.core.tx.OTransaction;
 import com.orientechnologies.orient.core.tx.OTransactionEntry;
 
+/**
+ * Commits the transactions against the local storage. The entries are committed in batch: the positions of the new records are
+ * reserved with one block per cluster, the contents are appended to the data segments with few big writes, the tx-log is written
+ * with one append and one synch and at the end the changes are applied to the clusters in order of position.
+ */
 public class OStorageLocalTxExecuter {
-	private final OStorageLocal	storage;
-	private final OTxSegment		txSegment;
+	private static final int										BATCH_SIZE					= Integer.getInteger("orient.tx.commitBatchSize", 1024 * 1024);
+
+	private static final Comparator<OTxRecord>	BY_DATA_SEGMENT			= new Comparator<OTxRecord>() {
+		public int compare(final OTxRecord o1, final OTxRecord o2) {
+			return o1.dataSegment - o2.dataSegment;
+		}
+	};
+
+	private static final Comparator<OTxRecord>	BY_DATA_POSITION		= new Comparator<OTxRecord>() {
+		public int compare(final OTxRecord o1, final OTxRecord o2) {
+			if (o1.ppos.dataSegment != o2.ppos.dataSegment)
+				return o1.ppos.dataSegment - o2.ppos.dataSegment;
+			return compareLongs(o1.ppos.dataPosition, o2.ppos.dataPosition);
+		}
+	};
+
+	private static final Comparator<OTxRecord>	BY_CLUSTER_POSITION	= new Comparator<OTxRecord>() {
+		public int compare(final OTxRecord o1, final OTxRecord o2) {
+			if (o1.rid.clusterId != o2.rid.clusterId)
+				return o1.rid.clusterId - o2.rid.clusterId;
+			return compareLongs(o1.rid.clusterPosition, o2.rid.clusterPosition);
+		}
+	};
+
+	private final OStorageLocal									storage;
+	private final OTxSegment										txSegment;
 
 	public OStorageLocalTxExecuter(final OStorageLocal iStorage, final OStorageTxConfiguration iConfig) throws IOException {
 		storage = iStorage;
@@ -52,140 +91,309 @@ public class OStorageLocalTxExecuter {
 		txSegment.close();
 	}
 
-	protected long createRecord(final int iRequesterId, final int iTxId, final OCluster iClusterSegment, final byte[] iContent,
-			final byte iRecordType) throws IOException {
-		long recordPosition = -1;
-
-		try {
-			// CREATE DATA SEGMENT. IF TX FAILS AT THIS POINT UN-REFERENCED DATA WILL REMAIN UNTIL NEXT DEFRAG
-			final int dataSegment = storage.getDataSegmentForRecord(iClusterSegment, iContent);
-			ODataLocal data = storage.dataSegments[dataSegment];
-			final long dataOffset = data.addRecord(-1, -1, iContent);
-
-			// REFERENCE IN THE CLUSTER THE DATA JUST CREATED. IF TX FAILS AT THIS POINT ???
-			// TODO
-			recordPosition = iClusterSegment.addPhysicalPosition(dataSegment, dataOffset, iRecordType);
+	public OTxSegment getTxSegment() {
+		return txSegment;
+	}
 
-			// SAVE INTO THE LOG THE POSITION OF THE RECORD JUST CREATED. IF TX FAILS AT THIS POINT ???
-			// TODO
-			txSegment.addLog(OTxSegment.OPERATION_CREATE, iRequesterId, iTxId, iClusterSegment.getId(), recordPosition, dataOffset);
+	protected void commitAllPendingRecords(final int iRequesterId, final OTransaction<?> iTx) throws IOException {
+		final Iterable<? extends OTransactionEntry<? extends ORecord<?>>> entries = iTx.getEntries();
+		final int size = entries instanceof Collection<?> ? ((Collection<?>) entries).size() : 10;
+
+		final List<OTxRecord> records = new ArrayList<OTxRecord>(size);
+		final Map<Integer, List<OTxRecord>> created = new HashMap<Integer, List<OTxRecord>>();
+		final List<OTxRecord> updated = new ArrayList<OTxRecord>();
+		final List<OTxRecord> deleted = new ArrayList<OTxRecord>();
+
+		// COLLECT THE ENTRIES AND CHECK THE VERSIONS BEFORE WRITING ANYTHING
+		OTxRecord record;
+		List<OTxRecord> clusterRecords;
+		for (OTransactionEntry<? extends ORecord<?>> txEntry : entries) {
+			if (txEntry.status == OTransactionEntry.LOADED || txEntry.status == OTransactionEntry.CREATED
+					&& txEntry.record.getIdentity().isValid())
+				continue;
+
+			record = new OTxRecord(txEntry);
+			records.add(record);
+
+			switch (txEntry.status) {
+			case OTransactionEntry.CREATED:
+				if (record.cluster instanceof OClusterLocal) {
+					clusterRecords = created.get(record.cluster.getId());
+					if (clusterRecords == null) {
+						clusterRecords = new ArrayList<OTxRecord>();
+						created.put(record.cluster.getId(), clusterRecords);
+					}
+					clusterRecords.add(record);
+				}
+				break;
+
+			case OTransactionEntry.UPDATED:
+				checkForUpdate(record);
+				updated.add(record);
+				break;
+
+			case OTransactionEntry.DELETED:
+				record.ppos = record.cluster.getPhysicalPosition(record.rid.clusterPosition, new OPhysicalPosition());
+				if (storage.checkForRecordValidity(record.ppos))
+					deleted.add(record);
+				else
+					// ALREADY DELETED: NOTHING TO WRITE
+					record.ppos = null;
+				break;
+			}
+		}
 
+		try {
+			commitRecords(iRequesterId, iTx.getId(), records, created, updated, deleted);
 		} catch (IOException e) {
 
-			OLogManager.instance().error(this, "Error on creating entry in log segment: " + iClusterSegment, e,
-					OTransactionException.class);
+			OLogManager.instance().error(this, "Error on committing transaction #" + iTx.getId(), e, OTransactionException.class);
 		}
 
-		return recordPosition;
-	}
-
-	protected int updateRecord(final int iRequesterId, final int iTxId, final OCluster iClusterSegment, final long iPosition,
-			final byte[] iContent, final int iVersion, final byte iRecordType) {
-		try {
-			// READ CURRENT RECORD CONTENT
-			final ORawBuffer buffer = storage.readRecord(iRequesterId, iClusterSegment, iPosition, true);
-
-			// CREATE A COPY OF IT IN DATASEGMENT. IF TX FAILS AT THIS POINT UN-REFERENCED DATA WILL REMAIN UNTIL NEXT DEFRAG
-			final long dataOffset = storage.getDataSegment(storage.getDataSegmentForRecord(iClusterSegment, buffer.buffer)).addRecord(-1,
-					-1, buffer.buffer);
+		// CLEAR ALL TEMPORARY RECORDS
+		txSegment.clearLogEntries(iRequesterId, iTx.getId());
 
-			// SAVE INTO THE LOG THE POSITION OF THE RECORD JUST DELETED. IF TX FAILS AT THIS POINT AS ABOVE
-			txSegment.addLog(OTxSegment.OPERATION_UPDATE, iRequesterId, iTxId, iClusterSegment.getId(), iPosition, dataOffset);
+		// UPDATE THE CACHE WITH ONE LOCK: THE RECORDS NOT IN CACHE ARE ADDED ONLY IF PINNED, THE DELETED ONES ARE REMOVED
+		final List<String> rids = new ArrayList<String>(records.size());
+		final List<ORawBuffer> contents = new ArrayList<ORawBuffer>(records.size());
+		final boolean[] add = new boolean[records.size()];
+		for (int i = 0; i < add.length; ++i) {
+			record = records.get(i);
+			rids.add(record.rid.toString());
+			if (record.stream != null) {
+				contents.add(new ORawBuffer(record.stream, record.entry.record.getVersion(), record.entry.record.getRecordType()));
+				add[i] = record.entry.record.isPinned();
+			} else
+				contents.add(null);
+		}
+		storage.getCache().updateRecords(rids, contents, add);
+	}
 
-			// UPDATE THE RECORD FOR REAL. IF TX FAILS AT THIS POINT CAN BE RECOVERED THANKS TO THE TX-LOG
-			return storage.updateRecord(iRequesterId, iClusterSegment, iPosition, iContent, iVersion, iRecordType);
-		} catch (IOException e) {
+	protected void rollback() {
+		// TODO
+	}
 
-			OLogManager.instance().error(this, "Error on updating entry #" + iPosition + " in log segment: " + iClusterSegment, e,
-					OTransactionException.class);
+	private void commitRecords(final int iRequesterId, final int iTxId, final List<OTxRecord> iRecords,
+			final Map<Integer, List<OTxRecord>> iCreated, final List<OTxRecord> iUpdated, final List<OTxRecord> iDeleted)
+			throws IOException {
+		// RESERVE THE POSITIONS OF THE NEW RECORDS WITH ONE BLOCK PER CLUSTER. THE IDENTITIES ARE ASSIGNED BEFORE THE SERIALIZATION, SO
+		// THE LINKS BETWEEN THE NEW RECORDS OF THE TRANSACTION ARE VALID
+		final List<OTxRecord> toWrite = new ArrayList<OTxRecord>(iRecords.size());
+		long position;
+		for (List<OTxRecord> clusterRecords : iCreated.values()) {
+			position = ((OClusterLocal) clusterRecords.get(0).cluster).reservePositions(clusterRecords.size());
+			for (OTxRecord record : clusterRecords) {
+				record.setPosition(position++);
+				toWrite.add(record);
+			}
 		}
-		return -1;
-	}
 
-	protected void deleteRecord(final int iRequesterId, final int iTxId, final OCluster iClusterSegment, final long iPosition,
-			final int iVersion) {
-		try {
-			// GET THE PPOS OF THE RECORD
-			OPhysicalPosition ppos = iClusterSegment.getPhysicalPosition(iPosition, new OPhysicalPosition());
+		// SERIALIZE THE RECORDS ONCE
+		final List<OTxRecord> createdLogical = new ArrayList<OTxRecord>();
+		for (OTxRecord record : iRecords) {
+			if (record.entry.status == OTransactionEntry.DELETED)
+				continue;
 
-			// SAVE INTO THE LOG THE POSITION OF THE RECORD JUST DELETED
-			txSegment.addLog(OTxSegment.OPERATION_DELETE, iRequesterId, iTxId, iClusterSegment.getId(), iPosition, ppos.dataPosition);
+			record.stream = record.entry.record.toStream();
 
-			// DELETE THE RECORD BUT LEAVING THE PPOS INTACT BUT THE VERSION = -1 TO RECOGNIZE THAT THE ENTRY HAS BEEN DELETED. IF TX
-			// FAILS AT THIS POINT CAN BE RECOVERED THANKS TO THE TX-LOG
-			iClusterSegment.removePhysicalPosition(iPosition, ppos);
-		} catch (IOException e) {
+			if (record.entry.status == OTransactionEntry.CREATED) {
+				record.data = record.stream;
+				record.dataSegment = storage.getDataSegmentForRecord(record.cluster, record.stream);
 
-			OLogManager.instance().error(this, "Error on deleting entry #" + iPosition + " in log segment: " + iClusterSegment, e,
-					OTransactionException.class);
+				if (!(record.cluster instanceof OClusterLocal)) {
+					// NO RESERVATION AVAILABLE: THE POSITION IS ASSIGNED ONCE THE DATA IS WRITTEN
+					createdLogical.add(record);
+					toWrite.add(record);
+				}
+			}
 		}
-	}
 
-	public OTxSegment getTxSegment() {
-		return txSegment;
-	}
+		// READ THE CURRENT CONTENT OF THE UPDATED RECORDS IN ORDER OF OFFSET, TO BE COPIED IN DATA SEGMENT AS BACKUP
+		Collections.sort(iUpdated, BY_DATA_POSITION);
+		for (OTxRecord record : iUpdated) {
+			record.data = storage.getDataSegment(record.ppos.dataSegment).getRecord(record.ppos.dataPosition);
+			record.dataSegment = storage.getDataSegmentForRecord(record.cluster, record.data);
+			toWrite.add(record);
+		}
 
-	protected void commitAllPendingRecords(final int iRequesterId, final OTransaction<?> iTx) throws IOException {
-		// COMMIT ALL THE SINGLE ENTRIES ONE BY ONE
-		for (OTransactionEntry<? extends ORecord<?>> txEntry : iTx.getEntries()) {
-			commitEntry(iRequesterId, iTx.getId(), txEntry);
+		// APPEND THE NEW RECORDS AND THE BACKUPS TO THE DATA SEGMENTS. IF TX FAILS AT THIS POINT UN-REFERENCED DATA WILL REMAIN UNTIL
+		// NEXT DEFRAG
+		writeData(toWrite);
+
+		// REFERENCE IN THE LOGICAL CLUSTERS THE DATA JUST CREATED
+		for (OTxRecord record : createdLogical)
+			record.setPosition(record.cluster.addPhysicalPosition(record.dataSegment, record.dataOffset,
+					record.entry.record.getRecordType()));
+
+		// SAVE INTO THE LOG ALL THE OPERATIONS AT ONCE. FROM NOW THE TX CAN BE RECOVERED THANKS TO THE TX-LOG
+		writeLog(iRequesterId, iTxId, iRecords);
+
+		// WRITE THE ENTRIES OF THE NEW RECORDS, ONE WRITE PER CLUSTER
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		final DataOutputStream stream = new DataOutputStream(buffer);
+		for (List<OTxRecord> clusterRecords : iCreated.values()) {
+			buffer.reset();
+			for (OTxRecord record : clusterRecords) {
+				stream.writeShort(record.dataSegment);
+				stream.writeLong(record.dataOffset);
+				stream.writeByte(record.entry.record.getRecordType());
+				stream.writeInt(0);
+			}
+			((OClusterLocal) clusterRecords.get(0).cluster).setPhysicalPositions(clusterRecords.get(0).rid.clusterPosition,
+					buffer.toByteArray());
 		}
 
-		// CLEAR ALL TEMPORARY RECORDS
-		txSegment.clearLogEntries(iRequesterId, iTx.getId());
+		// UPDATE THE RECORDS FOR REAL, IN ORDER OF OFFSET
+		for (OTxRecord record : iUpdated)
+			record.entry.record.setVersion(storage.updateRecord(iRequesterId, record.cluster, record.rid.clusterPosition,
+					record.stream, record.entry.record.getVersion(), record.entry.record.getRecordType()));
 
-		// UPDATE THE CACHE ONLY IF THE ITERATOR ALLOWS IT
-		String rid;
-		ORawBuffer cachedBuffer;
-		for (OTransactionEntry<? extends ORecord<?>> txEntry : iTx.getEntries()) {
-			rid = txEntry.record.getIdentity().toString();
+		// DELETE THE RECORDS BUT LEAVING THE PPOS INTACT BUT THE VERSION = -1 TO RECOGNIZE THAT THE ENTRY HAS BEEN DELETED
+		Collections.sort(iDeleted, BY_CLUSTER_POSITION);
+		for (OTxRecord record : iDeleted)
+			record.cluster.removePhysicalPosition(record.rid.clusterPosition, record.ppos);
+	}
 
-			cachedBuffer = storage.getCache().getRecord(rid);
+	/**
+	 * Checks that the record to update is still valid and has not been modified in the meanwhile. Fills the physical position of the
+	 * record.
+	 */
+	private void checkForUpdate(final OTxRecord iRecord) throws IOException {
+		iRecord.ppos = iRecord.cluster.getPhysicalPosition(iRecord.rid.clusterPosition, new OPhysicalPosition());
+
+		if (!storage.checkForRecordValidity(iRecord.ppos))
+			throw new OConcurrentModificationException("Can't update record #" + iRecord.rid
+					+ " because it has been deleted by another user in the meanwhile of current transaction");
+
+		final int version = iRecord.entry.record.getVersion();
+		if (version > -1 && iRecord.ppos.version != version)
+			throw new OConcurrentModificationException(
+					"Can't update record #"
+							+ iRecord.rid
+							+ " because it has been modified by another user in the meanwhile of current transaction. Use pessimistic locking instead of optimistic or simply re-execute the transaction");
+	}
 
-			if (cachedBuffer != null) {
-				// UPDATE CACHE
-				cachedBuffer.buffer = txEntry.record.toStream();
-				cachedBuffer.version = txEntry.record.getVersion();
-				cachedBuffer.recordType = txEntry.record.getRecordType();
+	/**
+	 * Appends the data of the records to the data segments. The records are grouped by data segment and written with one write every
+	 * BATCH_SIZE bytes. The offset of every record is set in its dataOffset field.
+	 */
+	private void writeData(final List<OTxRecord> iRecords) throws IOException {
+		Collections.sort(iRecords, BY_DATA_SEGMENT);
+
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		final DataOutputStream stream = new DataOutputStream(buffer);
+
+		int first = 0;
+		OTxRecord record;
+		for (int i = 0; i < iRecords.size(); ++i) {
+			record = iRecords.get(i);
+
+			if (i > first && (record.dataSegment != iRecords.get(first).dataSegment || buffer.size() >= BATCH_SIZE)) {
+				flushData(iRecords, first, i, buffer.toByteArray());
+				buffer.reset();
+				first = i;
+			}
 
-			} else if (txEntry.record.isPinned())
-				// INSERT NEW ENTRY IN THE CACHE
-				storage.getCache().pushRecord(rid,
-						new ORawBuffer(txEntry.record.toStream(), txEntry.record.getVersion(), txEntry.record.getRecordType()));
+			// OFFSET IN THE BUFFER UNTIL THE DATA IS WRITTEN
+			record.dataOffset = buffer.size();
+
+			stream.writeInt(record.data.length);
+			if (record.entry.status == OTransactionEntry.CREATED) {
+				// THE POSITION IN THE LOGICAL CLUSTERS IS NOT KNOWN YET
+				stream.writeShort(record.cluster.getId());
+				stream.writeLong(record.cluster instanceof OClusterLocal ? record.rid.clusterPosition : -1);
+			} else {
+				// BACKUP COPY: NOT REFERENCED BY ANY CLUSTER
+				stream.writeShort(-1);
+				stream.writeLong(-1);
+			}
+			stream.write(record.data);
 		}
-	}
 
-	protected void rollback() {
-		// TODO
+		if (first < iRecords.size())
+			flushData(iRecords, first, iRecords.size(), buffer.toByteArray());
 	}
 
-	private void commitEntry(final int iRequesterId, final int iTxId, final OTransactionEntry<? extends ORecord<?>> txEntry)
-			throws IOException {
+	private void flushData(final List<OTxRecord> iRecords, final int iFrom, final int iTo, final byte[] iBuffer) throws IOException {
+		final long offset = storage.getDataSegment(iRecords.get(iFrom).dataSegment).addRecords(iBuffer);
 
-		ORecordId rid = (ORecordId) txEntry.record.getIdentity();
+		// MOVE THE OFFSETS OF THE RECORDS TO THE ABSOLUTE POSITION IN THE DATA SEGMENT
+		for (int i = iFrom; i < iTo; ++i)
+			iRecords.get(i).dataOffset += offset;
+	}
 
-		final OCluster cluster = txEntry.clusterName != null ? storage.getClusterByName(txEntry.clusterName) : storage
-				.getClusterById(rid.clusterId);
+	private void writeLog(final int iRequesterId, final int iTxId, final List<OTxRecord> iRecords) throws IOException {
+		final int size = iRecords.size();
+		final byte[] operations = new byte[size];
+		final int[] clusterIds = new int[size];
+		final long[] positions = new long[size];
+		final long[] dataOffsets = new long[size];
+
+		int i = 0;
+		for (OTxRecord record : iRecords) {
+			if (record.entry.status == OTransactionEntry.DELETED && record.ppos == null)
+				// ALREADY DELETED
+				continue;
+
+			clusterIds[i] = record.cluster.getId();
+			positions[i] = record.rid.clusterPosition;
+
+			switch (record.entry.status) {
+			case OTransactionEntry.CREATED:
+				// POSITION OF THE RECORD JUST CREATED
+				operations[i] = OTxSegment.OPERATION_CREATE;
+				dataOffsets[i] = record.dataOffset;
+				break;
+
+			case OTransactionEntry.UPDATED:
+				// POSITION OF THE COPY OF THE RECORD BEFORE THE UPDATE
+				operations[i] = OTxSegment.OPERATION_UPDATE;
+				dataOffsets[i] = record.dataOffset;
+				break;
+
+			case OTransactionEntry.DELETED:
+				// POSITION OF THE RECORD TO DELETE
+				operations[i] = OTxSegment.OPERATION_DELETE;
+				dataOffsets[i] = record.ppos.dataPosition;
+				break;
+			}
+			i++;
+		}
 
-		switch (txEntry.status) {
-		case OTransactionEntry.LOADED:
-			break;
+		txSegment.addLogs(iRequesterId, iTxId, operations, clusterIds, positions, dataOffsets, i);
+	}
 
-		case OTransactionEntry.CREATED:
-			if (!txEntry.record.getIdentity().isValid()) {
-				rid.clusterPosition = createRecord(iRequesterId, iTxId, cluster, txEntry.record.toStream(), txEntry.record.getRecordType());
-				rid.clusterId = cluster.getId();
-			}
-			break;
+	private static int compareLongs(final long iValue1, final long iValue2) {
+		return iValue1 < iValue2 ? -1 : (iValue1 == iValue2 ? 0 : 1);
+	}
 
-		case OTransactionEntry.UPDATED:
-			txEntry.record.setVersion(updateRecord(iRequesterId, iTxId, cluster, rid.clusterPosition, txEntry.record.toStream(),
-					txEntry.record.getVersion(), txEntry.record.getRecordType()));
-			break;
+	/**
+	 * State of a transaction entry while it is committed.
+	 */
+	private class OTxRecord {
+		private final OTransactionEntry<? extends ORecord<?>>	entry;
+		private final ORecordId																rid;
+		private final OCluster																cluster;
+		// CURRENT PHYSICAL POSITION OF THE RECORDS TO UPDATE OR DELETE
+		private OPhysicalPosition															ppos;
+
+		// CONTENT WRITTEN, SERIALIZED ONLY ONCE
+		private byte[]																				stream;
+
+		// RECORD TO APPEND TO THE DATA SEGMENT: THE NEW CONTENT ON CREATION, THE BACKUP OF THE CURRENT CONTENT ON UPDATE
+		private byte[]																				data;
+		private int																						dataSegment;
+		private long																					dataOffset;
+
+		private OTxRecord(final OTransactionEntry<? extends ORecord<?>> iEntry) {
+			entry = iEntry;
+			rid = (ORecordId) iEntry.record.getIdentity();
+			cluster = iEntry.clusterName != null ? storage.getClusterByName(iEntry.clusterName) : storage.getClusterById(rid.clusterId);
+		}
 
-		case OTransactionEntry.DELETED:
-			deleteRecord(iRequesterId, iTxId, cluster, rid.clusterPosition, txEntry.record.getVersion());
-			break;
+		private void setPosition(final long iPosition) {
+			rid.clusterId = cluster.getId();
+			rid.clusterPosition = iPosition;
 		}
 	}
 }
@@ -127,80 +127,79 @@ public class OTxSegment extends OSingleFileSegment {
 	}
 
 	/**
-	 * Clear all the transaction entries by setting the status to STATUS_CLEARING
+	 * Append many log entries of the same transaction with one write and one synch.
 	 * 
 	 * @param iReqId
 	 *          The id of requester
 	 * @param iTxId
 	 *          The id of transaction
+	 * @param iCount
+	 *          Number of entries to append, taken from the beginning of the arrays
 	 * 
 	 * @throws IOException
 	 */
-	public void clearLogEntries(final int iReqId, final int iTxId) throws IOException {
+	public void addLogs(final int iReqId, final int iTxId, final byte[] iOperations, final int[] iClusterIds,
+			final long[] iPositions, final long[] iDataOffsets, final int iCount) throws IOException {
+		if (iCount == 0)
+			return;
+
+		final byte[] buffer = new byte[iCount * RECORD_SIZE];
+		int offset = 0;
+		for (int i = 0; i < iCount; ++i) {
+			buffer[offset++] = STATUS_COMMITTING;
+			buffer[offset++] = iOperations[i];
+			offset = writeNumber(buffer, offset, iReqId, OConstants.SIZE_SHORT);
+			offset = writeNumber(buffer, offset, iTxId, OConstants.SIZE_INT);
+			offset = writeNumber(buffer, offset, iClusterIds[i], OConstants.SIZE_SHORT);
+			offset = writeNumber(buffer, offset, iPositions[i], OConstants.SIZE_LONG);
+			offset = writeNumber(buffer, offset, iDataOffsets[i], OConstants.SIZE_LONG);
+		}
+
 		acquireExclusiveLock();
 
 		try {
-			int size = (file.getFilledUpTo() / RECORD_SIZE);
-			byte status;
-			int reqId;
-			int txId;
-			int offset;
-
-			int recordFreed = 0;
-
-			for (int i = 0; i < size; ++i) {
-				// READ THE STATUS
-				offset = i * RECORD_SIZE;
-
-				status = file.readByte(offset);
-
-				if (status == STATUS_COMMITTING) {
-					// READ THE REQ-ID
-					offset += OConstants.SIZE_BYTE + OConstants.SIZE_BYTE;
-					reqId = file.readShort(offset);
-
-					if (reqId == iReqId) {
-						// CURRENT REQUESTER, CHECKING FOR THE TX
-						offset += OConstants.SIZE_SHORT;
-						txId = file.readInt(offset);
+			file.write(file.allocateSpace(buffer.length), buffer);
 
-						if (txId == iTxId) {
-							// CURRENT REQUESTER & TX: CLEAR THE ENTRY BY WRITING THE "FREE" STATUS
-							file.writeByte(i * RECORD_SIZE, STATUS_FREE);
-							recordFreed++;
-						}
-					}
-				}
-			}
-
-			// SHRINK THE FILE TO THE LAST GOOD POSITION. USE THE COUNTER OF PREVIOUS CYCLE TO DETERMINE THE NUMBER OF RECORDS FREED FOR
-			// THIS TX
-			int lastRecord = size - 1;
+			synchRecord();
 
-			for (int i = size - 1; i > -1 && recordFreed > 0; --i) {
-				offset = i * RECORD_SIZE;
+		} finally {
+			releaseExclusiveLock();
+		}
+	}
 
-				status = file.readByte(offset);
-				offset += OConstants.SIZE_BYTE;
-				offset += OConstants.SIZE_BYTE;
+	/**
+	 * Clear all the transaction entries by setting the status to STATUS_CLEARING
+	 * 
+	 * @param iReqId
+	 *          The id of requester
+	 * @param iTxId
+	 *          The id of transaction
+	 * 
+	 * @throws IOException
+	 */
+	public void clearLogEntries(final int iReqId, final int iTxId) throws IOException {
+		acquireExclusiveLock();
 
-				reqId = file.readShort(offset);
-				if (reqId != iReqId)
-					// NO MY REQ, EXIT
-					break;
+		try {
+			final int size = (file.getFilledUpTo() / RECORD_SIZE);
+			if (size == 0)
+				return;
 
-				offset += OConstants.SIZE_SHORT;
-				txId = file.readShort(offset);
+			// READ ALL THE ENTRIES AT ONCE
+			final byte[] buffer = new byte[size * RECORD_SIZE];
+			file.read(0, buffer, buffer.length);
 
-				if (txId != iTxId)
-					// NO MY TX, EXIT
-					break;
+			// FIND THE LAST ENTRIES OF THE FILE THAT BELONG TO THIS TX: THEY ARE REMOVED BY SHRINKING THE FILE
+			int lastRecord = size;
+			while (lastRecord > 0 && isTxEntry(buffer, lastRecord - 1, iReqId, iTxId))
+				lastRecord--;
 
-				lastRecord = i;
-				recordFreed--;
-			}
+			// CLEAR THE OTHER ENTRIES OF CURRENT REQUESTER & TX BY WRITING THE "FREE" STATUS
+			for (int i = 0; i < lastRecord; ++i)
+				if (buffer[i * RECORD_SIZE] == STATUS_COMMITTING && isTxEntry(buffer, i, iReqId, iTxId))
+					file.writeByte(i * RECORD_SIZE, STATUS_FREE);
 
-			if (lastRecord > -1)
+			if (lastRecord < size)
 				file.shrink(lastRecord * RECORD_SIZE);
 
 			synchTx();
@@ -266,7 +265,7 @@ public class OTxSegment extends OSingleFileSegment {
 			reqId = file.readShort(offset);
 			offset += OConstants.SIZE_SHORT;
 
-			txId = file.readShort(offset);
+			txId = file.readInt(offset);
 
 			switch (status) {
 			case STATUS_FREE:
@@ -373,8 +372,9 @@ public class OTxSegment extends OSingleFileSegment {
 
 		switch (operation) {
 		case OPERATION_CREATE:
-			// JUST DELETE THE RECORD
-			storage.deleteRecord(-1, clusterId, clusterOffset, -1);
+			// JUST DELETE THE RECORD. IF THE POSITION WAS RESERVED BUT NEVER WRITTEN GIVE IT BACK AS HOLE
+			if (!storage.deleteRecord(-1, clusterId, clusterOffset, -1))
+				cluster.releasePositions(clusterOffset, clusterOffset + 1);
 			break;
 
 		case OPERATION_UPDATE:
@@ -410,6 +410,25 @@ public class OTxSegment extends OSingleFileSegment {
 		}
 	}
 
+	private static boolean isTxEntry(final byte[] iBuffer, final int iRecord, final int iReqId, final int iTxId) {
+		final int offset = iRecord * RECORD_SIZE + OConstants.SIZE_BYTE + OConstants.SIZE_BYTE;
+		return (short) readNumber(iBuffer, offset, OConstants.SIZE_SHORT) == (short) iReqId
+				&& (int) readNumber(iBuffer, offset + OConstants.SIZE_SHORT, OConstants.SIZE_INT) == iTxId;
+	}
+
+	private static long readNumber(final byte[] iBuffer, int iOffset, final int iSize) {
+		long value = 0;
+		for (int i = 0; i < iSize; ++i)
+			value = value << 8 | (iBuffer[iOffset++] & 0xFF);
+		return value;
+	}
+
+	private static int writeNumber(final byte[] iBuffer, int iOffset, final long iValue, final int iSize) {
+		for (int i = iSize - 1; i > -1; --i)
+			iBuffer[iOffset++] = (byte) (iValue >>> (i * 8));
+		return iOffset;
+	}
+
 	private void synchRecord() {
 		if (((OStorageTxConfiguration) config).isSynchRecord())
 			file.synch();
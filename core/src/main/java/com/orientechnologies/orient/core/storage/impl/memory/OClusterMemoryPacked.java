@@ -0,0 +1,253 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage.impl.memory;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.orientechnologies.orient.core.storage.OCluster;
+import com.orientechnologies.orient.core.storage.OClusterPositionIterator;
+import com.orientechnologies.orient.core.storage.OPhysicalPosition;
+
+/**
+ * Memory cluster that packs the entries in primitive arrays instead of keeping an OPhysicalPosition object per record. Entries are
+ * stored in pages of PAGE_SIZE elements, so the cluster grows by adding a page and never copies the existing ones. Per entry it
+ * keeps:
+ * <ul>
+ * <li>the data position, as long (-1 = deleted)</li>
+ * <li>the version, as int (LOCKED while a writer is changing the entry)</li>
+ * <li>the record type, as byte</li>
+ * </ul>
+ * Writers are serialized on the cluster instance. Readers take no lock: they read the entry with getPhysicalPosition() and then
+ * call {@link #isUnchanged(long, long, int)} to check that no writer touched it meanwhile.
+ * 
+ * @author Luca Garulli
+ * 
+ */
+public class OClusterMemoryPacked implements OCluster {
+	public static final String	TYPE			= "MEMORY-PACKED";
+	public static final int			PAGE_SIZE	= Integer.getInteger("orient.memory.clusterPageSize", 64 * 1024);
+
+	private static final int		LOCKED		= Integer.MIN_VALUE;
+	private static final long		DELETED		= -1;
+
+	private static class Page {
+		private final AtomicLongArray			positions	= new AtomicLongArray(PAGE_SIZE);
+		private final AtomicIntegerArray	versions	= new AtomicIntegerArray(PAGE_SIZE);
+		private final byte[]							types			= new byte[PAGE_SIZE];
+	}
+
+	private final int				id;
+	private final String		name;
+	private volatile Page[]	pages		= new Page[0];
+	private volatile long		size		= 0;
+	private long						removed	= 0;
+
+	public OClusterMemoryPacked(final int id, final String name) {
+		this.id = id;
+		this.name = name;
+	}
+
+	public OClusterPositionIterator absoluteIterator() throws IOException {
+		return new OClusterPositionIterator(this);
+	}
+
+	public synchronized void close() {
+		pages = new Page[0];
+		size = 0;
+		removed = 0;
+	}
+
+	public void create(final int iStartSize) throws IOException {
+	}
+
+	public void delete() throws IOException {
+		close();
+	}
+
+	public synchronized long getEntries() {
+		return size - removed;
+	}
+
+	public long getLastEntryPosition() {
+		return size;
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public long getAvailablePosition() throws IOException {
+		return size;
+	}
+
+	public synchronized long addPhysicalPosition(final int iDataSegmentId, final long iRecordPosition, final byte iRecordType) {
+		final long position = size;
+
+		final int pageIndex = (int) (position / PAGE_SIZE);
+		if (pageIndex >= pages.length) {
+			// ADD A NEW PAGE: THE OLD ONES ARE SHARED WITH THE NEW ARRAY
+			final Page[] newPages = new Page[pageIndex + 1];
+			System.arraycopy(pages, 0, newPages, 0, pages.length);
+			newPages[pageIndex] = new Page();
+			pages = newPages;
+		}
+
+		final Page page = pages[pageIndex];
+		final int i = (int) (position % PAGE_SIZE);
+		page.types[i] = iRecordType;
+		page.versions.set(i, 0);
+		page.positions.set(i, iRecordPosition);
+
+		// PUBLISH THE NEW ENTRY TO THE READERS
+		size = position + 1;
+		return position;
+	}
+
+	public synchronized void updateRecordType(final long iPosition, final byte iRecordType) throws IOException {
+		final Page page = getPage(iPosition);
+		if (page == null)
+			return;
+
+		final int i = (int) (iPosition % PAGE_SIZE);
+		final int version = page.versions.get(i);
+		page.versions.set(i, LOCKED);
+		page.types[i] = iRecordType;
+		page.versions.set(i, version);
+	}
+
+	public synchronized void updateVersion(final long iPosition, final int iVersion) throws IOException {
+		final Page page = getPage(iPosition);
+		if (page != null)
+			page.versions.set((int) (iPosition % PAGE_SIZE), iVersion);
+	}
+
+	/**
+	 * Fills iPPosition with the entry at iPosition without locking. Returns null if the entry doesn't exist or was deleted.
+	 */
+	public OPhysicalPosition getPhysicalPosition(final long iPosition, OPhysicalPosition iPPosition) {
+		final Page page = getPage(iPosition);
+		if (page == null)
+			return null;
+
+		final int i = (int) (iPosition % PAGE_SIZE);
+
+		int version;
+		while ((version = page.versions.get(i)) == LOCKED)
+			// A WRITER IS CHANGING THE ENTRY
+			Thread.yield();
+
+		final long dataPosition = page.positions.get(i);
+		if (dataPosition == DELETED)
+			return null;
+
+		if (iPPosition == null)
+			iPPosition = new OPhysicalPosition();
+
+		iPPosition.dataSegment = 0;
+		iPPosition.dataPosition = dataPosition;
+		iPPosition.type = page.types[i];
+		iPPosition.version = version;
+		return iPPosition;
+	}
+
+	/**
+	 * Tells if the entry at iPosition still points to iDataPosition with version iVersion, namely if no writer changed it since it
+	 * was read by getPhysicalPosition().
+	 */
+	public boolean isUnchanged(final long iPosition, final long iDataPosition, final int iVersion) {
+		final Page page = getPage(iPosition);
+		if (page == null)
+			return false;
+
+		final int i = (int) (iPosition % PAGE_SIZE);
+		return page.positions.get(i) == iDataPosition && page.versions.get(i) == iVersion;
+	}
+
+	public void open() throws IOException {
+	}
+
+	public synchronized void removePhysicalPosition(final long iPosition, final OPhysicalPosition iPPosition) {
+		final Page page = getPage(iPosition);
+		if (page == null)
+			return;
+
+		final int i = (int) (iPosition % PAGE_SIZE);
+		final int version = page.versions.get(i);
+		page.versions.set(i, LOCKED);
+		if (page.positions.getAndSet(i, DELETED) != DELETED)
+			// ADD A REMOVED
+			removed++;
+		page.versions.set(i, version);
+	}
+
+	public synchronized void setPhysicalPosition(final long iPosition, final int iDataId, final long iDataPosition,
+			final byte iRecordType) {
+		final Page page = getPage(iPosition);
+		if (page == null)
+			return;
+
+		final int i = (int) (iPosition % PAGE_SIZE);
+		setEntry(page, i, iDataPosition, iRecordType, page.versions.get(i));
+	}
+
+	/**
+	 * Changes data position, type and version of the entry at once. Readers never see a partial change.
+	 */
+	public synchronized void updatePhysicalPosition(final long iPosition, final long iDataPosition, final byte iRecordType,
+			final int iVersion) {
+		final Page page = getPage(iPosition);
+		if (page != null)
+			setEntry(page, (int) (iPosition % PAGE_SIZE), iDataPosition, iRecordType, iVersion);
+	}
+
+	public void synch() {
+	}
+
+	/**
+	 * Readers don't need to lock the cluster.
+	 */
+	public void lock() {
+	}
+
+	public void unlock() {
+	}
+
+	public String getType() {
+		return TYPE;
+	}
+
+	private void setEntry(final Page iPage, final int i, final long iDataPosition, final byte iRecordType, final int iVersion) {
+		iPage.versions.set(i, LOCKED);
+		iPage.positions.set(i, iDataPosition);
+		iPage.types[i] = iRecordType;
+		iPage.versions.set(i, iVersion);
+	}
+
+	private Page getPage(final long iPosition) {
+		if (iPosition < 0 || iPosition >= size)
+			return null;
+
+		final Page[] p = pages;
+		final int pageIndex = (int) (iPosition / PAGE_SIZE);
+		return pageIndex < p.length ? p[pageIndex] : null;
+	}
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage.impl.memory;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import com.orientechnologies.orient.core.OConstants;
+
+/**
+ * Data segment that keeps the record contents out of the Java heap. Memory is allocated in direct buffers of SLAB_SIZE bytes
+ * ("slabs"), each one cut in chunks of a single size class. Size classes grow by 25% starting from MIN_CHUNK bytes, so the space
+ * wasted per record stays small. Freed chunks are linked in a free list per size class, stored inside the chunks themselves.
+ * Records bigger than a slab get a dedicated slab that is dropped on delete.<br/>
+ * <br/>
+ * Chunk structure:<br/>
+ * <br/>
+ * +----------------------------------------------+<br/>
+ * | RECORD SIZE ........ | CONTENT .............. |<br/>
+ * | 4 bytes (-1 = free)  | RECORD SIZE bytes      |<br/>
+ * +----------------------------------------------+<br/>
+ * <br/>
+ * The record position is the slab index in the high 32 bits and the chunk offset in the low 32 bits. Content is never changed in
+ * place: an update creates a new record and deletes the old one. Writers are serialized. readRecord() takes no lock and can return
+ * garbage or null if the chunk is deleted meanwhile: the caller must check the record position is still valid after the read.
+ * Direct memory is limited by the -XX:MaxDirectMemorySize JVM setting.
+ * 
+ * @author Luca Garulli
+ * 
+ */
+public class ODataSegmentMemoryOffHeap {
+	public static final int		SLAB_SIZE	= Integer.getInteger("orient.memory.slabSize", 1024 * 1024);
+	public static final int		MIN_CHUNK	= 32;
+
+	private static final int	HEADER		= OConstants.SIZE_INT;
+	private static final int	FREE			= -1;
+	private static final int	DEDICATED	= -1;
+	private static final long	NONE			= -1;
+
+	private final int[]		chunkSizes;
+	private final long[]	freeChunks;
+	private final int[]		currentSlab;
+	private final int[]		currentOffset;
+
+	private volatile ByteBuffer[]	slabs					= new ByteBuffer[16];
+	private int[]									slabClasses		= new int[16];
+	private int										slabCount			= 0;
+	private int[]									freeSlabs			= new int[16];
+	private int										freeSlabCount	= 0;
+
+	public ODataSegmentMemoryOffHeap() {
+		int classes = 1;
+		for (int size = MIN_CHUNK; size < SLAB_SIZE; size = nextChunkSize(size))
+			classes++;
+
+		chunkSizes = new int[classes];
+		chunkSizes[0] = MIN_CHUNK;
+		for (int i = 1; i < classes; ++i)
+			chunkSizes[i] = Math.min(nextChunkSize(chunkSizes[i - 1]), SLAB_SIZE);
+
+		freeChunks = new long[classes];
+		currentSlab = new int[classes];
+		currentOffset = new int[classes];
+		reset();
+	}
+
+	public synchronized void close() {
+		slabs = new ByteBuffer[16];
+		slabClasses = new int[16];
+		slabCount = 0;
+		freeSlabCount = 0;
+		reset();
+	}
+
+	/**
+	 * Tells if iRecordPosition points into an allocated slab.
+	 */
+	public boolean exists(final long iRecordPosition) {
+		final ByteBuffer slab = getSlab(iRecordPosition);
+		return slab != null && (int) iRecordPosition + HEADER <= slab.capacity();
+	}
+
+	public synchronized long createRecord(final byte[] iContent) {
+		final long position = allocate(HEADER + iContent.length);
+
+		final ByteBuffer slab = slabs[(int) (position >>> 32)];
+		slab.position((int) position);
+		slab.putInt(iContent.length);
+		slab.put(iContent);
+		return position;
+	}
+
+	/**
+	 * Reads the record without locking. Returns null if the chunk isn't a valid record.
+	 */
+	public byte[] readRecord(final long iRecordPosition) {
+		final ByteBuffer slab = getSlab(iRecordPosition);
+		if (slab == null)
+			return null;
+
+		final int offset = (int) iRecordPosition;
+		if (offset < 0 || offset + HEADER > slab.capacity())
+			return null;
+
+		final int size = slab.getInt(offset);
+		if (size < 0 || offset + HEADER + size > slab.capacity())
+			return null;
+
+		// USE A VIEW SINCE CONCURRENT READERS CAN'T SHARE THE BUFFER POSITION
+		final ByteBuffer view = slab.duplicate();
+		view.position(offset + HEADER);
+
+		final byte[] content = new byte[size];
+		view.get(content);
+		return content;
+	}
+
+	public synchronized void deleteRecord(final long iRecordPosition) {
+		final int slabIndex = (int) (iRecordPosition >>> 32);
+		final ByteBuffer slab = slabs[slabIndex];
+		if (slab == null)
+			return;
+
+		final int sizeClass = slabClasses[slabIndex];
+		if (sizeClass == DEDICATED) {
+			// DROP THE WHOLE SLAB: THE DIRECT MEMORY IS RELEASED BY THE GC
+			slabs[slabIndex] = null;
+			if (freeSlabCount == freeSlabs.length)
+				freeSlabs = copyOf(freeSlabs, freeSlabCount * 2);
+			freeSlabs[freeSlabCount++] = slabIndex;
+			return;
+		}
+
+		final int offset = (int) iRecordPosition;
+		if (slab.getInt(offset) == FREE)
+			return;
+
+		// LINK THE CHUNK TO THE FREE LIST OF ITS SIZE CLASS
+		slab.putInt(offset, FREE);
+		slab.putLong(offset + HEADER, freeChunks[sizeClass]);
+		freeChunks[sizeClass] = iRecordPosition;
+	}
+
+	private long allocate(final int iSize) {
+		if (iSize > SLAB_SIZE)
+			return (long) addSlab(ByteBuffer.allocateDirect(iSize), DEDICATED) << 32;
+
+		int sizeClass = Arrays.binarySearch(chunkSizes, iSize);
+		if (sizeClass < 0)
+			sizeClass = -sizeClass - 1;
+
+		final long free = freeChunks[sizeClass];
+		if (free != NONE) {
+			// REUSE A FREE CHUNK
+			freeChunks[sizeClass] = slabs[(int) (free >>> 32)].getLong((int) free + HEADER);
+			return free;
+		}
+
+		final int chunkSize = chunkSizes[sizeClass];
+		if (currentSlab[sizeClass] == -1 || currentOffset[sizeClass] + chunkSize > SLAB_SIZE) {
+			// CURRENT SLAB IS FULL
+			currentSlab[sizeClass] = addSlab(ByteBuffer.allocateDirect(SLAB_SIZE), sizeClass);
+			currentOffset[sizeClass] = 0;
+		}
+
+		final long position = (long) currentSlab[sizeClass] << 32 | currentOffset[sizeClass];
+		currentOffset[sizeClass] += chunkSize;
+		return position;
+	}
+
+	private int addSlab(final ByteBuffer iSlab, final int iSizeClass) {
+		final int slabIndex;
+		if (freeSlabCount > 0)
+			slabIndex = freeSlabs[--freeSlabCount];
+		else {
+			if (slabCount == slabs.length) {
+				final ByteBuffer[] newSlabs = new ByteBuffer[slabCount * 2];
+				System.arraycopy(slabs, 0, newSlabs, 0, slabCount);
+				slabs = newSlabs;
+				slabClasses = copyOf(slabClasses, slabCount * 2);
+			}
+			slabIndex = slabCount++;
+		}
+
+		slabClasses[slabIndex] = iSizeClass;
+		slabs[slabIndex] = iSlab;
+		return slabIndex;
+	}
+
+	private ByteBuffer getSlab(final long iRecordPosition) {
+		final ByteBuffer[] s = slabs;
+		final int slabIndex = (int) (iRecordPosition >>> 32);
+		return slabIndex < s.length ? s[slabIndex] : null;
+	}
+
+	private void reset() {
+		Arrays.fill(freeChunks, NONE);
+		Arrays.fill(currentSlab, -1);
+		Arrays.fill(currentOffset, 0);
+	}
+
+	private static int nextChunkSize(final int iSize) {
+		// +25%, ALIGNED TO 8 BYTES
+		return (iSize + iSize / 4 + 7) & ~7;
+	}
+
+	private static int[] copyOf(final int[] iArray, final int iLength) {
+		final int[] newArray = new int[iLength];
+		System.arraycopy(iArray, 0, newArray, 0, Math.min(iArray.length, iLength));
+		return newArray;
+	}
+}
@@ -23,6 +23,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.orient.core.command.OCommandRequestText;
 import com.orientechnologies.orient.core.config.OStorageConfiguration;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
@@ -52,9 +53,9 @@ import com.orientechnologies.orient.core.tx.OTransaction;
  * 
  */
 public class OStorageMemory extends OStorageAbstract {
-	private final ODataSegmentMemory		data							= new ODataSegmentMemory();
-	private final List<OClusterMemory>	clusters					= new ArrayList<OClusterMemory>();
-	private int													defaultClusterId	= 0;
+	private final ODataSegmentMemory	data							= new ODataSegmentMemory();
+	private final List<OCluster>			clusters					= new ArrayList<OCluster>();
+	private int												defaultClusterId	= 0;
 
 	public OStorageMemory(final String iURL) {
 		super(iURL, iURL, "rw");
@@ -90,8 +91,13 @@ public class OStorageMemory extends OStorageAbstract {
 
 	public void close() {
 		// CLOSE ALL THE CLUSTERS
-		for (OClusterMemory c : clusters)
-			c.close();
+		for (OCluster c : clusters)
+			try {
+				if (c != null)
+					c.close();
+			} catch (IOException e) {
+				OLogManager.instance().error(this, "Error on closing cluster: " + c, e);
+			}
 		clusters.clear();
 
 		// CLOSE THE DATA SEGMENT
@@ -101,7 +107,7 @@ public class OStorageMemory extends OStorageAbstract {
 	}
 
 	public int addCluster(final String iClusterName, final String iClusterType, final Object... iParameters) {
-		clusters.add(new OClusterMemory(clusters.size(), iClusterName));
+		clusters.add(createCluster(clusters.size(), iClusterName));
 		return clusters.size() - 1;
 	}
 
@@ -174,6 +180,8 @@ public class OStorageMemory extends OStorageAbstract {
 
 			data.updateRecord(ppos.dataPosition, iContent);
 
+			checkForSchemaUpdate(iClusterId, iPosition);
+
 			return ++ppos.version;
 
 		} catch (IOException e) {
@@ -227,8 +235,12 @@ public class OStorageMemory extends OStorageAbstract {
 
 	public long count(final int[] iClusterIds) {
 		long tot = 0;
-		for (int i = 0; i < iClusterIds.length; ++i)
-			tot += clusters.get(iClusterIds[i]).getEntries();
+		try {
+			for (int i = 0; i < iClusterIds.length; ++i)
+				tot += clusters.get(iClusterIds[i]).getEntries();
+		} catch (IOException e) {
+			throw new OStorageException("Error on count record in clusters", e);
+		}
 		return tot;
 	}
 
@@ -308,4 +320,11 @@ public class OStorageMemory extends OStorageAbstract {
 	public Object command(final OCommandRequestText iCommand) {
 		return null;
 	}
+
+	/**
+	 * Creates the cluster instance used by addCluster(). Override it to change the cluster implementation.
+	 */
+	protected OCluster createCluster(final int iId, final String iName) {
+		return new OClusterMemory(iId, iName);
+	}
 }
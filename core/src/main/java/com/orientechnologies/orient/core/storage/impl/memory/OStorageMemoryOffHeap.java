@@ -0,0 +1,155 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage.impl.memory;
+
+import java.io.IOException;
+
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.exception.OConcurrentModificationException;
+import com.orientechnologies.orient.core.exception.OStorageException;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.storage.OCluster;
+import com.orientechnologies.orient.core.storage.OPhysicalPosition;
+import com.orientechnologies.orient.core.storage.ORawBuffer;
+
+/**
+ * Memory storage for big databases. It avoids to keep objects per record in the Java heap:
+ * <ul>
+ * <li>The name is "OffHeap"</li>
+ * <li>Cluster entries are packed in primitive arrays by {@link OClusterMemoryPacked}</li>
+ * <li>Record contents are stored out of the heap by {@link ODataSegmentMemoryOffHeap}</li>
+ * </ul>
+ * Writes are serialized per cluster. Reads take no lock: the entry is read again after the content and the read is retried if a
+ * writer changed it meanwhile.
+ * 
+ * @author Luca Garulli
+ * 
+ */
+public class OStorageMemoryOffHeap extends OStorageMemory {
+	private final ODataSegmentMemoryOffHeap	data	= new ODataSegmentMemoryOffHeap();
+
+	public OStorageMemoryOffHeap(final String iURL) {
+		super(iURL);
+	}
+
+	@Override
+	public void close() {
+		super.close();
+		data.close();
+	}
+
+	@Override
+	public boolean checkForRecordValidity(final OPhysicalPosition ppos) {
+		if (ppos.dataSegment > 0)
+			return false;
+
+		return data.exists(ppos.dataPosition);
+	}
+
+	@Override
+	public long createRecord(final int iClusterId, final byte[] iContent, final byte iRecordType) {
+		final OClusterMemoryPacked cluster = getCluster(iClusterId);
+		final long dataPosition = data.createRecord(iContent);
+		return cluster.addPhysicalPosition(0, dataPosition, iRecordType);
+	}
+
+	@Override
+	public ORawBuffer readRecord(final ODatabaseRecord<?> iDatabase, final int iRequesterId, final int iClusterId,
+			final long iPosition, final String iFetchPlan) {
+		final OClusterMemoryPacked cluster = getCluster(iClusterId);
+		final OPhysicalPosition ppos = new OPhysicalPosition();
+
+		while (true) {
+			if (cluster.getPhysicalPosition(iPosition, ppos) == null)
+				return null;
+
+			final byte[] content = data.readRecord(ppos.dataPosition);
+
+			if (cluster.isUnchanged(iPosition, ppos.dataPosition, ppos.version) && content != null)
+				return new ORawBuffer(content, ppos.version, ppos.type);
+
+			// CHANGED BY A WRITER DURING THE READ: RETRY
+		}
+	}
+
+	@Override
+	public int updateRecord(final int iRequesterId, final int iClusterId, final long iPosition, final byte[] iContent,
+			final int iVersion, final byte iRecordType) {
+		final OClusterMemoryPacked cluster = getCluster(iClusterId);
+		final OPhysicalPosition ppos = new OPhysicalPosition();
+
+		synchronized (cluster) {
+			if (cluster.getPhysicalPosition(iPosition, ppos) == null)
+				return -1;
+
+			// MVCC TRANSACTION: CHECK IF VERSION IS THE SAME
+			if (iVersion > -1 && ppos.version != iVersion)
+				throw new OConcurrentModificationException(
+						"Can't update record #"
+								+ ORecordId.generateString(iClusterId, iPosition)
+								+ " because it was modified by another user in the meanwhile of current transaction. Use pessimistic locking instead of optimistic or simply re-execute the transaction");
+
+			cluster.updatePhysicalPosition(iPosition, data.createRecord(iContent), ppos.type, ppos.version + 1);
+		}
+
+		// RELEASE THE OLD CONTENT ONLY WHEN THE ENTRY POINTS TO THE NEW ONE
+		data.deleteRecord(ppos.dataPosition);
+
+		checkForSchemaUpdate(iClusterId, iPosition);
+
+		return ppos.version + 1;
+	}
+
+	@Override
+	public boolean deleteRecord(final int iRequesterId, final int iClusterId, final long iPosition, final int iVersion) {
+		final OClusterMemoryPacked cluster = getCluster(iClusterId);
+		final OPhysicalPosition ppos = new OPhysicalPosition();
+
+		synchronized (cluster) {
+			if (cluster.getPhysicalPosition(iPosition, ppos) == null)
+				return false;
+
+			// MVCC TRANSACTION: CHECK IF VERSION IS THE SAME
+			if (iVersion > -1 && ppos.version != iVersion)
+				throw new OConcurrentModificationException(
+						"Can't update record #"
+								+ ORecordId.generateString(iClusterId, iPosition)
+								+ " because it was modified by another user in the meanwhile of current transaction. Use pessimistic locking instead of optimistic or simply re-execute the transaction");
+
+			cluster.removePhysicalPosition(iPosition, ppos);
+		}
+
+		data.deleteRecord(ppos.dataPosition);
+		return true;
+	}
+
+	@Override
+	public String getClusterTypeByName(final String iClusterName) {
+		return OClusterMemoryPacked.TYPE;
+	}
+
+	@Override
+	protected OCluster createCluster(final int iId, final String iName) {
+		return new OClusterMemoryPacked(iId, iName);
+	}
+
+	private OClusterMemoryPacked getCluster(final int iClusterId) {
+		final OCluster cluster = getClusterById(iClusterId);
+		if (cluster == null)
+			throw new OStorageException("Cluster " + iClusterId + " was not found");
+		return (OClusterMemoryPacked) cluster;
+	}
+}
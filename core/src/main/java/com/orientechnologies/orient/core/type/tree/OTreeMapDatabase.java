@@ -62,6 +62,14 @@ public class OTreeMapDatabase<K, V> extends OTreeMapPersistent<K, V> {
 		return database;
 	}
 
+	/**
+	 * Changes the database used to load and save the tree records. Used when the tree is shared between database instances.
+	 */
+	public void setDatabase(final ODatabaseRecord<?> iDatabase) {
+		database = iDatabase;
+		record.setDatabase(iDatabase);
+	}
+
 	@Override
 	public OTreeMapPersistent<K, V> load() throws IOException {
 		if (!record.getIdentity().isValid())
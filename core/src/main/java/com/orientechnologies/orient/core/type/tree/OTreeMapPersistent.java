@@ -173,16 +173,9 @@ public abstract class OTreeMapPersistent<K, V> extends OTreeMap<K, V> implements
 		try {
 			if (recordsToCommit.size() > 0) {
 				// COMMIT BEFORE THE NEW RECORDS (TO ASSURE RID IN RELATIONSHIPS)
-				for (OTreeMapEntryPersistent<K, V> node : recordsToCommit) {
-					if (node.record.isDirty() && !node.record.getIdentity().isValid()) {
-						if (iDatabase != null)
-							// REPLACE THE DATABASE WITH THE NEW ACQUIRED
-							node.record.setDatabase(iDatabase);
-
-						// CREATE THE RECORD
-						node.save();
-					}
-				}
+				for (OTreeMapEntryPersistent<K, V> node : recordsToCommit)
+					if (node.record.isDirty() && !node.record.getIdentity().isValid())
+						createNode(node, iDatabase);
 
 				// COMMIT THE RECORDS CHANGED
 				for (OTreeMapEntryPersistent<K, V> node : recordsToCommit) {
@@ -218,6 +211,27 @@ public abstract class OTreeMapPersistent<K, V> extends OTreeMap<K, V> implements
 		}
 	}
 
+	/**
+	 * Creates the new node after its new children, so the node is written with the final RIDs of the children. This happens when
+	 * many entries are put before committing, such as on index rebuild.
+	 */
+	private void createNode(final OTreeMapEntryPersistent<K, V> iNode, final ODatabaseRecord<?> iDatabase) throws IOException {
+		final OTreeMapEntryPersistent<K, V> left = (OTreeMapEntryPersistent<K, V>) iNode.getLeft();
+		if (left != null && !left.record.getIdentity().isValid())
+			createNode(left, iDatabase);
+
+		final OTreeMapEntryPersistent<K, V> right = (OTreeMapEntryPersistent<K, V>) iNode.getRight();
+		if (right != null && !right.record.getIdentity().isValid())
+			createNode(right, iDatabase);
+
+		if (iDatabase != null)
+			// REPLACE THE DATABASE WITH THE NEW ACQUIRED
+			iNode.record.setDatabase(iDatabase);
+
+		// CREATE THE RECORD
+		iNode.save();
+	}
+
 	public OSerializableStream fromStream(final byte[] iStream) throws IOException {
 		final long timer = OProfiler.getInstance().startChrono();
 
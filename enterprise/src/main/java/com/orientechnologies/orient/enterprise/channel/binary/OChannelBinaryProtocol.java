@@ -38,6 +38,7 @@ public class OChannelBinaryProtocol {
 	public static final byte	RECORD_CREATE				= 31;
 	public static final byte	RECORD_UPDATE				= 32;
 	public static final byte	RECORD_DELETE				= 33;
+	public static final byte	RECORD_LOAD_RANGE		= 34;
 
 	public static final byte	COUNT								= 40;
 	public static final byte	COMMAND							= 41;
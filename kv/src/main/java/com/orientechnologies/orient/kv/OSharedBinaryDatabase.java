@@ -17,13 +17,14 @@ package com.orientechnologies.orient.kv;
 
 import com.orientechnologies.orient.core.db.ODatabasePoolAbstract;
 import com.orientechnologies.orient.core.db.record.ODatabaseBinary;
-import com.orientechnologies.orient.core.engine.memory.OEngineMemory;
 import com.orientechnologies.orient.core.exception.OSecurityAccessException;
 import com.orientechnologies.orient.server.OServerMain;
+import com.orientechnologies.orient.server.db.OSharedMemoryDatabase;
 
 public class OSharedBinaryDatabase {
-	// TODO: ALLOW ONLY 1 BECAUSE THE TREE IS NOT YET FULLY TRANSACTIONAL
-	private static final ODatabasePoolAbstract<ODatabaseBinary>	dbPool	= new ODatabasePoolAbstract<ODatabaseBinary>(null, 1, 1) {
+	private static final ODatabasePoolAbstract<ODatabaseBinary>	dbPool	= new ODatabasePoolAbstract<ODatabaseBinary>(null,
+																																			Integer.getInteger("orient.server.db.pool.min", 1),
+																																			Integer.getInteger("orient.server.db.pool.max", 20)) {
 
 																																				public ODatabaseBinary createNewResource(
 																																						final String iDatabaseName,
@@ -36,26 +37,36 @@ public class OSharedBinaryDatabase {
 																																							iDatabaseName);
 
 																																					final ODatabaseBinary db = new ODatabaseBinary(path);
-
-																																					if (path.startsWith(OEngineMemory.NAME)) {
-																																						// CREATE AND PUT IN THE MEMORY MAPTABLE TO AVOID
-																																						// LOCKING (IT'S
-																																						// THREAD SAFE)
-																																						db.create();
-																																						OServerMain.server().getMemoryDatabases()
-																																								.put(iDatabaseName, db);
-																																					} else
-																																						db.open(iAdditionalArgs[0], iAdditionalArgs[1]);
-
+																																					db.open(iAdditionalArgs[0], iAdditionalArgs[1]);
 																																					return db;
 																																				}
 																																			};
 
 	public static ODatabaseBinary acquire(String iName) throws InterruptedException {
+		if (OSharedMemoryDatabase.isMemory(iName))
+			return acquireMemory(iName);
 		return dbPool.acquire(iName, "admin", "admin");
 	}
 
 	public static void release(final ODatabaseBinary iDatabase) {
-		dbPool.release(iDatabase);
+		if (!OSharedMemoryDatabase.release(iDatabase))
+			dbPool.release(iDatabase);
+	}
+
+	/**
+	 * Memory databases are never pooled: see {@link OSharedMemoryDatabase}.
+	 */
+	static ODatabaseBinary acquireMemory(final String iName) throws InterruptedException {
+		ODatabaseBinary db = (ODatabaseBinary) OSharedMemoryDatabase.lock(iName);
+		if (db == null)
+			try {
+				db = new ODatabaseBinary(OServerMain.server().getStoragePath(iName));
+				db.create();
+				OSharedMemoryDatabase.register(iName, db);
+			} catch (RuntimeException e) {
+				OSharedMemoryDatabase.unlock(iName);
+				throw e;
+			}
+		return db;
 	}
 }
@@ -18,13 +18,14 @@ package com.orientechnologies.orient.kv;
 import com.orientechnologies.orient.core.db.ODatabasePoolAbstract;
 import com.orientechnologies.orient.core.db.raw.ODatabaseRaw;
 import com.orientechnologies.orient.core.db.record.ODatabaseBinary;
-import com.orientechnologies.orient.core.engine.memory.OEngineMemory;
 import com.orientechnologies.orient.core.exception.OSecurityAccessException;
 import com.orientechnologies.orient.server.OServerMain;
+import com.orientechnologies.orient.server.db.OSharedMemoryDatabase;
 
 public class OSharedBinaryDatabaseDistributed {
-	// TODO: ALLOW ONLY 1 BECAUSE THE TREE IS NOT YET FULLY TRANSACTIONAL
-	private static final ODatabasePoolAbstract<ODatabaseBinary>	dbPool	= new ODatabasePoolAbstract<ODatabaseBinary>(null, 1, 1) {
+	private static final ODatabasePoolAbstract<ODatabaseBinary>	dbPool	= new ODatabasePoolAbstract<ODatabaseBinary>(null,
+																																			Integer.getInteger("orient.server.db.pool.min", 1),
+																																			Integer.getInteger("orient.server.db.pool.max", 20)) {
 
 																																				public ODatabaseBinary createNewResource(
 																																						final String iDatabaseName,
@@ -37,23 +38,14 @@ public class OSharedBinaryDatabaseDistributed {
 																																							iDatabaseName);
 
 																																					final ODatabaseBinary db = new ODatabaseBinary(path);
-
-																																					if (path.startsWith(OEngineMemory.NAME)) {
-																																						// CREATE AND PUT IN THE MEMORY MAPTABLE TO AVOID
-																																						// LOCKING (IT'S
-																																						// THREAD SAFE)
-																																						db.create();
-																																						OServerMain.server().getMemoryDatabases()
-																																								.put(iDatabaseName, db);
-																																					} else
-																																						db.open(iAdditionalArgs[0], iAdditionalArgs[1]);
-
+																																					db.open(iAdditionalArgs[0], iAdditionalArgs[1]);
 																																					return db;
 																																				}
 																																			};
 
 	public static ODatabaseBinary acquireDatabase(String iName) throws InterruptedException {
-		final ODatabaseBinary db = dbPool.acquire(iName, "admin", "admin");
+		final ODatabaseBinary db = OSharedMemoryDatabase.isMemory(iName) ? OSharedBinaryDatabase.acquireMemory(iName) : dbPool
+				.acquire(iName, "admin", "admin");
 
 		// DISABLE CACHE SINCE THERE IS HAZELCAST FOR IT
 		((ODatabaseRaw) db.getUnderlying()).setUseCache(false);
@@ -62,6 +54,7 @@ public class OSharedBinaryDatabaseDistributed {
 	}
 
 	public static void releaseDatabase(final ODatabaseBinary iDatabase) {
-		dbPool.release(iDatabase);
+		if (!OSharedMemoryDatabase.release(iDatabase))
+			dbPool.release(iDatabase);
 	}
 }
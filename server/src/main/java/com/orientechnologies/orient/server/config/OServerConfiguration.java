@@ -64,9 +64,10 @@ public class OServerConfiguration {
 	}
 
 	public String getStoragePath(String iURL) {
-		for (OServerStorageConfiguration stg : storages)
-			if (stg.name.equals(iURL))
-				return stg.path;
+		if (storages != null)
+			for (OServerStorageConfiguration stg : storages)
+				if (stg.name.equals(iURL))
+					return stg.path;
 
 		return null;
 	}
@@ -91,14 +92,14 @@ public class OServerConfiguration {
 	 */
 	public String getProperty(final String iName, final String iDefaultValue) {
 		if (properties == null)
-			return null;
+			return iDefaultValue;
 
 		for (OEntryConfiguration p : properties) {
 			if (p.name.equals(iName))
 				return p.value;
 		}
 
-		return null;
+		return iDefaultValue;
 	}
 
 	public OServerUserConfiguration getUser(final String iName) {
@@ -0,0 +1,50 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.db;
+
+/**
+ * User authenticated against a database by {@link OSharedDocumentDatabase#authenticate(String, String, String)}. It keeps the hash
+ * of the user password at the authentication instead of the password, and the version of the security rules the user was checked
+ * at: until users and roles don't change the user is not read again from the database.
+ * 
+ * @author Luca Garulli
+ * 
+ */
+public class OAuthenticatedUser {
+	private final String	databaseName;
+	private final String	userName;
+	private final String	userPasswordHash;
+	volatile int					checkedVersion;
+
+	OAuthenticatedUser(final String iDatabaseName, final String iUserName, final String iUserPasswordHash, final int iCheckedVersion) {
+		databaseName = iDatabaseName;
+		userName = iUserName;
+		userPasswordHash = iUserPasswordHash;
+		checkedVersion = iCheckedVersion;
+	}
+
+	public String getDatabaseName() {
+		return databaseName;
+	}
+
+	public String getUserName() {
+		return userName;
+	}
+
+	public String getUserPasswordHash() {
+		return userPasswordHash;
+	}
+}
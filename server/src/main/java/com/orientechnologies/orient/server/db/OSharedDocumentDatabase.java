@@ -20,14 +20,36 @@ import java.util.Map;
 import com.orientechnologies.common.concur.resource.OResourcePool;
 import com.orientechnologies.orient.core.db.ODatabasePoolAbstract;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
-import com.orientechnologies.orient.core.engine.memory.OEngineMemory;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecordAbstract;
 import com.orientechnologies.orient.core.exception.OSecurityAccessException;
+import com.orientechnologies.orient.core.metadata.security.ORole;
+import com.orientechnologies.orient.core.metadata.security.OUser;
+import com.orientechnologies.orient.core.metadata.security.OUser.STATUSES;
 import com.orientechnologies.orient.server.OServerMain;
 
+/**
+ * Pool of the document databases shared by the HTTP commands. The pool of each database grows up to
+ * "orient.server.db.pool.max" instances and shrinks down to "orient.server.db.pool.min" when they are idle.
+ * <p>
+ * Instances are pooled per user, so each instance keeps the permissions of the user that opened it. The password is checked at
+ * every acquisition against the user read again from the database, unless the caller already authenticated the user by
+ * {@link #authenticate(String, String, String)}, as the HTTP sessions do. An authenticated user is read again only when users or
+ * roles change, so a user suspended or with a changed password can't use the instances already open.
+ * </p>
+ * <p>
+ * Memory databases are never pooled: see {@link OSharedMemoryDatabase}.
+ * </p>
+ * 
+ * @author Luca Garulli
+ * 
+ */
 public class OSharedDocumentDatabase {
-	// TODO: ALLOW ONLY 1 BECAUSE THE TREE IS NOT YET FULLY TRANSACTIONAL
-	private static final ODatabasePoolAbstract<ODatabaseDocumentTx>	dbPool	= new ODatabasePoolAbstract<ODatabaseDocumentTx>(null, 1,
-																																							20) {
+	// KEY TO OPEN THE INSTANCES OF THE USERS ALREADY AUTHENTICATED WITHOUT THE PASSWORD
+	private static final Object	authenticationKey	= ODatabaseRecordAbstract.reserveAuthenticationKey();
+
+	private static final ODatabasePoolAbstract<ODatabaseDocumentTx>	dbPool	= new ODatabasePoolAbstract<ODatabaseDocumentTx>(null,
+																																							Integer.getInteger("orient.server.db.pool.min", 1),
+																																							Integer.getInteger("orient.server.db.pool.max", 20)) {
 
 																																						public ODatabaseDocumentTx createNewResource(
 																																								final String iDatabaseName,
@@ -41,32 +63,121 @@ public class OSharedDocumentDatabase {
 
 																																							final ODatabaseDocumentTx db = new ODatabaseDocumentTx(
 																																									path);
-
-																																							if (path.startsWith(OEngineMemory.NAME)) {
-																																								// CREATE AND PUT IN THE MEMORY MAPTABLE TO AVOID
-																																								// LOCKING
-																																								// (IT'S
-																																								// THREAD SAFE)
-																																								db.create();
-																																								OServerMain.server().getMemoryDatabases()
-																																										.put(iDatabaseName, db);
-																																							} else
+																																							if (iAdditionalArgs[1] == null)
+																																								// USER ALREADY AUTHENTICATED BY THE CALLER
+																																								((ODatabaseRecordAbstract<?>) db.getUnderlying())
+																																										.openAuthenticated(iAdditionalArgs[0], authenticationKey);
+																																							else
 																																								db.open(iAdditionalArgs[0], iAdditionalArgs[1]);
-
 																																							return db;
 																																						}
 																																					};
 
+	/**
+	 * Acquires a database instance checking the user password.
+	 */
 	public static ODatabaseDocumentTx acquire(final String iName, final String iUserName, final String iUserPassword)
 			throws InterruptedException {
-		return dbPool.acquire(iName, iUserName, iUserPassword);
+		if (iUserPassword == null)
+			throw new OSecurityAccessException(iName, "Password missed for user: " + iUserName);
+
+		final ODatabaseDocumentTx db = OSharedMemoryDatabase.isMemory(iName) ? acquireMemory(iName) : dbPool.acquire(iName,
+				iUserName, iUserPassword);
+		try {
+			if (!getUser(db, iName, iUserName).checkPassword(iUserPassword))
+				throw new OSecurityAccessException(iName, "Password not valid for user: " + iUserName);
+		} catch (RuntimeException e) {
+			release(db);
+			throw e;
+		}
+		return db;
+	}
+
+	/**
+	 * Authenticates the user against the database checking its password.
+	 * 
+	 * @return The authenticated user to acquire the database with {@link #acquire(OAuthenticatedUser)}
+	 * @throws OSecurityAccessException
+	 *           if the user doesn't exist, it's not active or the password is not valid
+	 */
+	public static OAuthenticatedUser authenticate(final String iName, final String iUserName, final String iUserPassword)
+			throws InterruptedException {
+		if (iUserPassword == null)
+			throw new OSecurityAccessException(iName, "Password missed for user: " + iUserName);
+
+		// READ THE VERSION BEFORE THE USER: A CHANGE IN THE MEANWHILE MAKES THE USER CHECKED AGAIN
+		final int version = ORole.getRulesVersion();
+
+		final ODatabaseDocumentTx db = OSharedMemoryDatabase.isMemory(iName) ? acquireMemory(iName) : dbPool.acquire(iName,
+				iUserName, iUserPassword);
+		try {
+			final OUser user = getUser(db, iName, iUserName);
+			if (!user.checkPassword(iUserPassword))
+				throw new OSecurityAccessException(iName, "Password not valid for user: " + iUserName);
+
+			return new OAuthenticatedUser(iName, iUserName, user.getPassword(), version);
+		} finally {
+			release(db);
+		}
+	}
+
+	/**
+	 * Acquires a database instance for a user already authenticated, without checking the password again. If users or roles
+	 * changed since the last check, the user must be still active and with the same password of the authentication.
+	 */
+	public static ODatabaseDocumentTx acquire(final OAuthenticatedUser iUser) throws InterruptedException {
+		final String name = iUser.getDatabaseName();
+		final ODatabaseDocumentTx db = OSharedMemoryDatabase.isMemory(name) ? acquireMemory(name) : dbPool.acquire(name, iUser
+				.getUserName(), null);
+
+		final int version = ORole.getRulesVersion();
+		if (version != iUser.checkedVersion)
+			try {
+				if (!getUser(db, name, iUser.getUserName()).getPassword().equals(iUser.getUserPasswordHash()))
+					throw new OSecurityAccessException(name, "Password changed for user: " + iUser.getUserName());
+				iUser.checkedVersion = version;
+			} catch (RuntimeException e) {
+				release(db);
+				throw e;
+			}
+		return db;
+	}
+
+	/**
+	 * Reads the user from the database, ignoring the user instance loaded when the database was opened.
+	 * 
+	 * @throws OSecurityAccessException
+	 *           if the user doesn't exist anymore or it's not active
+	 */
+	public static OUser getUser(final ODatabaseDocumentTx iDatabase, final String iName, final String iUserName) {
+		final OUser user = iDatabase.getMetadata().getSecurity().getUser(iUserName);
+		if (user == null)
+			throw new OSecurityAccessException(iName, "User '" + iUserName + "' was not found in database: " + iName);
+		if (user.getAccountStatus() != STATUSES.ACTIVE)
+			throw new OSecurityAccessException(iName, "User '" + iUserName + "' is not active");
+		return user;
 	}
 
 	public static void release(final ODatabaseDocumentTx iDatabase) {
-		dbPool.release(iDatabase);
+		if (!OSharedMemoryDatabase.release(iDatabase))
+			dbPool.release(iDatabase);
 	}
 
 	public static Map<String, OResourcePool<String, ODatabaseDocumentTx>> getDatabasePools() {
 		return dbPool.getPools();
 	}
+
+	private static ODatabaseDocumentTx acquireMemory(final String iName) throws InterruptedException {
+		ODatabaseDocumentTx db = (ODatabaseDocumentTx) OSharedMemoryDatabase.lock(iName);
+		if (db == null)
+			try {
+				db = new ODatabaseDocumentTx(OServerMain.server().getStoragePath(iName));
+				db.create();
+				OSharedMemoryDatabase.register(iName, db);
+			} catch (RuntimeException e) {
+				OSharedMemoryDatabase.unlock(iName);
+				throw e;
+			}
+		return db;
+	}
 }
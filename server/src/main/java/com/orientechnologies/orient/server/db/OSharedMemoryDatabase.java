@@ -0,0 +1,107 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.db;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Semaphore;
+
+import com.orientechnologies.orient.core.db.ODatabase;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.engine.memory.OEngineMemory;
+import com.orientechnologies.orient.server.OServerMain;
+
+/**
+ * Access to the memory databases shared by the server. A memory database loses its content when closed, so it's created once,
+ * kept in the server memory databases and never pooled nor closed by the database pools. The instance is not thread safe: lock()
+ * gives it to one caller at a time.
+ * 
+ * @author Luca Garulli
+ * 
+ */
+public class OSharedMemoryDatabase {
+	private static final Map<String, Semaphore>	locks	= new HashMap<String, Semaphore>();
+
+	/**
+	 * Tells if the database is configured in memory on the server.
+	 */
+	public static boolean isMemory(final String iDatabaseName) {
+		final String path = OServerMain.server().getConfiguration().getStoragePath(iDatabaseName);
+		return path != null && path.startsWith(OEngineMemory.NAME);
+	}
+
+	/**
+	 * Waits until no other caller is using the memory database and returns its instance, or null if it wasn't created yet. The
+	 * caller must call {@link #unlock(String)} once done, even if it creates the instance.
+	 */
+	public static ODatabaseRecord<?> lock(final String iDatabaseName) throws InterruptedException {
+		getLock(iDatabaseName).acquire();
+
+		final Map<String, ODatabaseRecord<?>> memoryDbs = OServerMain.server().getMemoryDatabases();
+		synchronized (memoryDbs) {
+			return memoryDbs.get(iDatabaseName);
+		}
+	}
+
+	/**
+	 * Registers the memory database just created by the caller holding the lock.
+	 */
+	public static void register(final String iDatabaseName, final ODatabaseRecord<?> iDatabase) {
+		final Map<String, ODatabaseRecord<?>> memoryDbs = OServerMain.server().getMemoryDatabases();
+		synchronized (memoryDbs) {
+			memoryDbs.put(iDatabaseName, iDatabase);
+		}
+	}
+
+	public static void unlock(final String iDatabaseName) {
+		getLock(iDatabaseName).release();
+	}
+
+	/**
+	 * Releases the database if it's a shared memory database.
+	 * 
+	 * @return true if the database has been released, false if it's not a shared memory database
+	 */
+	public static boolean release(final ODatabase iDatabase) {
+		final Map<String, ODatabaseRecord<?>> memoryDbs = OServerMain.server().getMemoryDatabases();
+		String name = null;
+		synchronized (memoryDbs) {
+			for (Entry<String, ODatabaseRecord<?>> entry : memoryDbs.entrySet())
+				if (entry.getValue() == iDatabase) {
+					name = entry.getKey();
+					break;
+				}
+		}
+
+		if (name == null)
+			return false;
+
+		unlock(name);
+		return true;
+	}
+
+	private static Semaphore getLock(final String iDatabaseName) {
+		synchronized (locks) {
+			Semaphore lock = locks.get(iDatabaseName);
+			if (lock == null) {
+				lock = new Semaphore(1);
+				locks.put(iDatabaseName, lock);
+			}
+			return lock;
+		}
+	}
+}
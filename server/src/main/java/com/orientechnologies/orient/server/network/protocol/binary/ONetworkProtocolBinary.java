@@ -19,8 +19,10 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.net.Socket;
 import java.net.SocketException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -39,6 +41,7 @@ import com.orientechnologies.orient.core.engine.memory.OEngineMemory;
 import com.orientechnologies.orient.core.exception.OSecurityAccessException;
 import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.id.fetch.OFetchBatch;
 import com.orientechnologies.orient.core.id.fetch.OFetchHelper;
 import com.orientechnologies.orient.core.id.fetch.OFetchListener;
 import com.orientechnologies.orient.core.metadata.security.OUser;
@@ -71,6 +74,9 @@ import com.orientechnologies.orient.server.tx.OTransactionOptimisticProxy;
 import com.orientechnologies.orient.server.tx.OTransactionRecordProxy;
 
 public class ONetworkProtocolBinary extends ONetworkProtocol {
+	// RESULT RECORDS OF ASYNCHRONOUS COMMANDS SENT BETWEEN TWO FLUSHES
+	private static final int		RESULT_BATCH_SIZE	= Integer.getInteger("orient.network.binary.resultBatch", 100);
+
 	protected OClientConnection	connection;
 	protected OChannelBinary		channel;
 	protected OUser							account;
@@ -294,29 +300,13 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 						record.fromStream(buffer.buffer);
 
 						if (record instanceof ODocument) {
-							final Map<String, Integer> fetchPlan = OFetchHelper.buildFetchPlan(fetchPlanString);
+							final List<ODocument> recordsToSend = new ArrayList<ODocument>();
 
-							final Set<ODocument> recordsToSend = new HashSet<ODocument>();
-							OFetchHelper.fetch((ODocument) record, record, fetchPlan, null, 0, -1, new OFetchListener() {
-								public int size() {
-									return recordsToSend.size();
-								}
+							final OFetchBatch fetchBatch = createFetchBatch(OFetchHelper.buildFetchPlan(fetchPlanString), recordsToSend);
+							fetchBatch.add((ODocument) record);
+							fetchBatch.fetch();
 
-								// ADD TO THE SET OF OBJECTS TO SEND
-								public Object fetchLinked(final ODocument iRoot, final Object iUserObject, final String iFieldName,
-										final Object iLinked) {
-									if (iLinked instanceof ODocument)
-										return recordsToSend.add((ODocument) iLinked) ? iLinked : null;
-									else
-										return recordsToSend.addAll((Collection<? extends ODocument>) iLinked) ? iLinked : null;
-								}
-							});
-
-							// SEND RECORDS TO LOAD IN CLIENT CACHE
-							for (ODocument doc : recordsToSend) {
-								channel.writeByte((byte) 2); // CLIENT CACHE RECORD. IT ISN'T PART OF THE RESULT SET
-								writeRecord(doc);
-							}
+							sendCacheRecords(recordsToSend);
 						}
 
 						channel.writeByte((byte) 0); // NO MORE RECORDS
@@ -328,6 +318,31 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 				break;
 			}
 
+			case OChannelBinaryProtocol.RECORD_LOAD_RANGE: {
+				data.commandInfo = "Load records";
+
+				final short clusterId = channel.readShort();
+				final long fromPosition = channel.readLong();
+				final int count = channel.readInt();
+
+				// LOAD THE PAGE OF RAW BUFFERS IN ONE STORAGE CALL
+				final ORawBuffer[] buffers = underlyingDatabase.read(clusterId, fromPosition, count);
+				sendOk();
+
+				channel.writeInt(buffers.length);
+				for (ORawBuffer buffer : buffers) {
+					if (buffer != null) {
+						channel.writeByte((byte) 1);
+						channel.writeBytes(buffer.buffer);
+						channel.writeInt(buffer.version);
+						channel.writeByte(buffer.recordType);
+					} else
+						// DELETED RECORD
+						channel.writeByte((byte) 0);
+				}
+				break;
+			}
+
 			case OChannelBinaryProtocol.RECORD_CREATE:
 				data.commandInfo = "Create record";
 
@@ -394,11 +409,14 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 				if (asynch) {
 					// ASYNCHRONOUS
 					final StringBuilder empty = new StringBuilder();
-					final Set<ODocument> recordsToSend = new HashSet<ODocument>();
+					final List<ODocument> recordsToSend = new ArrayList<ODocument>();
 
 					final Map<String, Integer> fetchPlan = query != null ? OFetchHelper.buildFetchPlan(query.getFetchPlan()) : null;
+					final OFetchBatch fetchBatch = fetchPlan != null ? createFetchBatch(fetchPlan, recordsToSend) : null;
 
 					command.setResultListener(new OCommandResultListener() {
+						private int	results	= 0;
+
 						public boolean result(final Object iRecord) {
 							if (empty.length() == 0)
 								try {
@@ -410,23 +428,17 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 							try {
 								channel.writeByte((byte) 1); // ONE MORE RECORD
 								writeRecord((ORecordInternal<?>) iRecord);
-								channel.flush();
-
-								if (fetchPlan != null && iRecord instanceof ODocument) {
-									OFetchHelper.fetch((ODocument) iRecord, iRecord, fetchPlan, null, 0, -1, new OFetchListener() {
-										public int size() {
-											return recordsToSend.size();
-										}
-
-										// ADD TO THE SET OF OBJECT TO SEND
-										public Object fetchLinked(final ODocument iRoot, final Object iUserObject, final String iFieldName,
-												final Object iLinked) {
-											if (iLinked instanceof ODocument)
-												return recordsToSend.add((ODocument) iLinked) ? iLinked : null;
-											else
-												return recordsToSend.addAll((Collection<? extends ODocument>) iLinked) ? iLinked : null;
-										}
-									});
+
+								if (fetchBatch != null && iRecord instanceof ODocument)
+									fetchBatch.add((ODocument) iRecord);
+
+								if (++results % RESULT_BATCH_SIZE == 0) {
+									// END OF THE BATCH: SEND THE LINKED RECORDS AND FLUSH THE FRAME
+									if (fetchBatch != null) {
+										fetchBatch.fetch();
+										sendCacheRecords(recordsToSend);
+									}
+									channel.flush();
 								}
 
 							} catch (IOException e) {
@@ -445,10 +457,9 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 						} catch (IOException e1) {
 						}
 
-					// SEND RECORDS TO LOAD IN CLIENT CACHE
-					for (ODocument doc : recordsToSend) {
-						channel.writeByte((byte) 2); // CLIENT CACHE RECORD. IT ISN'T PART OF THE RESULT SET
-						writeRecord(doc);
+					if (fetchBatch != null) {
+						fetchBatch.fetch();
+						sendCacheRecords(recordsToSend);
 					}
 
 					channel.writeByte((byte) 0); // NO MORE RECORDS
@@ -625,6 +636,57 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 		channel.clearInput();
 	}
 
+	/**
+	 * Creates the batch that fetches the records linked by the fetch plan loading every level with one storage call. The linked
+	 * records are collected in ioRecordsToSend only once per request.
+	 */
+	private OFetchBatch createFetchBatch(final Map<String, Integer> iFetchPlan, final List<ODocument> ioRecordsToSend) {
+		final Set<ODocument> fetched = new HashSet<ODocument>();
+
+		return new OFetchBatch(iFetchPlan, -1, new OFetchListener() {
+			public int size() {
+				return fetched.size();
+			}
+
+			// ADD TO THE SET OF OBJECTS TO SEND
+			@SuppressWarnings("unchecked")
+			public Object fetchLinked(final ODocument iRoot, final Object iUserObject, final String iFieldName, final Object iLinked) {
+				if (iLinked instanceof ODocument) {
+					if (!fetched.add((ODocument) iLinked))
+						return null;
+					ioRecordsToSend.add((ODocument) iLinked);
+					return iLinked;
+				}
+
+				boolean added = false;
+				for (ODocument d : (Collection<ODocument>) iLinked)
+					if (fetched.add(d)) {
+						ioRecordsToSend.add(d);
+						added = true;
+					}
+				return added ? iLinked : null;
+			}
+		}) {
+			@SuppressWarnings("unchecked")
+			@Override
+			protected void load(final List<ODocument> iRecords) {
+				((ODatabaseRecordTx<ODocument>) connection.database.getUnderlying()).executeReadRecords(iRecords);
+			}
+		};
+	}
+
+	/**
+	 * Sends the records to load in the client cache and clears the list. The records are sent once per response, since the client
+	 * cache can't be assumed to still keep the records sent by the previous ones.
+	 */
+	private void sendCacheRecords(final List<ODocument> iRecords) throws IOException {
+		for (ODocument doc : iRecords) {
+			channel.writeByte((byte) 2); // CLIENT CACHE RECORD. IT ISN'T PART OF THE RESULT SET
+			writeRecord(doc);
+		}
+		iRecords.clear();
+	}
+
 	private boolean loadUserFromSchema(final String iUserName, final String iUserPassword) {
 		account = connection.database.getMetadata().getSecurity().getUser(iUserName);
 		if (account == null)
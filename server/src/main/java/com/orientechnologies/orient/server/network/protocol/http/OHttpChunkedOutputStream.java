@@ -0,0 +1,99 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.network.protocol.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes the HTTP body using the chunked transfer encoding. The content is buffered up to the chunk size, then sent as one chunk.
+ * {@link #finish()} sends the last chunk but leaves the underlying stream open, since the connection is kept alive.
+ * 
+ * @author Luca Garulli
+ * 
+ */
+public class OHttpChunkedOutputStream extends OutputStream {
+	private static final byte[]	LAST_CHUNK	= { (byte) '0', (byte) '\r', (byte) '\n', (byte) '\r', (byte) '\n' };
+
+	private final OutputStream	out;
+	private final byte[]				buffer;
+	private int									count;
+	private boolean							finished;
+
+	public OHttpChunkedOutputStream(final OutputStream iOut, final int iChunkSize) {
+		out = iOut;
+		buffer = new byte[iChunkSize];
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+		if (count == buffer.length)
+			writeChunk();
+		buffer[count++] = (byte) b;
+	}
+
+	@Override
+	public void write(final byte[] iBuffer, int iOffset, int iLength) throws IOException {
+		while (iLength > 0) {
+			if (count == buffer.length)
+				writeChunk();
+
+			final int len = Math.min(iLength, buffer.length - count);
+			System.arraycopy(iBuffer, iOffset, buffer, count, len);
+			count += len;
+			iOffset += len;
+			iLength -= len;
+		}
+	}
+
+	/**
+	 * Sends the buffered content as a chunk and flushes the underlying stream, so the client receives the data written so far.
+	 */
+	@Override
+	public void flush() throws IOException {
+		writeChunk();
+		out.flush();
+	}
+
+	/**
+	 * Sends the remaining content and the last chunk. The underlying stream remains open and is not flushed, so the response can be
+	 * sent together with the next pipelined ones.
+	 */
+	public void finish() throws IOException {
+		if (finished)
+			return;
+
+		writeChunk();
+		out.write(LAST_CHUNK);
+		finished = true;
+	}
+
+	@Override
+	public void close() throws IOException {
+		finish();
+	}
+
+	private void writeChunk() throws IOException {
+		if (count == 0)
+			return;
+
+		out.write(Integer.toHexString(count).getBytes());
+		out.write(OHttpUtils.EOL);
+		out.write(buffer, 0, count);
+		out.write(OHttpUtils.EOL);
+		count = 0;
+	}
+}
@@ -32,6 +32,9 @@ public class OHttpRequest {
 	public String												url;
 	public String												httpVersion;
 	public String												content;
+	public String												acceptEncoding;
+	public String												ifNoneMatch;
+	public boolean											keepAlive;
 	public ONetworkProtocolData					data;
 	public ONetworkProtocolHttpAbstract	executor;
 
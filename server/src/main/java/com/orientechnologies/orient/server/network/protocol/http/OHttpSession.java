@@ -0,0 +1,69 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.network.protocol.http;
+
+import com.orientechnologies.orient.server.db.OAuthenticatedUser;
+
+/**
+ * HTTP session created after the authentication against a database. It keeps the user already authenticated, so the following
+ * requests of the session acquire the database without authenticating again. The password is not kept: the hash of the user
+ * password at the authentication is kept instead, to recognize a password changed in the meanwhile.
+ * 
+ * @author Luca Garulli
+ * 
+ */
+public class OHttpSession {
+	private final String							id;
+	private final OAuthenticatedUser	user;
+	private final long								createdOn;
+	private volatile long							updatedOn;
+	long															expirationTick;
+
+	OHttpSession(final String iId, final OAuthenticatedUser iUser) {
+		id = iId;
+		user = iUser;
+		createdOn = System.currentTimeMillis();
+		updatedOn = createdOn;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public String getDatabaseName() {
+		return user.getDatabaseName();
+	}
+
+	public String getUserName() {
+		return user.getUserName();
+	}
+
+	public OAuthenticatedUser getUser() {
+		return user;
+	}
+
+	public long getCreatedOn() {
+		return createdOn;
+	}
+
+	public long getUpdatedOn() {
+		return updatedOn;
+	}
+
+	void touch() {
+		updatedOn = System.currentTimeMillis();
+	}
+}
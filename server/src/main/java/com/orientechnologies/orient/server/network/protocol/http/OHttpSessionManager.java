@@ -15,34 +15,106 @@
  */
 package com.orientechnologies.orient.server.network.protocol.http;
 
-import java.util.HashMap;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.Random;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.server.db.OAuthenticatedUser;
 
 /**
- * Handles the HTTP session such as a real HTTP Server.
+ * Handles the HTTP session such as a real HTTP Server. Sessions expire after "orient.http.session.timeout" milliseconds without
+ * requests (default 30 minutes) and are at most "orient.http.session.max" (default 10000): when full, the session next to expire
+ * is evicted.
+ * <p>
+ * Expiration is driven by a timer wheel: each session is put in the bucket of the tick it expires and every tick checks only its
+ * bucket. Requests just update the session time, the session is moved to its new bucket when its old one is checked.
+ * </p>
  * 
  * @author Luca Garulli
  * 
  */
 public class OHttpSessionManager {
-	private static final OHttpSessionManager	instance	= new OHttpSessionManager();
-	private Map<String, Object>								sessions	= new HashMap<String, Object>();
+	private static final int											WHEEL_SIZE				= 64;
+	private static final int											DEF_TIMEOUT				= Integer.getInteger("orient.http.session.timeout", 1800000);
+	private static final int											DEF_MAX_SESSIONS	= Integer.getInteger("orient.http.session.max", 10000);
+	private static final Timer										expirationTimer		= new Timer("OrientDB HTTP Session Expiration", true);
+	private static final OHttpSessionManager			instance					= new OHttpSessionManager(DEF_TIMEOUT, DEF_MAX_SESSIONS);
+
+	private final SecureRandom										random						= new SecureRandom();
+	private final Map<String, OHttpSession>				sessions					= new ConcurrentHashMap<String, OHttpSession>();
+	private final List<Map<String, OHttpSession>>	wheel							= new ArrayList<Map<String, OHttpSession>>(WHEEL_SIZE);
+	private final AtomicInteger										size							= new AtomicInteger();
+	private final int															timeout;
+	private final int															maxSessions;
+	private final long														tickMillis;
+	private long																	lastTick;
+
+	protected OHttpSessionManager(final int iTimeout, final int iMaxSessions) {
+		timeout = iTimeout;
+		maxSessions = iMaxSessions;
+		tickMillis = Math.max(1, iTimeout / WHEEL_SIZE);
+		lastTick = currentTick();
+
+		for (int i = 0; i < WHEEL_SIZE; ++i)
+			wheel.add(new ConcurrentHashMap<String, OHttpSession>());
 
-	protected OHttpSessionManager() {
+		expirationTimer.schedule(new TimerTask() {
+			@Override
+			public void run() {
+				expireSessions();
+			}
+		}, tickMillis, tickMillis);
 	}
 
-	public Object[] getSessions(final String iId) {
+	public Object[] getSessions() {
 		return sessions.keySet().toArray();
 	}
 
-	public Object getSession(final String iId) {
-		return sessions.get(iId);
+	public int getSessionCount() {
+		return size.get();
+	}
+
+	/**
+	 * Returns the session if still valid, updating its last access time.
+	 */
+	public OHttpSession getSession(final String iId) {
+		final OHttpSession session = sessions.get(iId);
+		if (session == null)
+			return null;
+
+		if (System.currentTimeMillis() - session.getUpdatedOn() > timeout) {
+			// EXPIRED BUT NOT YET REMOVED
+			removeSession(iId);
+			return null;
+		}
+
+		session.touch();
+		return session;
 	}
 
-	public String createSession() {
-		final String id = "OS" + System.currentTimeMillis() + new Random().nextLong();
-		sessions.put(id, Boolean.TRUE);
+	/**
+	 * Creates a new session for the user already authenticated against the database.
+	 * 
+	 * @return The session id
+	 */
+	public String createSession(final OAuthenticatedUser iUser) {
+		while (size.get() >= maxSessions)
+			if (!evictNextToExpire())
+				break;
+
+		final String id = "OS" + Long.toHexString(random.nextLong()) + Long.toHexString(random.nextLong());
+		final OHttpSession session = new OHttpSession(id, iUser);
+
+		sessions.put(id, session);
+		size.incrementAndGet();
+		schedule(session);
 		return id;
 	}
 
@@ -50,7 +122,92 @@ public class OHttpSessionManager {
 		return instance;
 	}
 
-	public Object removeSession(final String iSessionId) {
-		return sessions.remove(iSessionId);
+	public OHttpSession removeSession(final String iSessionId) {
+		final OHttpSession session = sessions.remove(iSessionId);
+		if (session != null) {
+			size.decrementAndGet();
+			// THE WHEEL ENTRY IS LEFT TO THE NEXT CHECK OF ITS BUCKET
+		}
+		return session;
+	}
+
+	/**
+	 * Checks the buckets of the ticks elapsed since the last run, removing the expired sessions and moving the others to the bucket
+	 * of their new expiration.
+	 */
+	protected void expireSessions() {
+		final long now = System.currentTimeMillis();
+		final long tick = currentTick();
+
+		int expired = 0;
+		for (long t = lastTick + 1; t <= tick && t <= lastTick + WHEEL_SIZE; ++t) {
+			final Map<String, OHttpSession> bucket = wheel.get((int) (t % WHEEL_SIZE));
+
+			for (Iterator<OHttpSession> it = bucket.values().iterator(); it.hasNext();) {
+				final OHttpSession session = it.next();
+				if (session.expirationTick > tick)
+					// SCHEDULED IN A NEXT ROUND OF THE WHEEL
+					continue;
+
+				it.remove();
+
+				if (sessions.get(session.getId()) != session)
+					// ALREADY REMOVED
+					continue;
+
+				if (now - session.getUpdatedOn() > timeout) {
+					if (removeSession(session.getId()) != null)
+						expired++;
+				} else
+					schedule(session);
+			}
+		}
+		lastTick = tick;
+
+		if (expired > 0)
+			OLogManager.instance().debug(this, "Expired %d HTTP sessions", expired);
+	}
+
+	private void schedule(final OHttpSession iSession) {
+		iSession.expirationTick = getExpirationTick(iSession);
+		wheel.get((int) (iSession.expirationTick % WHEEL_SIZE)).put(iSession.getId(), iSession);
+	}
+
+	/**
+	 * Removes the session next to expire, looking for it in the buckets following the current tick.
+	 */
+	private boolean evictNextToExpire() {
+		final long tick = currentTick();
+		for (long t = tick; t <= tick + WHEEL_SIZE; ++t) {
+			final Map<String, OHttpSession> bucket = wheel.get((int) (t % WHEEL_SIZE));
+
+			OHttpSession oldest = null;
+			for (Iterator<OHttpSession> it = bucket.values().iterator(); it.hasNext();) {
+				final OHttpSession session = it.next();
+				if (session.expirationTick > t || sessions.get(session.getId()) != session)
+					continue;
+
+				if (getExpirationTick(session) > t) {
+					// USED AFTER BEING SCHEDULED: MOVE IT TO ITS BUCKET
+					it.remove();
+					schedule(session);
+				} else if (oldest == null || session.getUpdatedOn() < oldest.getUpdatedOn())
+					oldest = session;
+			}
+
+			if (oldest != null) {
+				bucket.remove(oldest.getId());
+				return removeSession(oldest.getId()) != null;
+			}
+		}
+		return false;
+	}
+
+	private long getExpirationTick(final OHttpSession iSession) {
+		return (iSession.getUpdatedOn() + timeout) / tickMillis + 1;
+	}
+
+	private long currentTick() {
+		return System.currentTimeMillis() / tickMillis;
 	}
 }
@@ -23,23 +23,32 @@ package com.orientechnologies.orient.server.network.protocol.http;
  */
 public class OHttpUtils {
 
-	public static final String	URL_SEPARATOR							= "/";
-	public static final char		URL_SEPARATOR_CHAR				= '/';
-	public static final byte[]	EOL												= { (byte) '\r', (byte) '\n' };
+	public static final String	URL_SEPARATOR										= "/";
+	public static final char		URL_SEPARATOR_CHAR							= '/';
+	public static final byte[]	EOL															= { (byte) '\r', (byte) '\n' };
 
-	public static final String	METHOD_GET								= "GET";
-	public static final String	METHOD_PUT								= "PUT";
-	public static final String	METHOD_DELETE							= "DELETE";
-	public static final String	METHOD_POST								= "POST";
+	public static final String	METHOD_GET											= "GET";
+	public static final String	METHOD_PUT											= "PUT";
+	public static final String	METHOD_DELETE										= "DELETE";
+	public static final String	METHOD_POST											= "POST";
 
-	public static final String	CONTENT_LENGTH						= "CONTENT-LENGTH: ";
+	public static final String	CONTENT_LENGTH									= "CONTENT-LENGTH: ";
+	public static final String	TRANSFER_ENCODING_CHUNKED				= "Transfer-Encoding: chunked";
+	public static final String	CONTENT_ENCODING_GZIP						= "Content-Encoding: gzip";
+	public static final String	HEADER_ACCEPT_ENCODING					= "ACCEPT-ENCODING:";
+	public static final String	HEADER_IF_NONE_MATCH						= "IF-NONE-MATCH:";
+	public static final String	HEADER_ETAG											= "ETag: ";
+	public static final String	HEADER_CONNECTION								= "CONNECTION:";
+	public static final String	HTTP_1_1												= "HTTP/1.1";
 
-	public static final String	CONTENT_TEXT_PLAIN				= "text/plain";
-	public static final String	CONTENT_JSON							= "application/json";
+	public static final String	CONTENT_TEXT_PLAIN							= "text/plain";
+	public static final String	CONTENT_JSON										= "application/json";
 
-	public static final int			STATUS_OK_CODE						= 200;
-	public static final String	STATUS_OK_DESCRIPTION			= "OK";
-	public static final int			STATUS_ERROR							= 500;
+	public static final int			STATUS_OK_CODE									= 200;
+	public static final String	STATUS_OK_DESCRIPTION						= "OK";
+	public static final int			STATUS_NOT_MODIFIED_CODE				= 304;
+	public static final String	STATUS_NOT_MODIFIED_DESCRIPTION	= "Not Modified";
+	public static final int			STATUS_ERROR										= 500;
 	public static final String	STATUS_ERROR_DESCRIPTION	= "Error";
 	public static final int			STATUS_AUTH_CODE					= 401;
 	public static final String	STATUS_AUTH_DESCRIPTION		= "Unauthorized";
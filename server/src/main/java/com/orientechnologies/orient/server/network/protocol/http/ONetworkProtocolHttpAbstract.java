@@ -15,6 +15,7 @@
  */
 package com.orientechnologies.orient.server.network.protocol.http;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.net.Socket;
 import java.net.SocketException;
@@ -34,6 +35,7 @@ import com.orientechnologies.orient.core.exception.ORecordNotFoundException;
 import com.orientechnologies.orient.core.exception.OSecurityAccessException;
 import com.orientechnologies.orient.core.metadata.security.OUser;
 import com.orientechnologies.orient.core.serialization.OBase64Utils;
+import com.orientechnologies.orient.core.serialization.OBinaryProtocol;
 import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
 import com.orientechnologies.orient.enterprise.channel.OChannel;
 import com.orientechnologies.orient.enterprise.channel.text.OChannelTextServer;
@@ -47,8 +49,10 @@ import com.orientechnologies.orient.server.network.protocol.http.command.OServer
 
 public abstract class ONetworkProtocolHttpAbstract extends ONetworkProtocol {
 	private static final String								COMMAND_SEPARATOR		= "|";
-	private static final int									MAX_CONTENT_LENGTH	= 10000;																	// MAX = 10Kb
+	private static final int									MAX_CONTENT_LENGTH	= Integer.getInteger("orient.http.maxContentLength", 10000);
+	private static final int									MAX_HEADER_SIZE			= Integer.getInteger("orient.http.maxHeaderSize", 16384);
 	private static final int									TCP_DEFAULT_TIMEOUT	= 10000;
+	private static final int									IN_BUFFER_SIZE			= 8192;
 
 	protected OClientConnection								connection;
 	protected OServerConfiguration						configuration;
@@ -56,7 +60,10 @@ public abstract class ONetworkProtocolHttpAbstract extends ONetworkProtocol {
 	protected OUser														account;
 	protected OHttpRequest										request;
 
-	private final StringBuilder								requestContent			= new StringBuilder();
+	private byte[]														inBuffer						= new byte[IN_BUFFER_SIZE];
+	private int																inPosition;
+	private int																inLimit;
+	private int																headerSize;
 	private final Map<String, OServerCommand>	exactCommands				= new HashMap<String, OServerCommand>();
 	private final Map<String, OServerCommand>	wildcardCommands		= new HashMap<String, OServerCommand>();
 
@@ -67,6 +74,8 @@ public abstract class ONetworkProtocolHttpAbstract extends ONetworkProtocol {
 	@Override
 	public void config(final Socket iSocket, final OClientConnection iConnection) throws IOException {
 		iSocket.setSoTimeout(TCP_DEFAULT_TIMEOUT);
+		// RESPONSES ARE FLUSHED ONLY WHEN COMPLETE: DON'T DELAY THE LAST SEGMENT
+		iSocket.setTcpNoDelay(true);
 		channel = new OChannelTextServer(iSocket);
 		connection = iConnection;
 		configuration = new OServerConfiguration();
@@ -217,21 +226,39 @@ public abstract class ONetworkProtocolHttpAbstract extends ONetworkProtocol {
 
 	protected void sendTextContent(final int iCode, final String iReason, String iHeaders, final String iContentType,
 			final String iContent) throws IOException {
-		final boolean empty = iContent == null || iContent.length() == 0;
+		final byte[] content = iContent != null ? OBinaryProtocol.string2bytes(iContent) : null;
+		final boolean empty = content == null || content.length == 0;
 
 		sendStatus(empty && iCode == 200 ? 204 : iCode, iReason);
 		sendResponseHeaders(iContentType);
 		if (iHeaders != null)
 			writeLine(iHeaders);
 
-		writeLine(OHttpUtils.CONTENT_LENGTH + (empty ? 0 : iContent.length()));
+		writeLine(OHttpUtils.CONTENT_LENGTH + (empty ? 0 : content.length));
 
 		writeLine(null);
 
 		if (!empty)
-			writeLine(iContent);
+			channel.outStream.write(content);
 
-		channel.flush();
+		flush();
+	}
+
+	/**
+	 * Sends the responses written so far. If the client has already sent other requests on the same connection (HTTP pipelining)
+	 * the flush is delayed, so the responses are sent together in the fewest packets. They are flushed before waiting for new
+	 * requests anyway.
+	 */
+	public void flush() throws IOException {
+		if (!hasPendingRequests())
+			channel.flush();
+	}
+
+	/**
+	 * Returns true if the client has already sent bytes of the next request.
+	 */
+	public boolean hasPendingRequests() throws IOException {
+		return inPosition < inLimit || channel.inStream.available() > 0;
 	}
 
 	protected void writeLine(final String iContent) throws IOException {
@@ -250,89 +277,154 @@ public abstract class ONetworkProtocolHttpAbstract extends ONetworkProtocol {
 		writeLine("Date: " + new Date());
 		writeLine("Content-Type: " + iContentType);
 		writeLine("Server: " + data.serverInfo);
-		writeLine("Connection: Keep-Alive");
+		writeLine("Connection: " + (request.keepAlive ? "Keep-Alive" : "Close"));
 	}
 
+	/**
+	 * Reads the headers and the content of the request. The headers are parsed from the input buffer line by line, while the
+	 * content is read in bulk by its Content-Length. HTTP/1.1 connections are kept alive unless the client asks to close them.
+	 */
 	protected void readAllContent(final OHttpRequest iRequest) throws IOException {
 		iRequest.content = null;
+		iRequest.acceptEncoding = null;
+		iRequest.ifNoneMatch = null;
+		iRequest.keepAlive = OHttpUtils.HTTP_1_1.equals(iRequest.httpVersion);
 
-		int in;
-		char currChar;
 		int contentLength = -1;
-		boolean endOfHeaders = false;
-
-		final StringBuilder request = new StringBuilder();
-
-		while (!channel.socket.isInputShutdown()) {
-			in = channel.inStream.read();
-			if (in == -1)
-				break;
-
-			currChar = (char) in;
-
-			if (currChar == '\r') {
-				if (request.length() > 0 && !endOfHeaders) {
-					String line = request.toString();
-					String lineUpperCase = line.toUpperCase();
-					if (lineUpperCase.startsWith("AUTHORIZATION")) {
-						// STORE AUTHORIZATION INFORMATION INTO THE REQUEST
-						String auth = line.substring("AUTHORIZATION".length() + 2);
-						if (!auth.toUpperCase().startsWith("BASIC"))
-							throw new IllegalArgumentException("Only HTTP Basic authorization is supported");
-
-						iRequest.authorization = auth.substring("BASIC".length() + 1);
-
-						iRequest.authorization = new String(OBase64Utils.decode(iRequest.authorization));
-
-					} else if (lineUpperCase.startsWith("COOKIE:")) {
-						String sessionPair = line.substring("COOKIE:".length() + 1);
-						String[] sessionPairItems = sessionPair.split("=");
-						if (sessionPairItems.length == 2 && "OSESSIONID".equals(sessionPairItems[0]))
-							iRequest.sessionId = sessionPairItems[1];
-
-					} else if (lineUpperCase.startsWith(OHttpUtils.CONTENT_LENGTH)) {
-						contentLength = Integer.parseInt(lineUpperCase.substring(OHttpUtils.CONTENT_LENGTH.length()));
-						if (contentLength > MAX_CONTENT_LENGTH)
-							OLogManager.instance().warn(
-									this,
-									"->" + channel.socket.getInetAddress().getHostAddress() + ": Error on content size " + contentLength
-											+ ": the maximum allowed is " + MAX_CONTENT_LENGTH);
-					}
+
+		String line;
+		while ((line = readLine()) != null && line.length() > 0) {
+			final String lineUpperCase = line.toUpperCase();
+			if (lineUpperCase.startsWith("AUTHORIZATION")) {
+				// STORE AUTHORIZATION INFORMATION INTO THE REQUEST
+				String auth = line.substring("AUTHORIZATION".length() + 2);
+				if (!auth.toUpperCase().startsWith("BASIC"))
+					throw new IllegalArgumentException("Only HTTP Basic authorization is supported");
+
+				iRequest.authorization = auth.substring("BASIC".length() + 1);
+
+				iRequest.authorization = new String(OBase64Utils.decode(iRequest.authorization));
+
+			} else if (lineUpperCase.startsWith("COOKIE:")) {
+				String sessionPair = line.substring("COOKIE:".length() + 1);
+				String[] sessionPairItems = sessionPair.split("=");
+				if (sessionPairItems.length == 2 && "OSESSIONID".equals(sessionPairItems[0]))
+					iRequest.sessionId = sessionPairItems[1];
+
+			} else if (lineUpperCase.startsWith(OHttpUtils.CONTENT_LENGTH)) {
+				contentLength = Integer.parseInt(lineUpperCase.substring(OHttpUtils.CONTENT_LENGTH.length()).trim());
+				if (contentLength > MAX_CONTENT_LENGTH)
+					reject(413, "Request Entity Too Large", "Error on content size " + contentLength + ": the maximum allowed is "
+							+ MAX_CONTENT_LENGTH);
+
+			} else if (lineUpperCase.startsWith(OHttpUtils.HEADER_ACCEPT_ENCODING))
+				iRequest.acceptEncoding = line.substring(OHttpUtils.HEADER_ACCEPT_ENCODING.length()).trim();
+
+			else if (lineUpperCase.startsWith(OHttpUtils.HEADER_IF_NONE_MATCH))
+				iRequest.ifNoneMatch = line.substring(OHttpUtils.HEADER_IF_NONE_MATCH.length()).trim();
+
+			else if (lineUpperCase.startsWith(OHttpUtils.HEADER_CONNECTION)) {
+				final String connection = lineUpperCase.substring(OHttpUtils.HEADER_CONNECTION.length()).trim();
+				if (connection.equals("CLOSE"))
+					iRequest.keepAlive = false;
+				else if (connection.equals("KEEP-ALIVE"))
+					iRequest.keepAlive = true;
+			}
+		}
+
+		if (contentLength > 0)
+			iRequest.content = new String(readContent(contentLength), "UTF-8");
+	}
+
+	/**
+	 * Returns the next line of the request without the line terminator, or null if the connection has been closed. The request line
+	 * and the headers can't be longer than "orient.http.maxHeaderSize" bytes in total, otherwise the request is rejected.
+	 */
+	private String readLine() throws IOException {
+		int scan = inPosition;
+		while (true) {
+			for (; scan < inLimit; ++scan)
+				if (inBuffer[scan] == '\n') {
+					final int end = scan > inPosition && inBuffer[scan - 1] == '\r' ? scan - 1 : scan;
+					final String line = new String(inBuffer, inPosition, end - inPosition, "ISO-8859-1");
+					headerSize += scan + 1 - inPosition;
+					inPosition = scan + 1;
+					return line;
 				}
 
-				// CONSUME /r or /n
-				in = channel.inStream.read();
-				if (in == -1)
-					break;
+			final int scanned = scan - inPosition;
+			if (headerSize + scanned >= MAX_HEADER_SIZE)
+				reject(400, "Bad Request", "Error on request headers: the maximum size allowed is " + MAX_HEADER_SIZE + " bytes");
 
-				currChar = (char) in;
+			if (!fillBuffer())
+				return null;
+			scan = inPosition + scanned;
+		}
+	}
 
-				if (!endOfHeaders && request.length() == 0) {
-					if (contentLength <= 0)
-						return;
+	/**
+	 * Reads the content of the request, starting from the bytes already in the input buffer.
+	 */
+	private byte[] readContent(final int iLength) throws IOException {
+		final byte[] content = new byte[iLength];
+
+		int read = Math.min(iLength, inLimit - inPosition);
+		System.arraycopy(inBuffer, inPosition, content, 0, read);
+		inPosition += read;
+
+		while (read < iLength) {
+			final int bytes = channel.inStream.read(content, read, iLength - read);
+			if (bytes == -1)
+				throw new EOFException("Connection closed while reading the content: received " + read + " of " + iLength + " bytes");
+			read += bytes;
+		}
+		return content;
+	}
 
-					// FIRST BLANK LINE: END OF HEADERS
-					endOfHeaders = true;
-				}
+	/**
+	 * Replies with the error and closes the connection, since the rest of the request is not read.
+	 * 
+	 * @throws OHttpRequestException
+	 *           always, to stop reading the request
+	 */
+	private void reject(final int iCode, final String iReason, final String iMessage) throws IOException {
+		OLogManager.instance().warn(this, "->" + channel.socket.getInetAddress().getHostAddress() + ": " + iMessage);
+
+		request.httpVersion = OHttpUtils.HTTP_1_1;
+		request.keepAlive = false;
+		sendTextContent(iCode, iReason, null, OHttpUtils.CONTENT_TEXT_PLAIN, iMessage);
+		closeConnection();
+		throw new OHttpRequestException(iMessage);
+	}
 
-				request.setLength(0);
-			} else if (endOfHeaders && request.length() == 0 && currChar != '\r' && currChar != '\n') {
-				// END OF HEADERS
-				byte[] buffer = new byte[contentLength];
-				buffer[0] = (byte) currChar;
-				channel.inStream.read(buffer, 1, contentLength - 1);
+	/**
+	 * Moves the unread bytes at the beginning of the input buffer, enlarging it if full, and reads all the available bytes after
+	 * them. The responses delayed by pipelining are sent before blocking on the socket.
+	 * 
+	 * @return false if the connection has been closed
+	 */
+	private boolean fillBuffer() throws IOException {
+		if (channel.inStream.available() == 0)
+			channel.flush();
+
+		if (inPosition > 0) {
+			System.arraycopy(inBuffer, inPosition, inBuffer, 0, inLimit - inPosition);
+			inLimit -= inPosition;
+			inPosition = 0;
+		}
 
-				iRequest.content = new String(buffer);
-				return;
-			} else
-				request.append(currChar);
+		if (inLimit == inBuffer.length) {
+			final byte[] newBuffer = new byte[inBuffer.length * 2];
+			System.arraycopy(inBuffer, 0, newBuffer, 0, inLimit);
+			inBuffer = newBuffer;
 		}
 
-		if (OLogManager.instance().isDebugEnabled())
-			OLogManager.instance().debug(this,
-					"Error on parsing HTTP content from client " + channel.socket.getInetAddress().getHostAddress() + ":\n" + request);
+		final int read = channel.inStream.read(inBuffer, inLimit, inBuffer.length - inLimit);
+		if (read == -1)
+			return false;
 
-		return;
+		inLimit += read;
+		return true;
 	}
 
 	@Override
@@ -345,54 +437,48 @@ public abstract class ONetworkProtocolHttpAbstract extends ONetworkProtocol {
 		data.commandInfo = "Listening";
 		data.commandDetail = null;
 
+		long timer = -1;
 		try {
 			data.lastCommandReceived = -1;
+			headerSize = 0;
+
+			// SKIP THE EMPTY LINES BEFORE THE REQUEST LINE
+			String requestLine;
+			do {
+				requestLine = readLine();
+				if (requestLine == null) {
+					connectionClosed();
+					return;
+				}
+			} while (requestLine.length() == 0);
 
-			char c = (char) channel.inStream.read();
+			data.lastCommandReceived = System.currentTimeMillis();
+			timer = OProfiler.getInstance().startChrono();
+
+			final String[] words = requestLine.split(" ");
+			if (words.length < 3) {
+				OLogManager.instance().warn(this,
+						"->" + channel.socket.getInetAddress().getHostAddress() + ": Error on invalid content:\n" + requestLine);
 
-			if (channel.inStream.available() == 0) {
-				connectionClosed();
+				// THE NEXT REQUESTS CAN'T BE FOUND ANYMORE IN THE STREAM: CLOSE THE CONNECTION
+				request.httpVersion = OHttpUtils.HTTP_1_1;
+				request.keepAlive = false;
+				sendTextContent(400, "Bad Request", null, OHttpUtils.CONTENT_TEXT_PLAIN, "Invalid request: " + requestLine);
+				closeConnection();
 				return;
 			}
 
-			data.lastCommandReceived = OProfiler.getInstance().startChrono();
-
-			requestContent.setLength(0);
-
-			if (c != '\n')
-				// AVOID INITIAL /N
-				requestContent.append(c);
-
-			while (!channel.socket.isInputShutdown()) {
-				c = (char) channel.inStream.read();
-
-				if (c == '\r') {
-					String[] words = requestContent.toString().split(" ");
-					if (words.length < 3) {
-						OLogManager.instance().warn(this,
-								"->" + channel.socket.getInetAddress().getHostAddress() + ": Error on invalid content:\n" + requestContent);
-						break;
-					}
+			request.method = words[0];
+			request.url = URLDecoder.decode(words[1], "UTF-8").trim();
+			request.httpVersion = words[2];
+			readAllContent(request);
+			if (request.content != null)
+				request.content = URLDecoder.decode(request.content, "UTF-8").trim();
 
-					// CONSUME THE NEXT \n
-					channel.inStream.read();
+			service();
 
-					request.method = words[0];
-					request.url = URLDecoder.decode(words[1], "UTF-8").trim();
-					request.httpVersion = words[2];
-					readAllContent(request);
-					if (request.content != null)
-						request.content = URLDecoder.decode(request.content, "UTF-8").trim();
-
-					service();
-					return;
-				}
-				requestContent.append(c);
-			}
-
-			if (OLogManager.instance().isDebugEnabled())
-				OLogManager.instance().debug(this,
-						"Parsing request from client " + channel.socket.getInetAddress().getHostAddress() + ":\n" + requestContent);
+			if (!request.keepAlive)
+				closeConnection();
 
 		} catch (SocketException e) {
 			connectionError();
@@ -400,23 +486,39 @@ public abstract class ONetworkProtocolHttpAbstract extends ONetworkProtocol {
 		} catch (SocketTimeoutException e) {
 			timeout();
 
+		} catch (OHttpRequestException e) {
+			// ALREADY REJECTED AND CLOSED
+
 		} catch (Throwable t) {
-			if (request.method != null && request.url != null) {
-				try {
+			// THE REQUEST COULD BE READ ONLY IN PART: CLOSE THE CONNECTION AFTER THE ERROR SINCE THE NEXT ONE CAN'T BE FOUND
+			request.keepAlive = false;
+			try {
+				if (request.method != null && request.url != null)
 					sendTextContent(505, "Error on executing of " + request.method + " for the resource: " + request.url, null, "text/plain",
 							t.toString());
-				} catch (IOException e) {
-				}
-			} else
-				sendTextContent(505, "Error on executing request", null, "text/plain", t.toString());
+				else
+					sendTextContent(505, "Error on executing request", null, "text/plain", t.toString());
+			} catch (IOException e) {
+			}
+			closeConnection();
 
-			readAllContent(request);
 		} finally {
-			if (data.lastCommandReceived > -1)
-				OProfiler.getInstance().stopChrono("ONetworkProtocolHttp.execute", data.lastCommandReceived);
+			if (timer > -1)
+				OProfiler.getInstance().stopChrono("ONetworkProtocolHttp.execute", timer);
 		}
 	}
 
+	/**
+	 * Sends the pending responses and closes the connection, as announced by the "Connection: Close" header.
+	 */
+	protected void closeConnection() {
+		try {
+			channel.flush();
+		} catch (IOException e) {
+		}
+		sendShutdown();
+	}
+
 	protected void connectionClosed() {
 		OProfiler.getInstance().updateStatistic("OrientKV-Server.http.closed", +1);
 		sendShutdown();
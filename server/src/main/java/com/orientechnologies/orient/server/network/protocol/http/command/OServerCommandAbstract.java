@@ -15,12 +15,24 @@
  */
 package com.orientechnologies.orient.server.network.protocol.http.command;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.Date;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
+import com.orientechnologies.orient.core.command.OCommandResultListener;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
 import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.metadata.schema.OProperty;
@@ -28,13 +40,16 @@ import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.serialization.OBinaryProtocol;
 import com.orientechnologies.orient.core.serialization.serializer.OJSONWriter;
+import com.orientechnologies.orient.server.network.protocol.http.OHttpChunkedOutputStream;
 import com.orientechnologies.orient.server.network.protocol.http.OHttpRequest;
 import com.orientechnologies.orient.server.network.protocol.http.OHttpRequestException;
 import com.orientechnologies.orient.server.network.protocol.http.OHttpUtils;
 
 public abstract class OServerCommandAbstract implements OServerCommand {
+	private static final int	GZIP_MIN_SIZE			= Integer.getInteger("orient.http.gzip.minSize", 1024);
+	private static final int	COPY_BUFFER_SIZE	= 8192;
 
-	protected boolean	useCache	= false;
+	protected boolean					useCache					= false;
 
 	public boolean beforeExecute(final OHttpRequest iRequest) throws IOException {
 		return true;
@@ -47,12 +62,20 @@ public abstract class OServerCommandAbstract implements OServerCommand {
 
 	protected void sendTextContent(final OHttpRequest iRequest, final int iCode, final String iReason, final String iHeaders,
 			final String iContentType, final Object iContent, final boolean iKeepAlive) throws IOException {
-		final String content = iContent != null ? iContent.toString() : null;
+		byte[] content = iContent != null ? OBinaryProtocol.string2bytes(iContent.toString()) : null;
 
-		final boolean empty = content == null || content.length() == 0;
+		final boolean empty = content == null || content.length == 0;
+
+		// COMPRESS ONLY WHEN IT'S WORTH
+		final boolean gzip = !empty && content.length >= GZIP_MIN_SIZE && isGzipAccepted(iRequest);
+		if (gzip)
+			content = gzip(content);
+
+		if (!iKeepAlive)
+			iRequest.keepAlive = false;
 
 		sendStatus(iRequest, empty && iCode == 200 ? 204 : iCode, iReason);
-		sendResponseHeaders(iRequest, iContentType, iKeepAlive);
+		sendResponseHeaders(iRequest, iContentType, iRequest.keepAlive);
 		if (iHeaders != null)
 			writeLine(iRequest, iHeaders);
 
@@ -60,14 +83,17 @@ public abstract class OServerCommandAbstract implements OServerCommand {
 
 		writeLine(iRequest, "Set-Cookie: OSESSIONID=" + sessId + "; Path=/; HttpOnly");
 
-		writeLine(iRequest, OHttpUtils.CONTENT_LENGTH + (empty ? 0 : content.length()));
+		if (gzip)
+			writeLine(iRequest, OHttpUtils.CONTENT_ENCODING_GZIP);
+
+		writeLine(iRequest, OHttpUtils.CONTENT_LENGTH + (empty ? 0 : content.length));
 
 		writeLine(iRequest, null);
 
 		if (!empty)
-			writeLine(iRequest, content);
+			iRequest.channel.outStream.write(content);
 
-		iRequest.channel.flush();
+		iRequest.executor.flush();
 	}
 
 	protected void sendStatus(final OHttpRequest iRequest, final int iStatus, final String iReason) throws IOException {
@@ -75,7 +101,7 @@ public abstract class OServerCommandAbstract implements OServerCommand {
 	}
 
 	protected void sendResponseHeaders(final OHttpRequest iRequest, final String iContentType) throws IOException {
-		sendResponseHeaders(iRequest, iContentType, true);
+		sendResponseHeaders(iRequest, iContentType, iRequest.keepAlive);
 	}
 
 	protected void sendResponseHeaders(final OHttpRequest iRequest, final String iContentType, final boolean iKeepAlive)
@@ -109,43 +135,156 @@ public abstract class OServerCommandAbstract implements OServerCommand {
 	}
 
 	protected void sendRecordsContent(final OHttpRequest iRequest, final List<ORecord<?>> iRecords) throws IOException {
-		final StringWriter buffer = new StringWriter();
-		final OJSONWriter json = new OJSONWriter(buffer);
-		json.beginObject();
-
-		// WRITE ENTITY SCHEMA IF ANY
-		if (iRecords != null && iRecords.size() > 0) {
-			ORecord<?> first = iRecords.get(0);
-			if (first != null && first instanceof ODocument) {
-				ODatabaseRecord<?> db = (ODatabaseRecord<?>) ((ODocument) first).getDatabase();
-
-				String className = ((ODocument) first).getClassName();
-				exportClassSchema(db, json, db.getMetadata().getSchema().getClass(className));
-			}
+		final ORecordsStream stream = new ORecordsStream(iRequest);
+		if (iRecords != null)
+			for (ORecord<?> rec : iRecords)
+				stream.result(rec);
+		stream.end();
+	}
+
+	/**
+	 * Sends the records as JSON while they are received, usually from an asynchronous query. HTTP/1.1 clients receive the response
+	 * in chunks as soon as the chunk buffer is full, so the records and their JSON are never kept all together in memory. Other
+	 * clients receive the whole content with its length at the end.
+	 */
+	protected class ORecordsStream implements OCommandResultListener {
+		private static final int					CHUNK_SIZE	= 8192;
+		private static final String				FORMAT			= "indent:2,rid,version,attribSameRow,class";
+
+		private final OHttpRequest				request;
+		private final boolean							chunked;
+		private OHttpChunkedOutputStream	chunkedStream;
+		private GZIPOutputStream					gzipStream;
+		private Writer										buffer;
+		private OJSONWriter								json;
+		private int												counter;
+		private IOException								error;
+
+		public ORecordsStream(final OHttpRequest iRequest) {
+			request = iRequest;
+			chunked = OHttpUtils.HTTP_1_1.equals(iRequest.httpVersion);
 		}
 
-		// WRITE RECORDS
-		json.beginCollection(1, true, "result");
-		if (iRecords != null) {
-			int counter = 0;
-			String objectJson;
-			for (ORecord<?> rec : iRecords) {
-				try {
-					objectJson = rec.toJSON("indent:2,rid,version,attribSameRow,class");
+		public boolean result(final Object iRecord) {
+			if (error != null)
+				return false;
 
-					if (counter++ > 0)
-						buffer.append(", ");
+			try {
+				if (json == null)
+					begin(iRecord);
 
-					buffer.append(objectJson);
+				final String objectJson;
+				try {
+					objectJson = ((ORecord<?>) iRecord).toJSON(FORMAT);
 				} catch (Exception e) {
+					// SKIP THE RECORD
+					return true;
 				}
+
+				if (counter++ > 0)
+					buffer.append(", ");
+
+				buffer.append(objectJson);
+				return true;
+
+			} catch (IOException e) {
+				// THE CLIENT IS NOT RECEIVING: STOP THE QUERY
+				error = e;
+				return false;
 			}
 		}
-		json.endCollection(1, true);
 
-		json.endObject();
+		/**
+		 * Appends a value already formatted as JSON to the result collection. No schema is written.
+		 */
+		public void append(final String iJSON) throws IOException {
+			if (error != null)
+				throw error;
+
+			if (json == null)
+				begin(null);
+
+			if (counter++ > 0)
+				buffer.append(", ");
 
-		sendTextContent(iRequest, OHttpUtils.STATUS_OK_CODE, "OK", null, OHttpUtils.CONTENT_TEXT_PLAIN, buffer.toString());
+			buffer.append(iJSON);
+		}
+
+		/**
+		 * Closes the JSON and completes the response.
+		 */
+		public void end() throws IOException {
+			if (error != null)
+				throw error;
+
+			if (json == null)
+				begin(null);
+
+			json.endCollection(1, true);
+			json.endObject();
+			buffer.flush();
+
+			if (chunked) {
+				if (gzipStream != null)
+					gzipStream.finish();
+				chunkedStream.finish();
+				request.executor.flush();
+			}
+			else
+				sendTextContent(request, OHttpUtils.STATUS_OK_CODE, "OK", null, OHttpUtils.CONTENT_TEXT_PLAIN, buffer.toString());
+		}
+
+		/**
+		 * Returns true if the response has been already started, so an error can't be sent anymore.
+		 */
+		public boolean isStarted() {
+			return chunked && json != null;
+		}
+
+		/**
+		 * Closes the connection, so the client can detect the response is not complete.
+		 */
+		public void abort() {
+			request.channel.close();
+		}
+
+		/**
+		 * Sends the headers and begins the JSON. The schema is written if the first record is a document.
+		 */
+		private void begin(final Object iFirst) throws IOException {
+			if (chunked) {
+				sendStatus(request, OHttpUtils.STATUS_OK_CODE, "OK");
+				sendResponseHeaders(request, OHttpUtils.CONTENT_TEXT_PLAIN);
+				writeLine(request, "Set-Cookie: OSESSIONID=" + (request.sessionId != null ? request.sessionId : "-") + "; Path=/; HttpOnly");
+				writeLine(request, OHttpUtils.TRANSFER_ENCODING_CHUNKED);
+				if (isGzipAccepted(request))
+					writeLine(request, OHttpUtils.CONTENT_ENCODING_GZIP);
+				writeLine(request, null);
+
+				chunkedStream = new OHttpChunkedOutputStream(request.channel.outStream, CHUNK_SIZE);
+
+				final OutputStream out;
+				if (isGzipAccepted(request))
+					out = gzipStream = new GZIPOutputStream(chunkedStream, CHUNK_SIZE);
+				else
+					out = chunkedStream;
+
+				buffer = new OutputStreamWriter(out, "UTF-8");
+			} else
+				buffer = new StringWriter();
+
+			json = new OJSONWriter(buffer);
+			json.beginObject();
+
+			// WRITE ENTITY SCHEMA IF ANY
+			if (iFirst != null && iFirst instanceof ODocument) {
+				final ODatabaseRecord<?> db = (ODatabaseRecord<?>) ((ODocument) iFirst).getDatabase();
+				exportClassSchema(db, json, db.getMetadata().getSchema().getClass(((ODocument) iFirst).getClassName()));
+			}
+
+			// WRITE RECORDS
+			json.beginCollection(1, true, "result");
+		}
 	}
 
 	protected void sendRecordContent(final OHttpRequest iRequest, final ORecord<?> iRecord) throws IOException {
@@ -161,10 +300,58 @@ public abstract class OServerCommandAbstract implements OServerCommand {
 		writeLine(iRequest, OHttpUtils.CONTENT_LENGTH + (iSize));
 		writeLine(iRequest, null);
 
-		while (iContent.available() > 0)
-			iRequest.channel.outStream.write((byte) iContent.read());
+		if (iContent != null) {
+			final byte[] buffer = new byte[COPY_BUFFER_SIZE];
+			int read;
+			while ((read = iContent.read(buffer)) > -1)
+				iRequest.channel.outStream.write(buffer, 0, read);
+		}
+
+		iRequest.executor.flush();
+	}
+
+	/**
+	 * Sends the file as content using FileChannel.transferTo(), so the bytes are not copied through the heap. When the socket has no
+	 * NIO channel the transfer goes through the socket output stream.
+	 */
+	protected void sendFileContent(final OHttpRequest iRequest, final int iCode, final String iReason, final String iContentType,
+			final String iHeaders, final File iFile) throws IOException {
+		final FileInputStream in = new FileInputStream(iFile);
+		try {
+			final FileChannel file = in.getChannel();
+			final long size = file.size();
+
+			sendStatus(iRequest, iCode, iReason);
+			sendResponseHeaders(iRequest, iContentType);
+			if (iHeaders != null)
+				writeLine(iRequest, iHeaders);
+			writeLine(iRequest, OHttpUtils.CONTENT_LENGTH + size);
+			writeLine(iRequest, null);
+			iRequest.channel.flush();
+
+			final Socket socket = iRequest.channel.socket;
+			final WritableByteChannel target = socket.getChannel() != null ? socket.getChannel() : Channels.newChannel(socket
+					.getOutputStream());
+
+			long position = 0;
+			while (position < size)
+				position += file.transferTo(position, size - position, target);
+
+		} finally {
+			in.close();
+		}
+	}
+
+	protected boolean isGzipAccepted(final OHttpRequest iRequest) {
+		return iRequest.acceptEncoding != null && iRequest.acceptEncoding.toLowerCase().contains("gzip");
+	}
 
-		iRequest.channel.flush();
+	protected static byte[] gzip(final byte[] iContent) throws IOException {
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream(iContent.length / 4);
+		final GZIPOutputStream out = new GZIPOutputStream(buffer);
+		out.write(iContent);
+		out.close();
+		return buffer.toByteArray();
 	}
 
 	public void exportClassSchema(final ODatabaseRecord<?> db, final OJSONWriter json, final OClass cls) throws IOException {
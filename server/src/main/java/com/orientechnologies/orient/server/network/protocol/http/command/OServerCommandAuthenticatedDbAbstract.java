@@ -24,9 +24,11 @@ import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 import com.orientechnologies.orient.core.exception.ODatabaseException;
 import com.orientechnologies.orient.core.exception.OSecurityAccessException;
 import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
+import com.orientechnologies.orient.server.db.OAuthenticatedUser;
 import com.orientechnologies.orient.server.db.OSharedDocumentDatabase;
 import com.orientechnologies.orient.server.network.protocol.http.OHttpRequest;
 import com.orientechnologies.orient.server.network.protocol.http.OHttpRequestException;
+import com.orientechnologies.orient.server.network.protocol.http.OHttpSession;
 import com.orientechnologies.orient.server.network.protocol.http.OHttpSessionManager;
 import com.orientechnologies.orient.server.network.protocol.http.OHttpUtils;
 
@@ -38,6 +40,9 @@ import com.orientechnologies.orient.server.network.protocol.http.OHttpUtils;
  * <command>/<database>[/...]
  * </pre>
  * 
+ * Once authenticated the requests of the session acquire the database for the user kept by the session, without checking the
+ * password again. A session is valid only for the database it was created for and while the user is active with the same password.
+ * 
  * @author Luca Garulli
  * 
  */
@@ -52,7 +57,7 @@ public abstract class OServerCommandAuthenticatedDbAbstract extends OServerComma
 		if (urlParts.length < 2)
 			throw new OHttpRequestException("Syntax error in URL. Expected is: <command>/<database>[/...]");
 
-		final String dbName = urlParts[1];
+		final String dbName = getDatabaseName(urlParts);
 
 		if (iRequest.sessionId == null || (iRequest.sessionId != null && iRequest.sessionId.length() == 1)) {
 			// NO SESSION
@@ -65,26 +70,44 @@ public abstract class OServerCommandAuthenticatedDbAbstract extends OServerComma
 			}
 		} else {
 			// CHECK THE SESSION VALIDITY
-			if (iRequest.sessionId.length() > 1 && OHttpSessionManager.getInstance().getSession(iRequest.sessionId) == null) {
+			final OHttpSession session = OHttpSessionManager.getInstance().getSession(iRequest.sessionId);
+			if (session == null) {
 				// SESSION EXPIRED
 				sendAuthorizationRequest(iRequest, dbName);
 				return false;
 			}
+
+			if (!session.getDatabaseName().equals(dbName)) {
+				// SESSION CREATED FOR ANOTHER DATABASE
+				if (iRequest.authorization == null) {
+					sendAuthorizationRequest(iRequest, dbName);
+					return false;
+				}
+				return authenticate(iRequest, dbName);
+			}
 			return true;
 		}
 
 		return false;
 	}
 
+	/**
+	 * Returns the name of the database to authenticate against. By default is the second part of the URL: commands that put the
+	 * database in another position must override it.
+	 */
+	protected String getDatabaseName(final String[] iUrlParts) {
+		return iUrlParts[1];
+	}
+
 	private boolean authenticate(final OHttpRequest iRequest, final String iDatabaseName) throws IOException {
-		ODatabaseDocumentTx db = null;
+		OAuthenticatedUser user = null;
 		try {
 			final List<String> parts = OStringSerializerHelper.split(iRequest.authorization, ':');
 
-			db = OSharedDocumentDatabase.acquire(iDatabaseName, parts.get(0), parts.get(1));
+			user = OSharedDocumentDatabase.authenticate(iDatabaseName, parts.get(0), parts.get(1));
 
 			// AUTHENTICATED: CREATE THE SESSION
-			iRequest.sessionId = OHttpSessionManager.getInstance().createSession();
+			iRequest.sessionId = OHttpSessionManager.getInstance().createSession(user);
 			return true;
 
 		} catch (OSecurityAccessException e) {
@@ -94,9 +117,7 @@ public abstract class OServerCommandAuthenticatedDbAbstract extends OServerComma
 		} catch (InterruptedException e) {
 			OLogManager.instance().error(this, "Can't access to the database", ODatabaseException.class, e);
 		} finally {
-			if (db != null)
-				OSharedDocumentDatabase.release(db);
-			else
+			if (user == null)
 				// WRONG USER/PASSWD
 				sendAuthorizationRequest(iRequest, iDatabaseName);
 		}
@@ -113,6 +134,13 @@ public abstract class OServerCommandAuthenticatedDbAbstract extends OServerComma
 
 	protected ODatabaseDocumentTx getProfiledDatabaseInstance(final OHttpRequest iRequest, final String iDatabaseURL)
 			throws InterruptedException {
+		if (iRequest.sessionId != null && iRequest.sessionId.length() > 1) {
+			final OHttpSession session = OHttpSessionManager.getInstance().getSession(iRequest.sessionId);
+			if (session != null && session.getDatabaseName().equals(iDatabaseURL))
+				// ALREADY AUTHENTICATED BY THE SESSION
+				return OSharedDocumentDatabase.acquire(session.getUser());
+		}
+
 		if (iRequest.authorization == null)
 			throw new OSecurityAccessException(iDatabaseURL, "No user and password received");
 
@@ -95,6 +95,18 @@ public class OServerCommandGetServer extends OServerCommandAuthenticatedServerAb
 			}
 			json.endCollection(1, false);
 
+			json.beginCollection(1, true, "pools");
+			for (Entry<String, OResourcePool<String, ODatabaseDocumentTx>> entry : dbPool.entrySet()) {
+				json.beginObject(2);
+				writeField(json, 2, "db", entry.getKey());
+				writeField(json, 2, "min", entry.getValue().getMinResources());
+				writeField(json, 2, "max", entry.getValue().getMaxResources());
+				writeField(json, 2, "created", entry.getValue().getCreatedInstances());
+				writeField(json, 2, "inUse", entry.getValue().getResourcesInUse());
+				json.endObject(2);
+			}
+			json.endCollection(1, false);
+
 			json.beginCollection(1, true, "storages");
 			OStorage[] storages = OServerMain.server().getManagedServer().getOpenedStorages();
 			for (OStorage s : storages) {
@@ -136,6 +148,9 @@ public class OServerCommandGetServer extends OServerCommandAuthenticatedServerAb
 				writeField(json, 3, "maxElapsed", c.getValue().maxElapsed);
 				writeField(json, 3, "lastElapsed", c.getValue().lastElapsed);
 				writeField(json, 3, "totalElapsed", c.getValue().totalElapsed);
+				writeField(json, 3, "percentile50", c.getValue().percentile50);
+				writeField(json, 3, "percentile99", c.getValue().percentile99);
+				writeField(json, 3, "percentile999", c.getValue().percentile999);
 				json.endObject(3);
 			}
 			json.endCollection(2, false);
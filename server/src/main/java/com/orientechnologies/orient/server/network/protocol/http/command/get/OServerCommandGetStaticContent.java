@@ -15,14 +15,11 @@
  */
 package com.orientechnologies.orient.server.network.protocol.http.command.get;
 
-import java.io.BufferedInputStream;
-import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.orient.server.OServerMain;
@@ -30,14 +27,20 @@ import com.orientechnologies.orient.server.network.protocol.http.OHttpRequest;
 import com.orientechnologies.orient.server.network.protocol.http.OHttpUtils;
 import com.orientechnologies.orient.server.network.protocol.http.command.OServerCommandAbstract;
 
+/**
+ * Serves the static files. Files up to the "cache.static.maxSize" server property (default 1Mb) are cached in memory and shared
+ * by all the connections, bigger files are transferred from the file system. Every response carries an ETag computed by the last
+ * modification time and the size of the file, so clients revalidating with If-None-Match receive a 304 without the content.
+ */
 public class OServerCommandGetStaticContent extends OServerCommandAbstract {
-	private static final String[]										NAMES			= { "GET|www", "GET|", "GET|*.htm", "GET|*.jpeg", "GET|*.jpg",
-			"GET|*.png", "GET|*.gif", "GET|*.js", "GET|*.css", "GET|favicon.ico", "GET|robots.txt" };
-	private static final String											CACHE_PAR	= "cache.static";
+	private static final String[]																NAMES								= { "GET|www", "GET|", "GET|*.htm", "GET|*.jpeg",
+			"GET|*.jpg", "GET|*.png", "GET|*.gif", "GET|*.js", "GET|*.css", "GET|favicon.ico", "GET|robots.txt" };
+	private static final String																	CACHE_PAR						= "cache.static";
+	private static final String																	CACHE_MAX_SIZE_PAR	= "cache.static.maxSize";
 
-	static final String															WWW_PATH	= System.getProperty("orient.www.path", "src/site");
+	static final String																					WWW_PATH						= System.getProperty("orient.www.path", "src/site");
 
-	private Map<String, OStaticContentCachedEntry>	cache;
+	private static final Map<String, OStaticContentCachedEntry>	cache								= new ConcurrentHashMap<String, OStaticContentCachedEntry>();
 
 	public OServerCommandGetStaticContent() {
 		useCache = true;
@@ -47,13 +50,7 @@ public class OServerCommandGetStaticContent extends OServerCommandAbstract {
 		iRequest.data.commandInfo = "Get static content";
 		iRequest.data.commandDetail = iRequest.url;
 
-		if (cache == null && Boolean.parseBoolean(OServerMain.server().getConfiguration().getProperty(CACHE_PAR, "true")))
-			// CREATE THE CACHE IF ENABLED
-			cache = new HashMap<String, OStaticContentCachedEntry>();
-
-		InputStream is = null;
-		long contentSize = 0;
-		String type = null;
+		final boolean cacheEnabled = Boolean.parseBoolean(OServerMain.server().getConfiguration().getProperty(CACHE_PAR, "true"));
 
 		try {
 			String url = OHttpUtils.URL_SEPARATOR.equals(iRequest.url) ? url = "/www/index.htm" : iRequest.url;
@@ -62,18 +59,9 @@ public class OServerCommandGetStaticContent extends OServerCommandAbstract {
 			else
 				url = WWW_PATH + url;
 
-			if (cache != null) {
-				synchronized (cache) {
-					final OStaticContentCachedEntry cachedEntry = cache.get(url);
-					if (cachedEntry != null) {
-						is = new ByteArrayInputStream(cachedEntry.content);
-						contentSize = cachedEntry.size;
-						type = cachedEntry.type;
-					}
-				}
-			}
+			OStaticContentCachedEntry cachedEntry = cacheEnabled ? cache.get(url) : null;
 
-			if (is == null) {
+			if (cachedEntry == null) {
 				final File inputFile = new File(url);
 				if (!inputFile.exists()) {
 					OLogManager.instance().debug(this, "Static resource not found: %s", url);
@@ -82,48 +70,56 @@ public class OServerCommandGetStaticContent extends OServerCommandAbstract {
 					return;
 				}
 
-				if (url.endsWith(".htm") || url.endsWith(".html"))
-					type = "text/html";
-				else if (url.endsWith(".png"))
-					type = "image/png";
-				else if (url.endsWith(".jpeg"))
-					type = "image/jpeg";
-				else if (url.endsWith(".js"))
-					type = "application/x-javascript";
-				else if (url.endsWith(".css"))
-					type = "text/css";
-
-				is = new BufferedInputStream(new FileInputStream(inputFile));
-				contentSize = inputFile.length();
-
-				if (cache != null) {
-					// READ AL THE STREAM AND CACHE IT IN MEMORY
-					byte[] buffer = new byte[(int) contentSize];
-					for (int i = 0; i < contentSize; ++i)
-						buffer[i] = (byte) is.read();
-
-					OStaticContentCachedEntry cachedEntry = new OStaticContentCachedEntry();
-					cachedEntry.content = buffer;
-					cachedEntry.size = contentSize;
-					cachedEntry.type = type;
-
-					cache.put(url, cachedEntry);
-
-					is = new ByteArrayInputStream(cachedEntry.content);
-				}
-			}
+				final String type = getContentType(url);
+				final String etag = "\"" + Long.toHexString(inputFile.lastModified()) + "-" + Long.toHexString(inputFile.length()) + "\"";
 
-			sendBinaryContent(iRequest, OHttpUtils.STATUS_OK_CODE, OHttpUtils.STATUS_OK_DESCRIPTION, type, is, contentSize);
+				if (isNotModified(iRequest, etag, type))
+					return;
 
-		} catch (IOException e) {
-			e.printStackTrace();
+				final long maxSize = Long.parseLong(OServerMain.server().getConfiguration().getProperty(CACHE_MAX_SIZE_PAR, "1048576"));
+
+				if (!cacheEnabled || inputFile.length() > maxSize) {
+					sendFileContent(iRequest, OHttpUtils.STATUS_OK_CODE, OHttpUtils.STATUS_OK_DESCRIPTION, type, OHttpUtils.HEADER_ETAG
+							+ etag, inputFile);
+					return;
+				}
 
-		} finally {
-			if (is != null)
+				// READ ALL THE FILE AND CACHE IT IN MEMORY
+				final byte[] buffer = new byte[(int) inputFile.length()];
+				final FileInputStream is = new FileInputStream(inputFile);
 				try {
+					int read = 0;
+					while (read < buffer.length) {
+						final int bytes = is.read(buffer, read, buffer.length - read);
+						if (bytes == -1)
+							break;
+						read += bytes;
+					}
+				} finally {
 					is.close();
-				} catch (IOException e) {
 				}
+
+				cachedEntry = new OStaticContentCachedEntry();
+				cachedEntry.content = buffer;
+				cachedEntry.size = buffer.length;
+				cachedEntry.type = type;
+				cachedEntry.etag = etag;
+
+				cache.put(url, cachedEntry);
+
+			} else if (isNotModified(iRequest, cachedEntry.etag, cachedEntry.type))
+				return;
+
+			sendStatus(iRequest, OHttpUtils.STATUS_OK_CODE, OHttpUtils.STATUS_OK_DESCRIPTION);
+			sendResponseHeaders(iRequest, cachedEntry.type);
+			writeLine(iRequest, OHttpUtils.HEADER_ETAG + cachedEntry.etag);
+			writeLine(iRequest, OHttpUtils.CONTENT_LENGTH + cachedEntry.size);
+			writeLine(iRequest, null);
+			iRequest.channel.outStream.write(cachedEntry.content);
+			iRequest.executor.flush();
+
+		} catch (IOException e) {
+			e.printStackTrace();
 		}
 	}
 
@@ -138,4 +134,38 @@ public class OServerCommandGetStaticContent extends OServerCommandAbstract {
 	public boolean beforeExecute(OHttpRequest iRequest) throws IOException {
 		return true;
 	}
+
+	/**
+	 * Sends a 304 if the client has the same version of the resource.
+	 */
+	private boolean isNotModified(final OHttpRequest iRequest, final String iETag, final String iContentType) throws IOException {
+		if (iRequest.ifNoneMatch == null || (!iRequest.ifNoneMatch.equals("*") && !iRequest.ifNoneMatch.contains(iETag)))
+			return false;
+
+		sendStatus(iRequest, OHttpUtils.STATUS_NOT_MODIFIED_CODE, OHttpUtils.STATUS_NOT_MODIFIED_DESCRIPTION);
+		sendResponseHeaders(iRequest, iContentType);
+		writeLine(iRequest, OHttpUtils.HEADER_ETAG + iETag);
+		writeLine(iRequest, OHttpUtils.CONTENT_LENGTH + 0);
+		writeLine(iRequest, null);
+		iRequest.executor.flush();
+		return true;
+	}
+
+	private String getContentType(final String iURL) {
+		if (iURL.endsWith(".htm") || iURL.endsWith(".html"))
+			return "text/html";
+		else if (iURL.endsWith(".png"))
+			return "image/png";
+		else if (iURL.endsWith(".jpeg") || iURL.endsWith(".jpg"))
+			return "image/jpeg";
+		else if (iURL.endsWith(".gif"))
+			return "image/gif";
+		else if (iURL.endsWith(".js"))
+			return "application/x-javascript";
+		else if (iURL.endsWith(".css"))
+			return "text/css";
+		else if (iURL.endsWith(".ico"))
+			return "image/x-icon";
+		return null;
+	}
 }
@@ -19,4 +19,5 @@ public class OStaticContentCachedEntry {
 	public String	type;
 	public byte[]	content;
 	public long		size;
+	public String	etag;
 }
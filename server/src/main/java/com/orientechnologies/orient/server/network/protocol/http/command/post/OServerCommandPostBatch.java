@@ -0,0 +1,283 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.network.protocol.http.command.post;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.metadata.schema.OProperty;
+import com.orientechnologies.orient.core.record.ORecord;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+import com.orientechnologies.orient.server.db.OSharedDocumentDatabase;
+import com.orientechnologies.orient.server.network.protocol.http.OHttpRequest;
+import com.orientechnologies.orient.server.network.protocol.http.command.OServerCommandDocumentAbstract;
+
+/**
+ * Executes a list of operations against the same database instance in one HTTP request. The content is a JSON object like:
+ * 
+ * <pre>
+ * { "transaction": true,
+ *   "operations": [
+ *     { "type": "load", "rid": "#5:0" },
+ *     { "type": "create", "record": { "@class": "Account", "name": "Luca" } },
+ *     { "type": "update", "rid": "#5:1", "record": { "@class": "Account", "name": "Jay" } },
+ *     { "type": "delete", "rid": "#5:2" },
+ *     { "type": "query", "text": "select from Account where name = 'Luca'", "limit": 10 }
+ *   ]
+ * }
+ * </pre>
+ * 
+ * The response contains one result per operation in the same order: the loaded, created or updated record, the id of the deleted
+ * record and the records found by the query. If "transaction" is true all the operations are executed in one transaction and any
+ * error rolls back the whole batch. Otherwise each operation is executed on its own and a failed one returns { "error": "..." } as
+ * result, while the next ones are executed anyway.
+ * 
+ * @author Luca Garulli
+ * 
+ */
+public class OServerCommandPostBatch extends OServerCommandDocumentAbstract {
+	private static final String[]	NAMES					= { "POST|batch/*" };
+	private static final String		RECORD_FORMAT	= "rid,version,class,attribSameRow";
+
+	public void execute(final OHttpRequest iRequest) throws Exception {
+		final String[] urlParts = checkSyntax(iRequest.url, 2, "Syntax error: batch/<database>");
+
+		if (iRequest.content == null)
+			throw new IllegalArgumentException("HTTP Request content is empty");
+
+		iRequest.data.commandInfo = "Batch";
+
+		// PARSE ALL THE OPERATIONS BEFORE TO EXECUTE THE FIRST ONE
+		final ODocument batch = new ODocument().fromJSON(iRequest.content);
+		final Object transactionValue = batch.field("transaction");
+		final boolean transaction = transactionValue != null && Boolean.parseBoolean(transactionValue.toString());
+		final List<Map<String, Object>> operations = parseOperations(batch.field("operations"));
+
+		iRequest.data.commandDetail = operations.size() + " operations" + (transaction ? " in transaction" : "");
+
+		ODatabaseDocumentTx db = null;
+
+		final ORecordsStream stream = new ORecordsStream(iRequest);
+
+		try {
+			db = getProfiledDatabaseInstance(iRequest, urlParts[1]);
+
+			if (transaction) {
+				final List<Object> results = new ArrayList<Object>();
+
+				db.begin();
+				try {
+					for (Map<String, Object> operation : operations)
+						results.add(executeOperation(db, operation));
+
+					db.commit();
+
+				} catch (RuntimeException e) {
+					db.rollback();
+					throw e;
+				}
+
+				// THE IDS OF THE CREATED RECORDS ARE FINAL ONLY AFTER THE COMMIT
+				for (Object result : results)
+					stream.append(toJSON(result));
+
+			} else
+				for (Map<String, Object> operation : operations) {
+					String result;
+					try {
+						result = toJSON(executeOperation(db, operation));
+					} catch (RuntimeException e) {
+						result = "{\"error\": \"" + escape(e.toString()) + "\"}";
+					}
+					stream.append(result);
+				}
+
+		} catch (RuntimeException e) {
+			if (stream.isStarted())
+				stream.abort();
+			throw e;
+		} finally {
+			if (db != null)
+				OSharedDocumentDatabase.release(db);
+		}
+
+		stream.end();
+	}
+
+	protected Object executeOperation(final ODatabaseDocumentTx iDatabase, final Map<String, Object> iOperation) {
+		final String type = getString(iOperation, "type");
+
+		if ("load".equals(type))
+			return iDatabase.load(getRecordId(iOperation));
+
+		else if ("create".equals(type)) {
+			final ODocument doc = new ODocument(iDatabase);
+			setFields(doc, getRecord(iOperation));
+			doc.save();
+			return doc;
+
+		} else if ("update".equals(type)) {
+			final ODocument doc = new ODocument(iDatabase, getRecordId(iOperation));
+			doc.load();
+			setFields(doc, getRecord(iOperation));
+			doc.save();
+			return doc;
+
+		} else if ("delete".equals(type)) {
+			final ORecordId rid = getRecordId(iOperation);
+			new ODocument(iDatabase, rid).delete();
+			return rid;
+
+		} else if ("query".equals(type)) {
+			final String text = getString(iOperation, "text");
+			if (text == null || !text.toLowerCase().startsWith("select"))
+				throw new IllegalArgumentException("Only SQL Select are valid as batch query");
+
+			final Object limit = iOperation.get("limit");
+			return iDatabase.command(new OSQLSynchQuery<ODocument>(text, limit != null ? Integer.parseInt(limit.toString()) : 20))
+					.execute();
+		}
+
+		throw new IllegalArgumentException("Unknown batch operation: " + type);
+	}
+
+	protected String toJSON(final Object iResult) {
+		if (iResult == null)
+			return "null";
+
+		if (iResult instanceof ORecord<?>)
+			return ((ORecord<?>) iResult).toJSON(RECORD_FORMAT);
+
+		if (iResult instanceof List<?>) {
+			final StringBuilder buffer = new StringBuilder();
+			buffer.append('[');
+			for (Object item : (List<?>) iResult) {
+				if (buffer.length() > 1)
+					buffer.append(", ");
+				buffer.append(toJSON(item));
+			}
+			buffer.append(']');
+			return buffer.toString();
+		}
+
+		return "\"" + escape(iResult.toString()) + "\"";
+	}
+
+	/**
+	 * Copies the fields of the parsed record into the document. The values are converted to the type of the schema property if any,
+	 * since the batch content is parsed before to know the class of its records.
+	 */
+	private static void setFields(final ODocument iDocument, final Map<String, Object> iRecord) {
+		final Object className = iRecord.get("@class");
+		if (className != null)
+			iDocument.setClassName(className.toString());
+
+		final Object version = iRecord.get("@version");
+		if (version != null)
+			iDocument.setVersion(Integer.parseInt(version.toString()));
+
+		for (Entry<String, Object> field : iRecord.entrySet()) {
+			if (field.getKey().startsWith("@"))
+				// RECORD ATTRIBUTE
+				continue;
+
+			Object value = field.getValue();
+			if (value != null && !(value instanceof String) && iDocument.getSchemaClass() != null) {
+				final OProperty prop = iDocument.getSchemaClass().getProperty(field.getKey());
+				if (prop != null && !prop.getType().isAssignableFrom(value))
+					value = OStringSerializerHelper.fieldTypeFromStream(prop.getType(), value);
+			}
+
+			iDocument.field(field.getKey(), value);
+		}
+	}
+
+	private static List<Map<String, Object>> parseOperations(final Object iOperations) {
+		if (!(iOperations instanceof List<?>))
+			throw new IllegalArgumentException("Batch content must contain the \"operations\" array");
+
+		final List<Map<String, Object>> operations = new ArrayList<Map<String, Object>>();
+		for (Object operation : (List<?>) iOperations)
+			operations.add(toMap(operation));
+		return operations;
+	}
+
+	/**
+	 * Returns the fields of a parsed JSON object: a map, or a document if the object declared the "@type" attribute.
+	 */
+	@SuppressWarnings("unchecked")
+	private static Map<String, Object> toMap(final Object iObject) {
+		if (iObject instanceof Map<?, ?>)
+			return (Map<String, Object>) iObject;
+
+		if (iObject instanceof ODocument) {
+			final ODocument doc = (ODocument) iObject;
+			final Map<String, Object> fields = new LinkedHashMap<String, Object>();
+			if (doc.getClassName() != null)
+				fields.put("@class", doc.getClassName());
+			for (String fieldName : doc.fieldNames())
+				fields.put(fieldName, doc.field(fieldName));
+			return fields;
+		}
+
+		throw new IllegalArgumentException("Invalid JSON object in batch: " + iObject);
+	}
+
+	private static String getString(final Map<String, Object> iOperation, final String iName) {
+		final Object value = iOperation.get(iName);
+		return value != null ? value.toString() : null;
+	}
+
+	private static ORecordId getRecordId(final Map<String, Object> iOperation) {
+		final Object value = iOperation.get("rid");
+		if (value == null)
+			throw new IllegalArgumentException("Batch operation without \"rid\"");
+
+		final ORecordId recordId;
+		if (value instanceof ORecordId)
+			recordId = (ORecordId) value;
+		else {
+			final String rid = value.toString();
+			recordId = new ORecordId(rid.startsWith("#") ? rid.substring(1) : rid);
+		}
+
+		if (!recordId.isValid())
+			throw new IllegalArgumentException("Invalid Record ID in batch operation: " + value);
+		return recordId;
+	}
+
+	private static Map<String, Object> getRecord(final Map<String, Object> iOperation) {
+		final Object record = iOperation.get("record");
+		if (record == null)
+			throw new IllegalArgumentException("Batch operation without \"record\"");
+		return toMap(record);
+	}
+
+	private static String escape(final String iText) {
+		return iText.replace("\\", "\\\\").replace("\"", "\\\"").replace("\r", "").replace("\n", " ");
+	}
+
+	public String[] getNames() {
+		return NAMES;
+	}
+}
@@ -19,24 +19,33 @@ import java.util.List;
 
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 import com.orientechnologies.orient.core.record.ORecord;
+import com.orientechnologies.orient.core.record.ORecordSchemaAware;
 import com.orientechnologies.orient.core.sql.OCommandSQL;
+import com.orientechnologies.orient.core.sql.query.OSQLAsynchQuery;
 import com.orientechnologies.orient.server.db.OSharedDocumentDatabase;
 import com.orientechnologies.orient.server.network.protocol.http.OHttpRequest;
 import com.orientechnologies.orient.server.network.protocol.http.OHttpUtils;
 import com.orientechnologies.orient.server.network.protocol.http.command.OServerCommandAuthenticatedDbAbstract;
 
 public class OServerCommandPostCommand extends OServerCommandAuthenticatedDbAbstract {
-	private static final String[]	NAMES	= { "POST|command/*" };
+	private static final String[]	NAMES						= { "POST|command/*" };
+	private static final String		KEYWORD_SELECT	= "select";
 
 	@SuppressWarnings("unchecked")
 	public void execute(final OHttpRequest iRequest) throws Exception {
-		String[] urlParts = checkSyntax(iRequest.url, 4, "Syntax error: command/sql/<command-text>");
+		String[] urlParts = checkSyntax(iRequest.url, 4, "Syntax error: command/sql/<database>/<command-text>");
 
 		final String text = urlParts[3].trim();
 
 		iRequest.data.commandInfo = "Command";
 		iRequest.data.commandDetail = text;
 
+		if (isQuery(text)) {
+			// STREAM THE RESULT OF QUERIES
+			executeQuery(iRequest, urlParts[2], text);
+			return;
+		}
+
 		ODatabaseDocumentTx db = null;
 
 		final Object response;
@@ -59,6 +68,40 @@ public class OServerCommandPostCommand extends OServerCommandAuthenticatedDbAbst
 			sendTextContent(iRequest, OHttpUtils.STATUS_OK_CODE, "OK", null, OHttpUtils.CONTENT_TEXT_PLAIN, response.toString());
 	}
 
+	@Override
+	protected String getDatabaseName(final String[] iUrlParts) {
+		if (iUrlParts.length < 3)
+			return iUrlParts[1];
+		return iUrlParts[2];
+	}
+
+	private static boolean isQuery(final String iText) {
+		return iText.regionMatches(true, 0, KEYWORD_SELECT, 0, KEYWORD_SELECT.length())
+				&& (iText.length() == KEYWORD_SELECT.length() || Character.isWhitespace(iText.charAt(KEYWORD_SELECT.length())));
+	}
+
+	private void executeQuery(final OHttpRequest iRequest, final String iDatabaseName, final String iText) throws Exception {
+		ODatabaseDocumentTx db = null;
+
+		final ORecordsStream stream = new ORecordsStream(iRequest);
+
+		try {
+			db = getProfiledDatabaseInstance(iRequest, iDatabaseName);
+
+			db.command(new OSQLAsynchQuery<ORecordSchemaAware<?>>(iText, stream)).execute();
+
+		} catch (RuntimeException e) {
+			if (stream.isStarted())
+				stream.abort();
+			throw e;
+		} finally {
+			if (db != null)
+				OSharedDocumentDatabase.release(db);
+		}
+
+		stream.end();
+	}
+
 	public String[] getNames() {
 		return NAMES;
 	}
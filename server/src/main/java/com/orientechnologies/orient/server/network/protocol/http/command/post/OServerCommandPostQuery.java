@@ -15,12 +15,9 @@
  */
 package com.orientechnologies.orient.server.network.protocol.http.command.post;
 
-import java.util.List;
-
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
-import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.ORecordSchemaAware;
-import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+import com.orientechnologies.orient.core.sql.query.OSQLAsynchQuery;
 import com.orientechnologies.orient.server.db.OSharedDocumentDatabase;
 import com.orientechnologies.orient.server.network.protocol.http.OHttpRequest;
 import com.orientechnologies.orient.server.network.protocol.http.command.OServerCommandAuthenticatedDbAbstract;
@@ -28,7 +25,6 @@ import com.orientechnologies.orient.server.network.protocol.http.command.OServer
 public class OServerCommandPostQuery extends OServerCommandAuthenticatedDbAbstract {
 	private static final String[]	NAMES	= { "POST|query/*" };
 
-	@SuppressWarnings("unchecked")
 	public void execute(final OHttpRequest iRequest) throws Exception {
 		String[] urlParts = checkSyntax(iRequest.url, 3,
 				"Syntax error: query/<database>/sql[/<limit>]<br/>Limit is optional and is setted to 20 by default. Set expressely to 0 to have no limits.");
@@ -48,19 +44,23 @@ public class OServerCommandPostQuery extends OServerCommandAuthenticatedDbAbstra
 
 		ODatabaseDocumentTx db = null;
 
-		final List<ORecord<?>> response;
+		final ORecordsStream stream = new ORecordsStream(iRequest);
 
 		try {
 			db = getProfiledDatabaseInstance(iRequest, urlParts[1]);
 
-			response = (List<ORecord<?>>) db.command(new OSQLSynchQuery<ORecordSchemaAware<?>>(text, limit)).execute();
+			db.command(new OSQLAsynchQuery<ORecordSchemaAware<?>>(text, limit, stream)).execute();
 
+		} catch (RuntimeException e) {
+			if (stream.isStarted())
+				stream.abort();
+			throw e;
 		} finally {
 			if (db != null)
 				OSharedDocumentDatabase.release(db);
 		}
 
-		sendRecordsContent(iRequest, response);
+		stream.end();
 	}
 
 	public String[] getNames() {
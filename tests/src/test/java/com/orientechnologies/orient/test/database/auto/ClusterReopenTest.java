@@ -0,0 +1,89 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.auto;
+
+import java.io.IOException;
+
+import org.testng.Assert;
+import org.testng.annotations.Parameters;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OStoragePhysicalClusterConfiguration;
+import com.orientechnologies.orient.core.db.record.ODatabaseFlat;
+import com.orientechnologies.orient.core.record.impl.ORecordFlat;
+import com.orientechnologies.orient.core.storage.OStorage;
+import com.orientechnologies.orient.core.storage.impl.local.OClusterLocal;
+
+/**
+ * Fills a cluster made of small files across several open/close rounds: the files created in advance must not make the next
+ * records skip the free space left in the previous file.
+ */
+@Test(groups = "db")
+public class ClusterReopenTest {
+	private static final String	CLUSTER			= "reopen";
+	private static final int		ROUNDS			= 4;
+	private static final int		RECORDS			= 31000;
+
+	private String							url;
+
+	@Parameters(value = "url")
+	public ClusterReopenTest(String iURL) {
+		url = iURL;
+	}
+
+	public void createCluster() throws IOException {
+		ODatabaseFlat database = new ODatabaseFlat(url);
+		database.open("admin", "admin");
+
+		final OStorage storage = database.getStorage();
+		final int id = storage.addCluster(CLUSTER, OClusterLocal.TYPE);
+
+		// FILES AS BIG AS THE FIRST ONE: THE SECOND ROUND FILLS IT OVER THE PREALLOCATION THRESHOLD AND THE FOURTH ONE MOVES TO THE
+		// NEXT FILE
+		((OStoragePhysicalClusterConfiguration) storage.getConfiguration().clusters.get(id)).fileMaxSize = "1Mb";
+		storage.getConfiguration().update();
+
+		database.close();
+		storage.close();
+	}
+
+	@Test(dependsOnMethods = "createCluster")
+	public void fillAndReopen() {
+		for (int round = 0; round < ROUNDS; ++round) {
+			ODatabaseFlat database = new ODatabaseFlat(url);
+			database.open("admin", "admin");
+
+			Assert.assertEquals(database.countClusterElements(CLUSTER), round * RECORDS);
+
+			final ORecordFlat record = database.newInstance();
+			for (int i = 0; i < RECORDS; ++i) {
+				record.reset();
+				record.value(round + "-" + i).save(CLUSTER);
+			}
+
+			int browsed = 0;
+			for (ORecordFlat rec : database.browseCluster(CLUSTER)) {
+				Assert.assertEquals(rec.value(), (browsed / RECORDS) + "-" + (browsed % RECORDS));
+				browsed++;
+			}
+			Assert.assertEquals(browsed, (round + 1) * RECORDS);
+
+			final OStorage storage = database.getStorage();
+			database.close();
+			storage.close();
+		}
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.auto;
+
+import java.io.File;
+
+import org.testng.Assert;
+import org.testng.annotations.Parameters;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.storage.impl.local.OStorageLocal;
+
+@Test(groups = "db")
+public class DbBackupTest {
+	private String	url;
+
+	@Parameters(value = "url")
+	public DbBackupTest(String iURL) {
+		url = iURL;
+	}
+
+	public void testDbBackup() {
+		File backupDir = new File("test-backup");
+		deleteDirectory(backupDir);
+
+		ODatabaseDocumentTx database = new ODatabaseDocumentTx(url);
+		database.open("admin", "admin");
+
+		OStorageLocal storage = (OStorageLocal) database.getStorage();
+		long full = storage.backup(backupDir.getPath(), true);
+		Assert.assertTrue(full > 0);
+
+		// NOTHING CHANGED SINCE THE LAST BACKUP
+		long incremental = storage.backup(backupDir.getPath(), true);
+		Assert.assertTrue(incremental < full);
+
+		new ODocument(database, "Account").field("name", "Backup").save();
+		long records = database.countClusterElements("Account");
+		storage.backup(backupDir.getPath(), true);
+
+		database.close();
+
+		ODatabaseDocumentTx backup = new ODatabaseDocumentTx("local:test-backup/" + storage.getName());
+		backup.open("admin", "admin");
+		Assert.assertEquals(backup.countClusterElements("Account"), records);
+		backup.close();
+
+		deleteDirectory(backupDir);
+	}
+
+	private void deleteDirectory(File iDirectory) {
+		if (iDirectory.exists()) {
+			for (File f : iDirectory.listFiles())
+				f.delete();
+			iDirectory.delete();
+		}
+	}
+}
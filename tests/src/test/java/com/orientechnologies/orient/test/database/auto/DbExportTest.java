@@ -15,14 +15,17 @@
  */
 package com.orientechnologies.orient.test.database.auto;
 
+import java.io.File;
 import java.io.IOException;
 
+import org.testng.Assert;
 import org.testng.annotations.Parameters;
 import org.testng.annotations.Test;
 
 import com.orientechnologies.common.profiler.OProfiler;
 import com.orientechnologies.orient.console.OCommandListener;
 import com.orientechnologies.orient.console.cmd.OConsoleDatabaseExport;
+import com.orientechnologies.orient.console.cmd.OConsoleDatabaseExportBinary;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 
 @Test(groups = "db")
@@ -46,6 +49,20 @@ public class DbExportTest implements OCommandListener {
 		database.close();
 	}
 
+	public void testDbExportBinary() throws IOException {
+		ODatabaseDocumentTx database = new ODatabaseDocumentTx(url);
+		database.open("admin", "admin");
+
+		OConsoleDatabaseExportBinary export = new OConsoleDatabaseExportBinary(database, "db.export.obe", this);
+		export.exportDatabase();
+		export.close();
+
+		database.close();
+
+		// THE RECORDS ARE CHECKED BY THE IMPORT
+		Assert.assertTrue(new File("db.export.obe").length() > 0);
+	}
+
 	@Test(enabled = false)
 	public void onMessage(final String iText) {
 		System.out.print(iText);
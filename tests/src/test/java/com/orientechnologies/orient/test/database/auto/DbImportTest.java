@@ -18,19 +18,23 @@ package com.orientechnologies.orient.test.database.auto;
 import java.io.File;
 import java.io.IOException;
 
+import org.testng.Assert;
 import org.testng.annotations.Parameters;
 import org.testng.annotations.Test;
 
 import com.orientechnologies.common.profiler.OProfiler;
 import com.orientechnologies.orient.console.OCommandListener;
 import com.orientechnologies.orient.console.cmd.OConsoleDatabaseImport;
+import com.orientechnologies.orient.console.cmd.OConsoleDatabaseImportBinary;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 
 @Test(groups = "db")
 public class DbImportTest implements OCommandListener {
+	private String	url;
 
 	@Parameters(value = "url")
 	public DbImportTest(String iURL) {
+		url = iURL;
 		OProfiler.getInstance().startRecording();
 	}
 
@@ -57,6 +61,38 @@ public class DbImportTest implements OCommandListener {
 		importDir.delete();
 	}
 
+	public void testDbImportBinary() throws IOException {
+		File importDir = new File("test-import-binary");
+
+		if (importDir.exists())
+			for (File f : importDir.listFiles())
+				f.delete();
+		else
+			importDir.mkdir();
+
+		ODatabaseDocumentTx database = new ODatabaseDocumentTx("local:test-import-binary/test-import-binary");
+		database.create();
+
+		OConsoleDatabaseImportBinary impor = new OConsoleDatabaseImportBinary(database, "db.export.obe", this);
+		impor.importDatabase();
+		impor.close();
+
+		// CHECK THE IMPORTED RECORDS AGAINST THE EXPORTED DATABASE
+		ODatabaseDocumentTx source = new ODatabaseDocumentTx(url);
+		source.open("admin", "admin");
+
+		for (String clusterName : source.getClusterNames())
+			if (!impor.getExcludeClusters().contains(clusterName))
+				Assert.assertEquals(database.countClusterElements(clusterName), source.countClusterElements(clusterName), clusterName);
+
+		source.close();
+		database.close();
+
+		for (File f : importDir.listFiles())
+			f.delete();
+		importDir.delete();
+	}
+
 	@Test(enabled = false)
 	public void onMessage(final String iText) {
 		System.out.print(iText);
@@ -0,0 +1,187 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.auto;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.Parameters;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.client.remote.OEngineRemote;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.db.graph.ODatabaseGraphTx;
+import com.orientechnologies.orient.core.db.graph.OGraphVertex;
+
+/**
+ * Checks the vertexes whose edges cross {@link OGraphVertex#SUPER_NODE_THRESHOLD} and are moved in a tree.
+ */
+@Test(sequential = true)
+public class GraphSuperNodeTest {
+	private static final int	EDGES	= OGraphVertex.SUPER_NODE_THRESHOLD + 1;
+
+	private ODatabaseGraphTx	database;
+
+	@Parameters(value = "url")
+	public GraphSuperNodeTest(String iURL) {
+		Orient.instance().registerEngine(new OEngineRemote());
+		database = new ODatabaseGraphTx(iURL);
+	}
+
+	@Test
+	public void createOutSuperNode() {
+		database.open("admin", "admin");
+
+		final OGraphVertex hub = database.createVertex().set("id", -1);
+
+		OGraphVertex vertex;
+		for (int i = 0; i < EDGES - 1; ++i) {
+			vertex = database.createVertex().set("id", i);
+			hub.link(vertex);
+		}
+		hub.save();
+
+		Assert.assertFalse(hub.isSuperNode(true));
+		Assert.assertEquals(hub.getOutEdgeCount(), EDGES - 1);
+
+		// CROSS THE THRESHOLD: THE TREE IS CREATED ONLY ON SAVE
+		vertex = database.createVertex().set("id", EDGES - 1);
+		hub.link(vertex);
+		Assert.assertFalse(hub.isSuperNode(true));
+		Assert.assertEquals(hub.getOutEdgeCount(), EDGES);
+
+		hub.save();
+		Assert.assertTrue(hub.isSuperNode(true));
+		Assert.assertNull(hub.getDocument().field(OGraphVertex.FIELD_OUT_EDGES));
+		Assert.assertEquals(hub.getOutEdgeCount(), EDGES);
+		Assert.assertFalse(vertex.isSuperNode(false));
+		Assert.assertEquals(vertex.getInEdgeCount(), 1);
+
+		database.setRoot("SuperNodeOut", hub);
+
+		database.close();
+	}
+
+	@Test(dependsOnMethods = "createOutSuperNode")
+	public void checkOutSuperNode() {
+		database.open("admin", "admin");
+
+		final OGraphVertex hub = database.getRoot("SuperNodeOut");
+		Assert.assertTrue(hub.isSuperNode(true));
+		Assert.assertEquals(hub.getOutEdgeCount(), EDGES);
+		Assert.assertEquals(hub.getOutEdges().size(), EDGES);
+		Assert.assertEquals(outIds(hub), expectedIds(0, EDGES, -1));
+
+		database.close();
+	}
+
+	@Test(dependsOnMethods = "checkOutSuperNode")
+	public void linkAndUnlinkOutSuperNode() {
+		database.open("admin", "admin");
+
+		final OGraphVertex hub = database.getRoot("SuperNodeOut");
+
+		// NEW EDGES STAY IN THE LIST UNTIL THE VERTEX IS SAVED
+		for (int i = EDGES; i < EDGES + 10; ++i) {
+			final OGraphVertex vertex = database.createVertex().set("id", i);
+			hub.link(vertex);
+		}
+		Assert.assertEquals(hub.getOutEdgeCount(), EDGES + 10);
+		Assert.assertEquals(outIds(hub), expectedIds(0, EDGES + 10, -1));
+
+		hub.save();
+		Assert.assertNull(hub.getDocument().field(OGraphVertex.FIELD_OUT_EDGES));
+		Assert.assertEquals(hub.getOutEdgeCount(), EDGES + 10);
+
+		// REMOVE THE EDGE TO THE VERTEX WITH ID 5
+		OGraphVertex removed = null;
+		for (Iterator<OGraphVertex> it = hub.outVertexIterator(); it.hasNext();) {
+			final OGraphVertex vertex = it.next();
+			if (((Number) vertex.get("id")).intValue() == 5)
+				removed = vertex;
+		}
+		Assert.assertNotNull(removed);
+
+		hub.unlink(removed);
+		Assert.assertEquals(hub.getOutEdgeCount(), EDGES + 9);
+		Assert.assertEquals(removed.getInEdgeCount(), 0);
+
+		database.close();
+
+		database.open("admin", "admin");
+
+		final OGraphVertex reloaded = database.getRoot("SuperNodeOut");
+		Assert.assertTrue(reloaded.isSuperNode(true));
+		Assert.assertEquals(reloaded.getOutEdgeCount(), EDGES + 9);
+		Assert.assertEquals(outIds(reloaded), expectedIds(0, EDGES + 10, 5));
+
+		database.close();
+	}
+
+	@Test
+	public void createInSuperNode() {
+		database.open("admin", "admin");
+
+		final OGraphVertex sink = database.createVertex().set("id", -1);
+		for (int i = 0; i < EDGES; ++i) {
+			final OGraphVertex vertex = database.createVertex().set("id", i);
+			vertex.link(sink);
+		}
+		Assert.assertFalse(sink.isSuperNode(false));
+
+		sink.save();
+		Assert.assertTrue(sink.isSuperNode(false));
+		Assert.assertFalse(sink.isSuperNode(true));
+
+		database.setRoot("SuperNodeIn", sink);
+
+		database.close();
+
+		database.open("admin", "admin");
+
+		final OGraphVertex reloaded = database.getRoot("SuperNodeIn");
+		Assert.assertTrue(reloaded.isSuperNode(false));
+		Assert.assertEquals(reloaded.getInEdgeCount(), EDGES);
+		Assert.assertEquals(reloaded.getOutEdgeCount(), 0);
+
+		final Set<Integer> ids = new HashSet<Integer>();
+		for (Iterator<OGraphVertex> it = reloaded.inVertexIterator(); it.hasNext();) {
+			final OGraphVertex vertex = it.next();
+			Assert.assertEquals(vertex.getOutEdgeCount(), 1);
+			ids.add(((Number) vertex.get("id")).intValue());
+		}
+		Assert.assertEquals(ids, expectedIds(0, EDGES, -1));
+
+		database.close();
+	}
+
+	private Set<Integer> outIds(final OGraphVertex iVertex) {
+		final Set<Integer> ids = new HashSet<Integer>();
+		for (Iterator<OGraphVertex> it = iVertex.outVertexIterator(); it.hasNext();)
+			Assert.assertTrue(ids.add(((Number) it.next().get("id")).intValue()));
+		return ids;
+	}
+
+	private Set<Integer> expectedIds(final int iFrom, final int iTo, final int iExcluded) {
+		final Set<Integer> ids = new HashSet<Integer>();
+		for (int i = iFrom; i < iTo; ++i)
+			if (i != iExcluded)
+				ids.add(i);
+		return ids;
+	}
+}
@@ -15,6 +15,8 @@
  */
 package com.orientechnologies.orient.test.database.auto;
 
+import java.util.List;
+
 import org.testng.Assert;
 import org.testng.annotations.Parameters;
 import org.testng.annotations.Test;
@@ -87,6 +89,24 @@ public class GraphTestFixedDensity {
 		database.close();
 	}
 
+	@Test(dependsOnMethods = "checkPopulationHotCache")
+	public void checkTraverse() {
+		database.open("admin", "admin");
+
+		final OGraphVertex rootNode = database.getRoot("LinearGraph");
+
+		List<OGraphVertex> vertexes = rootNode.traverse(0, -1);
+		Assert.assertEquals(vertexes.size(), nodeWrittenCounter + 1);
+		for (int i = 0; i < vertexes.size(); ++i)
+			Assert.assertEquals(((Number) vertexes.get(i).get("id")).intValue(), i);
+
+		vertexes = rootNode.traverse(2, 4);
+		Assert.assertEquals(vertexes.size(), 3);
+		Assert.assertEquals(((Number) vertexes.get(0).get("id")).intValue(), 2);
+
+		database.close();
+	}
+
 	private void readSubNodes(final OGraphVertex iNode) {
 		Assert.assertEquals(((Number) iNode.get("id")).intValue(), ++nodeReadCounter);
 
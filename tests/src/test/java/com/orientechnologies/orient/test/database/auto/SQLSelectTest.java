@@ -16,9 +16,12 @@
 package com.orientechnologies.orient.test.database.auto;
 
 import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.testng.Assert;
 import org.testng.annotations.Parameters;
@@ -469,4 +472,136 @@ public class SQLSelectTest {
 
 		database.close();
 	}
+
+	@Test
+	public void queryLikeWildcards() {
+		database.open("admin", "admin");
+
+		final List<ODocument> profiles = createProfiles("Jxyselect1", "Jzyselect2", "Jxxselect3", "Jxyyselect4");
+		try {
+			List<ODocument> result = database.query(new OSQLSynchQuery<ODocument>(
+					"select from Profile where name like 'J?yselect%'"));
+
+			Assert.assertEquals(result.size(), 2);
+			for (ODocument d : result) {
+				final String name = d.field("name").toString();
+				Assert.assertTrue(name.equals("Jxyselect1") || name.equals("Jzyselect2"));
+			}
+		} finally {
+			deleteProfiles(profiles);
+			database.close();
+		}
+	}
+
+	@Test
+	public void queryMatches() {
+		database.open("admin", "admin");
+
+		final List<ODocument> profiles = createProfiles("Jxyselect1", "Jzyselect2", "Jxxselect3", "Jxyyselect4");
+		try {
+			List<ODocument> result = database.query(new OSQLSynchQuery<ODocument>(
+					"select from Profile where name matches 'Jx.select[0-9]'"));
+
+			Assert.assertEquals(result.size(), 2);
+			for (ODocument d : result) {
+				final String name = d.field("name").toString();
+				Assert.assertTrue(name.equals("Jxyselect1") || name.equals("Jxxselect3"));
+			}
+		} finally {
+			deleteProfiles(profiles);
+			database.close();
+		}
+	}
+
+	@Test
+	public void queryPositionalParameters() {
+		database.open("admin", "admin");
+
+		final List<ODocument> profiles = createProfiles("Paramselect1", "Paramselect1", "Paramselect2");
+		try {
+			final OSQLSynchQuery<ODocument> query = new OSQLSynchQuery<ODocument>("select from Profile where name = ?");
+
+			List<ODocument> result = database.command(query).execute("Paramselect1");
+			Assert.assertEquals(result.size(), 2);
+			for (ODocument d : result)
+				Assert.assertEquals(d.field("name"), "Paramselect1");
+
+			result = database.command(query).execute("Paramselect2");
+			Assert.assertEquals(result.size(), 1);
+			Assert.assertEquals(result.get(0).field("name"), "Paramselect2");
+		} finally {
+			deleteProfiles(profiles);
+			database.close();
+		}
+	}
+
+	@Test
+	public void queryNamedParameters() {
+		database.open("admin", "admin");
+
+		final List<ODocument> profiles = createProfiles("Paramselect1", "Paramselect1", "Paramselect2");
+		try {
+			final Map<String, Object> params = new HashMap<String, Object>();
+			params.put("name", "Paramselect1");
+
+			List<ODocument> result = database.command(new OSQLSynchQuery<ODocument>("select from Profile where name = :name"))
+					.execute(params);
+			Assert.assertEquals(result.size(), 2);
+			for (ODocument d : result)
+				Assert.assertEquals(d.field("name"), "Paramselect1");
+		} finally {
+			deleteProfiles(profiles);
+			database.close();
+		}
+	}
+
+	@Test
+	public void queryCachedStatementWithParameters() {
+		database.open("admin", "admin");
+
+		final List<ODocument> profiles = createProfiles("Paramselect1", "Paramselect1", "Paramselect2");
+		try {
+			final Map<String, Object> params = new HashMap<String, Object>();
+
+			// THE SECOND QUERY HAS THE SAME TEXT: IT REUSES THE CACHED STATEMENT WITH DIFFERENT PARAMETERS
+			params.put("name", "Paramselect1");
+			List<ODocument> result = database.command(
+					new OSQLSynchQuery<ODocument>("select from Profile where name = :name and surname = 'Select'")).execute(params);
+			Assert.assertEquals(result.size(), 2);
+			for (ODocument d : result)
+				Assert.assertEquals(d.field("name"), "Paramselect1");
+
+			params.put("name", "Paramselect2");
+			result = database.command(
+					new OSQLSynchQuery<ODocument>("select from Profile where name = :name and surname = 'Select'")).execute(params);
+			Assert.assertEquals(result.size(), 1);
+			Assert.assertEquals(result.get(0).field("name"), "Paramselect2");
+
+			params.put("name", "Paramselect3");
+			result = database.command(
+					new OSQLSynchQuery<ODocument>("select from Profile where name = :name and surname = 'Select'")).execute(params);
+			Assert.assertEquals(result.size(), 0);
+		} finally {
+			deleteProfiles(profiles);
+			database.close();
+		}
+	}
+
+	private List<ODocument> createProfiles(final String... iNames) {
+		final List<ODocument> profiles = new ArrayList<ODocument>();
+		for (String name : iNames) {
+			final ODocument profile = new ODocument(database, "Profile");
+			profile.field("nick", name + profiles.size());
+			profile.field("name", name);
+			profile.field("surname", "Select");
+			profile.save();
+			profiles.add(profile);
+		}
+		return profiles;
+	}
+
+	private void deleteProfiles(final List<ODocument> iProfiles) {
+		for (ODocument profile : iProfiles)
+			profile.delete();
+	}
 }
@@ -0,0 +1,79 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.test.database.base.OrientMultiThreadTest;
+import com.orientechnologies.orient.test.database.base.OrientThreadTest;
+
+/**
+ * Loads the same document by HTTP from many threads against a running server. Run it with -Dthreads=1,2,4... to check that the
+ * throughput grows with the threads up to the available cores now that the server pools more database instances.
+ * <p>
+ * Properties: "url" (default http://localhost:2480), "db" (default demo), "rid" (default 5:0) and "threads" (default the
+ * available processors). Set "path" to load another resource, such as www/js/orient-app.js to measure the static content, and
+ * "gzip" to true to accept compressed responses.
+ * </p>
+ */
+@Test(enabled = false)
+public class HttpReadMultiThreadSpeedTest extends OrientMultiThreadTest {
+	private static final String	AUTHORIZATION	= "Basic YWRtaW46YWRtaW4=";	// admin:admin
+
+	public static void main(String[] iArgs) throws InstantiationException, IllegalAccessException {
+		HttpReadMultiThreadSpeedTest test = new HttpReadMultiThreadSpeedTest();
+		test.data.go(test);
+	}
+
+	public HttpReadMultiThreadSpeedTest() {
+		super(10000, Integer.getInteger("threads", Runtime.getRuntime().availableProcessors()), ReadThread.class);
+	}
+
+	public static class ReadThread extends OrientThreadTest {
+		private URL			url;
+		private boolean	gzip;
+		private byte[]	buffer	= new byte[8192];
+
+		@Override
+		public void init() throws Exception {
+			url = new URL(System.getProperty("url", "http://localhost:2480") + "/"
+					+ System.getProperty("path", "document/" + System.getProperty("db", "demo") + "/" + System.getProperty("rid", "5:0")));
+			gzip = Boolean.getBoolean("gzip");
+		}
+
+		public void cycle() throws Exception {
+			final HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+			conn.setRequestProperty("Authorization", AUTHORIZATION);
+			if (gzip)
+				conn.setRequestProperty("Accept-Encoding", "gzip");
+
+			Assert.assertEquals(conn.getResponseCode(), 200);
+
+			final InputStream in = conn.getInputStream();
+			try {
+				while (in.read(buffer) > -1)
+					;
+			} finally {
+				in.close();
+			}
+		}
+	}
+}
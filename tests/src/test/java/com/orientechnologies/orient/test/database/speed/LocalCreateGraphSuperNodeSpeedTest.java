@@ -0,0 +1,78 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import java.util.Iterator;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.profiler.OProfiler;
+import com.orientechnologies.orient.core.db.graph.ODatabaseGraphTx;
+import com.orientechnologies.orient.core.db.graph.OGraphVertex;
+import com.orientechnologies.orient.test.database.base.OrientMonoThreadTest;
+
+/**
+ * Links many vertexes to the same hub to measure the insertion and the browsing of a super node.
+ */
+@Test(enabled = false)
+public class LocalCreateGraphSuperNodeSpeedTest extends OrientMonoThreadTest {
+	private ODatabaseGraphTx	database;
+	private OGraphVertex			hub;
+
+	public static void main(String[] iArgs) throws InstantiationException, IllegalAccessException {
+		LocalCreateGraphSuperNodeSpeedTest test = new LocalCreateGraphSuperNodeSpeedTest();
+		test.data.go(test);
+	}
+
+	public LocalCreateGraphSuperNodeSpeedTest() throws InstantiationException, IllegalAccessException {
+		super(100000);
+	}
+
+	@Override
+	public void init() {
+		OProfiler.getInstance().startRecording();
+
+		database = new ODatabaseGraphTx(System.getProperty("url")).open("admin", "admin");
+
+		hub = database.createVertex().set("id", "hub");
+		hub.save();
+		database.setRoot("SuperNodeGraph", hub);
+	}
+
+	@Override
+	public void cycle() {
+		final OGraphVertex vertex = database.createVertex().set("id", data.getCyclesDone());
+		hub.link(vertex);
+		hub.save();
+	}
+
+	@Override
+	public void deinit() {
+		hub.save();
+
+		final long time = System.currentTimeMillis();
+
+		int browsed = 0;
+		for (Iterator<OGraphVertex> it = database.getRoot("SuperNodeGraph").outVertexIterator(); it.hasNext(); it.next())
+			browsed++;
+
+		System.out.println("Super node with " + hub.getOutEdgeCount() + " edges (tree=" + hub.isSuperNode(true) + "), browsed "
+				+ browsed + " vertexes in " + ((System.currentTimeMillis() - time) / 1000f) + " sec.");
+
+		database.close();
+		super.deinit();
+	}
+}
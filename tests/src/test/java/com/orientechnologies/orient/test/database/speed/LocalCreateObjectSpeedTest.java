@@ -28,9 +28,9 @@ import com.orientechnologies.orient.test.domain.business.Account;
 
 @Test(enabled = false)
 public class LocalCreateObjectSpeedTest extends OrientMonoThreadTest {
-	private ODatabaseObjectTx	database;
-	private Account						account;
-	private Date							date	= new Date();
+	protected ODatabaseObjectTx	database;
+	protected Account						account;
+	protected Date							date	= new Date();
 
 	public static void main(String[] iArgs) throws InstantiationException, IllegalAccessException {
 		LocalCreateObjectSpeedTest test = new LocalCreateObjectSpeedTest();
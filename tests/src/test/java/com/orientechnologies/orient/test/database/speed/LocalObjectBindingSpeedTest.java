@@ -0,0 +1,63 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.serialization.serializer.object.OObjectSerializerHelper;
+import com.orientechnologies.orient.test.domain.business.Account;
+
+/**
+ * Measures only the POJO binding: every cycle converts an Account to a document and back without touching the storage.
+ */
+@Test(enabled = false)
+public class LocalObjectBindingSpeedTest extends LocalCreateObjectSpeedTest {
+	private OClass	schemaClass;
+
+	public static void main(String[] iArgs) throws InstantiationException, IllegalAccessException {
+		LocalObjectBindingSpeedTest test = new LocalObjectBindingSpeedTest();
+		test.data.go(test);
+	}
+
+	public LocalObjectBindingSpeedTest() throws InstantiationException, IllegalAccessException {
+		super();
+	}
+
+	@Override
+	public void init() {
+		super.init();
+		schemaClass = database.getMetadata().getSchema().getClass(Account.class.getSimpleName());
+	}
+
+	@Override
+	public void cycle() {
+		account = new Account((int) data.getCyclesDone(), "Luca", "Garulli");
+		account.setBirthDate(date);
+		account.setSalary(3000f + data.getCyclesDone());
+
+		final ODocument doc = OObjectSerializerHelper.toStream(account, new ODocument(database.getUnderlying(), "Account"),
+				database.getEntityManager(), schemaClass, database);
+
+		OObjectSerializerHelper.fromStream(doc, new Account(), database.getEntityManager(), database, null);
+
+		if (data.getCyclesDone() == data.getCycles() - 1)
+			database.commit();
+
+		account = null;
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.profiler.OProfiler;
+import com.orientechnologies.common.profiler.OProfilerCounter;
+import com.orientechnologies.common.profiler.OProfilerHistogram;
+import com.orientechnologies.orient.test.database.base.OrientMultiThreadTest;
+import com.orientechnologies.orient.test.database.base.OrientThreadTest;
+
+@Test(enabled = false)
+public class ProfilerMultiThreadSpeedTest extends OrientMultiThreadTest {
+	private static final OProfilerCounter		COUNTER	= OProfiler.getInstance().registerCounter("ProfilerSpeedTest.counter");
+	private static final OProfilerHistogram	CHRONO	= OProfiler.getInstance().registerChrono("ProfilerSpeedTest.chrono");
+
+	public static void main(String[] iArgs) throws InstantiationException, IllegalAccessException {
+		ProfilerMultiThreadSpeedTest test = new ProfilerMultiThreadSpeedTest();
+		test.data.go(test);
+	}
+
+	public ProfilerMultiThreadSpeedTest() {
+		super(1000000, 4, ProfilerThread.class);
+	}
+
+	@Override
+	public void init() {
+		OProfiler.getInstance().startRecording();
+		OProfiler.getInstance().reset();
+	}
+
+	public static class ProfilerThread extends OrientThreadTest {
+		public void cycle() {
+			final long timer = OProfiler.getInstance().startChrono();
+			COUNTER.increment();
+			OProfiler.getInstance().updateStatistic("ProfilerSpeedTest.byName", +1);
+			CHRONO.stop(timer);
+		}
+	}
+
+	@Override
+	public void deinit() {
+		System.out.println(OProfiler.getInstance().dump());
+
+		Assert.assertEquals(COUNTER.get(), threadCycles);
+		Assert.assertEquals(OProfiler.getInstance().getStatistic("ProfilerSpeedTest.byName"), threadCycles);
+		Assert.assertEquals(CHRONO.getItems(), threadCycles);
+		Assert.assertTrue(CHRONO.getPercentile(50) <= CHRONO.getPercentile(99.9));
+
+		OProfiler.getInstance().stopRecording();
+	}
+}
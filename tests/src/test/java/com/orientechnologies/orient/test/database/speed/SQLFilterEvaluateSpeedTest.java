@@ -0,0 +1,77 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import java.util.Date;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.filter.OSQLFilter;
+import com.orientechnologies.orient.test.database.base.OrientMonoThreadTest;
+
+/**
+ * Measures the per-record cost of the SQL filter evaluation, without any I/O: the documents are built in memory and never saved.
+ */
+@Test(enabled = false)
+public class SQLFilterEvaluateSpeedTest extends OrientMonoThreadTest {
+	private static final int		RECORDS	= 1000;
+	private ODatabaseDocumentTx	database;
+	private OSQLFilter					filter;
+	private ODocument[]					records;
+	private int									matches;
+
+	public static void main(String[] iArgs) throws InstantiationException, IllegalAccessException {
+		SQLFilterEvaluateSpeedTest test = new SQLFilterEvaluateSpeedTest();
+		test.data.go(test);
+	}
+
+	public SQLFilterEvaluateSpeedTest() {
+		super(5000000);
+	}
+
+	@Override
+	public void init() {
+		database = new ODatabaseDocumentTx(System.getProperty("url")).open("admin", "admin");
+
+		filter = new OSQLFilter(database,
+				"Account where id > 100 and salary < 3900.5 and name like 'Lu%' and surname matches 'Gar.*' and birthDate is not null");
+
+		records = new ODocument[RECORDS];
+		for (int i = 0; i < RECORDS; ++i) {
+			records[i] = database.newInstance("Account");
+			records[i].field("id", i);
+			records[i].field("name", i % 2 == 0 ? "Luca" : "Jay");
+			records[i].field("surname", "Garulli");
+			records[i].field("birthDate", new Date());
+			records[i].field("salary", 3000f + i);
+		}
+	}
+
+	@Override
+	public void cycle() {
+		if (filter.evaluate(database, records[(int) (data.getCyclesDone() % RECORDS)]))
+			matches++;
+	}
+
+	@Override
+	public void deinit() {
+		System.out.println("Matched records: " + matches);
+		database.close();
+		super.deinit();
+	}
+}
@@ -26,11 +26,15 @@ import java.util.Set;
 import com.orientechnologies.common.console.annotation.ConsoleCommand;
 import com.orientechnologies.common.console.annotation.ConsoleParameter;
 import com.orientechnologies.common.exception.OException;
+import com.orientechnologies.common.io.OFileUtils;
 import com.orientechnologies.orient.client.admin.OServerAdmin;
 import com.orientechnologies.orient.client.remote.OEngineRemote;
 import com.orientechnologies.orient.console.cmd.OConsoleDatabaseCompare;
+import com.orientechnologies.orient.console.cmd.OConsoleDatabaseCompareChecksum;
 import com.orientechnologies.orient.console.cmd.OConsoleDatabaseExport;
+import com.orientechnologies.orient.console.cmd.OConsoleDatabaseExportBinary;
 import com.orientechnologies.orient.console.cmd.OConsoleDatabaseImport;
+import com.orientechnologies.orient.console.cmd.OConsoleDatabaseImportBinary;
 import com.orientechnologies.orient.console.cmd.ODatabaseExportException;
 import com.orientechnologies.orient.console.cmd.ODatabaseImportException;
 import com.orientechnologies.orient.core.Orient;
@@ -55,6 +59,7 @@ import com.orientechnologies.orient.core.serialization.serializer.record.string.
 import com.orientechnologies.orient.core.sql.OCommandSQL;
 import com.orientechnologies.orient.core.sql.query.OSQLAsynchQuery;
 import com.orientechnologies.orient.core.storage.OStorage;
+import com.orientechnologies.orient.core.storage.impl.local.OStorageLocal;
 import com.orientechnologies.orient.enterprise.command.script.OCommandScript;
 
 public class OConsoleDatabaseApp extends OrientConsole implements OCommandListener {
@@ -504,13 +509,16 @@ public class OConsoleDatabaseApp extends OrientConsole implements OCommandListen
 		currentRecord = null;
 	}
 
-	@ConsoleCommand(description = "Export a database")
+	@ConsoleCommand(description = "Export a database. Files with extension .obe are exported in the compressed binary format")
 	public void exportDatabase(@ConsoleParameter(name = "output-file", description = "Output file path") final String iOutputFilePath)
 			throws IOException {
 		out.println("Exporting current database to: " + iOutputFilePath + "...");
 
 		try {
-			new OConsoleDatabaseExport(currentDatabase, iOutputFilePath, this).exportDatabase().close();
+			if (iOutputFilePath.endsWith(OConsoleDatabaseExportBinary.FILE_EXTENSION))
+				new OConsoleDatabaseExportBinary(currentDatabase, iOutputFilePath, this).exportDatabase().close();
+			else
+				new OConsoleDatabaseExport(currentDatabase, iOutputFilePath, this).exportDatabase().close();
 		} catch (ODatabaseExportException e) {
 			out.println("ERROR: " + e.toString());
 		}
@@ -526,18 +534,50 @@ public class OConsoleDatabaseApp extends OrientConsole implements OCommandListen
 		}
 	}
 
+	@ConsoleCommand(description = "Compare two databases by checksums of record ranges computed in parallel. Only the different ranges are compared record by record")
+	public void compareDatabasesChecksum(
+			@ConsoleParameter(name = "db1-url", description = "URL of the first database") final String iDb1URL,
+			@ConsoleParameter(name = "db2-url", description = "URL of the second database") final String iDb2URL) throws IOException {
+		try {
+			new OConsoleDatabaseCompareChecksum(iDb1URL, iDb2URL, this).compare();
+		} catch (ODatabaseExportException e) {
+			out.println("ERROR: " + e.toString());
+		}
+	}
+
 	@ConsoleCommand(description = "Import a database into the current one")
 	public void importDatabase(@ConsoleParameter(name = "imput-file", description = "Input file path") final String iInputFilePath)
 			throws IOException {
 		out.println("Importing database from file " + iInputFilePath + "...");
 
 		try {
-			new OConsoleDatabaseImport(currentDatabase, iInputFilePath, this).importDatabase().close();
+			if (OConsoleDatabaseImportBinary.isBinary(iInputFilePath))
+				new OConsoleDatabaseImportBinary(currentDatabase, iInputFilePath, this).importDatabase().close();
+			else
+				new OConsoleDatabaseImport(currentDatabase, iInputFilePath, this).importDatabase().close();
 		} catch (ODatabaseImportException e) {
 			out.println("ERROR: " + e.toString());
 		}
 	}
 
+	@ConsoleCommand(description = "Backup the current local database to a directory while it is in use. If the directory contains the last backup, only the changes are copied")
+	public void backupDatabase(@ConsoleParameter(name = "output-directory", description = "Output directory path") final String iOutputDirectory) {
+		checkCurrentDatabase();
+
+		if (!(currentDatabase.getStorage() instanceof OStorageLocal)) {
+			out.println("ERROR: Backup is supported only by local databases");
+			return;
+		}
+
+		out.println("Backup current database to: " + iOutputDirectory + "...");
+
+		final long time = System.currentTimeMillis();
+		final long copied = ((OStorageLocal) currentDatabase.getStorage()).backup(iOutputDirectory, true);
+
+		out.println("Backup completed in " + (System.currentTimeMillis() - time) + "ms: " + OFileUtils.getSizeAsString(copied)
+				+ " copied");
+	}
+
 	@ConsoleCommand(description = "Export the current record in the requested format")
 	public void exportRecord(@ConsoleParameter(name = "format", description = "Format, such as 'json'") final String iFormat)
 			throws IOException {
@@ -26,9 +26,9 @@ import com.orientechnologies.orient.core.storage.ORawBuffer;
 import com.orientechnologies.orient.core.storage.OStorage;
 
 public class OConsoleDatabaseCompare extends OConsoleDatabaseImpExpAbstract {
-	private OStorage	storage1;
-	private OStorage	storage2;
-	private int				differences	= 0;
+	protected OStorage	storage1;
+	protected OStorage	storage2;
+	protected int				differences	= 0;
 
 	public OConsoleDatabaseCompare(final String iDb1URL, final String iDb2URL, final OCommandListener iListener) throws IOException {
 		super(null, null, iListener);
@@ -78,14 +78,8 @@ public class OConsoleDatabaseCompare extends OConsoleDatabaseImpExpAbstract {
 		boolean ok;
 
 		for (String clusterName : storage1.getClusterNames()) {
-			// CHECK IF THE CLUSTER IS INCLUDED
-			if (includeClusters != null) {
-				if (!includeClusters.contains(clusterName))
-					continue;
-			} else if (excludeClusters != null) {
-				if (excludeClusters.contains(clusterName))
-					continue;
-			}
+			if (!isClusterIncluded(clusterName))
+				continue;
 
 			ok = true;
 			cluster2Id = storage2.getClusterIdByName(clusterName);
@@ -120,91 +114,98 @@ public class OConsoleDatabaseCompare extends OConsoleDatabaseImpExpAbstract {
 		return true;
 	}
 
-	private boolean compareRecords() {
+	protected boolean compareRecords() {
 		listener.onMessage("\nStarting deep comparison record by record. It can takes some minutes. Wait please...");
 
 		int clusterId;
 
-		ORawBuffer buffer1, buffer2;
-
 		for (String clusterName : storage1.getClusterNames()) {
-			// CHECK IF THE CLUSTER IS INCLUDED
-			if (includeClusters != null) {
-				if (!includeClusters.contains(clusterName))
-					continue;
-			} else if (excludeClusters != null) {
-				if (excludeClusters.contains(clusterName))
-					continue;
-			}
+			if (!isClusterIncluded(clusterName))
+				continue;
 
 			clusterId = storage1.getClusterIdByName(clusterName);
 
-			long db1Max = storage1.getClusterLastEntryPosition(clusterId);
-			long db2Max = storage2.getClusterLastEntryPosition(clusterId);
+			compareRecords(clusterId, 0, Math.max(storage1.getClusterLastEntryPosition(clusterId),
+					storage2.getClusterLastEntryPosition(clusterId)));
+		}
+
+		return true;
+	}
+
+	protected boolean isClusterIncluded(final String iClusterName) {
+		if (includeClusters != null)
+			return includeClusters.contains(iClusterName);
+		return excludeClusters == null || !excludeClusters.contains(iClusterName);
+	}
+
+	/**
+	 * Compares the records of a cluster in the range of positions iFrom-iTo, both included.
+	 */
+	protected void compareRecords(final int iClusterId, final long iFrom, final long iTo) {
+		final long db1Max = storage1.getClusterLastEntryPosition(iClusterId);
+		final long db2Max = storage2.getClusterLastEntryPosition(iClusterId);
+
+		ORawBuffer buffer1, buffer2;
+
+		for (long i = iFrom; i <= iTo; ++i) {
+			buffer1 = i <= db1Max ? storage1.readRecord(null, 0, iClusterId, i, null) : null;
+			buffer2 = i <= db2Max ? storage2.readRecord(null, 0, iClusterId, i, null) : null;
 
-			long clusterMax = Math.max(db1Max, db2Max);
-			for (int i = 0; i < clusterMax; ++i) {
-				buffer1 = i <= db1Max ? storage1.readRecord(null, 0, clusterId, i, null) : null;
-				buffer2 = i <= db2Max ? storage2.readRecord(null, 0, clusterId, i, null) : null;
+			if (buffer1 == null && buffer2 == null)
+				// BOTH RECORD NULL, OK
+				continue;
+			else if (buffer1 == null && buffer2 != null) {
+				// REC1 NULL
+				listener.onMessage("\n- KO: RID=" + iClusterId + ":" + i + " is null in DB1");
+				++differences;
+			} else if (buffer1 != null && buffer2 == null) {
+				// REC2 NULL
+				listener.onMessage("\n- KO: RID=" + iClusterId + ":" + i + " is null in DB2");
+				++differences;
+			} else {
+				if (buffer1.recordType != buffer2.recordType) {
+					listener.onMessage("\n- KO: RID=" + iClusterId + ":" + i + " recordType is different: " + (char) buffer1.recordType
+							+ " <-> " + (char) buffer2.recordType);
+					++differences;
+				}
 
-				if (buffer1 == null && buffer2 == null)
-					// BOTH RECORD NULL, OK
-					continue;
-				else if (buffer1 == null && buffer2 != null) {
-					// REC1 NULL
-					listener.onMessage("\n- KO: RID=" + clusterId + ":" + i + " is null in DB1");
+				if (buffer1.buffer == null && buffer2.buffer != null) {
+					listener.onMessage("\n- KO: RID=" + iClusterId + ":" + i + " content is different: null <-> " + buffer2.buffer.length);
 					++differences;
-				} else if (buffer1 != null && buffer2 == null) {
-					// REC2 NULL
-					listener.onMessage("\n- KO: RID=" + clusterId + ":" + i + " is null in DB2");
+
+				} else if (buffer1.buffer != null && buffer2.buffer == null) {
+					listener.onMessage("\n- KO: RID=" + iClusterId + ":" + i + " content is different: " + buffer1.buffer.length
+							+ " <-> null");
 					++differences;
-				} else {
-					if (buffer1.recordType != buffer2.recordType) {
-						listener.onMessage("\n- KO: RID=" + clusterId + ":" + i + " recordType is different: " + (char) buffer1.recordType
-								+ " <-> " + (char) buffer2.recordType);
-						++differences;
-					}
 
-					if (buffer1.buffer == null && buffer2.buffer != null) {
-						listener.onMessage("\n- KO: RID=" + clusterId + ":" + i + " content is different: null <-> " + buffer2.buffer.length);
-						++differences;
+				} else if (buffer1.buffer.length != buffer2.buffer.length) {
+					listener.onMessage("\n- KO: RID=" + iClusterId + ":" + i + " content length is different: " + buffer1.buffer.length
+							+ " <-> " + buffer2.buffer.length);
+					if (buffer1.recordType == ODocument.RECORD_TYPE || buffer1.recordType == ORecordFlat.RECORD_TYPE
+							|| buffer1.recordType == ORecordColumn.RECORD_TYPE)
+						listener.onMessage("\n--- REC1: " + new String(buffer1.buffer));
+					if (buffer2.recordType == ODocument.RECORD_TYPE || buffer2.recordType == ORecordFlat.RECORD_TYPE
+							|| buffer2.recordType == ORecordColumn.RECORD_TYPE)
+						listener.onMessage("\n--- REC2: " + new String(buffer2.buffer));
+					listener.onMessage("\n");
 
-					} else if (buffer1.buffer != null && buffer2.buffer == null) {
-						listener.onMessage("\n- KO: RID=" + clusterId + ":" + i + " content is different: " + buffer1.buffer.length
-								+ " <-> null");
-						++differences;
+					++differences;
 
-					} else if (buffer1.buffer.length != buffer2.buffer.length) {
-						listener.onMessage("\n- KO: RID=" + clusterId + ":" + i + " content length is different: " + buffer1.buffer.length
-								+ " <-> " + buffer2.buffer.length);
-						if (buffer1.recordType == ODocument.RECORD_TYPE || buffer1.recordType == ORecordFlat.RECORD_TYPE
-								|| buffer1.recordType == ORecordColumn.RECORD_TYPE)
+				} else {
+					// CHECK BYTE PER BYTE
+					for (int b = 0; b < buffer1.buffer.length; ++b) {
+						if (buffer1.buffer[b] != buffer2.buffer[b]) {
+							listener.onMessage("\n- KO: RID=" + iClusterId + ":" + i + " content is different at byte #" + b + ": "
+									+ buffer1.buffer[b] + " <-> " + buffer2.buffer[b]);
 							listener.onMessage("\n--- REC1: " + new String(buffer1.buffer));
-						if (buffer2.recordType == ODocument.RECORD_TYPE || buffer2.recordType == ORecordFlat.RECORD_TYPE
-								|| buffer2.recordType == ORecordColumn.RECORD_TYPE)
 							listener.onMessage("\n--- REC2: " + new String(buffer2.buffer));
-						listener.onMessage("\n");
-
-						++differences;
-
-					} else {
-						// CHECK BYTE PER BYTE
-						for (int b = 0; b < buffer1.buffer.length; ++b) {
-							if (buffer1.buffer[b] != buffer2.buffer[b]) {
-								listener.onMessage("\n- KO: RID=" + clusterId + ":" + i + " content is different at byte #" + b + ": "
-										+ buffer1.buffer[b] + " <-> " + buffer2.buffer[b]);
-								listener.onMessage("\n--- REC1: " + new String(buffer1.buffer));
-								listener.onMessage("\n--- REC2: " + new String(buffer2.buffer));
-								listener.onMessage("\n");
-								++differences;
-								break;
-							}
+							listener.onMessage("\n");
+							++differences;
+							break;
 						}
 					}
 				}
 			}
 		}
-
-		return true;
 	}
 }
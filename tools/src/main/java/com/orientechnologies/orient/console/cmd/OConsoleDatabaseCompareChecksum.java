@@ -0,0 +1,178 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.console.cmd;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+
+import com.orientechnologies.orient.console.OCommandListener;
+import com.orientechnologies.orient.core.storage.ORawBuffer;
+import com.orientechnologies.orient.core.storage.OStorage;
+
+/**
+ * Compares two databases by checksums of the raw records. Every cluster is split in ranges of positions and the checksums of the
+ * ranges are computed in parallel on both the databases. Only the ranges with different checksums are split again, down to small
+ * ranges compared record by record. Two matching databases are verified reading every record once, without any comparison.
+ * 
+ * @author Luca Garulli
+ * 
+ */
+public class OConsoleDatabaseCompareChecksum extends OConsoleDatabaseCompare {
+	private static final int	RANGE_SIZE	= Integer.getInteger("orient.compare.rangeSize", 10000);
+	private static final int	LEAF_SIZE		= 100;
+
+	private int								threads			= Runtime.getRuntime().availableProcessors();
+
+	public OConsoleDatabaseCompareChecksum(final String iDb1URL, final String iDb2URL, final OCommandListener iListener)
+			throws IOException {
+		super(iDb1URL, iDb2URL, iListener);
+	}
+
+	@Override
+	protected boolean compareRecords() {
+		listener.onMessage("\nStarting comparison of record checksums using " + threads + " threads...");
+
+		final long time = System.currentTimeMillis();
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+		try {
+			int clusterId;
+			long clusterMax;
+
+			for (String clusterName : storage1.getClusterNames()) {
+				if (!isClusterIncluded(clusterName))
+					continue;
+
+				clusterId = storage1.getClusterIdByName(clusterName);
+				clusterMax = Math.max(storage1.getClusterLastEntryPosition(clusterId), storage2.getClusterLastEntryPosition(clusterId));
+
+				// SUBMIT THE CHECKSUMS OF ALL THE RANGES OF BOTH THE DATABASES
+				final List<Future<Long>> checksums1 = new ArrayList<Future<Long>>();
+				final List<Future<Long>> checksums2 = new ArrayList<Future<Long>>();
+				for (long from = 0; from <= clusterMax; from += RANGE_SIZE) {
+					checksums1.add(executor.submit(new OChecksumTask(storage1, clusterId, from, Math.min(from + RANGE_SIZE - 1, clusterMax))));
+					checksums2.add(executor.submit(new OChecksumTask(storage2, clusterId, from, Math.min(from + RANGE_SIZE - 1, clusterMax))));
+				}
+
+				int differentRanges = 0;
+				for (int i = 0; i < checksums1.size(); ++i)
+					if (!checksums1.get(i).get().equals(checksums2.get(i).get())) {
+						++differentRanges;
+						final long from = (long) i * RANGE_SIZE;
+						compareRange(clusterId, from, Math.min(from + RANGE_SIZE - 1, clusterMax));
+					}
+
+				listener.onMessage("\n- Checked cluster " + String.format("%-25s: ", "'" + clusterName + "'") + checksums1.size()
+						+ " range(s), " + differentRanges + " different");
+			}
+
+		} catch (Exception e) {
+			throw new ODatabaseExportException("Error on computing the checksums of the records", e);
+		} finally {
+			executor.shutdown();
+		}
+
+		listener.onMessage("\n\nChecksums compared in " + (System.currentTimeMillis() - time) + "ms");
+		return true;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	public void setThreads(final int threads) {
+		this.threads = threads;
+	}
+
+	/**
+	 * Splits the range in two halves and goes down only into the halves with different checksums.
+	 */
+	private void compareRange(final int iClusterId, final long iFrom, final long iTo) {
+		if (iTo - iFrom < LEAF_SIZE) {
+			compareRecords(iClusterId, iFrom, iTo);
+			return;
+		}
+
+		final long middle = (iFrom + iTo) / 2;
+
+		if (checksum(storage1, iClusterId, iFrom, middle) != checksum(storage2, iClusterId, iFrom, middle))
+			compareRange(iClusterId, iFrom, middle);
+
+		if (checksum(storage1, iClusterId, middle + 1, iTo) != checksum(storage2, iClusterId, middle + 1, iTo))
+			compareRange(iClusterId, middle + 1, iTo);
+	}
+
+	/**
+	 * Computes the checksum of the records in the range iFrom-iTo, both included. The position, type and content of every record
+	 * are part of the checksum, while the deleted records are ignored like in the comparison record by record. Returns CRC32 and
+	 * Adler32 of the same bytes in a long to reduce the collisions.
+	 */
+	static long checksum(final OStorage iStorage, final int iClusterId, final long iFrom, final long iTo) {
+		final long last = Math.min(iTo, iStorage.getClusterLastEntryPosition(iClusterId));
+
+		final CRC32 crc = new CRC32();
+		final Adler32 adler = new Adler32();
+		final byte[] header = new byte[13];
+
+		ORawBuffer buffer;
+		for (long position = iFrom; position <= last; ++position) {
+			buffer = iStorage.readRecord(null, 0, iClusterId, position, null);
+			if (buffer == null)
+				continue;
+
+			final int length = buffer.buffer != null ? buffer.buffer.length : -1;
+			for (int i = 0; i < 8; ++i)
+				header[i] = (byte) (position >>> (56 - i * 8));
+			header[8] = buffer.recordType;
+			for (int i = 0; i < 4; ++i)
+				header[9 + i] = (byte) (length >>> (24 - i * 8));
+
+			crc.update(header);
+			adler.update(header);
+			if (length > 0) {
+				crc.update(buffer.buffer);
+				adler.update(buffer.buffer);
+			}
+		}
+
+		return crc.getValue() << 32 | adler.getValue();
+	}
+
+	private static class OChecksumTask implements Callable<Long> {
+		private final OStorage	storage;
+		private final int				clusterId;
+		private final long			from;
+		private final long			to;
+
+		private OChecksumTask(final OStorage iStorage, final int iClusterId, final long iFrom, final long iTo) {
+			storage = iStorage;
+			clusterId = iClusterId;
+			from = iFrom;
+			to = iTo;
+		}
+
+		public Long call() {
+			return checksum(storage, clusterId, from, to);
+		}
+	}
+}
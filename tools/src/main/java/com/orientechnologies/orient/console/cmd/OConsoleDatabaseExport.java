@@ -15,8 +15,10 @@
  */
 package com.orientechnologies.orient.console.cmd;
 
+import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.util.Iterator;
 import java.util.Map.Entry;
 
@@ -35,15 +37,27 @@ import com.orientechnologies.orient.core.storage.impl.local.OClusterLogical;
 import com.orientechnologies.orient.core.storage.impl.local.OStorageLocal;
 
 public class OConsoleDatabaseExport extends OConsoleDatabaseImpExpAbstract {
-	private OJSONWriter	writer;
-	private long				recordExported;
+	private static final int	BUFFER_SIZE	= 65536;
+
+	protected OJSONWriter			writer;
+	private long							recordExported;
 
 	public OConsoleDatabaseExport(final ODatabaseRecord<?> iDatabase, final String iFileName, final OCommandListener iListener)
 			throws IOException {
+		this(iDatabase, iFileName, iListener, new BufferedWriter(new FileWriter(iFileName), BUFFER_SIZE));
+	}
+
+	/**
+	 * Creates the export writing the JSON to the output. If the output is null the writer is created later by the subclass.
+	 */
+	protected OConsoleDatabaseExport(final ODatabaseRecord<?> iDatabase, final String iFileName, final OCommandListener iListener,
+			final Writer iOutput) throws IOException {
 		super(iDatabase, iFileName, iListener);
 
-		writer = new OJSONWriter(new FileWriter(fileName));
-		writer.beginObject();
+		if (iOutput != null) {
+			writer = new OJSONWriter(iOutput);
+			writer.beginObject();
+		}
 
 		iDatabase.declareIntent(new OIntentMassiveRead());
 	}
@@ -139,7 +153,7 @@ public class OConsoleDatabaseExport extends OConsoleDatabaseImpExpAbstract {
 		}
 	}
 
-	private void exportClusters() throws IOException {
+	protected void exportClusters() throws IOException {
 		listener.onMessage("\nExporting clusters...");
 
 		writer.beginCollection(1, true, "clusters");
@@ -176,7 +190,7 @@ public class OConsoleDatabaseExport extends OConsoleDatabaseImpExpAbstract {
 		writer.endCollection(1, true);
 	}
 
-	private void exportInfo() throws IOException {
+	protected void exportInfo() throws IOException {
 		listener.onMessage("\nExporting database info...");
 
 		writer.beginObject(1, true, "info");
@@ -188,7 +202,7 @@ public class OConsoleDatabaseExport extends OConsoleDatabaseImpExpAbstract {
 	}
 
 	@SuppressWarnings("unchecked")
-	private void exportDictionary() throws IOException {
+	protected void exportDictionary() throws IOException {
 		listener.onMessage("\nExporting dictionary...");
 
 		long tot = 0;
@@ -208,7 +222,7 @@ public class OConsoleDatabaseExport extends OConsoleDatabaseImpExpAbstract {
 		listener.onMessage("OK (" + tot + " entries)");
 	}
 
-	private void exportSchema() throws IOException {
+	protected void exportSchema() throws IOException {
 		listener.onMessage("\nExporting schema...");
 
 		writer.beginObject(1, true, "schema");
@@ -0,0 +1,352 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.console.cmd;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import com.orientechnologies.orient.console.OCommandListener;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.serialization.serializer.OJSONWriter;
+import com.orientechnologies.orient.core.storage.ORawBuffer;
+import com.orientechnologies.orient.core.storage.OStorage;
+
+/**
+ * Exports the database in a compact binary format. The records are exported as they are stored, without unmarshalling them, by
+ * one thread per cluster. Each thread compresses its records in blocks that are written to the file through a FileChannel as
+ * soon as they are ready. Info, clusters, schema and dictionary are exported as JSON, as the default export does.<br/>
+ * <br/>
+ * File format: MAGIC ("OBEX" as int), VERSION (int), then a sequence of blocks up to the END block. Each block has the header type (byte),
+ * cluster id (int), records (int), content length (int), compressed length (int) and the compressed content. The content of a
+ * records block is a sequence of records: position (long), version (int), record type (byte), length (int) and bytes. The blocks
+ * of the same cluster are in order of position.
+ * 
+ * @author Luca Garulli
+ * 
+ */
+public class OConsoleDatabaseExportBinary extends OConsoleDatabaseExport {
+	public static final String	FILE_EXTENSION		= ".obe";
+	public static final int			MAGIC							= 0x4F424558;
+	public static final int			VERSION						= 1;
+	public static final byte		BLOCK_METADATA		= 'M';
+	public static final byte		BLOCK_RECORDS			= 'R';
+	public static final byte		BLOCK_DICTIONARY	= 'D';
+	public static final byte		BLOCK_END					= 'E';
+	public static final int			BLOCK_HEADER_SIZE	= 17;
+
+	private static final int		BLOCK_SIZE				= 1024 * 1024;
+	private static final long		PROGRESS_INTERVAL	= 5000;
+
+	private int									threads						= Runtime.getRuntime().availableProcessors();
+	private FileChannel					out;
+	private final ByteBuffer		header						= ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+	private long								bytesRead;
+	private long								bytesWritten;
+
+	public OConsoleDatabaseExportBinary(final ODatabaseRecord<?> iDatabase, final String iFileName, final OCommandListener iListener)
+			throws IOException {
+		super(iDatabase, iFileName, iListener, null);
+	}
+
+	@Override
+	public OConsoleDatabaseExport exportDatabase() {
+		try {
+			final long time = System.currentTimeMillis();
+
+			out = new FileOutputStream(fileName).getChannel();
+
+			final ByteBuffer fileHeader = ByteBuffer.allocate(8);
+			fileHeader.putInt(MAGIC).putInt(VERSION).flip();
+			write(fileHeader);
+
+			writeJSONBlock(BLOCK_METADATA, exportJSON(true));
+			exportRecords();
+			if (includeDictionary)
+				writeJSONBlock(BLOCK_DICTIONARY, exportJSON(false));
+			writeBlock(new OExportBlock(BLOCK_END, -1, 0, 0, new byte[0]));
+
+			final long elapsed = Math.max(1, System.currentTimeMillis() - time);
+			listener.onMessage("\n\nExport of database completed in " + elapsed + "ms: " + bytesRead / 1024 + "Kb of records compressed to "
+					+ bytesWritten / 1024 + "Kb (" + (bytesWritten * 1000 / elapsed / 1024) + "Kb/sec)");
+
+		} catch (Exception e) {
+			e.printStackTrace();
+			throw new ODatabaseExportException("Error on exporting database '" + database.getName() + "' to: " + fileName, e);
+		} finally {
+			close();
+		}
+
+		return this;
+	}
+
+	/**
+	 * Exports the records of all the clusters in parallel. The blocks are written by the current thread in the order they are
+	 * ready.
+	 */
+	@Override
+	public long exportRecords() throws IOException {
+		listener.onMessage("\nExporting records using " + threads + " threads...");
+
+		final List<String> clusterNames = new ArrayList<String>();
+		for (String clusterName : database.getClusterNames()) {
+			// CHECK IF THE CLUSTER IS INCLUDED
+			if (includeClusters != null) {
+				if (!includeClusters.contains(clusterName))
+					continue;
+			} else if (excludeClusters != null) {
+				if (excludeClusters.contains(clusterName))
+					continue;
+			}
+			clusterNames.add(clusterName);
+		}
+
+		final BlockingQueue<OExportBlock> queue = new ArrayBlockingQueue<OExportBlock>(threads * 2);
+
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		for (final String clusterName : clusterNames)
+			executor.execute(new Runnable() {
+				public void run() {
+					exportCluster(clusterName, queue);
+				}
+			});
+		executor.shutdown();
+
+		final long time = System.currentTimeMillis();
+		long lastProgress = time;
+		long totalRecords = 0;
+		Exception error = null;
+
+		try {
+			int pending = clusterNames.size();
+			OExportBlock block;
+			while (pending > 0) {
+				block = queue.take();
+
+				if (block.type == BLOCK_END) {
+					// CLUSTER COMPLETED OR FAILED
+					--pending;
+					if (block.error != null) {
+						error = block.error;
+						break;
+					}
+					listener.onMessage("\n- Exported cluster '" + database.getClusterNameById(block.clusterId) + "'");
+					continue;
+				}
+
+				writeBlock(block);
+				totalRecords += block.records;
+
+				if (System.currentTimeMillis() - lastProgress > PROGRESS_INTERVAL) {
+					lastProgress = System.currentTimeMillis();
+					listener.onMessage("\n- Exported " + totalRecords + " records (" + totalRecords * 1000 / (lastProgress - time)
+							+ " records/sec)");
+				}
+			}
+		} catch (InterruptedException e) {
+			throw new ODatabaseExportException("Export of records interrupted", e);
+		} finally {
+			// STOP THE WORKERS LEFT ON ERROR: THEY COULD BE BLOCKED ON THE FULL QUEUE
+			executor.shutdownNow();
+			queue.clear();
+		}
+
+		if (error != null)
+			throw new ODatabaseExportException("Error on exporting records", error);
+
+		final long elapsed = Math.max(1, System.currentTimeMillis() - time);
+		listener.onMessage("\n\nDone. Exported " + totalRecords + " records in " + elapsed + "ms (" + totalRecords * 1000 / elapsed
+				+ " records/sec)\n");
+
+		return totalRecords;
+	}
+
+	@Override
+	public void close() {
+		super.close();
+
+		if (out == null)
+			return;
+
+		try {
+			out.close();
+			out = null;
+		} catch (IOException e) {
+		}
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	public void setThreads(final int threads) {
+		this.threads = threads;
+	}
+
+	/**
+	 * Reads the raw records of a cluster and sends them to the queue in compressed blocks. The last block sent is always the END
+	 * block, with the error if any. If the export is stopped by interrupting the thread nothing else is sent, since nobody reads the
+	 * queue anymore.
+	 */
+	private void exportCluster(final String iClusterName, final BlockingQueue<OExportBlock> iQueue) {
+		final int clusterId = database.getClusterIdByName(iClusterName);
+		final OStorage storage = database.getStorage();
+		final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+		Exception error = null;
+		try {
+			final ByteArrayOutputStream content = new ByteArrayOutputStream(BLOCK_SIZE + BLOCK_SIZE / 4);
+			final DataOutputStream stream = new DataOutputStream(content);
+			int records = 0;
+
+			final long last = storage.getClusterLastEntryPosition(clusterId);
+			ORawBuffer record;
+			for (long position = 0; position <= last; ++position) {
+				record = storage.readRecord(database, database.getId(), clusterId, position, null);
+				if (record == null)
+					// DELETED
+					continue;
+
+				stream.writeLong(position);
+				stream.writeInt(record.version);
+				stream.writeByte(record.recordType);
+				if (record.buffer != null) {
+					stream.writeInt(record.buffer.length);
+					stream.write(record.buffer);
+				} else
+					stream.writeInt(-1);
+				++records;
+
+				if (content.size() >= BLOCK_SIZE) {
+					iQueue.put(new OExportBlock(BLOCK_RECORDS, clusterId, records, content.size(), compress(deflater, content)));
+					content.reset();
+					records = 0;
+				}
+			}
+
+			if (records > 0)
+				iQueue.put(new OExportBlock(BLOCK_RECORDS, clusterId, records, content.size(), compress(deflater, content)));
+
+		} catch (InterruptedException e) {
+			// EXPORT STOPPED
+			return;
+		} catch (Exception e) {
+			error = e;
+		} finally {
+			deflater.end();
+		}
+
+		if (Thread.interrupted())
+			// EXPORT STOPPED
+			return;
+
+		final OExportBlock end = new OExportBlock(BLOCK_END, clusterId, 0, 0, null);
+		end.error = error;
+		try {
+			iQueue.put(end);
+		} catch (InterruptedException e) {
+			// EXPORT STOPPED
+		}
+	}
+
+	private static byte[] compress(final Deflater iDeflater, final ByteArrayOutputStream iContent) throws IOException {
+		iDeflater.reset();
+		final ByteArrayOutputStream compressed = new ByteArrayOutputStream(iContent.size() / 2);
+		final DeflaterOutputStream stream = new DeflaterOutputStream(compressed, iDeflater);
+		iContent.writeTo(stream);
+		stream.finish();
+		return compressed.toByteArray();
+	}
+
+	/**
+	 * Exports info, clusters and schema or the dictionary as a JSON object.
+	 */
+	private byte[] exportJSON(final boolean iMetadata) throws IOException {
+		final StringWriter buffer = new StringWriter();
+		writer = new OJSONWriter(buffer);
+		writer.beginObject();
+
+		if (iMetadata) {
+			if (includeInfo)
+				exportInfo();
+			exportClusters();
+			if (includeSchema)
+				exportSchema();
+		} else
+			exportDictionary();
+
+		writer.endObject();
+		writer = null;
+
+		return buffer.toString().getBytes("UTF-8");
+	}
+
+	private void writeJSONBlock(final byte iType, final byte[] iJSON) throws IOException {
+		final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		try {
+			final ByteArrayOutputStream content = new ByteArrayOutputStream(iJSON.length);
+			content.write(iJSON);
+			writeBlock(new OExportBlock(iType, -1, 0, iJSON.length, compress(deflater, content)));
+		} finally {
+			deflater.end();
+		}
+	}
+
+	private void writeBlock(final OExportBlock iBlock) throws IOException {
+		header.clear();
+		header.put(iBlock.type).putInt(iBlock.clusterId).putInt(iBlock.records).putInt(iBlock.length).putInt(iBlock.content.length);
+		header.flip();
+		write(header);
+		write(ByteBuffer.wrap(iBlock.content));
+
+		bytesRead += iBlock.length;
+		bytesWritten += BLOCK_HEADER_SIZE + iBlock.content.length;
+	}
+
+	private void write(final ByteBuffer iBuffer) throws IOException {
+		while (iBuffer.hasRemaining())
+			out.write(iBuffer);
+	}
+
+	private static class OExportBlock {
+		private final byte		type;
+		private final int			clusterId;
+		private final int			records;
+		private final int			length;
+		private final byte[]	content;
+		private Exception			error;
+
+		private OExportBlock(final byte iType, final int iClusterId, final int iRecords, final int iLength, final byte[] iContent) {
+			type = iType;
+			clusterId = iClusterId;
+			records = iRecords;
+			length = iLength;
+			content = iContent;
+		}
+	}
+}
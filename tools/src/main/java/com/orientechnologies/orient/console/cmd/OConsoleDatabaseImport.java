@@ -17,6 +17,7 @@ package com.orientechnologies.orient.console.cmd;
 
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.text.ParseException;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -52,39 +53,32 @@ import com.orientechnologies.orient.core.storage.OStorage;
 public class OConsoleDatabaseImport extends OConsoleDatabaseImpExpAbstract {
 	private Map<OProperty, String>	linkedClasses		= new HashMap<OProperty, String>();
 	private Map<OClass, String>			superClasses		= new HashMap<OClass, String>();
-	private OJSONReader							jsonReader;
+	protected OJSONReader						jsonReader;
 	private OStringForwardReader		reader;
 	private ORecordInternal<?>			record;
 	private Set<String>							recordToDelete	= new HashSet<String>();
 
 	public OConsoleDatabaseImport(final ODatabaseDocument database, final String iFileName, final OCommandListener iListener)
 			throws IOException {
+		this(database, iFileName, iListener, new FileReader(iFileName));
+	}
+
+	/**
+	 * Creates the import reading the JSON from the input. If the input is null the reader is created later by the subclass.
+	 */
+	protected OConsoleDatabaseImport(final ODatabaseDocument database, final String iFileName, final OCommandListener iListener,
+			final InputStreamReader iInput) throws IOException {
 		super(database, iFileName, iListener);
-		jsonReader = new OJSONReader(new FileReader(fileName));
+		if (iInput != null)
+			jsonReader = new OJSONReader(iInput);
 		database.declareIntent(new OIntentMassiveInsert());
 	}
 
 	public OConsoleDatabaseImport importDatabase() {
 		try {
-			jsonReader.readNext(OJSONReader.BEGIN_OBJECT);
-
 			long time = System.currentTimeMillis();
 
-			String tag;
-			while (jsonReader.lastChar() != '}') {
-				tag = jsonReader.readString(OJSONReader.FIELD_ASSIGNMENT);
-
-				if (tag.equals("info"))
-					importInfo();
-				else if (tag.equals("clusters"))
-					importClusters();
-				else if (tag.equals("schema"))
-					importSchema();
-				else if (tag.equals("records"))
-					importRecords();
-				else if (tag.equals("dictionary"))
-					importDictionary();
-			}
+			importJSON();
 
 			deleteHoleRecords();
 
@@ -100,6 +94,29 @@ public class OConsoleDatabaseImport extends OConsoleDatabaseImpExpAbstract {
 		return this;
 	}
 
+	/**
+	 * Imports all the sections of the JSON object read by the current reader.
+	 */
+	protected void importJSON() throws IOException, ParseException {
+		jsonReader.readNext(OJSONReader.BEGIN_OBJECT);
+
+		String tag;
+		while (jsonReader.lastChar() != '}' && jsonReader.hasNext()) {
+			tag = jsonReader.readString(OJSONReader.FIELD_ASSIGNMENT);
+
+			if (tag.equals("info"))
+				importInfo();
+			else if (tag.equals("clusters"))
+				importClusters();
+			else if (tag.equals("schema"))
+				importSchema();
+			else if (tag.equals("records"))
+				importRecords();
+			else if (tag.equals("dictionary"))
+				importDictionary();
+		}
+	}
+
 	/**
 	 * Delete all the temporary records created to fill the holes and to mantain the same record ID
 	 */
@@ -136,8 +153,8 @@ public class OConsoleDatabaseImport extends OConsoleDatabaseImpExpAbstract {
 		String dictionaryKey;
 		String dictionaryValue;
 
-		final ODocument doc = new ODocument(database);
 		final ORecordId rid = new ORecordId();
+		final ODocument doc = new ODocument(database, rid);
 
 		long tot = 0;
 
@@ -0,0 +1,353 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.console.cmd;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import com.orientechnologies.orient.console.OCommandListener;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.exception.OSchemaException;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OProperty;
+import com.orientechnologies.orient.core.serialization.serializer.OJSONReader;
+import com.orientechnologies.orient.core.storage.OStorage;
+
+/**
+ * Imports a database exported by {@link OConsoleDatabaseExportBinary}. Clusters and schema are imported first, then the records
+ * are inserted as they are, without marshalling, by a pool of threads. The records of the same cluster are always inserted by the
+ * same thread, so they keep their positions. The records are created directly in the storage, without transactions and without
+ * updating the indexes: all the indexes are rebuilt at the end in bulk.
+ * 
+ * @author Luca Garulli
+ * 
+ */
+public class OConsoleDatabaseImportBinary extends OConsoleDatabaseImport {
+	private static final long					PROGRESS_INTERVAL	= 5000;
+	private static final byte[]				EMPTY_CONTENT			= new byte[0];
+	private static final OImportBlock	END_BLOCK					= new OImportBlock(-1, 0, 0, null);
+
+	private int												threads						= Runtime.getRuntime().availableProcessors();
+	private FileChannel								in;
+	private final ByteBuffer					header						= ByteBuffer.allocate(OConsoleDatabaseExportBinary.BLOCK_HEADER_SIZE);
+	private final List<ORecordId>			holes							= Collections.synchronizedList(new ArrayList<ORecordId>());
+	private final AtomicLong						recordsImported		= new AtomicLong();
+	private volatile Exception					error;
+
+	public OConsoleDatabaseImportBinary(final ODatabaseDocument database, final String iFileName, final OCommandListener iListener)
+			throws IOException {
+		super(database, iFileName, iListener, null);
+	}
+
+	/**
+	 * Returns true if the file has been exported in the binary format.
+	 */
+	public static boolean isBinary(final String iFileName) throws IOException {
+		final DataInputStream file = new DataInputStream(new FileInputStream(iFileName));
+		try {
+			return file.readInt() == OConsoleDatabaseExportBinary.MAGIC;
+		} catch (EOFException e) {
+			return false;
+		} finally {
+			file.close();
+		}
+	}
+
+	@Override
+	public OConsoleDatabaseImport importDatabase() {
+		try {
+			final long time = System.currentTimeMillis();
+
+			in = new FileInputStream(fileName).getChannel();
+
+			final ByteBuffer fileHeader = ByteBuffer.allocate(8);
+			read(fileHeader);
+			if (fileHeader.getInt() != OConsoleDatabaseExportBinary.MAGIC)
+				throw new ODatabaseImportException("File " + fileName + " is not a binary export");
+			final int version = fileHeader.getInt();
+			if (version != OConsoleDatabaseExportBinary.VERSION)
+				throw new ODatabaseImportException("Binary export version " + version + " is not supported");
+
+			OImportWorker[] workers = null;
+			long recordsTime = 0;
+			long lastProgress = 0;
+			byte type;
+
+			do {
+				header.clear();
+				read(header);
+				type = header.get();
+				final int clusterId = header.getInt();
+				final int records = header.getInt();
+				final int length = header.getInt();
+				final byte[] content = new byte[header.getInt()];
+				read(ByteBuffer.wrap(content));
+
+				if (type == OConsoleDatabaseExportBinary.BLOCK_RECORDS) {
+					if (workers == null) {
+						listener.onMessage("\nImporting records using " + threads + " threads...");
+						recordsTime = lastProgress = System.currentTimeMillis();
+						workers = startWorkers();
+					}
+
+					// THE BLOCKS OF THE SAME CLUSTER ARE ALWAYS IMPORTED BY THE SAME WORKER, IN ORDER
+					workers[clusterId % workers.length].queue.put(new OImportBlock(clusterId, records, length, content));
+
+					if (error != null)
+						break;
+
+					if (System.currentTimeMillis() - lastProgress > PROGRESS_INTERVAL) {
+						lastProgress = System.currentTimeMillis();
+						listener.onMessage("\n- Imported " + recordsImported.get() + " records ("
+								+ (recordsImported.get() * 1000 / (lastProgress - recordsTime)) + " records/sec)");
+					}
+
+				} else {
+					if (workers != null) {
+						// ALL THE RECORDS HAVE BEEN READ
+						stopWorkers(workers, recordsTime);
+						workers = null;
+					}
+
+					if (type == OConsoleDatabaseExportBinary.BLOCK_METADATA || type == OConsoleDatabaseExportBinary.BLOCK_DICTIONARY) {
+						jsonReader = new OJSONReader(new InputStreamReader(new ByteArrayInputStream(inflate(content, length)), "UTF-8"));
+						importJSON();
+					}
+				}
+			} while (type != OConsoleDatabaseExportBinary.BLOCK_END);
+
+			if (workers != null)
+				stopWorkers(workers, recordsTime);
+
+			if (error != null)
+				throw error;
+
+			deleteHoles();
+			rebuildIndexes();
+
+			listener.onMessage("\n\nImport completed in " + ((System.currentTimeMillis() - time)) + " ms");
+
+		} catch (Exception e) {
+			e.printStackTrace();
+			throw new ODatabaseImportException("Error on importing database '" + database.getName() + "' from file: " + fileName, e);
+		} finally {
+			close();
+		}
+
+		return this;
+	}
+
+	@Override
+	public void close() {
+		super.close();
+
+		if (in == null)
+			return;
+
+		try {
+			in.close();
+			in = null;
+		} catch (IOException e) {
+		}
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	public void setThreads(final int threads) {
+		this.threads = threads;
+	}
+
+	private OImportWorker[] startWorkers() {
+		final OImportWorker[] workers = new OImportWorker[threads];
+		for (int i = 0; i < workers.length; ++i) {
+			workers[i] = new OImportWorker(i);
+			workers[i].start();
+		}
+		return workers;
+	}
+
+	private void stopWorkers(final OImportWorker[] iWorkers, final long iStartTime) throws InterruptedException {
+		for (OImportWorker worker : iWorkers)
+			worker.queue.put(END_BLOCK);
+		for (OImportWorker worker : iWorkers)
+			worker.join();
+
+		final long elapsed = Math.max(1, System.currentTimeMillis() - iStartTime);
+		listener.onMessage("\n\nDone. Imported " + recordsImported.get() + " records in " + elapsed + "ms ("
+				+ (recordsImported.get() * 1000 / elapsed) + " records/sec)\n");
+	}
+
+	/**
+	 * Inserts the records of a block. The holes between the records are filled with temporary records, deleted at the end of the
+	 * import, so the records keep their positions. Records at positions already used in the new database, such as the default
+	 * users, are overwritten.
+	 */
+	private void importBlock(final OImportBlock iBlock, final Map<Integer, Long> iNextPositions) throws IOException,
+			DataFormatException {
+		final OStorage storage = database.getStorage();
+		final DataInputStream stream = new DataInputStream(new ByteArrayInputStream(inflate(iBlock.content, iBlock.length)));
+
+		Long nextPosition = iNextPositions.get(iBlock.clusterId);
+		if (nextPosition == null)
+			nextPosition = storage.getClusterLastEntryPosition(iBlock.clusterId) + 1;
+
+		long position;
+		byte recordType;
+		byte[] content;
+		for (int i = 0; i < iBlock.records; ++i) {
+			position = stream.readLong();
+			stream.readInt();
+			recordType = stream.readByte();
+			final int length = stream.readInt();
+			content = length > -1 ? new byte[length] : EMPTY_CONTENT;
+			stream.readFully(content);
+
+			if (position < nextPosition) {
+				// REWRITE THE EXISTENT RECORD
+				if (storage.updateRecord(database.getId(), iBlock.clusterId, position, content, -1, recordType) == -1)
+					throw new OSchemaException("Can't overwrite the record #" + iBlock.clusterId + ":" + position + " in the database");
+			} else {
+				for (; nextPosition < position; ++nextPosition)
+					holes.add(new ORecordId(iBlock.clusterId, storage.createRecord(iBlock.clusterId, EMPTY_CONTENT, recordType)));
+
+				final long newPosition = storage.createRecord(iBlock.clusterId, content, recordType);
+				if (newPosition != position)
+					throw new OSchemaException("Imported record #" + iBlock.clusterId + ":" + newPosition
+							+ " has position different from the original: " + position);
+				nextPosition = position + 1;
+			}
+		}
+
+		iNextPositions.put(iBlock.clusterId, nextPosition);
+		recordsImported.addAndGet(iBlock.records);
+	}
+
+	/**
+	 * Deletes all the temporary records created to fill the holes.
+	 */
+	private void deleteHoles() {
+		listener.onMessage("\nDelete temporary records...");
+
+		final OStorage storage = database.getStorage();
+		for (ORecordId rid : holes)
+			storage.deleteRecord(database.getId(), rid, -1);
+
+		listener.onMessage("OK (" + holes.size() + " records)");
+	}
+
+	/**
+	 * Rebuilds all the indexes, since the records have been inserted without updating them.
+	 */
+	private void rebuildIndexes() {
+		listener.onMessage("\nRebuilding indexes...");
+
+		final long time = System.currentTimeMillis();
+		int indexes = 0;
+
+		for (OClass cls : database.getMetadata().getSchema().getClasses())
+			for (OProperty prop : cls.declaredProperties())
+				if (prop.getIndex() != null) {
+					prop.getIndex().rebuild();
+					++indexes;
+				}
+
+		listener.onMessage("OK (" + indexes + " indexes in " + (System.currentTimeMillis() - time) + "ms)");
+	}
+
+	private static byte[] inflate(final byte[] iContent, final int iLength) throws DataFormatException {
+		final Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(iContent);
+			final byte[] content = new byte[iLength];
+			int read = 0;
+			while (read < iLength && !inflater.finished())
+				read += inflater.inflate(content, read, iLength - read);
+			if (read != iLength)
+				throw new DataFormatException("Block of " + iLength + " bytes truncated at " + read);
+			return content;
+		} finally {
+			inflater.end();
+		}
+	}
+
+	private void read(final ByteBuffer iBuffer) throws IOException {
+		while (iBuffer.hasRemaining())
+			if (in.read(iBuffer) == -1)
+				throw new EOFException("Unexpected end of file " + fileName);
+		iBuffer.flip();
+	}
+
+	private static class OImportBlock {
+		private final int			clusterId;
+		private final int			records;
+		private final int			length;
+		private final byte[]	content;
+
+		private OImportBlock(final int iClusterId, final int iRecords, final int iLength, final byte[] iContent) {
+			clusterId = iClusterId;
+			records = iRecords;
+			length = iLength;
+			content = iContent;
+		}
+	}
+
+	private class OImportWorker extends Thread {
+		private final BlockingQueue<OImportBlock>	queue	= new ArrayBlockingQueue<OImportBlock>(2);
+
+		private OImportWorker(final int iId) {
+			super("OrientDB Import-" + iId);
+			setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			final Map<Integer, Long> nextPositions = new HashMap<Integer, Long>();
+			try {
+				OImportBlock block;
+				while ((block = queue.take()) != END_BLOCK)
+					if (error == null)
+						importBlock(block, nextPositions);
+			} catch (Exception e) {
+				error = e;
+				// CONSUME THE REMAINING BLOCKS TO NOT BLOCK THE READER
+				try {
+					while (queue.take() != END_BLOCK)
+						;
+				} catch (InterruptedException e1) {
+				}
+			}
+		}
+	}
+}